@@ -0,0 +1,386 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb;
+
+import com.izettle.metrics.influxdb.InfluxDbHttpSender;
+import com.izettle.metrics.influxdb.data.InfluxDbPoint;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLSocketFactory;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.ProxySelector;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Base class for the senders that write gzip compressed line protocol to an InfluxDB HTTP write endpoint.
+ * <p>
+ * Subclasses provide the URL of the write endpoint and the value of the {@code Authorization} header.
+ * <p>
+ * The points of a report are encoded while they are written, through a gzip stream into a request body with chunked
+ * transfer encoding. So the memory needed for a report is a fixed buffer instead of the encoded and the compressed
+ * report.
+ * <p>
+ * The response is always read completely, so the connection stays open and is reused by the next request instead of
+ * connecting (and for HTTPS doing a full TLS handshake) for every report. The connection is only closed after an
+ * error, the next request connects to the then resolved address of the host.
+ * <p>
+ * With an {@link EndpointResolver} the requests connect to the address of the resolver instead of the address the JVM
+ * resolves, the Host header and for HTTPS the server name indication and the certificate verification still use the
+ * configured host. A connect error, a timeout or a server error (5xx) switches the resolver to the next address of the
+ * host, and a persistent connection is only reused for the same address. Without the resolver, or if the URL is
+ * connected through a configured proxy, the connection resolves the host itself.
+ */
+public abstract class AbstractInfluxDbHttpSender extends InfluxDbHttpSender implements Closeable {
+
+    static final int CHUNK_SIZE = 64 * 1024;
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private final @Nullable String authorization;
+    private final int connectTimeout;
+    private final int readTimeout;
+    private final @NotNull URL url;
+    private final @NotNull LineProtocolEncoder encoder;
+    private final @Nullable SSLSocketFactory sslSocketFactory;
+
+    private final @NotNull List<InfluxDbPoint> points = new ArrayList<>();
+    private @NotNull Map<String, String> tags = new HashMap<>();
+    private volatile @Nullable EndpointResolver resolver;
+    private @Nullable EndpointSocketFactory endpointSocketFactory;
+
+    protected AbstractInfluxDbHttpSender(
+            final @NotNull String protocol,
+            final @NotNull String host,
+            final int port,
+            final @NotNull String database,
+            final @Nullable String authString,
+            final @NotNull TimeUnit timePrecision,
+            final int connectTimeout,
+            final int readTimeout,
+            final @NotNull String measurementPrefix,
+            final @NotNull URL url,
+            final @Nullable String authorization,
+            final @Nullable SSLSocketFactory sslSocketFactory) throws Exception {
+        super(protocol,
+                host,
+                port,
+                database,
+                Objects.requireNonNullElse(authString, ""),
+                timePrecision,
+                connectTimeout,
+                readTimeout,
+                measurementPrefix);
+        this.authorization = authorization;
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+        this.url = url;
+        this.encoder = new LineProtocolEncoder(measurementPrefix, timePrecision);
+        this.sslSocketFactory = sslSocketFactory;
+    }
+
+    /**
+     * Follows the addresses of the host with the given resolver, which is started and closed with this sender.
+     */
+    void setEndpointResolver(final @NotNull EndpointResolver resolver) {
+        this.resolver = resolver;
+        resolver.start();
+    }
+
+    @Override
+    public void flush() {
+        points.clear();
+    }
+
+    @Override
+    public boolean hasSeriesData() {
+        return !points.isEmpty();
+    }
+
+    @Override
+    public void appendPoints(final @Nullable InfluxDbPoint point) {
+        if (point != null) {
+            points.add(point);
+        }
+    }
+
+    @Override
+    public void setTags(final @Nullable Map<String, String> tags) {
+        this.tags = tags != null ? new HashMap<>(tags) : new HashMap<>();
+    }
+
+    @Override
+    public @NotNull Map<String, String> getTags() {
+        return tags;
+    }
+
+    @Override
+    public int writeData() throws Exception {
+        return post(out -> {
+            final var writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+            final var line = new StringBuilder();
+            for (final var point : points) {
+                line.setLength(0);
+                if (encoder.encode(point, tags, line)) {
+                    writer.append(line);
+                }
+            }
+            writer.flush();
+        });
+    }
+
+    @Override
+    protected int writeData(final byte @NotNull [] line) throws Exception {
+        return post(out -> out.write(line));
+    }
+
+    @Override
+    public void close() {
+        final var current = resolver;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    private int post(final @NotNull Body body) throws IOException {
+        final var address = endpoint();
+        final var con = open(address);
+        var close = true;
+        try {
+            con.setRequestMethod("POST");
+            if (authorization != null) {
+                con.setRequestProperty("Authorization", authorization);
+            }
+            con.setDoOutput(true);
+            con.setChunkedStreamingMode(CHUNK_SIZE);
+            con.setConnectTimeout(connectTimeout);
+            con.setReadTimeout(readTimeout);
+            con.setRequestProperty("Content-Encoding", "gzip");
+            try (final var out = con.getOutputStream(); final var gzip = new GZIPOutputStream(out, BUFFER_SIZE)) {
+                body.writeTo(gzip);
+                gzip.finish();
+                out.flush();
+            }
+            final var responseCode = con.getResponseCode();
+            final var successful = responseCode / 100 == 2;
+            // reading the response completely returns the connection to the pool of persistent connections
+            try (final var in = successful ? con.getInputStream() : con.getErrorStream()) {
+                if (in != null) {
+                    in.transferTo(OutputStream.nullOutputStream());
+                }
+            }
+            close = false;
+            // check for non 2xx response code
+            if (!successful) {
+                if (responseCode / 100 == 5) {
+                    failed(address);
+                }
+                throw new InfluxDbHttpException(responseCode,
+                        String.format("Server returned HTTP response code %d for URL '%s' with content: %s",
+                                responseCode,
+                                url,
+                                con.getResponseMessage()));
+            }
+            return responseCode;
+        } catch (final IOException e) {
+            // connect errors and timeouts, a client error (4xx) would fail on every address
+            if (!(e instanceof InfluxDbHttpException)) {
+                failed(address);
+            }
+            throw e;
+        } finally {
+            if (close) {
+                con.disconnect();
+            }
+        }
+    }
+
+    /**
+     * @return the address of the host the next request connects to, <b>null</b> if the connection resolves the host
+     *         itself.
+     */
+    private @Nullable InetAddress endpoint() {
+        final var current = resolver;
+        if (current == null || !isDirect()) {
+            return null;
+        }
+        try {
+            // without the host name, so the connection does not resolve the host again
+            return InetAddress.getByAddress(current.current().getAddress());
+        } catch (final UnknownHostException e) {
+            // the connection reports the unknown host
+            return null;
+        }
+    }
+
+    /**
+     * @return <b>true</b> if the URL is not connected through a configured proxy, else <b>false</b>.
+     */
+    private boolean isDirect() {
+        final var proxySelector = ProxySelector.getDefault();
+        if (proxySelector == null) {
+            return true;
+        }
+        try {
+            final var proxies = proxySelector.select(url.toURI());
+            return proxies.isEmpty() || proxies.get(0).type() == Proxy.Type.DIRECT;
+        } catch (final URISyntaxException | IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private @NotNull HttpURLConnection open(final @Nullable InetAddress address) throws IOException {
+        if (address == null) {
+            final var con = (HttpURLConnection) url.openConnection();
+            if (sslSocketFactory != null && con instanceof HttpsURLConnection) {
+                ((HttpsURLConnection) con).setSSLSocketFactory(sslSocketFactory);
+            }
+            return con;
+        }
+        final var port = url.getPort() != -1 ? url.getPort() : url.getDefaultPort();
+        if (!"https".equalsIgnoreCase(url.getProtocol())) {
+            // the address is used like a proxy, the request still targets the URL with the host name (also in the Host
+            // header), and the persistent connection is only reused for the same address
+            return (HttpURLConnection) url.openConnection(new Proxy(Proxy.Type.HTTP,
+                    new InetSocketAddress(address, port)));
+        }
+        final var con = (HttpsURLConnection) url.openConnection(Proxy.NO_PROXY);
+        con.setSSLSocketFactory(endpointSocketFactory(address));
+        return con;
+    }
+
+    /**
+     * @return the socket factory that connects to the given address, persistent connections are only reused for the
+     *         same socket factory.
+     */
+    private synchronized @NotNull SSLSocketFactory endpointSocketFactory(final @NotNull InetAddress address) {
+        final var current = endpointSocketFactory;
+        if (current != null && current.address.equals(address)) {
+            return current;
+        }
+        final var factory = new EndpointSocketFactory(Objects.requireNonNullElseGet(sslSocketFactory,
+                HttpsURLConnection::getDefaultSSLSocketFactory), address);
+        endpointSocketFactory = factory;
+        return factory;
+    }
+
+    private void failed(final @Nullable InetAddress address) {
+        final var current = resolver;
+        if (current != null && address != null) {
+            current.failed(address);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Body {
+
+        void writeTo(@NotNull OutputStream out) throws IOException;
+    }
+
+    /**
+     * Connects the sockets of HTTPS connections to the resolved address of the host. TLS is still established with the
+     * host name, so the server name indication and the verification of the certificate use the configured host.
+     */
+    private static final class EndpointSocketFactory extends SSLSocketFactory {
+
+        private final @NotNull SSLSocketFactory delegate;
+        private final @NotNull InetAddress address;
+
+        EndpointSocketFactory(final @NotNull SSLSocketFactory delegate, final @NotNull InetAddress address) {
+            this.delegate = delegate;
+            this.address = address;
+        }
+
+        @Override
+        public @NotNull Socket createSocket() {
+            // an unconnected plain socket, the connection layers TLS with the host name over it after connecting
+            return new Socket() {
+                @Override
+                public void connect(final @NotNull SocketAddress endpoint, final int timeout) throws IOException {
+                    super.connect(new InetSocketAddress(address, ((InetSocketAddress) endpoint).getPort()), timeout);
+                }
+            };
+        }
+
+        @Override
+        public @NotNull Socket createSocket(
+                final @NotNull Socket socket,
+                final @NotNull String host,
+                final int port,
+                final boolean autoClose) throws IOException {
+            return delegate.createSocket(socket, host, port, autoClose);
+        }
+
+        @Override
+        public @NotNull Socket createSocket(final @NotNull String host, final int port) throws IOException {
+            return delegate.createSocket(host, port);
+        }
+
+        @Override
+        public @NotNull Socket createSocket(
+                final @NotNull String host,
+                final int port,
+                final @NotNull InetAddress localHost,
+                final int localPort) throws IOException {
+            return delegate.createSocket(host, port, localHost, localPort);
+        }
+
+        @Override
+        public @NotNull Socket createSocket(final @NotNull InetAddress host, final int port) throws IOException {
+            return delegate.createSocket(host, port);
+        }
+
+        @Override
+        public @NotNull Socket createSocket(
+                final @NotNull InetAddress host,
+                final int port,
+                final @NotNull InetAddress localAddress,
+                final int localPort) throws IOException {
+            return delegate.createSocket(host, port, localAddress, localPort);
+        }
+
+        @Override
+        public String @NotNull [] getDefaultCipherSuites() {
+            return delegate.getDefaultCipherSuites();
+        }
+
+        @Override
+        public String @NotNull [] getSupportedCipherSuites() {
+            return delegate.getSupportedCipherSuites();
+        }
+    }
+}
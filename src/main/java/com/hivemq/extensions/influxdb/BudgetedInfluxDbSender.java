@@ -0,0 +1,181 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb;
+
+import com.izettle.metrics.influxdb.InfluxDbSender;
+import com.izettle.metrics.influxdb.data.InfluxDbPoint;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sender that reserves the memory of the points of a report in a {@link MemoryBudget}, until the report is written or
+ * spooled by the decorated senders.
+ * <p>
+ * It decorates all senders that keep the points of a report, so a point is reserved once before any of them keeps it.
+ * Points that do not fit into the budget are discarded, written to the spool directory or reduced to a single field,
+ * depending on the {@link MemoryBudget.Policy}. The spooled points are written to the file as they are appended, so
+ * they do not take memory either. After the write the decorated senders are flushed, senders that keep points beyond
+ * the report reserve them again on their own.
+ */
+class BudgetedInfluxDbSender extends ForwardingInfluxDbSender {
+
+    private static final long SPOOL_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    private static final @NotNull Logger LOG = LoggerFactory.getLogger(BudgetedInfluxDbSender.class);
+
+    private final @NotNull MemoryBudget budget;
+    private final @NotNull MemoryBudget.Policy policy;
+    private final @NotNull Path spoolDirectory;
+    private final @NotNull LineProtocolEncoder encoder;
+    private final @NotNull StringBuilder line = new StringBuilder();
+
+    private @Nullable InfluxDbFileSender spoolSender;
+    private long reserved;
+    private int overBudget;
+
+    /**
+     * @param delegate          the sender the points are written to.
+     * @param budget            the budget the points are reserved in.
+     * @param policy            the policy for the points that do not fit into the budget.
+     * @param spoolDirectory    the directory for the spooled points.
+     * @param measurementPrefix the measurement prefix of the spooled points.
+     */
+    BudgetedInfluxDbSender(
+            final @NotNull InfluxDbSender delegate,
+            final @NotNull MemoryBudget budget,
+            final @NotNull MemoryBudget.Policy policy,
+            final @NotNull Path spoolDirectory,
+            final @NotNull String measurementPrefix) {
+        super(delegate);
+        this.budget = budget;
+        this.policy = policy;
+        this.spoolDirectory = spoolDirectory;
+        this.encoder = new LineProtocolEncoder(measurementPrefix, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void flush() {
+        // released first, so the buffers of the decorated senders can reserve the points they keep
+        budget.release(reserved);
+        reserved = 0;
+        super.flush();
+        if (overBudget > 0) {
+            LOG.warn("{} InfluxDB points of the report exceeded the memory budget of {} bytes, policy {}",
+                    overBudget,
+                    budget.getLimit(),
+                    policy);
+            overBudget = 0;
+        }
+    }
+
+    @Override
+    public int writeData() throws Exception {
+        try {
+            return super.writeData();
+        } finally {
+            flush();
+        }
+    }
+
+    @Override
+    public synchronized void appendPoints(final @Nullable InfluxDbPoint point) {
+        if (point == null) {
+            return;
+        }
+        final var size = MemoryBudget.estimate(point);
+        if (budget.tryReserve(size)) {
+            reserved += size;
+            super.appendPoints(point);
+            return;
+        }
+        overBudget++;
+        switch (policy) {
+            case SPOOL:
+                spool(point);
+                break;
+            case DEGRADE:
+                final var degraded = degrade(point);
+                final var degradedSize = MemoryBudget.estimate(degraded);
+                if (budget.tryReserve(degradedSize)) {
+                    reserved += degradedSize;
+                    super.appendPoints(degraded);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * @return the point with only its {@code count} or {@code value} field, or else its first field.
+     */
+    static @NotNull InfluxDbPoint degrade(final @NotNull InfluxDbPoint point) {
+        final var fields = point.getFields();
+        if (fields.size() <= 1) {
+            return point;
+        }
+        String key = fields.containsKey("count") ? "count" : fields.containsKey("value") ? "value" : null;
+        if (key == null) {
+            key = fields.keySet().iterator().next();
+        }
+        final Map<String, Object> degraded = Map.of(key, fields.get(key));
+        return new InfluxDbPoint(point.getMeasurement(), point.getTags(), point.getTime(), degraded);
+    }
+
+    private void spool(final @NotNull InfluxDbPoint point) {
+        line.setLength(0);
+        if (!encoder.encode(point, Objects.requireNonNullElse(getTags(), Map.of()), line)) {
+            return;
+        }
+        try {
+            if (spoolSender == null) {
+                spoolSender = new InfluxDbFileSender(spoolDirectory,
+                        SPOOL_SEGMENT_SIZE,
+                        1,
+                        TimeUnit.HOURS,
+                        false,
+                        TimeUnit.MILLISECONDS,
+                        "",
+                        "");
+            }
+            spoolSender.writeData(line.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (final Exception e) {
+            LOG.error("Could not spool InfluxDB point to {}: {}", spoolDirectory, e.getMessage());
+            LOG.debug("Original Exception: ", e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            if (spoolSender != null) {
+                spoolSender.close();
+            }
+        } finally {
+            super.close();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb;
+
+import com.hivemq.extensions.influxdb.collector.PointCollector;
+import com.izettle.metrics.influxdb.InfluxDbSender;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+/**
+ * Sender that adds the points of the collectors to every report before it is written.
+ */
+class CollectingInfluxDbSender extends ForwardingInfluxDbSender {
+
+    private static final @NotNull Logger LOG = LoggerFactory.getLogger(CollectingInfluxDbSender.class);
+
+    private final @NotNull List<PointCollector> collectors;
+
+    CollectingInfluxDbSender(final @NotNull InfluxDbSender delegate, final @NotNull List<PointCollector> collectors) {
+        super(delegate);
+        this.collectors = List.copyOf(collectors);
+    }
+
+    @Override
+    public boolean hasSeriesData() {
+        // the collectors are only asked for their points when the report is written
+        return delegate.hasSeriesData() || !collectors.isEmpty();
+    }
+
+    @Override
+    public int writeData() throws Exception {
+        final var timestamp = System.currentTimeMillis();
+        for (final var collector : collectors) {
+            try {
+                collector.collect(timestamp, delegate::appendPoints);
+            } catch (final RuntimeException e) {
+                LOG.error("Could not collect points for InfluxDB from {}: {}",
+                        collector.getClass().getSimpleName(),
+                        e.getMessage());
+                LOG.debug("Original Exception: ", e);
+            }
+        }
+        return delegate.writeData();
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb;
+
+import com.izettle.metrics.influxdb.InfluxDbSender;
+import com.izettle.metrics.influxdb.data.InfluxDbPoint;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sender that delays every write by a fixed offset, so the writes of the broker nodes are spread across the reporting
+ * interval while the metrics are still sampled at the same time.
+ * <p>
+ * The points of a report are kept and written by a separate thread after the delay, so the reporter thread is not
+ * blocked and keeps its schedule. The kept points are reserved in the {@link MemoryBudget} when this sender is flushed
+ * after the write of the report, until then the senders before hold their reservation. Failed writes are logged, the
+ * decorated sender is expected to observe them, e.g. an {@link ObservingInfluxDbSender}.
+ */
+class DelayedInfluxDbSender extends ForwardingInfluxDbSender {
+
+    private static final @NotNull Logger LOG = LoggerFactory.getLogger(DelayedInfluxDbSender.class);
+
+    private final long delayMillis;
+    private final @NotNull MemoryBudget budget;
+    private final @NotNull ScheduledExecutorService executor;
+
+    private final @NotNull List<InfluxDbPoint> points = new ArrayList<>();
+    private @Nullable Report unreserved;
+
+    DelayedInfluxDbSender(final @NotNull InfluxDbSender delegate, final long delayMillis) {
+        this(delegate, delayMillis, MemoryBudget.UNLIMITED);
+    }
+
+    /**
+     * @param delegate    the sender the delayed reports are written to.
+     * @param delayMillis the delay of the writes in milliseconds.
+     * @param budget      the budget the delayed reports are reserved in.
+     */
+    DelayedInfluxDbSender(
+            final @NotNull InfluxDbSender delegate,
+            final long delayMillis,
+            final @NotNull MemoryBudget budget) {
+        super(delegate);
+        this.delayMillis = delayMillis;
+        this.budget = budget;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final var thread = new Thread(runnable, "influxdb-delayed-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Derives a deterministic delay from the identity of a broker node, so the delay of a node stays the same across
+     * restarts and the delays of different nodes are evenly distributed.
+     *
+     * @param  nodeIdentity   a value that identifies the broker node, e.g. its host name.
+     * @param  maxDelayMillis the maximum delay in milliseconds.
+     * @return                the delay in milliseconds between 0 and the maximum delay.
+     */
+    static long nodeDelay(final @NotNull String nodeIdentity, final long maxDelayMillis) {
+        // spread the bits of the string hash code with the 64-bit golden ratio (Fibonacci hashing)
+        final var hash = nodeIdentity.hashCode() * 0x9E3779B97F4A7C15L;
+        return Math.floorMod(hash ^ (hash >>> 32), maxDelayMillis + 1);
+    }
+
+    @Override
+    public synchronized void flush() {
+        points.clear();
+        final var report = unreserved;
+        if (report != null) {
+            // the senders before released the reservation of the report before they flush this sender
+            unreserved = null;
+            report.reserve();
+        }
+    }
+
+    @Override
+    public synchronized boolean hasSeriesData() {
+        return !points.isEmpty();
+    }
+
+    @Override
+    public synchronized void appendPoints(final @Nullable InfluxDbPoint point) {
+        if (point != null) {
+            points.add(point);
+        }
+    }
+
+    @Override
+    public synchronized int writeData() throws Exception {
+        final var report = new Report(new ArrayList<>(points));
+        points.clear();
+        try {
+            executor.schedule(() -> write(report), delayMillis, TimeUnit.MILLISECONDS);
+        } catch (final RejectedExecutionException e) {
+            throw new IOException("InfluxDB writes are stopped", e);
+        }
+        unreserved = report;
+        return 0;
+    }
+
+    /**
+     * Discards the reports that are not written yet and waits shortly for a running write, e.g. before the final
+     * report is written directly.
+     */
+    void stop() {
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            stop();
+        } finally {
+            super.close();
+        }
+    }
+
+    private void write(final @NotNull Report report) {
+        report.start();
+        try {
+            delegate.flush();
+            report.points.forEach(delegate::appendPoints);
+            delegate.writeData();
+        } catch (final Exception e) {
+            LOG.warn("Could not write delayed report to InfluxDB: {}", e.getMessage());
+            LOG.debug("Original Exception: ", e);
+        } finally {
+            report.release();
+            // released first, so the buffers of the decorated senders can reserve the points they keep
+            delegate.flush();
+        }
+    }
+
+    /**
+     * The points of a report that waits for its delayed write.
+     */
+    private final class Report {
+
+        private final @NotNull List<InfluxDbPoint> points;
+        private long reserved;
+        private boolean started;
+
+        private Report(final @NotNull List<InfluxDbPoint> points) {
+            this.points = points;
+        }
+
+        private void reserve() {
+            synchronized (DelayedInfluxDbSender.this) {
+                if (started) {
+                    // the points are passed to the decorated sender already
+                    return;
+                }
+                for (var i = 0; i < points.size(); i++) {
+                    final var size = MemoryBudget.estimate(points.get(i));
+                    if (!budget.tryReserve(size)) {
+                        LOG.warn("{} InfluxDB points of the delayed report exceeded the memory budget of {} bytes",
+                                points.size() - i,
+                                budget.getLimit());
+                        points.subList(i, points.size()).clear();
+                        return;
+                    }
+                    reserved += size;
+                }
+            }
+        }
+
+        private void start() {
+            synchronized (DelayedInfluxDbSender.this) {
+                started = true;
+            }
+        }
+
+        private void release() {
+            synchronized (DelayedInfluxDbSender.this) {
+                budget.release(reserved);
+                reserved = 0;
+            }
+        }
+    }
+}
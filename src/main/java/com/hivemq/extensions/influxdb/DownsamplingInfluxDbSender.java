@@ -0,0 +1,311 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb;
+
+import com.izettle.metrics.influxdb.InfluxDbSender;
+import com.izettle.metrics.influxdb.data.InfluxDbPoint;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Sender that additionally aggregates all points of the reports to lower resolutions and writes the aggregates to
+ * separate targets, e.g. a database or bucket with a longer retention, so InfluxDB does not have to downsample them.
+ * <p>
+ * Every resolution aggregates the numeric fields of every series over windows that are aligned to the wall clock, e.g.
+ * every full minute. When the first point of the next window arrives, the aggregates of the completed window are
+ * written with the start of the window as timestamp. A field {@code value} is written as {@code value_mean},
+ * {@code value_min}, {@code value_max}, {@code value_last} and {@code value_sum}, depending on the configured
+ * aggregates. Other fields are written with their last value.
+ * <p>
+ * Failing writes to a target are retried with the next report until the next window is completed, they never fail the
+ * report itself. The aggregates of the incomplete window are discarded when the extension stops.
+ * <p>
+ * The aggregates of the current window and the aggregates that are not written yet are reserved in the
+ * {@link MemoryBudget}, a series or field that does not fit into the budget is not aggregated.
+ */
+class DownsamplingInfluxDbSender extends ForwardingInfluxDbSender {
+
+    static final @NotNull String MEAN = "mean";
+    static final @NotNull String MIN = "min";
+    static final @NotNull String MAX = "max";
+    static final @NotNull String LAST = "last";
+    static final @NotNull String SUM = "sum";
+
+    private static final @NotNull Logger LOG = LoggerFactory.getLogger(DownsamplingInfluxDbSender.class);
+
+    private final @NotNull List<Resolution> resolutions;
+
+    DownsamplingInfluxDbSender(final @NotNull InfluxDbSender delegate, final @NotNull List<Resolution> resolutions) {
+        super(delegate);
+        this.resolutions = List.copyOf(resolutions);
+    }
+
+    @Override
+    public void appendPoints(final @Nullable InfluxDbPoint point) {
+        super.appendPoints(point);
+        if (point != null) {
+            for (final var resolution : resolutions) {
+                resolution.add(point);
+            }
+        }
+    }
+
+    @Override
+    public int writeData() throws Exception {
+        try {
+            return super.writeData();
+        } finally {
+            for (final var resolution : resolutions) {
+                resolution.write();
+            }
+        }
+    }
+
+    @Override
+    public void setTags(final @Nullable Map<String, String> tags) {
+        super.setTags(tags);
+        for (final var resolution : resolutions) {
+            resolution.target.setTags(tags);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            for (final var resolution : resolutions) {
+                if (resolution.target instanceof Closeable) {
+                    ((Closeable) resolution.target).close();
+                }
+            }
+        } finally {
+            super.close();
+        }
+    }
+
+    /**
+     * Aggregates the points to windows of one resolution and writes them to the target of the resolution.
+     */
+    static class Resolution {
+
+        private static final int AGGREGATE_SIZE = 64;
+
+        private final long intervalMillis;
+        private final @NotNull InfluxDbSender target;
+        private final @NotNull Set<String> aggregates;
+        private final @NotNull MemoryBudget budget;
+
+        /**
+         * The series of the current window by measurement and tags.
+         */
+        private final @NotNull Map<String, Map<Map<String, String>, Map<String, Aggregate>>> series = new HashMap<>();
+        private long window = Long.MIN_VALUE;
+        private boolean pending;
+        private long seriesBytes;
+        private long pendingBytes;
+        private boolean overBudget;
+
+        /**
+         * @param intervalMillis the length of the windows in milliseconds.
+         * @param target         the sender for the aggregates.
+         * @param aggregates     the aggregates that are written, e.g. {@code mean} and {@code max}.
+         */
+        Resolution(
+                final long intervalMillis,
+                final @NotNull InfluxDbSender target,
+                final @NotNull Set<String> aggregates) {
+            this(intervalMillis, target, aggregates, MemoryBudget.UNLIMITED);
+        }
+
+        /**
+         * @param intervalMillis the length of the windows in milliseconds.
+         * @param target         the sender for the aggregates.
+         * @param aggregates     the aggregates that are written, e.g. {@code mean} and {@code max}.
+         * @param budget         the budget the aggregates are reserved in.
+         */
+        Resolution(
+                final long intervalMillis,
+                final @NotNull InfluxDbSender target,
+                final @NotNull Set<String> aggregates,
+                final @NotNull MemoryBudget budget) {
+            this.intervalMillis = intervalMillis;
+            this.target = target;
+            this.aggregates = Set.copyOf(aggregates);
+            this.budget = budget;
+        }
+
+        void add(final @NotNull InfluxDbPoint point) {
+            final var pointWindow = Math.floorDiv(point.getTime(), intervalMillis);
+            if (pointWindow > window) {
+                complete();
+                window = pointWindow;
+            }
+            // late points of a completed window are added to the current window
+            final var tags = point.getTags() != null ? point.getTags() : Map.<String, String>of();
+            final var tagged = series.get(point.getMeasurement());
+            var fields = tagged != null ? tagged.get(tags) : null;
+            if (fields == null) {
+                if (!reserve(MemoryBudget.estimateSeries(point.getMeasurement(), tags))) {
+                    return;
+                }
+                fields = new LinkedHashMap<>();
+                series.computeIfAbsent(point.getMeasurement(), measurement -> new HashMap<>()).put(tags, fields);
+            }
+            for (final var field : point.getFields().entrySet()) {
+                if (field.getValue() == null) {
+                    continue;
+                }
+                var aggregate = fields.get(field.getKey());
+                if (aggregate == null) {
+                    if (!reserve(MemoryBudget.estimateField(field.getKey(), null) + AGGREGATE_SIZE)) {
+                        continue;
+                    }
+                    aggregate = new Aggregate();
+                    fields.put(field.getKey(), aggregate);
+                }
+                aggregate.add(field.getValue());
+            }
+        }
+
+        private boolean reserve(final long bytes) {
+            if (!budget.tryReserve(bytes)) {
+                overBudget = true;
+                return false;
+            }
+            seriesBytes += bytes;
+            return true;
+        }
+
+        /**
+         * Passes the aggregates of the completed window to the target, replacing aggregates that were not written.
+         */
+        private void complete() {
+            if (series.isEmpty()) {
+                return;
+            }
+            if (pending) {
+                LOG.warn("Discarding the InfluxDB aggregates of {} s that could not be written", intervalMillis / 1000);
+            }
+            releasePending();
+            // the points of the aggregates replace the series
+            budget.release(seriesBytes);
+            seriesBytes = 0;
+            final var timestamp = window * intervalMillis;
+            series.forEach((measurement, tagged) -> tagged.forEach((tags, fields) -> {
+                final var aggregated = new LinkedHashMap<String, Object>();
+                fields.forEach((name, aggregate) -> aggregate.putFields(name, aggregates, aggregated));
+                final var point = new InfluxDbPoint(measurement, tags, timestamp, aggregated);
+                final var size = MemoryBudget.estimate(point);
+                if (budget.tryReserve(size)) {
+                    pendingBytes += size;
+                    target.appendPoints(point);
+                } else {
+                    overBudget = true;
+                }
+            }));
+            series.clear();
+            pending = true;
+            if (overBudget) {
+                LOG.warn("InfluxDB aggregates of {} s exceeded the memory budget of {} bytes and were discarded",
+                        intervalMillis / 1000,
+                        budget.getLimit());
+                overBudget = false;
+            }
+        }
+
+        /**
+         * Releases the aggregates that were passed to the target and flushes it, so the target can reserve the points
+         * it keeps.
+         */
+        private void releasePending() {
+            budget.release(pendingBytes);
+            pendingBytes = 0;
+            target.flush();
+        }
+
+        private void write() {
+            if (!pending) {
+                return;
+            }
+            try {
+                target.writeData();
+                releasePending();
+                pending = false;
+            } catch (final Exception e) {
+                LOG.error("Could not write InfluxDB aggregates of {} s: {}", intervalMillis / 1000, e.getMessage());
+                LOG.debug("Original Exception: ", e);
+            }
+        }
+    }
+
+    private static class Aggregate {
+
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+        private double sum;
+        private long count;
+        private @Nullable Object last;
+
+        void add(final @NotNull Object value) {
+            last = value;
+            if (value instanceof Number) {
+                final var number = ((Number) value).doubleValue();
+                min = Math.min(min, number);
+                max = Math.max(max, number);
+                sum += number;
+                count++;
+            }
+        }
+
+        void putFields(
+                final @NotNull String name,
+                final @NotNull Set<String> aggregates,
+                final @NotNull Map<String, Object> fields) {
+            if (count == 0) {
+                // not a number
+                if (last != null) {
+                    fields.put(name, last);
+                }
+                return;
+            }
+            if (aggregates.contains(MEAN)) {
+                fields.put(name + "_" + MEAN, sum / count);
+            }
+            if (aggregates.contains(MIN)) {
+                fields.put(name + "_" + MIN, min);
+            }
+            if (aggregates.contains(MAX)) {
+                fields.put(name + "_" + MAX, max);
+            }
+            if (aggregates.contains(LAST) && last != null) {
+                fields.put(name + "_" + LAST, last);
+            }
+            if (aggregates.contains(SUM)) {
+                fields.put(name + "_" + SUM, sum);
+            }
+        }
+    }
+}
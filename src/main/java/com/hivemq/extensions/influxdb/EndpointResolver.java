@@ -0,0 +1,180 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches the addresses of the InfluxDB host, so long-lived connections can follow a changed address without a name
+ * lookup for every write.
+ * <p>
+ * The addresses are resolved once on first use and then refreshed in the background after every time to live, a
+ * failed lookup keeps the previous addresses. If the host resolves to multiple addresses, the same address is used
+ * until it is reported as failed, then the next one is used. Once all addresses failed, the host is resolved again
+ * right away.
+ */
+class EndpointResolver implements Closeable {
+
+    /**
+     * Minimum time between two lookups that are triggered by failed addresses.
+     */
+    private static final long MIN_FAILOVER_REFRESH_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private static final @NotNull Logger LOG = LoggerFactory.getLogger(EndpointResolver.class);
+
+    private final @NotNull String host;
+    private final long ttlMillis;
+    private final @NotNull Lookup lookup;
+
+    private @Nullable ScheduledExecutorService executor;
+    private InetAddress @Nullable [] addresses;
+    private int index;
+    private long lastRefresh;
+
+    EndpointResolver(final @NotNull String host, final long ttlMillis) {
+        this(host, ttlMillis, InetAddress::getAllByName);
+    }
+
+    EndpointResolver(final @NotNull String host, final long ttlMillis, final @NotNull Lookup lookup) {
+        this.host = host;
+        this.ttlMillis = ttlMillis;
+        this.lookup = lookup;
+    }
+
+    /**
+     * Starts the background refresh of the addresses.
+     */
+    synchronized void start() {
+        if (executor != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final var thread = new Thread(runnable, "influxdb-dns-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::refreshQuietly, ttlMillis, ttlMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return the address that should be used for the InfluxDB host, it is only resolved if it was never resolved
+     *         successfully before.
+     * @throws UnknownHostException if the host was never resolved and can not be resolved now.
+     */
+    @NotNull InetAddress current() throws UnknownHostException {
+        synchronized (this) {
+            if (addresses != null) {
+                return addresses[index];
+            }
+        }
+        return refresh();
+    }
+
+    /**
+     * Switches to the next address of the host if the given address is the current one.
+     *
+     * @param address the address a write or connection failed for.
+     */
+    synchronized void failed(final @NotNull InetAddress address) {
+        if (addresses == null || !addresses[index].equals(address)) {
+            // another failure already switched away from this address
+            return;
+        }
+        index = (index + 1) % addresses.length;
+        if (addresses.length > 1) {
+            LOG.warn("InfluxDB address {} of host '{}' failed, switching to {}",
+                    address.getHostAddress(),
+                    host,
+                    addresses[index].getHostAddress());
+        }
+        // all addresses failed, the host might have moved
+        if (index == 0 && executor != null && System.nanoTime() - lastRefresh >= MIN_FAILOVER_REFRESH_INTERVAL_NANOS) {
+            executor.execute(this::refreshQuietly);
+        }
+    }
+
+    /**
+     * Resolves the host and replaces the cached addresses if they changed.
+     *
+     * @return the address that should be used for the InfluxDB host.
+     * @throws UnknownHostException if the host could not be resolved.
+     */
+    @NotNull InetAddress refresh() throws UnknownHostException {
+        final var resolved = lookup.resolve(host);
+        if (resolved.length == 0) {
+            throw new UnknownHostException(host);
+        }
+        synchronized (this) {
+            lastRefresh = System.nanoTime();
+            if (addresses != null && toSet(addresses).equals(toSet(resolved))) {
+                // the order might change with every lookup (round robin DNS), stick to the current address
+                return addresses[index];
+            }
+            final var current = addresses != null ? addresses[index] : null;
+            final var currentIndex = current != null ? Arrays.asList(resolved).indexOf(current) : -1;
+            addresses = resolved;
+            index = Math.max(currentIndex, 0);
+            if (current != null) {
+                LOG.info("InfluxDB host '{}' resolves to {} now", host, Arrays.toString(resolved));
+            }
+            return addresses[index];
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (final UnknownHostException e) {
+            LOG.warn("Could not resolve InfluxDB host '{}', keeping the previous addresses: {}", host, e.getMessage());
+            LOG.debug("Original Exception: ", e);
+        }
+    }
+
+    private static @NotNull Set<InetAddress> toSet(final InetAddress @NotNull [] addresses) {
+        return new HashSet<>(Arrays.asList(addresses));
+    }
+
+    /**
+     * Resolves all addresses of a host name.
+     */
+    @FunctionalInterface
+    interface Lookup {
+
+        InetAddress @NotNull [] resolve(@NotNull String host) throws UnknownHostException;
+    }
+}
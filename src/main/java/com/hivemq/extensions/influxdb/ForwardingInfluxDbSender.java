@@ -0,0 +1,75 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb;
+
+import com.izettle.metrics.influxdb.InfluxDbSender;
+import com.izettle.metrics.influxdb.data.InfluxDbPoint;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Sender that forwards all calls to another sender. Subclasses override the calls they decorate.
+ */
+abstract class ForwardingInfluxDbSender implements InfluxDbSender, Closeable {
+
+    protected final @NotNull InfluxDbSender delegate;
+
+    ForwardingInfluxDbSender(final @NotNull InfluxDbSender delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void flush() {
+        delegate.flush();
+    }
+
+    @Override
+    public boolean hasSeriesData() {
+        return delegate.hasSeriesData();
+    }
+
+    @Override
+    public void appendPoints(final @Nullable InfluxDbPoint point) {
+        delegate.appendPoints(point);
+    }
+
+    @Override
+    public int writeData() throws Exception {
+        return delegate.writeData();
+    }
+
+    @Override
+    public void setTags(final @Nullable Map<String, String> tags) {
+        delegate.setTags(tags);
+    }
+
+    @Override
+    public @Nullable Map<String, String> getTags() {
+        return delegate.getTags();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (delegate instanceof Closeable) {
+            ((Closeable) delegate).close();
+        }
+    }
+}
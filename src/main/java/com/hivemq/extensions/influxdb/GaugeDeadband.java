@@ -0,0 +1,153 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Suppresses the numeric values of gauges that did not change beyond a deadband since the value that was last written.
+ * <p>
+ * A value is written if it differs from the last written value by more than the absolute deadband and by more than the
+ * relative deadband (a fraction of the last written value). With both deadbands zero only changed values are written.
+ * Every gauge is written at least every keyframe interval reports, so queries over a recent time range and alerts on
+ * missing data still see the gauge. The last written values are kept in arrays indexed by the slot of the gauge, the
+ * slots of removed gauges are reused.
+ */
+class GaugeDeadband {
+
+    private static final int NO_SLOT = -1;
+    private static final int INITIAL_SLOTS = 64;
+
+    private final @NotNull List<MetricNameFilter> filters;
+    private final double absolute;
+    private final double relative;
+    private final int keyframeInterval;
+    private final @NotNull Map<String, Integer> slots = new HashMap<>();
+    private double @NotNull [] lastValues = new double[INITIAL_SLOTS];
+    private int @NotNull [] suppressed = new int[INITIAL_SLOTS];
+    private boolean @NotNull [] written = new boolean[INITIAL_SLOTS];
+    private int nextSlot;
+    private int @NotNull [] freeSlots = new int[INITIAL_SLOTS];
+    private int freeSlotCount;
+
+    /**
+     * @param filters          the filters of the gauges with a deadband.
+     * @param absolute         the absolute deadband.
+     * @param relative         the relative deadband as fraction of the last written value.
+     * @param keyframeInterval the number of reports after which a value is written even if it did not change.
+     */
+    GaugeDeadband(
+            final @NotNull List<String> filters,
+            final double absolute,
+            final double relative,
+            final int keyframeInterval) {
+        this.filters = filters.stream().map(MetricNameFilter::new).collect(Collectors.toList());
+        this.absolute = absolute;
+        this.relative = relative;
+        this.keyframeInterval = keyframeInterval;
+    }
+
+    /**
+     * @return <b>true</b> if the value of the gauge is within the deadband and is not written.
+     */
+    boolean suppress(final @NotNull String name, final double value) {
+        if (filters.isEmpty()) {
+            return false;
+        }
+        final int slot = slots.computeIfAbsent(name, this::resolveSlot);
+        if (slot == NO_SLOT) {
+            return false;
+        }
+        if (written[slot] && suppressed[slot] + 1 < keyframeInterval && withinDeadband(lastValues[slot], value)) {
+            suppressed[slot]++;
+            return true;
+        }
+        written[slot] = true;
+        suppressed[slot] = 0;
+        lastValues[slot] = value;
+        return false;
+    }
+
+    /**
+     * Removes the slots of the gauges that are no longer reported, they are reused for the next gauges.
+     *
+     * @param names the names of the reported gauges.
+     */
+    void prune(final @NotNull Set<String> names) {
+        // every reported gauge has a slot, so there is nothing to remove as long as there are not more slots than names
+        if (slots.size() <= names.size()) {
+            return;
+        }
+        final var iterator = slots.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final var entry = iterator.next();
+            if (!names.contains(entry.getKey())) {
+                iterator.remove();
+                releaseSlot(entry.getValue());
+            }
+        }
+    }
+
+    private void releaseSlot(final int slot) {
+        if (slot == NO_SLOT) {
+            return;
+        }
+        // the next gauge of the slot writes its first value
+        written[slot] = false;
+        if (freeSlotCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeSlotCount * 2);
+        }
+        freeSlots[freeSlotCount++] = slot;
+    }
+
+    private boolean withinDeadband(final double last, final double value) {
+        if (Double.compare(last, value) == 0) {
+            return true;
+        }
+        final var difference = Math.abs(value - last);
+        // NaN and infinite values are always written when they change
+        if (!Double.isFinite(difference)) {
+            return false;
+        }
+        return difference <= absolute || difference <= relative * Math.abs(last);
+    }
+
+    private int resolveSlot(final @NotNull String name) {
+        final var parts = MetricNameFilter.split(name);
+        for (final var filter : filters) {
+            if (filter.matches(parts)) {
+                if (freeSlotCount > 0) {
+                    return freeSlots[--freeSlotCount];
+                }
+                if (nextSlot == lastValues.length) {
+                    lastValues = Arrays.copyOf(lastValues, nextSlot * 2);
+                    suppressed = Arrays.copyOf(suppressed, nextSlot * 2);
+                    written = Arrays.copyOf(written, nextSlot * 2);
+                }
+                return nextSlot++;
+            }
+        }
+        return NO_SLOT;
+    }
+}
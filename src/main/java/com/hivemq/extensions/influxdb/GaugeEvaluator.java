@@ -0,0 +1,341 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb;
+
+import com.codahale.metrics.Gauge;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Evaluates the gauges of a report within a time budget, so a slow or blocking gauge does not delay the whole report.
+ * <p>
+ * The evaluations of all gauges of a report are submitted to a bounded pool of background threads first, then the
+ * report waits once until the budget has passed or all evaluations completed. The evaluation cost of every gauge is
+ * tracked as an exponentially weighted moving average. A gauge that does not complete within the budget or whose
+ * average cost exceeds the budget is slow: the report uses the value of its last evaluation, and the gauge is evaluated
+ * again when its value is older than the time to live. A slow gauge is evaluated with every report again once its
+ * average cost is below half the budget. A gauge that throws or has no value yet is skipped in the report.
+ * <p>
+ * An evaluation that is still pending after the time to live is stuck, it is cancelled and replaced by a new one. If
+ * the cancelled evaluation keeps blocking its thread, the pool gets an additional thread until it returns, and the
+ * gauge is not evaluated again before. So a blocking gauge only stalls itself, not the evaluations that are queued
+ * behind it.
+ */
+class GaugeEvaluator implements Closeable {
+
+    private static final int MAX_THREADS = 4;
+
+    private static final @NotNull Logger LOG = LoggerFactory.getLogger(GaugeEvaluator.class);
+
+    private final long budgetNanos;
+    private final long ttlMillis;
+    private final @NotNull ThreadPoolExecutor executor;
+    private final @NotNull Map<String, Evaluation> evaluations = new HashMap<>();
+    private final @NotNull Map<String, Evaluation> unmodifiableEvaluations = Collections.unmodifiableMap(evaluations);
+    private final @NotNull List<Future<?>> submitted = new ArrayList<>();
+    private long reports;
+    private int blockedThreads;
+
+    /**
+     * @param budget the time budget of a report for the evaluation of the gauges.
+     * @param ttl    the time after which the cached value of a slow gauge is evaluated again.
+     * @param unit   the unit of the budget and the time to live.
+     */
+    GaugeEvaluator(final long budget, final long ttl, final @NotNull TimeUnit unit) {
+        this.budgetNanos = unit.toNanos(budget);
+        this.ttlMillis = unit.toMillis(ttl);
+        // every gauge has at most one pending evaluation, so the queue is bounded by the number of gauges
+        this.executor = new ThreadPoolExecutor(MAX_THREADS,
+                MAX_THREADS,
+                60,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    final var thread = new Thread(runnable, "influxdb-gauge-evaluator");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Evaluates the gauges of a report within the time budget, or serves the cached values of slow gauges. The
+     * evaluations of gauges that are no longer reported are removed.
+     *
+     * @param  gauges the gauges of the report by their names.
+     * @param  now    the time of the report in milliseconds.
+     * @return        the evaluations of the gauges by their names, reused for every report.
+     */
+    @SuppressWarnings("rawtypes")
+    @NotNull Map<String, Evaluation> evaluate(final @NotNull Map<String, Gauge> gauges, final long now) {
+        final var deadline = System.nanoTime() + budgetNanos;
+        final var report = ++reports;
+        gauges.forEach((name, gauge) -> submit(name, gauge, report, now));
+        try {
+            for (final var pending : submitted) {
+                try {
+                    pending.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                } catch (final TimeoutException | ExecutionException | CancellationException ignored) {
+                    // the report uses the cached value
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            submitted.clear();
+        }
+        final var iterator = evaluations.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final var entry = iterator.next();
+            final var evaluation = entry.getValue();
+            if (evaluation.reported != report) {
+                // the gauge was removed from the registry
+                if (evaluation.pending != null) {
+                    evaluation.pending.cancel(true);
+                }
+                iterator.remove();
+            } else {
+                complete(entry.getKey(), evaluation, now);
+            }
+        }
+        return unmodifiableEvaluations;
+    }
+
+    private void submit(final @NotNull String name, final @NotNull Gauge<?> gauge, final long report, final long now) {
+        final var evaluation = evaluations.computeIfAbsent(name, key -> new Evaluation());
+        evaluation.reported = report;
+        evaluation.submitted = false;
+        final var pending = evaluation.pending;
+        if (pending != null) {
+            if (pending.isDone()) {
+                evaluation.pending = null;
+            } else if (now - evaluation.pendingSince >= ttlMillis) {
+                LOG.warn("InfluxDB gauge {} did not complete its evaluation within {} ms, cancelling it",
+                        name,
+                        ttlMillis);
+                abandon(evaluation);
+            } else {
+                // still evaluating, the report waits for it as well
+                submitted.add(pending);
+                return;
+            }
+        }
+        final var abandoned = evaluation.abandoned;
+        if (abandoned != null && !abandoned.isFinished()) {
+            // the cancelled evaluation still blocks its thread, evaluating the gauge again would block another one
+            return;
+        }
+        evaluation.abandoned = null;
+        final var previous = evaluation.result;
+        if (evaluation.slow && previous != null && now - previous.evaluated < ttlMillis) {
+            return;
+        }
+        final var task = new Task(evaluation, gauge, now);
+        try {
+            final var future = executor.submit(task);
+            evaluation.task = task;
+            evaluation.pending = future;
+            evaluation.pendingSince = now;
+            evaluation.submitted = true;
+            submitted.add(future);
+        } catch (final RejectedExecutionException e) {
+            LOG.debug("Could not evaluate InfluxDB gauge {}: {}", name, e.getMessage());
+        }
+    }
+
+    private void complete(final @NotNull String name, final @NotNull Evaluation evaluation, final long now) {
+        if (evaluation.pending != null && evaluation.pending.isDone()) {
+            evaluation.pending = null;
+        }
+        final var result = evaluation.result;
+        evaluation.cached = !evaluation.submitted || evaluation.pending != null;
+        evaluation.value = result != null ? result.value : null;
+        evaluation.evaluated = result != null ? result.evaluated : now;
+        if (!evaluation.slow && (evaluation.pending != null || evaluation.averageCost > budgetNanos)) {
+            evaluation.slow = true;
+            LOG.info("InfluxDB gauge {} exceeds its time budget, writing its cached value", name);
+        } else if (evaluation.slow && evaluation.pending == null && evaluation.averageCost < budgetNanos / 2) {
+            evaluation.slow = false;
+        }
+    }
+
+    /**
+     * Cancels the pending evaluation, an additional thread replaces the thread the evaluation keeps blocking.
+     */
+    private void abandon(final @NotNull Evaluation evaluation) {
+        final var pending = evaluation.pending;
+        final var task = evaluation.task;
+        evaluation.pending = null;
+        evaluation.task = null;
+        if (pending != null) {
+            pending.cancel(true);
+        }
+        if (task != null && task.abandon()) {
+            evaluation.abandoned = task;
+            resizePool(1);
+        }
+    }
+
+    private void resizePool(final int delta) {
+        synchronized (executor) {
+            blockedThreads += delta;
+            final var size = MAX_THREADS + blockedThreads;
+            // the core size must never exceed the maximum size
+            if (delta > 0) {
+                executor.setMaximumPoolSize(size);
+                executor.setCorePoolSize(size);
+            } else {
+                executor.setCorePoolSize(size);
+                executor.setMaximumPoolSize(size);
+            }
+        }
+    }
+
+    private static void evaluate(final @NotNull Evaluation evaluation, final @NotNull Gauge<?> gauge, final long now) {
+        final var start = System.nanoTime();
+        Object value;
+        try {
+            value = gauge.getValue();
+        } catch (final RuntimeException e) {
+            LOG.debug("Could not evaluate InfluxDB gauge: {}", e.getMessage());
+            value = null;
+        }
+        evaluation.updateCost(System.nanoTime() - start);
+        evaluation.result = new Result(value, now);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * The value of a gauge in a report.
+     */
+    static final class Evaluation {
+
+        private volatile long averageCost;
+        private volatile @Nullable Result result;
+        private @Nullable Future<?> pending;
+        private @Nullable Task task;
+        private @Nullable Task abandoned;
+        private long pendingSince;
+        private long reported;
+        private boolean submitted;
+        private boolean slow;
+
+        /**
+         * The value of the gauge, <b>null</b> if it could not be evaluated.
+         */
+        @Nullable Object value;
+        /**
+         * The time in milliseconds when the value was evaluated.
+         */
+        long evaluated;
+        /**
+         * <b>true</b> if the value is the value of an earlier evaluation, as the gauge is slow.
+         */
+        boolean cached;
+
+        private void updateCost(final long cost) {
+            // only the single pending (or abandoned) evaluation of the gauge updates the cost
+            averageCost = (averageCost + cost) / 2;
+        }
+    }
+
+    /**
+     * A single evaluation of a gauge, it releases the additional thread of the pool if it was abandoned while it
+     * blocked its thread.
+     */
+    private final class Task implements Runnable {
+
+        private final @NotNull Evaluation evaluation;
+        private final @NotNull Gauge<?> gauge;
+        private final long now;
+        private boolean started;
+        private boolean finished;
+        private boolean abandoned;
+
+        private Task(final @NotNull Evaluation evaluation, final @NotNull Gauge<?> gauge, final long now) {
+            this.evaluation = evaluation;
+            this.gauge = gauge;
+            this.now = now;
+        }
+
+        @Override
+        public void run() {
+            synchronized (this) {
+                if (abandoned) {
+                    return;
+                }
+                started = true;
+            }
+            try {
+                evaluate(evaluation, gauge, now);
+            } finally {
+                final boolean release;
+                synchronized (this) {
+                    finished = true;
+                    release = abandoned;
+                }
+                if (release) {
+                    resizePool(-1);
+                }
+            }
+        }
+
+        /**
+         * @return <b>true</b> if the evaluation is still running and keeps its thread, else <b>false</b>.
+         */
+        private synchronized boolean abandon() {
+            abandoned = true;
+            return started && !finished;
+        }
+
+        private synchronized boolean isFinished() {
+            return finished;
+        }
+    }
+
+    private static final class Result {
+
+        private final @Nullable Object value;
+        private final long evaluated;
+
+        private Result(final @Nullable Object value, final long evaluated) {
+            this.value = value;
+            this.evaluated = evaluated;
+        }
+    }
+}
@@ -16,27 +16,21 @@
 
 package com.hivemq.extensions.influxdb;
 
-import com.izettle.metrics.influxdb.InfluxDbHttpSender;
 import com.izettle.metrics.influxdb.utils.TimeUtils;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.io.IOException;
-import java.net.HttpURLConnection;
+import javax.net.ssl.SSLSocketFactory;
+import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.concurrent.TimeUnit;
-import java.util.zip.GZIPOutputStream;
 
 /**
  * Sender for InfluxDB Cloud.
  */
-public class InfluxDbCloudSender extends InfluxDbHttpSender {
-
-    private final @NotNull String authToken;
-    private final int connectTimeout;
-    private final int readTimeout;
-    private final @NotNull URL url;
+public class InfluxDbCloudSender extends AbstractInfluxDbHttpSender {
 
     public InfluxDbCloudSender(
             final @NotNull String protocol,
@@ -49,44 +43,56 @@ public class InfluxDbCloudSender extends InfluxDbHttpSender {
             final @NotNull String measurementPrefix,
             final @NotNull String organization,
             final @NotNull String bucket) throws Exception {
-        super(protocol, host, port, "", authToken, timePrecision, connectTimeout, readTimeout, measurementPrefix);
-        this.authToken = authToken;
-        this.connectTimeout = connectTimeout;
-        this.readTimeout = readTimeout;
+        this(protocol,
+                host,
+                port,
+                authToken,
+                timePrecision,
+                connectTimeout,
+                readTimeout,
+                measurementPrefix,
+                organization,
+                bucket,
+                null);
+    }
+
+    public InfluxDbCloudSender(
+            final @NotNull String protocol,
+            final @NotNull String host,
+            final int port,
+            final @NotNull String authToken,
+            final @NotNull TimeUnit timePrecision,
+            final int connectTimeout,
+            final int readTimeout,
+            final @NotNull String measurementPrefix,
+            final @NotNull String organization,
+            final @NotNull String bucket,
+            final @Nullable SSLSocketFactory sslSocketFactory) throws Exception {
+        super(protocol,
+                host,
+                port,
+                "",
+                authToken,
+                timePrecision,
+                connectTimeout,
+                readTimeout,
+                measurementPrefix,
+                writeUrl(protocol, host, port, timePrecision, organization, bucket),
+                "Token " + authToken,
+                sslSocketFactory);
+    }
+
+    private static @NotNull URL writeUrl(
+            final @NotNull String protocol,
+            final @NotNull String host,
+            final int port,
+            final @NotNull TimeUnit timePrecision,
+            final @NotNull String organization,
+            final @NotNull String bucket) throws MalformedURLException {
         final var endpoint = new URL(protocol, host, port, "/api/v2/write").toString();
         final var queryPrecision = String.format("precision=%s", TimeUtils.toTimePrecision(timePrecision));
         final var orgParameter = String.format("org=%s", URLEncoder.encode(organization, StandardCharsets.UTF_8));
         final var bucketParameter = String.format("bucket=%s", URLEncoder.encode(bucket, StandardCharsets.UTF_8));
-        this.url = new URL(String.format("%s?%s&%s&%s", endpoint, queryPrecision, orgParameter, bucketParameter));
-    }
-
-    @Override
-    protected int writeData(final byte @NotNull [] line) throws Exception {
-        final var con = (HttpURLConnection) url.openConnection();
-        try {
-            con.setRequestMethod("POST");
-            con.setRequestProperty("Authorization", "Token " + authToken);
-            con.setDoOutput(true);
-            con.setConnectTimeout(connectTimeout);
-            con.setReadTimeout(readTimeout);
-            con.setRequestProperty("Content-Encoding", "gzip");
-            try (final var out = con.getOutputStream(); final var gzipOutputStream = new GZIPOutputStream(out)) {
-                gzipOutputStream.write(line);
-                gzipOutputStream.flush();
-                out.flush();
-            }
-            // check for non 2xx response code
-            final var responseCode = con.getResponseCode();
-            if (responseCode / 100 != 2) {
-                throw new IOException(
-                        String.format("Server returned HTTP response code %d for URL '%s' with content: %s",
-                                responseCode,
-                                url,
-                                con.getResponseMessage()));
-            }
-            return responseCode;
-        } finally {
-            con.disconnect();
-        }
+        return new URL(String.format("%s?%s&%s&%s", endpoint, queryPrecision, orgParameter, bucketParameter));
     }
 }
@@ -16,7 +16,6 @@
 
 package com.hivemq.extensions.influxdb;
 
-import com.codahale.metrics.MetricFilter;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.ScheduledReporter;
 import com.hivemq.extension.sdk.api.ExtensionMain;
@@ -25,20 +24,33 @@ import com.hivemq.extension.sdk.api.parameter.ExtensionStartOutput;
 import com.hivemq.extension.sdk.api.parameter.ExtensionStopInput;
 import com.hivemq.extension.sdk.api.parameter.ExtensionStopOutput;
 import com.hivemq.extension.sdk.api.services.Services;
+import com.hivemq.extension.sdk.api.services.intializer.ClientInitializer;
+import com.hivemq.extensions.influxdb.collector.ClientMetrics;
+import com.hivemq.extensions.influxdb.collector.FlightRecorderMetrics;
+import com.hivemq.extensions.influxdb.collector.JvmMetrics;
+import com.hivemq.extensions.influxdb.collector.PointCollector;
+import com.hivemq.extensions.influxdb.collector.ProcMetrics;
+import com.hivemq.extensions.influxdb.collector.PublishLatencyMetrics;
+import com.hivemq.extensions.influxdb.collector.TopicMetrics;
 import com.hivemq.extensions.influxdb.configuration.ConfigResolver;
 import com.hivemq.extensions.influxdb.configuration.InfluxDbConfiguration;
-import com.izettle.metrics.influxdb.InfluxDbHttpSender;
-import com.izettle.metrics.influxdb.InfluxDbReporter;
 import com.izettle.metrics.influxdb.InfluxDbSender;
 import com.izettle.metrics.influxdb.InfluxDbTcpSender;
-import com.izettle.metrics.influxdb.InfluxDbUdpSender;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.net.ssl.SSLSocketFactory;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
-import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -46,27 +58,16 @@ import java.util.concurrent.TimeUnit;
  */
 public class InfluxDbExtensionMain implements ExtensionMain {
 
-    private static final @NotNull Set<String> METER_FIELDS =
-            Set.of("count", "m1_rate", "m5_rate", "m15_rate", "mean_rate");
-    private static final @NotNull Set<String> TIMER_FIELDS = Set.of("count",
-            "min",
-            "max",
-            "mean",
-            "stddev",
-            "p50",
-            "p75",
-            "p95",
-            "p98",
-            "p99",
-            "p999",
-            "m1_rate",
-            "m5_rate",
-            "m15_rate",
-            "mean_rate");
-
     private static final @NotNull Logger LOG = LoggerFactory.getLogger(InfluxDbExtensionMain.class);
 
-    private @Nullable ScheduledReporter reporter;
+    private @Nullable InfluxDbMetricsReporter reporter;
+    private @Nullable LazyInfluxDbSender lazySender;
+    private @Nullable DelayedInfluxDbSender delayedSender;
+    private @Nullable SpoolingInfluxDbSender sender;
+    private @Nullable BudgetedInfluxDbSender budgetedSender;
+    private @Nullable ReportScheduler reportScheduler;
+    private @NotNull List<PointCollector> collectors = List.of();
+    private long shutdownTimeout;
 
     @Override
     public void extensionStart(
@@ -87,15 +88,65 @@ public class InfluxDbExtensionMain implements ExtensionMain {
                 extensionStartOutput.preventExtensionStartup("At least one mandatory property not set or invalid");
                 return;
             }
-            final var sender = setupSender(configuration);
-            if (sender == null) {
+            final var extensionHome = extensionHomeFolder.toPath();
+            // one socket factory for all HTTPS senders, so they share the TLS sessions and persistent connections
+            final var tlsSocketFactory = setupTlsSocketFactory(configuration, extensionHome);
+            // creating the sender needs no network, so an invalid configuration prevents the start
+            final var actualSender = createSender(configuration, extensionHome, tlsSocketFactory);
+            if (actualSender == null) {
                 extensionStartOutput.preventExtensionStartup(
                         "Could not create an InfluxDB sender, please check your configuration");
                 return;
             }
+            // the name resolution of the host might wait for the network, the broker must not wait for it
+            final var memoryBudget = new MemoryBudget(configuration.getMemoryBudget());
+            final var targetSender =
+                    new LazyInfluxDbSender(() -> resolveHost(configuration, actualSender), memoryBudget);
+            targetSender.start();
+            lazySender = targetSender;
+            // observes only the writes to InfluxDB, without the delay of the writes
+            final var observingSender = new ObservingInfluxDbSender(targetSender);
+            InfluxDbSender influxDbSender = observingSender;
+            final var reportingInterval = setupReportingInterval(configuration);
+            if (configuration.isAdaptiveReportingInterval()) {
+                observingSender.addListener(reportingInterval::onWrite);
+            }
+            final var reportingJitter = configuration.getReportingJitter();
+            if (reportingJitter > 0) {
+                final var delay = DelayedInfluxDbSender.nodeDelay(nodeIdentity(configuration), reportingJitter);
+                LOG.info("Delaying InfluxDB writes of this node by {} ms", delay);
+                delayedSender = new DelayedInfluxDbSender(influxDbSender, delay, memoryBudget);
+                influxDbSender = delayedSender;
+            }
+            final var spoolDirectory = extensionHome.resolve(configuration.getSpoolDirectory());
+            shutdownTimeout = configuration.getShutdownTimeout();
+            sender = new SpoolingInfluxDbSender(influxDbSender,
+                    targetSender,
+                    spoolDirectory,
+                    configuration.getPrefix());
             final var metricRegistry = Services.metricRegistry();
-            reporter = setupReporter(metricRegistry, sender, configuration);
-            reporter.start(configuration.getReportingInterval(), TimeUnit.SECONDS);
+            collectors = setupCollectors(configuration);
+            final var prioritizedSender = setupPrioritizing(configuration, sender, observingSender);
+            final var downsamplingSender =
+                    setupDownsampling(configuration, tlsSocketFactory, memoryBudget, prioritizedSender);
+            final var downsampledSender = downsamplingSender != null ? downsamplingSender : prioritizedSender;
+            // the points are reserved before any sender keeps them, so the policy limits the memory of the report
+            final var memoryBudgetPolicy = MemoryBudget.Policy.parse(configuration.getMemoryBudgetPolicy());
+            budgetedSender = new BudgetedInfluxDbSender(downsampledSender,
+                    memoryBudget,
+                    Objects.requireNonNullElse(memoryBudgetPolicy, MemoryBudget.Policy.DROP),
+                    spoolDirectory,
+                    configuration.getPrefix());
+            final InfluxDbSender collectingSender = collectors.isEmpty() ?
+                    budgetedSender :
+                    new CollectingInfluxDbSender(budgetedSender, collectors);
+            // the points of the collectors already have their measurements and tags, so only the metrics are templated
+            final var templates = MetricNameTemplates.parse(configuration.getTemplates());
+            final var reportSender =
+                    templates.isEmpty() ? collectingSender : new TemplatingInfluxDbSender(collectingSender, templates);
+            reporter = setupReporter(metricRegistry, reportSender, configuration);
+            reportScheduler = new ReportScheduler(reporter, reportingInterval, configuration.isReportingAlignment());
+            reportScheduler.start();
         } catch (final Exception e) {
             LOG.warn("Start failed because of", e);
             extensionStartOutput.preventExtensionStartup("Start failed because of an exception");
@@ -106,112 +157,581 @@ public class InfluxDbExtensionMain implements ExtensionMain {
     public void extensionStop(
             final @NotNull ExtensionStopInput extensionStopInput,
             final @NotNull ExtensionStopOutput extensionStopOutput) {
-        if (reporter != null) {
-            reporter.stop();
+        if (reportScheduler != null) {
+            reportScheduler.stop();
+        }
+        if (delayedSender != null) {
+            // the final report is written without delay and must not overlap with a delayed write
+            delayedSender.stop();
+        }
+        if (lazySender != null) {
+            lazySender.stopBuffering();
+        }
+        var completed = true;
+        if (reporter != null && sender != null) {
+            completed = stopReporter(reporter, sender, shutdownTimeout);
+        }
+        for (final var collector : collectors) {
+            if (collector instanceof Closeable) {
+                try {
+                    ((Closeable) collector).close();
+                } catch (final IOException e) {
+                    LOG.debug("Not able to close InfluxDB collector", e);
+                }
+            }
+        }
+        if (budgetedSender != null) {
+            // the budgeted sender closes the senders it decorates
+            final Closeable closeable = budgetedSender;
+            if (completed) {
+                closeSender(closeable);
+            } else {
+                // the final report still blocks in a write, closing the sender might wait for the write
+                final var close = new Thread(() -> closeSender(closeable), "influxdb-sender-close");
+                close.setDaemon(true);
+                close.start();
+            }
+        }
+    }
+
+    /**
+     * Writes the final report and stops the reporter. Nothing waits for the final report after the timeout, as it
+     * might still block in a write to InfluxDB.
+     *
+     * @return <b>true</b> if the final report completed within the timeout, else <b>false</b>.
+     */
+    static boolean stopReporter(
+            final @NotNull InfluxDbMetricsReporter reporter,
+            final @NotNull SpoolingInfluxDbSender sender,
+            final long timeout) {
+        final var completed = reportFinal(reporter, sender, timeout);
+        // does not report again, see InfluxDbMetricsReporter#stop()
+        reporter.stop();
+        return completed;
+    }
+
+    private static void closeSender(final @NotNull Closeable sender) {
+        try {
+            sender.close();
+        } catch (final IOException e) {
+            LOG.debug("Not able to close InfluxDB sender", e);
+        }
+    }
+
+    /**
+     * Reports the metrics collected since the last report, so the last interval before a restart is not lost. If the
+     * report does not complete within the timeout, it is spooled to disk.
+     *
+     * @return <b>true</b> if the final report completed within the timeout, else <b>false</b>.
+     */
+    private static boolean reportFinal(
+            final @NotNull ScheduledReporter reporter,
+            final @NotNull SpoolingInfluxDbSender sender,
+            final long timeout) {
+        sender.startShutdown();
+        final var finalReport = new Thread(reporter::report, "influxdb-final-report");
+        finalReport.setDaemon(true);
+        finalReport.start();
+        try {
+            finalReport.join(timeout);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (finalReport.isAlive()) {
+            LOG.warn("Final report to InfluxDB did not complete within {} ms", timeout);
+            sender.spool();
+            return false;
+        }
+        return true;
+    }
+
+    private static @Nullable InfluxDbSender createSender(
+            final @NotNull InfluxDbConfiguration configuration,
+            final @NotNull Path extensionHome,
+            final @Nullable SSLSocketFactory sslSocketFactory) {
+        try {
+            return setupSender(configuration, extensionHome, sslSocketFactory);
+        } catch (final Exception e) {
+            LOG.error("Not able to start InfluxDB sender, please check your configuration: {}", e.getMessage());
+            LOG.debug("Original Exception: ", e);
+            return null;
+        }
+    }
+
+    /**
+     * Resolves the host of a sender that connects to InfluxDB over the network, so the reports are buffered until the
+     * host is known.
+     *
+     * @return             the sender.
+     * @throws IOException if the host can not be resolved yet.
+     */
+    private static @NotNull InfluxDbSender resolveHost(
+            final @NotNull InfluxDbConfiguration configuration,
+            final @NotNull InfluxDbSender sender) throws IOException {
+        if (!configuration.isFileMode() && !configuration.isUnixSocketMode()) {
+            InetAddress.getAllByName(configuration.getHost());
         }
+        return sender;
     }
 
-    private static @Nullable InfluxDbSender setupSender(final @NotNull InfluxDbConfiguration configuration) {
+    private static @Nullable InfluxDbSender setupSender(
+            final @NotNull InfluxDbConfiguration configuration,
+            final @NotNull Path extensionHome,
+            final @Nullable SSLSocketFactory sslSocketFactory) throws Exception {
         Objects.requireNonNull(configuration, "Configuration for InfluxDB must not be null");
         final var mode = configuration.getMode();
-        final var protocol = configuration.getProtocolOrDefault("cloud".equals(mode) ? "https" : "http");
+        final var database = configuration.getDatabase();
+        final var prefix = configuration.getPrefix();
+        // the line protocol for a local file or socket is the same for every InfluxDB version
+        if (configuration.isFileMode()) {
+            return setupFileSender(configuration, extensionHome, database, prefix);
+        }
         final var host = configuration.getHost();
         final var port = configuration.getPort();
-        final var database = configuration.getDatabase();
+        final var connectTimeout = configuration.getConnectTimeout();
+        if (configuration.isUnixSocketMode()) {
+            return setupUnixSocketSender(configuration, mode, host, port, database, connectTimeout, prefix);
+        }
+        if (configuration.getVersion() == 1 && ("tcp".equals(mode) || "udp".equals(mode))) {
+            return setupV1SocketSender(configuration, mode, host, port, database, connectTimeout, prefix);
+        }
+        return setupHttpSender(configuration, TimeUnit.SECONDS, sslSocketFactory);
+    }
+
+    /**
+     * Creates the sender that writes the points by priority class and sheds the lowest classes while InfluxDB is
+     * degraded, if priority classes are configured.
+     */
+    private static @NotNull InfluxDbSender setupPrioritizing(
+            final @NotNull InfluxDbConfiguration configuration,
+            final @NotNull InfluxDbSender sender,
+            final @NotNull ObservingInfluxDbSender observingSender) {
+        final var critical = configuration.getPriorityCritical();
+        final var bulk = configuration.getPriorityBulk();
+        if (critical.isEmpty() && bulk.isEmpty()) {
+            return sender;
+        }
+        final var prioritizingSender = new PrioritizingInfluxDbSender(sender,
+                critical,
+                bulk,
+                configuration.getReportingLatencyThreshold());
+        observingSender.addListener(prioritizingSender::onWrite);
+        return prioritizingSender;
+    }
+
+    /**
+     * @return <b>true</b> if the configured mode writes to the HTTP write endpoint of InfluxDB, else <b>false</b>.
+     */
+    private static boolean isHttpMode(final @NotNull InfluxDbConfiguration configuration) {
+        final var mode = configuration.getMode();
+        return !configuration.isFileMode() &&
+                !configuration.isUnixSocketMode() &&
+                !(configuration.getVersion() == 1 && ("tcp".equals(mode) || "udp".equals(mode)));
+    }
+
+    private static @Nullable DownsamplingInfluxDbSender setupDownsampling(
+            final @NotNull InfluxDbConfiguration configuration,
+            final @Nullable SSLSocketFactory sslSocketFactory,
+            final @NotNull MemoryBudget memoryBudget,
+            final @NotNull InfluxDbSender sender) throws Exception {
+        final var downsampling = configuration.getDownsampling();
+        if (downsampling.isEmpty()) {
+            return null;
+        }
+        if (!isHttpMode(configuration)) {
+            LOG.warn("Downsampling requires an HTTP mode of InfluxDB, the reports are not downsampled");
+            return null;
+        }
+        final var aggregates = configuration.getDownsamplingAggregates();
+        final var resolutions = new ArrayList<DownsamplingInfluxDbSender.Resolution>();
+        for (final var entry : downsampling.entrySet()) {
+            final var interval = entry.getKey();
+            final var target = entry.getValue();
+            LOG.info("Downsampling the InfluxDB reports to {} s with {} into {}", interval, aggregates, target);
+            final var httpSender = Objects.requireNonNull(setupHttpSender(configuration,
+                    TimeUnit.SECONDS,
+                    sslSocketFactory,
+                    target), "Could not create InfluxDB sender for downsampling");
+            final var targetSender =
+                    new LazyInfluxDbSender(() -> resolveHost(configuration, httpSender), memoryBudget);
+            targetSender.start();
+            resolutions.add(new DownsamplingInfluxDbSender.Resolution(TimeUnit.SECONDS.toMillis(interval),
+                    targetSender,
+                    aggregates,
+                    memoryBudget));
+        }
+        return new DownsamplingInfluxDbSender(sender, resolutions);
+    }
+
+    /**
+     * Creates the sender for the HTTP write endpoint of the configured InfluxDB version.
+     *
+     * @param  configuration    the InfluxDB configuration.
+     * @param  timePrecision    the precision of the timestamps that are written.
+     * @param  sslSocketFactory the socket factory for HTTPS, see {@link #setupTlsSocketFactory}.
+     * @return                  the sender or {@code null} if the configured mode does not use HTTP.
+     * @throws Exception        if the sender could not be created.
+     */
+    static @Nullable AbstractInfluxDbHttpSender setupHttpSender(
+            final @NotNull InfluxDbConfiguration configuration,
+            final @NotNull TimeUnit timePrecision,
+            final @Nullable SSLSocketFactory sslSocketFactory) throws Exception {
+        return setupHttpSender(configuration, timePrecision, sslSocketFactory, null);
+    }
+
+    /**
+     * Creates the sender for the HTTP write endpoint of the configured InfluxDB version.
+     *
+     * @param  configuration    the InfluxDB configuration.
+     * @param  timePrecision    the precision of the timestamps that are written.
+     * @param  sslSocketFactory the socket factory for HTTPS, see {@link #setupTlsSocketFactory}.
+     * @param  target           the database (or bucket for InfluxDB v2) that is written instead of the configured one,
+     *                          or {@code null} for the configured one.
+     * @return                  the sender or {@code null} if the configured mode does not use HTTP.
+     * @throws Exception        if the sender could not be created.
+     */
+    static @Nullable AbstractInfluxDbHttpSender setupHttpSender(
+            final @NotNull InfluxDbConfiguration configuration,
+            final @NotNull TimeUnit timePrecision,
+            final @Nullable SSLSocketFactory sslSocketFactory,
+            final @Nullable String target) throws Exception {
+        final var sender = createHttpSender(configuration, timePrecision, sslSocketFactory, target);
+        if (sender != null) {
+            // a persistent connection must not stay on a previous address of the host
+            sender.setEndpointResolver(new EndpointResolver(configuration.getHost(),
+                    TimeUnit.SECONDS.toMillis(configuration.getDnsTtl())));
+        }
+        return sender;
+    }
+
+    private static @Nullable AbstractInfluxDbHttpSender createHttpSender(
+            final @NotNull InfluxDbConfiguration configuration,
+            final @NotNull TimeUnit timePrecision,
+            final @Nullable SSLSocketFactory sslSocketFactory,
+            final @Nullable String target) throws Exception {
+        final var mode = configuration.getMode();
+        final var protocol = httpProtocol(configuration);
+        final var host = configuration.getHost();
+        final var port = configuration.getPort();
+        final var database = target != null ? target : configuration.getDatabase();
         final var auth = configuration.getAuth();
         final var connectTimeout = configuration.getConnectTimeout();
         final var prefix = configuration.getPrefix();
-        final var bucket = configuration.getBucket();
-        final var organization = configuration.getOrganization();
-        try {
-            final var version = configuration.getVersion();
-            switch (version) {
-                case 1 :
-                    return setupV1Sender(configuration, mode, host, port, database, auth, connectTimeout, prefix);
-                case 2 :
-                    LOG.info("Creating InfluxDB v2 sender for {}, bucket {}, organization {}",
-                            host,
-                            bucket,
-                            organization);
-                    Objects.requireNonNull(bucket, "Bucket name must be defined for InfluxDB v2");
-                    Objects.requireNonNull(organization, "Organization must be defined for InfluxDB v2");
-                    Objects.requireNonNull(auth, "Auth token must be defined for InfluxDB v2");
-                    return new InfluxDbCloudSender(protocol,
-                            host,
-                            port,
-                            auth,
-                            TimeUnit.SECONDS,
-                            connectTimeout,
-                            connectTimeout,
-                            prefix,
-                            organization,
-                            bucket);
-                case 3 :
-                    LOG.info("Creating InfluxDB v3 sender for {}:{}, database {}", host, port, database);
-                    return new InfluxDbV3Sender(protocol,
-                            host,
-                            port,
-                            auth,
-                            TimeUnit.SECONDS,
-                            connectTimeout,
-                            connectTimeout,
-                            prefix,
-                            database);
-            }
-        } catch (final Exception ex) {
-            LOG.error("Not able to start InfluxDB sender, please check your configuration: {}", ex.getMessage());
-            LOG.debug("Original Exception: ", ex);
+        final var version = configuration.getVersion();
+        switch (version) {
+            case 1 :
+                switch (mode) {
+                    case "http" :
+                        LOG.info("Creating InfluxDB v1 HTTP sender for {}:{}, database {}", host, port, database);
+                        break;
+                    case "cloud" :
+                        LOG.warn("InfluxDB v1 does not support cloud sender, falling back to HTTP sender");
+                        break;
+                    default :
+                        LOG.error("Unsupported mode '{}' for InfluxDB v1 " +
+                                "(supported modes: http, tcp, udp, cloud, unix, unixgram, file)", mode);
+                        return null;
+                }
+                return new InfluxDbV1Sender(protocol,
+                        host,
+                        port,
+                        database,
+                        auth,
+                        timePrecision,
+                        connectTimeout,
+                        connectTimeout,
+                        prefix,
+                        sslSocketFactory);
+            case 2 :
+                final var bucket = target != null ? target : configuration.getBucket();
+                final var organization = configuration.getOrganization();
+                LOG.info("Creating InfluxDB v2 sender for {}, bucket {}, organization {}", host, bucket, organization);
+                Objects.requireNonNull(bucket, "Bucket name must be defined for InfluxDB v2");
+                Objects.requireNonNull(organization, "Organization must be defined for InfluxDB v2");
+                Objects.requireNonNull(auth, "Auth token must be defined for InfluxDB v2");
+                return new InfluxDbCloudSender(protocol,
+                        host,
+                        port,
+                        auth,
+                        timePrecision,
+                        connectTimeout,
+                        connectTimeout,
+                        prefix,
+                        organization,
+                        bucket,
+                        sslSocketFactory);
+            case 3 :
+                LOG.info("Creating InfluxDB v3 sender for {}:{}, database {}", host, port, database);
+                return new InfluxDbV3Sender(protocol,
+                        host,
+                        port,
+                        auth,
+                        timePrecision,
+                        connectTimeout,
+                        connectTimeout,
+                        prefix,
+                        database,
+                        sslSocketFactory);
         }
         return null;
     }
 
-    private static @Nullable InfluxDbSender setupV1Sender(
+    private static @NotNull String httpProtocol(final @NotNull InfluxDbConfiguration configuration) {
+        return configuration.getProtocolOrDefault("cloud".equals(configuration.getMode()) ? "https" : "http");
+    }
+
+    /**
+     * Creates the socket factory that is shared by all HTTPS senders, if the configured mode uses HTTPS.
+     *
+     * @param  configuration the InfluxDB configuration.
+     * @param  home          the folder relative paths of the configuration are resolved against.
+     * @return               the socket factory or {@code null} if the configured mode does not use HTTPS.
+     * @throws Exception     if the SSL context or the trust store could not be initialized.
+     */
+    static @Nullable TlsSocketFactory setupTlsSocketFactory(
+            final @NotNull InfluxDbConfiguration configuration,
+            final @NotNull Path home) throws Exception {
+        if (!isHttpMode(configuration) || !"https".equals(httpProtocol(configuration))) {
+            return null;
+        }
+        final var trustStore = configuration.getTlsTrustStore();
+        final var trustStorePath = trustStore != null ? home.resolve(trustStore) : null;
+        final var protocols = configuration.getTlsProtocols();
+        LOG.info("Creating TLS socket factory for InfluxDB with protocols {}{}",
+                protocols,
+                trustStorePath != null ? " and trust store " + trustStorePath : "");
+        return TlsSocketFactory.create(protocols,
+                configuration.getTlsCipherSuites(),
+                trustStorePath,
+                configuration.getTlsTrustStorePassword(),
+                configuration.getTlsTrustStoreType());
+    }
+
+    private static @NotNull InfluxDbSender setupV1SocketSender(
+            final @NotNull InfluxDbConfiguration configuration,
+            final @NotNull String mode,
+            final @NotNull String host,
+            final int port,
+            final @NotNull String database,
+            final int connectTimeout,
+            final @NotNull String prefix) {
+        if ("tcp".equals(mode)) {
+            LOG.info("Creating InfluxDB v1 TCP sender for {}:{}, database {}", host, port, database);
+            return new InfluxDbTcpSender(host, port, connectTimeout, database, prefix);
+        }
+        final var udpPayloadSize = configuration.getUdpPayloadSize();
+        LOG.info("Creating InfluxDB v1 UDP sender for {}:{}, database {}, payload size {} bytes",
+                host,
+                port,
+                database,
+                udpPayloadSize);
+        return new InfluxDbUdpBatchSender(host,
+                port,
+                TimeUnit.SECONDS.toMillis(configuration.getDnsTtl()),
+                udpPayloadSize,
+                TimeUnit.MILLISECONDS,
+                database,
+                prefix);
+    }
+
+    private static @Nullable InfluxDbSender setupUnixSocketSender(
             final @NotNull InfluxDbConfiguration configuration,
             final @NotNull String mode,
             final @NotNull String host,
             final int port,
             final @NotNull String database,
-            final @Nullable String auth,
             final int connectTimeout,
-            final @NotNull String prefix) throws Exception {
-        switch (mode) {
-            case "http" :
-                LOG.info("Creating InfluxDB v1 HTTP sender for {}:{}, database {}", host, port, database);
-                return new InfluxDbHttpSender(configuration.getProtocolOrDefault(
-                        "http"), host, port, database, auth, TimeUnit.SECONDS, connectTimeout, connectTimeout, prefix);
-            case "tcp" :
-                LOG.info("Creating InfluxDB v1 TCP sender for {}:{}, database {}", host, port, database);
-                return new InfluxDbTcpSender(host, port, connectTimeout, database, prefix);
-            case "udp" :
-                LOG.info("Creating InfluxDB v1 UDP sender for {}:{}, database {}", host, port, database);
-                return new InfluxDbUdpSender(host, port, connectTimeout, database, prefix);
-            case "cloud" :
-                LOG.warn("InfluxDB v1 does not support cloud sender, falling back to HTTP sender");
-                return new InfluxDbHttpSender(configuration.getProtocolOrDefault(
-                        "https"), host, port, database, auth, TimeUnit.SECONDS, connectTimeout, connectTimeout, prefix);
-            default :
-                LOG.error("Unsupported mode '{}' for InfluxDB v1 (supported modes: http, tcp, udp)", mode);
-                return null;
-        }
-    }
-
-    private static @NotNull ScheduledReporter setupReporter(
+            final @NotNull String prefix) {
+        final var socketPath = Objects.requireNonNull(configuration.getSocketPath(), "Socket path must be defined");
+        final var datagram = "unixgram".equals(mode);
+        if (datagram ? UnixDomainSockets.isDatagramSupported() : UnixDomainSockets.isStreamSupported()) {
+            LOG.info("Creating InfluxDB Unix domain socket sender ({}) for {}", mode, socketPath);
+            if (datagram) {
+                return new InfluxDbUdpBatchSender(() -> UnixDomainSockets.openDatagram(socketPath),
+                        configuration.getUdpPayloadSize(),
+                        TimeUnit.MILLISECONDS,
+                        database,
+                        prefix);
+            }
+            return new InfluxDbUnixSocketSender(socketPath, TimeUnit.MILLISECONDS, database, prefix);
+        }
+        if (!configuration.isHostConfigured()) {
+            LOG.error("Mode '{}' is not supported by this Java runtime and no host is configured as fallback", mode);
+            return null;
+        }
+        if (datagram) {
+            LOG.warn("Mode '{}' is not supported by this Java runtime, falling back to UDP sender for {}:{}",
+                    mode,
+                    host,
+                    port);
+            return new InfluxDbUdpBatchSender(host,
+                    port,
+                    TimeUnit.SECONDS.toMillis(configuration.getDnsTtl()),
+                    configuration.getUdpPayloadSize(),
+                    TimeUnit.MILLISECONDS,
+                    database,
+                    prefix);
+        }
+        LOG.warn("Mode '{}' is not supported by this Java runtime, falling back to TCP sender for {}:{}",
+                mode,
+                host,
+                port);
+        return new InfluxDbTcpSender(host, port, connectTimeout, database, prefix);
+    }
+
+    private static @NotNull InfluxDbSender setupFileSender(
+            final @NotNull InfluxDbConfiguration configuration,
+            final @NotNull Path extensionHome,
+            final @NotNull String database,
+            final @NotNull String prefix) throws IOException {
+        final var directory = extensionHome.resolve(configuration.getFileDirectory());
+        final var gzip = "gzip".equals(configuration.getFileCompression());
+        LOG.info("Creating InfluxDB file sender for {}{}", directory, gzip ? " with gzip compression" : "");
+        return new InfluxDbFileSender(directory,
+                configuration.getFileMaxSize(),
+                configuration.getFileRotationInterval(),
+                TimeUnit.SECONDS,
+                gzip,
+                TimeUnit.MILLISECONDS,
+                database,
+                prefix);
+    }
+
+    private static @NotNull ReportingInterval setupReportingInterval(
+            final @NotNull InfluxDbConfiguration configuration) {
+        final var interval = TimeUnit.SECONDS.toMillis(configuration.getReportingInterval());
+        if (!configuration.isAdaptiveReportingInterval()) {
+            return new ReportingInterval(interval, interval, Long.MAX_VALUE);
+        }
+        final var maxInterval = TimeUnit.SECONDS.toMillis(configuration.getMaxReportingInterval());
+        final var latencyThreshold = configuration.getReportingLatencyThreshold();
+        LOG.info("Adapting InfluxDB reporting interval between {} ms and {} ms, latency threshold {} ms",
+                interval,
+                maxInterval,
+                latencyThreshold);
+        return new ReportingInterval(interval, maxInterval, latencyThreshold);
+    }
+
+    /**
+     * The identity of this broker node for the delay of its writes. The tags usually identify the node, the host name
+     * distinguishes nodes that share the same configuration.
+     */
+    private static @NotNull String nodeIdentity(final @NotNull InfluxDbConfiguration configuration) {
+        var hostName = System.getenv("HOSTNAME");
+        if (hostName == null) {
+            try {
+                hostName = InetAddress.getLocalHost().getHostName();
+            } catch (final UnknownHostException e) {
+                hostName = "";
+            }
+        }
+        return new TreeMap<>(configuration.getTags()) + hostName;
+    }
+
+    /**
+     * Creates the enabled collectors of additional points and registers their interceptors for every client.
+     */
+    private static @NotNull List<PointCollector> setupCollectors(final @NotNull InfluxDbConfiguration configuration) {
+        final var collectors = new ArrayList<PointCollector>();
+        final var clientInitializers = new ArrayList<ClientInitializer>();
+        if (configuration.isTopicMetrics()) {
+            final var topicLevels = configuration.getTopicMetricsLevels();
+            final var topK = configuration.getTopicMetricsTopK();
+            LOG.info("Reporting the {} most frequent topics{} to InfluxDB",
+                    topK,
+                    topicLevels > 0 ? " truncated to " + topicLevels + " levels" : "");
+            final var topicMetrics = new TopicMetrics(topicLevels, topK);
+            collectors.add(topicMetrics);
+            clientInitializers.add((initializerInput, clientContext) -> {
+                clientContext.addPublishInboundInterceptor(topicMetrics);
+            });
+        }
+        if (configuration.isClientMetrics()) {
+            final var topN = configuration.getClientMetricsTopN();
+            final var halfLife = configuration.getClientMetricsHalfLife();
+            LOG.info("Reporting the {} most active clients with a half-life of {} s to InfluxDB", topN, halfLife);
+            final var clientMetrics = new ClientMetrics(topN, halfLife, TimeUnit.SECONDS);
+            collectors.add(clientMetrics);
+            clientInitializers.add((initializerInput, clientContext) -> {
+                clientContext.addPublishInboundInterceptor(clientMetrics);
+                clientContext.addSubscribeInboundInterceptor(clientMetrics);
+            });
+        }
+        if (configuration.isLatencyMetrics()) {
+            final var topicPrefixes = configuration.getLatencyMetricsTopicPrefixes();
+            LOG.info("Reporting the latency of PUBLISH messages{} to InfluxDB",
+                    topicPrefixes.isEmpty() ? "" : " per topic prefix " + topicPrefixes);
+            final var latencyMetrics = new PublishLatencyMetrics(topicPrefixes);
+            collectors.add(latencyMetrics);
+            clientInitializers.add((initializerInput, clientContext) -> {
+                clientContext.addPublishOutboundInterceptor(latencyMetrics);
+            });
+        }
+        if (configuration.isJvmMetrics()) {
+            LOG.info("Reporting the JVM metrics to InfluxDB");
+            collectors.add(new JvmMetrics(configuration.getJvmMetricsThreadInterval(), TimeUnit.SECONDS));
+        }
+        if (configuration.isJfrMetrics()) {
+            if (FlightRecorderMetrics.isSupported()) {
+                final var threshold = configuration.getJfrMetricsThreshold();
+                try {
+                    collectors.add(new FlightRecorderMetrics(threshold, TimeUnit.MILLISECONDS));
+                    LOG.info("Reporting the Flight Recorder events above {} ms to InfluxDB", threshold);
+                } catch (final Exception e) {
+                    LOG.warn("Not able to stream Flight Recorder events: {}", e.getMessage());
+                    LOG.debug("Original Exception: ", e);
+                }
+            } else {
+                LOG.warn("Flight Recorder events are not reported, event streaming requires Java 14 or newer");
+            }
+        }
+        if (configuration.isHostMetrics()) {
+            if (ProcMetrics.isSupported()) {
+                LOG.info("Reporting the host metrics to InfluxDB");
+                collectors.add(new ProcMetrics());
+            } else {
+                LOG.warn("Host metrics are not reported, they require the /proc file system of Linux");
+            }
+        }
+        if (!clientInitializers.isEmpty()) {
+            // only one client initializer can be set per extension
+            Services.initializerRegistry().setClientInitializer((initializerInput, clientContext) -> {
+                for (final var clientInitializer : clientInitializers) {
+                    clientInitializer.initialize(initializerInput, clientContext);
+                }
+            });
+        }
+        return collectors;
+    }
+
+    /**
+     * Creates the evaluator with a time budget for the gauges of a report, if a budget is configured.
+     */
+    private static @Nullable GaugeEvaluator setupGaugeEvaluator(final @NotNull InfluxDbConfiguration configuration) {
+        final var budget = configuration.getGaugeTimeBudget();
+        if (budget == null) {
+            return null;
+        }
+        final var ttl = TimeUnit.SECONDS.toMillis(configuration.getGaugeCacheTtl());
+        return new GaugeEvaluator(budget, ttl, TimeUnit.MILLISECONDS);
+    }
+
+    private static @NotNull InfluxDbMetricsReporter setupReporter(
             final @NotNull MetricRegistry metricRegistry,
             final @NotNull InfluxDbSender sender,
             final @NotNull InfluxDbConfiguration configuration) {
         Objects.requireNonNull(metricRegistry, "MetricRegistry for InfluxDB must not be null");
         Objects.requireNonNull(sender, "InfluxDbSender for InfluxDB must not be null");
         Objects.requireNonNull(configuration, "Configuration for InfluxDB must not be null");
-        final var tags = configuration.getTags();
-        return InfluxDbReporter.forRegistry(metricRegistry)
-                .withTags(tags)
-                .convertRatesTo(TimeUnit.SECONDS)
-                .convertDurationsTo(TimeUnit.MILLISECONDS)
-                .filter(MetricFilter.ALL)
-                .groupGauges(false)
-                .skipIdleMetrics(false)
-                .includeMeterFields(METER_FIELDS)
-                .includeTimerFields(TIMER_FIELDS)
-                .build(sender);
+        return new InfluxDbMetricsReporter(metricRegistry,
+                sender,
+                configuration.getTags(),
+                configuration.getMetricFields(),
+                configuration.getCounterDeltas(),
+                new GaugeDeadband(configuration.getGaugeDeadband(),
+                        configuration.getGaugeDeadbandAbsolute(),
+                        configuration.getGaugeDeadbandRelative(),
+                        configuration.getGaugeKeyframeInterval()),
+                setupGaugeEvaluator(configuration));
     }
 }
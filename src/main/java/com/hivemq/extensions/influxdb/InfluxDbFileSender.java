@@ -0,0 +1,209 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb;
+
+import com.izettle.metrics.influxdb.InfluxDbBaseSender;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Sender that appends line protocol to size and time rotated segment files in a local directory.
+ * <p>
+ * The active segment has the suffix {@value #PART_SUFFIX} and is renamed to its final name when it is rotated or the
+ * sender is closed, so completed segments can be picked up for later ingestion while the sender is running. With gzip
+ * compression every segment is a separate gzip stream that is sync flushed after every write.
+ */
+public class InfluxDbFileSender extends InfluxDbBaseSender implements Closeable {
+
+    static final @NotNull String FILE_PREFIX = "hivemq-metrics-";
+    static final @NotNull String FILE_SUFFIX = ".lp";
+    static final @NotNull String GZIP_SUFFIX = ".gz";
+    static final @NotNull String PART_SUFFIX = ".part";
+
+    private static final @NotNull DateTimeFormatter FILE_TIMESTAMP =
+            DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmssSSS'Z'").withZone(ZoneOffset.UTC);
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
+    private static final @NotNull Logger LOG = LoggerFactory.getLogger(InfluxDbFileSender.class);
+
+    private final @NotNull Path directory;
+    private final long maxSegmentSize;
+    private final long rotationIntervalMillis;
+    private final boolean gzip;
+
+    private @Nullable Segment segment;
+    private long lastSegmentTimestamp;
+
+    public InfluxDbFileSender(
+            final @NotNull Path directory,
+            final long maxSegmentSize,
+            final long rotationInterval,
+            final @NotNull TimeUnit rotationIntervalUnit,
+            final boolean gzip,
+            final @NotNull TimeUnit timePrecision,
+            final @NotNull String database,
+            final @NotNull String measurementPrefix) throws IOException {
+        super(database, timePrecision, measurementPrefix);
+        this.directory = directory;
+        this.maxSegmentSize = maxSegmentSize;
+        this.rotationIntervalMillis = rotationIntervalUnit.toMillis(rotationInterval);
+        this.gzip = gzip;
+        Files.createDirectories(directory);
+        completeAbandonedSegments();
+    }
+
+    @Override
+    protected synchronized int writeData(final byte @NotNull [] line) throws Exception {
+        final var now = System.currentTimeMillis();
+        if (segment != null && (segment.size() >= maxSegmentSize || now - segment.created >= rotationIntervalMillis)) {
+            rotate();
+        }
+        if (segment == null) {
+            segment = openSegment(now);
+        }
+        try {
+            segment.write(line);
+        } catch (final IOException e) {
+            try {
+                rotate();
+            } catch (final IOException rotateException) {
+                e.addSuppressed(rotateException);
+            }
+            throw e;
+        }
+        return 0;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        rotate();
+    }
+
+    /**
+     * Closes the active segment and renames it to its final name.
+     */
+    private void rotate() throws IOException {
+        final var current = segment;
+        if (current == null) {
+            return;
+        }
+        segment = null;
+        current.close();
+        complete(current.path);
+    }
+
+    private @NotNull Segment openSegment(final long now) throws IOException {
+        // segment names must be unique and sortable, even if two segments are opened within the same millisecond
+        final var timestamp = Math.max(now, lastSegmentTimestamp + 1);
+        lastSegmentTimestamp = timestamp;
+        final var name = FILE_PREFIX +
+                FILE_TIMESTAMP.format(Instant.ofEpochMilli(timestamp)) +
+                FILE_SUFFIX +
+                (gzip ? GZIP_SUFFIX : "") +
+                PART_SUFFIX;
+        final var path = directory.resolve(name);
+        final var channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        try {
+            final var newSegment = new Segment(path, channel, now, gzip);
+            LOG.debug("Opened InfluxDB metrics file segment {}", path);
+            return newSegment;
+        } catch (final IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Renames segments that were left behind as active segments, e.g. after a crash of the broker.
+     */
+    private void completeAbandonedSegments() throws IOException {
+        try (final var files = Files.newDirectoryStream(directory, FILE_PREFIX + "*" + PART_SUFFIX)) {
+            for (final var file : files) {
+                complete(file);
+            }
+        }
+    }
+
+    private static void complete(final @NotNull Path part) throws IOException {
+        final var name = part.getFileName().toString();
+        final var target = part.resolveSibling(name.substring(0, name.length() - PART_SUFFIX.length()));
+        Files.move(part, target, StandardCopyOption.ATOMIC_MOVE);
+        LOG.debug("Completed InfluxDB metrics file segment {}", target);
+    }
+
+    private static class Segment implements Closeable {
+
+        private final @NotNull Path path;
+        private final @NotNull FileChannel channel;
+        private final long created;
+        private final @Nullable OutputStream gzipOutputStream;
+
+        Segment(final @NotNull Path path, final @NotNull FileChannel channel, final long created, final boolean gzip)
+                throws IOException {
+            this.path = path;
+            this.channel = channel;
+            this.created = created;
+            this.gzipOutputStream =
+                    gzip ? new GZIPOutputStream(Channels.newOutputStream(channel), GZIP_BUFFER_SIZE, true) : null;
+        }
+
+        void write(final byte @NotNull [] data) throws IOException {
+            if (gzipOutputStream != null) {
+                gzipOutputStream.write(data);
+                gzipOutputStream.flush();
+            } else {
+                final var buffer = ByteBuffer.wrap(data);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+        }
+
+        long size() throws IOException {
+            return channel.position();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (gzipOutputStream != null) {
+                    gzipOutputStream.close();
+                }
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+
+/**
+ * Signals that an InfluxDB HTTP write endpoint answered with a non 2xx response code.
+ */
+public class InfluxDbHttpException extends IOException {
+
+    private final int statusCode;
+
+    public InfluxDbHttpException(final int statusCode, final @NotNull String message) {
+        super(message);
+        this.statusCode = statusCode;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * @return <b>true</b> if InfluxDB rejected the write because it is overloaded or unavailable (429 or 5xx)
+     */
+    public boolean isOverload() {
+        return statusCode == 429 || statusCode / 100 == 5;
+    }
+}
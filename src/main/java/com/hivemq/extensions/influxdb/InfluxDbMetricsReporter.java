@@ -0,0 +1,467 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Metered;
+import com.codahale.metrics.MetricFilter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.ScheduledReporter;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+import com.izettle.metrics.influxdb.InfluxDbSender;
+import com.izettle.metrics.influxdb.data.InfluxDbPoint;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Reporter that writes the metrics of the registry as points to an {@link InfluxDbSender}.
+ * <p>
+ * The points have the measurements and fields of the reporter of the metrics-influxdb library, rates are per second
+ * and durations in milliseconds. The fields of histograms, meters and timers can be projected per metric name: the
+ * projection of the most specific {@link MetricNameFilter} is resolved once per metric name, and only the projected
+ * fields are computed, e.g. a timer that only reports its {@code count} does not take a snapshot of its reservoir.
+ * <p>
+ * Counters that match a filter of the counter deltas additionally get the fields {@value #DELTA} and {@value #RATE}
+ * (per second) since the previous report, so queries do not need a derivative over the cumulative counts. The
+ * previous counts are kept in arrays indexed by the slot of the counter. A count that is lower than the previous one
+ * is a reset of the counter, its delta is the count since the reset. After a restart the first report has no delta.
+ * <p>
+ * Numeric gauge values within the {@link GaugeDeadband} of the gauge are not written. With a {@link GaugeEvaluator}
+ * the cached values of slow gauges have the additional field {@value #STALENESS}, their age in milliseconds.
+ */
+class InfluxDbMetricsReporter extends ScheduledReporter {
+
+    /**
+     * The fields of histograms, meters and timers, the index of a field is its bit in a projection.
+     */
+    static final @NotNull List<String> FIELDS = List.of("count",
+            "min",
+            "max",
+            "mean",
+            "stddev",
+            "p50",
+            "p75",
+            "p95",
+            "p98",
+            "p99",
+            "p999",
+            "m1_rate",
+            "m5_rate",
+            "m15_rate",
+            "mean_rate");
+
+    private static final int COUNT = 1 << 0;
+    private static final int MIN = 1 << 1;
+    private static final int MAX = 1 << 2;
+    private static final int MEAN = 1 << 3;
+    private static final int STDDEV = 1 << 4;
+    private static final int P50 = 1 << 5;
+    private static final int P75 = 1 << 6;
+    private static final int P95 = 1 << 7;
+    private static final int P98 = 1 << 8;
+    private static final int P99 = 1 << 9;
+    private static final int P999 = 1 << 10;
+    private static final int M1_RATE = 1 << 11;
+    private static final int M5_RATE = 1 << 12;
+    private static final int M15_RATE = 1 << 13;
+    private static final int MEAN_RATE = 1 << 14;
+    private static final int SNAPSHOT_FIELDS = MIN | MAX | MEAN | STDDEV | P50 | P75 | P95 | P98 | P99 | P999;
+    private static final int RATE_FIELDS = M1_RATE | M5_RATE | M15_RATE | MEAN_RATE;
+    private static final int HISTOGRAM_FIELDS = COUNT | SNAPSHOT_FIELDS;
+    private static final int METER_FIELDS = COUNT | RATE_FIELDS;
+    private static final int TIMER_FIELDS = COUNT | SNAPSHOT_FIELDS | RATE_FIELDS;
+
+    static final @NotNull String DELTA = "delta";
+    static final @NotNull String RATE = "rate";
+    static final @NotNull String STALENESS = "staleness";
+
+    private static final int NO_SLOT = -1;
+    private static final int INITIAL_SLOTS = 64;
+
+    private static final @NotNull Logger LOG = LoggerFactory.getLogger(InfluxDbMetricsReporter.class);
+
+    private final @NotNull ScheduledExecutorService executor;
+    private final @NotNull InfluxDbSender sender;
+    private final @NotNull List<Projection> projections;
+    private final @NotNull List<MetricNameFilter> counterDeltas;
+    private final @NotNull GaugeDeadband gaugeDeadband;
+    private final @Nullable GaugeEvaluator gaugeEvaluator;
+    private final @NotNull Map<String, Integer> projectedFields = new HashMap<>();
+    private final @NotNull Map<String, Integer> counterSlots = new HashMap<>();
+    private long @NotNull [] previousCounts = new long[INITIAL_SLOTS];
+    private long @NotNull [] previousTimes = new long[INITIAL_SLOTS];
+    private int nextSlot;
+    private int @NotNull [] freeSlots = new int[INITIAL_SLOTS];
+    private int freeSlotCount;
+
+    /**
+     * @param registry       the registry of the reported metrics.
+     * @param sender         the sender the points are written to.
+     * @param tags           the tags that are added to every point.
+     * @param projections    the projected fields by the filter of the metric names.
+     * @param counterDeltas  the filters of the counters with delta and rate fields.
+     * @param gaugeDeadband  the deadband of the gauge values.
+     * @param gaugeEvaluator the evaluator with a time budget for the gauges, or <b>null</b> to evaluate them directly.
+     */
+    InfluxDbMetricsReporter(
+            final @NotNull MetricRegistry registry,
+            final @NotNull InfluxDbSender sender,
+            final @NotNull Map<String, String> tags,
+            final @NotNull Map<String, List<String>> projections,
+            final @NotNull List<String> counterDeltas,
+            final @NotNull GaugeDeadband gaugeDeadband,
+            final @Nullable GaugeEvaluator gaugeEvaluator) {
+        this(registry,
+                sender,
+                tags,
+                projections,
+                counterDeltas,
+                gaugeDeadband,
+                gaugeEvaluator,
+                Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    final var thread = new Thread(runnable, "influxdb-scheduled-reporter");
+                    thread.setDaemon(true);
+                    return thread;
+                }));
+    }
+
+    private InfluxDbMetricsReporter(
+            final @NotNull MetricRegistry registry,
+            final @NotNull InfluxDbSender sender,
+            final @NotNull Map<String, String> tags,
+            final @NotNull Map<String, List<String>> projections,
+            final @NotNull List<String> counterDeltas,
+            final @NotNull GaugeDeadband gaugeDeadband,
+            final @Nullable GaugeEvaluator gaugeEvaluator,
+            final @NotNull ScheduledExecutorService executor) {
+        super(registry,
+                "influxdb-reporter",
+                MetricFilter.ALL,
+                TimeUnit.SECONDS,
+                TimeUnit.MILLISECONDS,
+                executor,
+                false);
+        this.executor = executor;
+        this.sender = sender;
+        this.projections = parseProjections(projections);
+        this.counterDeltas = counterDeltas.stream().map(MetricNameFilter::new).collect(Collectors.toList());
+        this.gaugeDeadband = gaugeDeadband;
+        this.gaugeEvaluator = gaugeEvaluator;
+        sender.setTags(tags);
+    }
+
+    /**
+     * Stops the reporter without the last report of {@link ScheduledReporter#stop()}. The final report is written by
+     * the extension with a deadline, and stopping must not wait for the monitor of {@link #report()}, which a final
+     * report that blocks in a write to InfluxDB still holds.
+     */
+    @Override
+    public void stop() {
+        executor.shutdownNow();
+        if (gaugeEvaluator != null) {
+            gaugeEvaluator.close();
+        }
+    }
+
+    private static @NotNull List<Projection> parseProjections(final @NotNull Map<String, List<String>> projections) {
+        final var parsed = new ArrayList<Projection>();
+        projections.forEach((filter, fields) -> {
+            var mask = 0;
+            for (final var field : fields) {
+                final var index = FIELDS.indexOf(field);
+                if (index < 0) {
+                    LOG.warn("Unknown field '{}' in the InfluxDB metric fields of '{}'", field, filter);
+                    continue;
+                }
+                mask |= 1 << index;
+            }
+            parsed.add(new Projection(new MetricNameFilter(filter), mask));
+        });
+        // stable, so projections with equally specific filters are applied in the configured order
+        parsed.sort((first, second) -> MetricNameFilter.MOST_SPECIFIC_FIRST.compare(first.filter, second.filter));
+        return List.copyOf(parsed);
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public void report(
+            final @NotNull SortedMap<String, Gauge> gauges,
+            final @NotNull SortedMap<String, Counter> counters,
+            final @NotNull SortedMap<String, Histogram> histograms,
+            final @NotNull SortedMap<String, Meter> meters,
+            final @NotNull SortedMap<String, Timer> timers) {
+        final var now = System.currentTimeMillis();
+        try {
+            sender.flush();
+            final var evaluations = gaugeEvaluator != null ? gaugeEvaluator.evaluate(gauges, now) : null;
+            gauges.forEach((name, gauge) -> reportGauge(name, gauge, evaluations, now));
+            counters.forEach((name, counter) -> reportCounter(name, counter, now));
+            histograms.forEach((name, histogram) -> reportHistogram(name, histogram, now));
+            meters.forEach((name, meter) -> reportMeter(name, meter, now));
+            timers.forEach((name, timer) -> reportTimer(name, timer, now));
+            prune(counters, histograms, meters, timers);
+            gaugeDeadband.prune(gauges.keySet());
+            if (sender.hasSeriesData()) {
+                sender.writeData();
+            }
+        } catch (final Exception e) {
+            LOG.warn("Could not report metrics to InfluxDB: {}", e.getMessage());
+            LOG.debug("Original Exception: ", e);
+        }
+    }
+
+    private void reportGauge(
+            final @NotNull String name,
+            final @NotNull Gauge<?> gauge,
+            final @Nullable Map<String, GaugeEvaluator.Evaluation> evaluations,
+            final long now) {
+        final Object value;
+        final GaugeEvaluator.Evaluation evaluation;
+        if (evaluations != null) {
+            evaluation = evaluations.get(name);
+            value = evaluation.value;
+        } else {
+            evaluation = null;
+            value = gauge.getValue();
+        }
+        if (value == null) {
+            return;
+        }
+        if (value instanceof Number && gaugeDeadband.suppress(name, ((Number) value).doubleValue())) {
+            return;
+        }
+        if (evaluation != null && evaluation.cached) {
+            append(name, now, Map.of("value", value, STALENESS, Math.max(0, now - evaluation.evaluated)));
+        } else {
+            append(name, now, Map.of("value", value));
+        }
+    }
+
+    private void reportCounter(final @NotNull String name, final @NotNull Counter counter, final long now) {
+        final var count = counter.getCount();
+        final var slot = counterSlots.computeIfAbsent(name, this::resolveCounterSlot);
+        if (slot == NO_SLOT) {
+            append(name, now, Map.of("count", count));
+            return;
+        }
+        final var previousTime = previousTimes[slot];
+        final var previousCount = previousCounts[slot];
+        previousTimes[slot] = now;
+        previousCounts[slot] = count;
+        if (previousTime == 0 || now <= previousTime) {
+            append(name, now, Map.of("count", count));
+            return;
+        }
+        // a lower count is a reset of the counter, so everything since the reset is the delta
+        final var delta = count >= previousCount ? count - previousCount : count;
+        final var rate = delta * 1000.0 / (now - previousTime);
+        append(name, now, Map.of("count", count, DELTA, delta, RATE, rate));
+    }
+
+    private int resolveCounterSlot(final @NotNull String name) {
+        final var parts = MetricNameFilter.split(name);
+        for (final var filter : counterDeltas) {
+            if (filter.matches(parts)) {
+                if (freeSlotCount > 0) {
+                    return freeSlots[--freeSlotCount];
+                }
+                if (nextSlot == previousCounts.length) {
+                    previousCounts = Arrays.copyOf(previousCounts, nextSlot * 2);
+                    previousTimes = Arrays.copyOf(previousTimes, nextSlot * 2);
+                }
+                return nextSlot++;
+            }
+        }
+        return NO_SLOT;
+    }
+
+    /**
+     * Removes the cached projections and counter slots of the metrics that were removed from the registry, the slots
+     * are reused for the next counters. Every reported metric has an entry, so there is nothing to remove as long as
+     * there are not more entries than metrics.
+     */
+    private void prune(
+            final @NotNull Map<String, Counter> counters,
+            final @NotNull Map<String, Histogram> histograms,
+            final @NotNull Map<String, Meter> meters,
+            final @NotNull Map<String, Timer> timers) {
+        if (counterSlots.size() > counters.size()) {
+            final var iterator = counterSlots.entrySet().iterator();
+            while (iterator.hasNext()) {
+                final var entry = iterator.next();
+                if (!counters.containsKey(entry.getKey())) {
+                    iterator.remove();
+                    releaseCounterSlot(entry.getValue());
+                }
+            }
+        }
+        if (projectedFields.size() > histograms.size() + meters.size() + timers.size()) {
+            projectedFields.keySet().removeIf(name -> !histograms.containsKey(name) &&
+                    !meters.containsKey(name) &&
+                    !timers.containsKey(name));
+        }
+    }
+
+    private void releaseCounterSlot(final int slot) {
+        if (slot == NO_SLOT) {
+            return;
+        }
+        // the next counter of the slot starts without a previous count
+        previousTimes[slot] = 0;
+        previousCounts[slot] = 0;
+        if (freeSlotCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeSlotCount * 2);
+        }
+        freeSlots[freeSlotCount++] = slot;
+    }
+
+    private void reportHistogram(final @NotNull String name, final @NotNull Histogram histogram, final long now) {
+        final var projection = projection(name, HISTOGRAM_FIELDS);
+        if (projection == 0) {
+            return;
+        }
+        final var fields = new HashMap<String, Object>();
+        putIf(projection, COUNT, fields, histogram::getCount);
+        if ((projection & SNAPSHOT_FIELDS) != 0) {
+            final var snapshot = histogram.getSnapshot();
+            putIf(projection, MIN, fields, snapshot::getMin);
+            putIf(projection, MAX, fields, snapshot::getMax);
+            putIf(projection, MEAN, fields, snapshot::getMean);
+            putIf(projection, STDDEV, fields, snapshot::getStdDev);
+            putPercentiles(projection, fields, snapshot, 1);
+        }
+        append(name, now, fields);
+    }
+
+    private void reportMeter(final @NotNull String name, final @NotNull Meter meter, final long now) {
+        final var projection = projection(name, METER_FIELDS);
+        if (projection == 0) {
+            return;
+        }
+        final var fields = new HashMap<String, Object>();
+        putIf(projection, COUNT, fields, meter::getCount);
+        putRates(projection, fields, meter);
+        append(name, now, fields);
+    }
+
+    private void reportTimer(final @NotNull String name, final @NotNull Timer timer, final long now) {
+        final var projection = projection(name, TIMER_FIELDS);
+        if (projection == 0) {
+            return;
+        }
+        final var fields = new HashMap<String, Object>();
+        putIf(projection, COUNT, fields, timer::getCount);
+        if ((projection & SNAPSHOT_FIELDS) != 0) {
+            final var snapshot = timer.getSnapshot();
+            putIf(projection, MIN, fields, () -> convertDuration(snapshot.getMin()));
+            putIf(projection, MAX, fields, () -> convertDuration(snapshot.getMax()));
+            putIf(projection, MEAN, fields, () -> convertDuration(snapshot.getMean()));
+            putIf(projection, STDDEV, fields, () -> convertDuration(snapshot.getStdDev()));
+            putPercentiles(projection, fields, snapshot, convertDuration(1));
+        }
+        putRates(projection, fields, timer);
+        append(name, now, fields);
+    }
+
+    private static void putPercentiles(
+            final int projection,
+            final @NotNull Map<String, Object> fields,
+            final @NotNull Snapshot snapshot,
+            final double factor) {
+        putIf(projection, P50, fields, () -> snapshot.getMedian() * factor);
+        putIf(projection, P75, fields, () -> snapshot.get75thPercentile() * factor);
+        putIf(projection, P95, fields, () -> snapshot.get95thPercentile() * factor);
+        putIf(projection, P98, fields, () -> snapshot.get98thPercentile() * factor);
+        putIf(projection, P99, fields, () -> snapshot.get99thPercentile() * factor);
+        putIf(projection, P999, fields, () -> snapshot.get999thPercentile() * factor);
+    }
+
+    private void putRates(
+            final int projection,
+            final @NotNull Map<String, Object> fields,
+            final @NotNull Metered meter) {
+        putIf(projection, M1_RATE, fields, () -> convertRate(meter.getOneMinuteRate()));
+        putIf(projection, M5_RATE, fields, () -> convertRate(meter.getFiveMinuteRate()));
+        putIf(projection, M15_RATE, fields, () -> convertRate(meter.getFifteenMinuteRate()));
+        putIf(projection, MEAN_RATE, fields, () -> convertRate(meter.getMeanRate()));
+    }
+
+    private static void putIf(
+            final int projection,
+            final int field,
+            final @NotNull Map<String, Object> fields,
+            final @NotNull FieldValue value) {
+        if ((projection & field) != 0) {
+            fields.put(FIELDS.get(Integer.numberOfTrailingZeros(field)), value.get());
+        }
+    }
+
+    private void append(final @NotNull String name, final long now, final @NotNull Map<String, Object> fields) {
+        sender.appendPoints(new InfluxDbPoint(name, Map.of(), now, fields));
+    }
+
+    /**
+     * @return the projected fields of the metric of the available fields of its type.
+     */
+    private int projection(final @NotNull String name, final int available) {
+        return projectedFields.computeIfAbsent(name, this::resolveProjection) & available;
+    }
+
+    private int resolveProjection(final @NotNull String name) {
+        final var parts = MetricNameFilter.split(name);
+        for (final var projection : projections) {
+            if (projection.filter.matches(parts)) {
+                return projection.fields;
+            }
+        }
+        return TIMER_FIELDS;
+    }
+
+    @FunctionalInterface
+    private interface FieldValue {
+
+        @NotNull Object get();
+    }
+
+    private static final class Projection {
+
+        private final @NotNull MetricNameFilter filter;
+        private final int fields;
+
+        private Projection(final @NotNull MetricNameFilter filter, final int fields) {
+            this.filter = filter;
+            this.fields = fields;
+        }
+    }
+}
@@ -0,0 +1,469 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb;
+
+import com.hivemq.extensions.influxdb.configuration.InfluxDbConfiguration;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Command line tool that replays line protocol files, e.g. the segments written in mode 'file', to the InfluxDB HTTP
+ * write endpoint of an extension configuration.
+ * <p>
+ * The lines of all files are re-chunked into batches of at most {@code --batch-lines} lines and
+ * {@code --batch-bytes} uncompressed bytes, which are gzip compressed and written with up to {@code --parallelism}
+ * requests in flight. The write rate can be limited with {@code --rate} lines per second. Progress and throughput are
+ * printed every {@value #PROGRESS_INTERVAL_SECONDS} seconds.
+ * <p>
+ * A gzip compressed segment that was completed after a crash of the broker has no gzip trailer and might end within a
+ * line. Its complete lines are replayed and it is counted as partially replayed.
+ */
+public class InfluxDbReplay {
+
+    static final int DEFAULT_PARALLELISM = 4;
+    static final int DEFAULT_BATCH_LINES = 5000;
+    static final int DEFAULT_BATCH_BYTES = 1024 * 1024;
+    static final int DEFAULT_RETRIES = 3;
+
+    private static final int PROGRESS_INTERVAL_SECONDS = 10;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final long MAX_RETRY_BACKOFF_MILLIS = 30_000;
+    private static final @NotNull String USAGE = "Usage: java -cp <extension jar>:<HiveMQ home>/bin/hivemq.jar " +
+            InfluxDbReplay.class.getName() +
+            " [--parallelism <n>] [--batch-lines <n>] [--batch-bytes <n>] [--rate <lines per second>]" +
+            " [--retries <n>] [--precision ms|s] <config.properties> <file or directory>...";
+
+    /**
+     * Writes a batch of line protocol, see {@link AbstractInfluxDbHttpSender#writeData(byte[])}.
+     */
+    @FunctionalInterface
+    interface BatchWriter {
+
+        void write(final byte @NotNull [] batch) throws Exception;
+    }
+
+    private final @NotNull BatchWriter writer;
+    private final int parallelism;
+    private final int batchLines;
+    private final int batchBytes;
+    private final long maxLinesPerSecond;
+    private final int retries;
+    private final long retryBackoffMillis;
+    private final @NotNull PrintStream out;
+
+    private final @NotNull AtomicLong writtenLines = new AtomicLong();
+    private final @NotNull AtomicLong writtenBytes = new AtomicLong();
+    private final @NotNull AtomicLong writtenBatches = new AtomicLong();
+    private final @NotNull AtomicLong failedLines = new AtomicLong();
+    private final @NotNull AtomicLong failedBatches = new AtomicLong();
+    private final @NotNull AtomicLong replayedFiles = new AtomicLong();
+    private final @NotNull AtomicLong truncatedFiles = new AtomicLong();
+
+    InfluxDbReplay(
+            final @NotNull BatchWriter writer,
+            final int parallelism,
+            final int batchLines,
+            final int batchBytes,
+            final long maxLinesPerSecond,
+            final int retries,
+            final long retryBackoffMillis,
+            final @NotNull PrintStream out) {
+        this.writer = writer;
+        this.parallelism = parallelism;
+        this.batchLines = batchLines;
+        this.batchBytes = batchBytes;
+        this.maxLinesPerSecond = maxLinesPerSecond;
+        this.retries = retries;
+        this.retryBackoffMillis = retryBackoffMillis;
+        this.out = out;
+    }
+
+    public static void main(final String @NotNull [] args) {
+        System.exit(run(args, System.out, System.err));
+    }
+
+    static int run(final String @NotNull [] args, final @NotNull PrintStream out, final @NotNull PrintStream err) {
+        var parallelism = DEFAULT_PARALLELISM;
+        var batchLines = DEFAULT_BATCH_LINES;
+        var batchBytes = DEFAULT_BATCH_BYTES;
+        var maxLinesPerSecond = 0L;
+        var retries = DEFAULT_RETRIES;
+        var timePrecision = TimeUnit.MILLISECONDS;
+        final var arguments = new ArrayList<String>();
+        try {
+            for (var i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--parallelism" :
+                        parallelism = parsePositive(args, ++i);
+                        break;
+                    case "--batch-lines" :
+                        batchLines = parsePositive(args, ++i);
+                        break;
+                    case "--batch-bytes" :
+                        batchBytes = parsePositive(args, ++i);
+                        break;
+                    case "--rate" :
+                        maxLinesPerSecond = parsePositive(args, ++i);
+                        break;
+                    case "--retries" :
+                        retries = Integer.parseInt(value(args, ++i));
+                        break;
+                    case "--precision" :
+                        timePrecision = parsePrecision(value(args, ++i));
+                        break;
+                    default :
+                        arguments.add(args[i]);
+                }
+            }
+        } catch (final IllegalArgumentException e) {
+            err.println(e.getMessage());
+            err.println(USAGE);
+            return 2;
+        }
+        if (arguments.size() < 2 || retries < 0) {
+            err.println(USAGE);
+            return 2;
+        }
+
+        final var configuration = new InfluxDbConfiguration(new File(arguments.get(0)));
+        if (!configuration.readPropertiesFromFile() || !configuration.validateConfiguration()) {
+            err.println("Could not read a valid InfluxDB configuration from " + arguments.get(0));
+            return 1;
+        }
+        if (!configuration.isHostConfigured()) {
+            err.println("The InfluxDB configuration " + arguments.get(0) + " has no host to replay to");
+            return 1;
+        }
+        try {
+            final var files = listFiles(arguments.subList(1, arguments.size()));
+            final var sender = InfluxDbExtensionMain.setupHttpSender(configuration,
+                    timePrecision,
+                    InfluxDbExtensionMain.setupTlsSocketFactory(configuration, Path.of("")));
+            if (sender == null) {
+                err.println("The InfluxDB configuration " + arguments.get(0) + " has no HTTP write endpoint");
+                return 1;
+            }
+            final var replay = new InfluxDbReplay(sender::writeData,
+                    parallelism,
+                    batchLines,
+                    batchBytes,
+                    maxLinesPerSecond,
+                    retries,
+                    1000,
+                    out);
+            return replay.replay(files) ? 0 : 1;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            err.println("Replay was interrupted");
+        } catch (final Exception e) {
+            err.println("Replay failed: " + e);
+        }
+        return 1;
+    }
+
+    /**
+     * Replays the given files in order.
+     *
+     * @return <b>true</b> if all lines were written, else <b>false</b>.
+     */
+    boolean replay(final @NotNull List<Path> files) throws IOException, InterruptedException {
+        final var executor = Executors.newFixedThreadPool(parallelism);
+        final var progress = Executors.newSingleThreadScheduledExecutor();
+        final var inFlight = new Semaphore(parallelism);
+        final var rateLimiter = new RateLimiter(maxLinesPerSecond);
+        final var start = System.nanoTime();
+        progress.scheduleAtFixedRate(() -> printProgress(files.size(), start),
+                PROGRESS_INTERVAL_SECONDS,
+                PROGRESS_INTERVAL_SECONDS,
+                TimeUnit.SECONDS);
+        try {
+            final var batch = new Batch();
+            final var buffer = new byte[READ_BUFFER_SIZE];
+            for (final var file : files) {
+                try (final var in = open(file)) {
+                    int read;
+                    while ((read = in.read(buffer)) != -1) {
+                        var lineStart = 0;
+                        for (var i = 0; i < read; i++) {
+                            if (buffer[i] == '\n') {
+                                batch.append(buffer, lineStart, i + 1 - lineStart);
+                                lineStart = i + 1;
+                                if (batch.lines >= batchLines || batch.size() >= batchBytes) {
+                                    submit(batch, executor, inFlight, rateLimiter);
+                                }
+                            }
+                        }
+                        batch.append(buffer, lineStart, read - lineStart);
+                    }
+                    // a file might not end with a line break, the next file must not continue its last line
+                    batch.completeLine();
+                } catch (final EOFException e) {
+                    // a truncated gzip stream ends the data of the file, its last line might be incomplete
+                    batch.discardLine();
+                    truncatedFiles.incrementAndGet();
+                    out.println("File " + file + " is truncated, replayed its complete lines");
+                }
+                replayedFiles.incrementAndGet();
+            }
+            if (batch.lines > 0) {
+                submit(batch, executor, inFlight, rateLimiter);
+            }
+            // wait until all batches in flight are written
+            inFlight.acquire(parallelism);
+        } finally {
+            progress.shutdownNow();
+            executor.shutdownNow();
+        }
+        printProgress(files.size(), start);
+        return failedBatches.get() == 0;
+    }
+
+    private void submit(
+            final @NotNull Batch batch,
+            final @NotNull ExecutorService executor,
+            final @NotNull Semaphore inFlight,
+            final @NotNull RateLimiter rateLimiter) throws InterruptedException {
+        final var lines = batch.lines;
+        final var data = batch.drain();
+        rateLimiter.acquire(lines);
+        inFlight.acquire();
+        try {
+            executor.execute(() -> {
+                try {
+                    write(data, lines);
+                } finally {
+                    inFlight.release();
+                }
+            });
+        } catch (final RuntimeException e) {
+            inFlight.release();
+            throw e;
+        }
+    }
+
+    private void write(final byte @NotNull [] data, final int lines) {
+        for (var attempt = 0; ; attempt++) {
+            try {
+                writer.write(data);
+                writtenLines.addAndGet(lines);
+                writtenBytes.addAndGet(data.length);
+                writtenBatches.incrementAndGet();
+                return;
+            } catch (final Exception e) {
+                if (attempt >= retries) {
+                    failedLines.addAndGet(lines);
+                    failedBatches.incrementAndGet();
+                    out.println("Failed to write batch of " + lines + " lines: " + e.getMessage());
+                    return;
+                }
+                try {
+                    Thread.sleep(Math.min(retryBackoffMillis << attempt, MAX_RETRY_BACKOFF_MILLIS));
+                } catch (final InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    failedLines.addAndGet(lines);
+                    failedBatches.incrementAndGet();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void printProgress(final int files, final long start) {
+        final var seconds = Math.max(System.nanoTime() - start, 1) / 1e9;
+        final var lines = writtenLines.get();
+        final var bytes = writtenBytes.get();
+        out.println(String.format(
+                "Replayed %d of %d files (%d partially): %d lines in %d batches (%.1f MiB), %.0f lines/s, " +
+                        "%.2f MiB/s, %d lines failed",
+                replayedFiles.get(),
+                files,
+                truncatedFiles.get(),
+                lines,
+                writtenBatches.get(),
+                bytes / 1048576d,
+                lines / seconds,
+                bytes / 1048576d / seconds,
+                failedLines.get()));
+    }
+
+    private static @NotNull InputStream open(final @NotNull Path file) throws IOException {
+        final var in = new BufferedInputStream(Files.newInputStream(file), READ_BUFFER_SIZE);
+        if (file.getFileName().toString().endsWith(InfluxDbFileSender.GZIP_SUFFIX)) {
+            try {
+                return new GZIPInputStream(in, READ_BUFFER_SIZE);
+            } catch (final IOException e) {
+                in.close();
+                throw e;
+            }
+        }
+        return in;
+    }
+
+    /**
+     * Expands directories to the completed segments of mode 'file' they contain, in the order they were written.
+     */
+    static @NotNull List<Path> listFiles(final @NotNull List<String> arguments) throws IOException {
+        final var files = new ArrayList<Path>();
+        for (final var argument : arguments) {
+            final var path = Path.of(argument);
+            if (Files.isDirectory(path)) {
+                try (final var children = Files.list(path)) {
+                    files.addAll(children.filter(child -> {
+                        final var name = child.getFileName().toString();
+                        return name.endsWith(InfluxDbFileSender.FILE_SUFFIX) ||
+                                name.endsWith(InfluxDbFileSender.FILE_SUFFIX + InfluxDbFileSender.GZIP_SUFFIX);
+                    }).sorted().collect(Collectors.toList()));
+                }
+            } else if (Files.isRegularFile(path)) {
+                files.add(path);
+            } else {
+                throw new IOException("File " + path + " does not exist");
+            }
+        }
+        return files;
+    }
+
+    private static int parsePositive(final String @NotNull [] args, final int index) {
+        final var value = value(args, index);
+        final int parsed;
+        try {
+            parsed = Integer.parseInt(value);
+        } catch (final NumberFormatException e) {
+            throw new IllegalArgumentException("Value of " + args[index - 1] + " is not a number: " + value);
+        }
+        if (parsed <= 0) {
+            throw new IllegalArgumentException("Value of " + args[index - 1] + " must be positive: " + value);
+        }
+        return parsed;
+    }
+
+    private static @NotNull TimeUnit parsePrecision(final @NotNull String value) {
+        switch (value) {
+            case "ms" :
+                return TimeUnit.MILLISECONDS;
+            case "s" :
+                return TimeUnit.SECONDS;
+            default :
+                throw new IllegalArgumentException("Unsupported precision: " + value);
+        }
+    }
+
+    private static @NotNull String value(final String @NotNull [] args, final int index) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + args[index - 1]);
+        }
+        return args[index];
+    }
+
+    /**
+     * Collects complete lines until a batch is submitted. Empty lines are skipped.
+     */
+    private static class Batch {
+
+        private final @NotNull ByteArrayOutputStream data = new ByteArrayOutputStream();
+        private int lines;
+        private int lineLength;
+
+        void append(final byte @NotNull [] buffer, final int offset, final int length) {
+            if (length == 0) {
+                return;
+            }
+            final var complete = buffer[offset + length - 1] == '\n';
+            if (complete && lineLength == 0 && length == 1) {
+                return;
+            }
+            data.write(buffer, offset, length);
+            if (complete) {
+                lines++;
+                lineLength = 0;
+            } else {
+                lineLength += length;
+            }
+        }
+
+        void completeLine() {
+            if (lineLength > 0) {
+                data.write('\n');
+                lines++;
+                lineLength = 0;
+            }
+        }
+
+        void discardLine() {
+            if (lineLength > 0) {
+                final var bytes = data.toByteArray();
+                data.reset();
+                data.write(bytes, 0, bytes.length - lineLength);
+                lineLength = 0;
+            }
+        }
+
+        int size() {
+            return data.size();
+        }
+
+        byte @NotNull [] drain() {
+            final var bytes = data.toByteArray();
+            data.reset();
+            lines = 0;
+            return bytes;
+        }
+    }
+
+    /**
+     * Spaces the submission of batches so that on average at most the configured number of lines per second is
+     * written. Only used by the single reading thread.
+     */
+    private static class RateLimiter {
+
+        private final double nanosPerLine;
+        private long next = System.nanoTime();
+
+        RateLimiter(final long maxLinesPerSecond) {
+            this.nanosPerLine = maxLinesPerSecond > 0 ? 1e9 / maxLinesPerSecond : 0;
+        }
+
+        void acquire(final int lines) throws InterruptedException {
+            if (nanosPerLine == 0) {
+                return;
+            }
+            final var now = System.nanoTime();
+            if (next > now) {
+                TimeUnit.NANOSECONDS.sleep(next - now);
+            }
+            next = Math.max(next, now) + (long) (lines * nanosPerLine);
+        }
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb;
+
+import com.izettle.metrics.influxdb.InfluxDbBaseSender;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.PortUnreachableException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sender for the InfluxDB UDP listener that packs whole lines into datagrams.
+ * <p>
+ * Lines are never split across datagrams, so every datagram is a valid line protocol payload of at most
+ * {@code payloadSize} bytes. Lines that are larger than the payload size on their own are dropped, because the network
+ * or the UDP listener would drop them anyway. Datagrams are sent through a non-blocking {@link DatagramChannel}, so a
+ * full socket buffer drops the datagram instead of blocking the reporter.
+ * <p>
+ * The channel stays connected to one address of the host. The addresses are cached and refreshed in the background, the
+ * channel is reconnected when the address changes or the listener is not available, so a failover of the host via DNS
+ * is followed without a name lookup for every write.
+ */
+public class InfluxDbUdpBatchSender extends InfluxDbBaseSender implements Closeable {
+
+    /**
+     * Maximum payload of a UDP datagram over IPv4.
+     */
+    private static final int MAX_PAYLOAD_SIZE = 65507;
+
+    private static final @NotNull Logger LOG = LoggerFactory.getLogger(InfluxDbUdpBatchSender.class);
+
+    private final @NotNull DatagramChannelFactory channelFactory;
+    private final @Nullable EndpointResolver resolver;
+    private final @NotNull ByteBuffer buffer;
+
+    private @Nullable DatagramChannel channel;
+    private @Nullable InetAddress channelAddress;
+
+    public InfluxDbUdpBatchSender(
+            final @NotNull String host,
+            final int port,
+            final long dnsTtlMillis,
+            final int payloadSize,
+            final @NotNull TimeUnit timePrecision,
+            final @NotNull String database,
+            final @NotNull String measurementPrefix) {
+        this(new EndpointResolver(host, dnsTtlMillis), port, payloadSize, timePrecision, database, measurementPrefix);
+    }
+
+    InfluxDbUdpBatchSender(
+            final @NotNull EndpointResolver resolver,
+            final int port,
+            final int payloadSize,
+            final @NotNull TimeUnit timePrecision,
+            final @NotNull String database,
+            final @NotNull String measurementPrefix) {
+        this(() -> openUdpChannel(resolver.current(), port),
+                resolver,
+                payloadSize,
+                timePrecision,
+                database,
+                measurementPrefix);
+        resolver.start();
+    }
+
+    InfluxDbUdpBatchSender(
+            final @NotNull DatagramChannelFactory channelFactory,
+            final int payloadSize,
+            final @NotNull TimeUnit timePrecision,
+            final @NotNull String database,
+            final @NotNull String measurementPrefix) {
+        this(channelFactory, null, payloadSize, timePrecision, database, measurementPrefix);
+    }
+
+    private InfluxDbUdpBatchSender(
+            final @NotNull DatagramChannelFactory channelFactory,
+            final @Nullable EndpointResolver resolver,
+            final int payloadSize,
+            final @NotNull TimeUnit timePrecision,
+            final @NotNull String database,
+            final @NotNull String measurementPrefix) {
+        super(database, timePrecision, measurementPrefix);
+        if (payloadSize < 1 || payloadSize > MAX_PAYLOAD_SIZE) {
+            throw new IllegalArgumentException("Datagram payload size must be between 1 and " + MAX_PAYLOAD_SIZE);
+        }
+        this.channelFactory = channelFactory;
+        this.resolver = resolver;
+        this.buffer = ByteBuffer.allocateDirect(payloadSize);
+    }
+
+    @Override
+    protected synchronized int writeData(final byte @NotNull [] line) throws Exception {
+        final var channel = getChannel();
+        buffer.clear();
+        var oversizedLines = 0;
+        var droppedDatagrams = 0;
+        var start = 0;
+        while (start < line.length) {
+            final var end = endOfLine(line, start);
+            final var length = end - start;
+            if (length > buffer.capacity()) {
+                oversizedLines++;
+            } else {
+                if (length > buffer.remaining()) {
+                    droppedDatagrams += send(channel);
+                }
+                buffer.put(line, start, length);
+            }
+            start = end;
+        }
+        if (buffer.position() > 0) {
+            droppedDatagrams += send(channel);
+        }
+        if (oversizedLines > 0) {
+            LOG.warn("Dropped {} line(s) exceeding the datagram payload size of {} bytes",
+                    oversizedLines,
+                    buffer.capacity());
+        }
+        if (droppedDatagrams > 0) {
+            LOG.debug("Dropped {} datagram(s) because the socket send buffer is full", droppedDatagrams);
+        }
+        return 0;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            closeChannel();
+        } finally {
+            if (resolver != null) {
+                resolver.close();
+            }
+        }
+    }
+
+    private void closeChannel() throws IOException {
+        if (channel != null) {
+            final var current = channel;
+            channel = null;
+            channelAddress = null;
+            current.close();
+        }
+    }
+
+    /**
+     * Sends the buffered lines as one datagram and clears the buffer.
+     *
+     * @return 1 if the datagram was dropped, else 0.
+     */
+    private int send(final @NotNull DatagramChannel channel) throws IOException {
+        buffer.flip();
+        try {
+            return channel.write(buffer) == 0 ? 1 : 0;
+        } catch (final PortUnreachableException e) {
+            // an ICMP error from a previous datagram, the listener is not (yet) available
+            failover();
+            return 1;
+        } catch (final IOException e) {
+            failover();
+            closeChannel();
+            throw e;
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Switches the resolver to the next address of the host, the channel is reconnected with the next write.
+     */
+    private void failover() {
+        if (resolver != null && channelAddress != null) {
+            resolver.failed(channelAddress);
+        }
+    }
+
+    private @NotNull DatagramChannel getChannel() throws IOException {
+        if (resolver != null && channel != null && !resolver.current().equals(channelAddress)) {
+            LOG.debug("Reconnecting InfluxDB UDP sender to {}", resolver.current().getHostAddress());
+            closeChannel();
+        }
+        if (channel == null || !channel.isOpen()) {
+            final var newChannel = channelFactory.open();
+            try {
+                newChannel.configureBlocking(false);
+                if (resolver != null) {
+                    channelAddress = ((InetSocketAddress) newChannel.getRemoteAddress()).getAddress();
+                }
+            } catch (final IOException e) {
+                newChannel.close();
+                throw e;
+            }
+            channel = newChannel;
+        }
+        return channel;
+    }
+
+    private static @NotNull DatagramChannel openUdpChannel(final @NotNull InetAddress address, final int port)
+            throws IOException {
+        final var newChannel = DatagramChannel.open();
+        try {
+            newChannel.connect(new InetSocketAddress(address, port));
+        } catch (final IOException e) {
+            newChannel.close();
+            throw e;
+        }
+        return newChannel;
+    }
+
+    /**
+     * @return the index after the line feed that terminates the line starting at <b>start</b>, or the length of
+     *         <b>data</b> if the line is not terminated.
+     */
+    private static int endOfLine(final byte @NotNull [] data, final int start) {
+        for (var i = start; i < data.length; i++) {
+            if (data[i] == '\n') {
+                return i + 1;
+            }
+        }
+        return data.length;
+    }
+
+    /**
+     * Opens a datagram channel that is connected to the receiver of the line protocol.
+     */
+    @FunctionalInterface
+    interface DatagramChannelFactory {
+
+        @NotNull DatagramChannel open() throws IOException;
+    }
+}
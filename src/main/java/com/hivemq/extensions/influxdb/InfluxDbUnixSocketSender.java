@@ -0,0 +1,75 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb;
+
+import com.izettle.metrics.influxdb.InfluxDbBaseSender;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sender that writes line protocol to a stream-oriented Unix domain socket, e.g. the {@code socket_listener} input of a
+ * co-located Telegraf agent.
+ * <p>
+ * The connection is kept open between reports and re-established after a write error. Requires a Java runtime with
+ * Unix domain socket support, see {@link UnixDomainSockets#isStreamSupported()}.
+ */
+public class InfluxDbUnixSocketSender extends InfluxDbBaseSender implements Closeable {
+
+    private final @NotNull String socketPath;
+
+    private @Nullable SocketChannel channel;
+
+    public InfluxDbUnixSocketSender(
+            final @NotNull String socketPath,
+            final @NotNull TimeUnit timePrecision,
+            final @NotNull String database,
+            final @NotNull String measurementPrefix) {
+        super(database, timePrecision, measurementPrefix);
+        this.socketPath = socketPath;
+    }
+
+    @Override
+    protected synchronized int writeData(final byte @NotNull [] line) throws Exception {
+        if (channel == null || !channel.isOpen()) {
+            channel = UnixDomainSockets.openStream(socketPath);
+        }
+        final var buffer = ByteBuffer.wrap(line);
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (final IOException e) {
+            close();
+            throw e;
+        }
+        return 0;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb;
+
+import com.izettle.metrics.influxdb.utils.TimeUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.net.ssl.SSLSocketFactory;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sender for InfluxDB 1.x using the {@code /write} endpoint.
+ * <p>
+ * The optional auth string has the format {@code username:password} and is sent as HTTP basic authentication.
+ */
+public class InfluxDbV1Sender extends AbstractInfluxDbHttpSender {
+
+    public InfluxDbV1Sender(
+            final @NotNull String protocol,
+            final @NotNull String host,
+            final int port,
+            final @NotNull String database,
+            final @Nullable String authString,
+            final @NotNull TimeUnit timePrecision,
+            final int connectTimeout,
+            final int readTimeout,
+            final @NotNull String measurementPrefix) throws Exception {
+        this(protocol,
+                host,
+                port,
+                database,
+                authString,
+                timePrecision,
+                connectTimeout,
+                readTimeout,
+                measurementPrefix,
+                null);
+    }
+
+    public InfluxDbV1Sender(
+            final @NotNull String protocol,
+            final @NotNull String host,
+            final int port,
+            final @NotNull String database,
+            final @Nullable String authString,
+            final @NotNull TimeUnit timePrecision,
+            final int connectTimeout,
+            final int readTimeout,
+            final @NotNull String measurementPrefix,
+            final @Nullable SSLSocketFactory sslSocketFactory) throws Exception {
+        super(protocol,
+                host,
+                port,
+                database,
+                authString,
+                timePrecision,
+                connectTimeout,
+                readTimeout,
+                measurementPrefix,
+                writeUrl(protocol, host, port, timePrecision, database),
+                authString != null && !authString.isEmpty() ?
+                        "Basic " + Base64.getEncoder().encodeToString(authString.getBytes(StandardCharsets.UTF_8)) :
+                        null,
+                sslSocketFactory);
+    }
+
+    private static @NotNull URL writeUrl(
+            final @NotNull String protocol,
+            final @NotNull String host,
+            final int port,
+            final @NotNull TimeUnit timePrecision,
+            final @NotNull String database) throws MalformedURLException {
+        final var endpoint = new URL(protocol, host, port, "/write").toString();
+        final var dbParameter = String.format("db=%s", URLEncoder.encode(database, StandardCharsets.UTF_8));
+        final var queryPrecision = String.format("precision=%s", TimeUtils.toTimePrecision(timePrecision));
+        return new URL(String.format("%s?%s&%s", endpoint, dbParameter, queryPrecision));
+    }
+}
@@ -16,31 +16,23 @@
 
 package com.hivemq.extensions.influxdb;
 
-import com.izettle.metrics.influxdb.InfluxDbHttpSender;
 import com.izettle.metrics.influxdb.utils.TimeUtils;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.io.IOException;
-import java.net.HttpURLConnection;
+import javax.net.ssl.SSLSocketFactory;
+import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
-import java.util.Objects;
 import java.util.concurrent.TimeUnit;
-import java.util.zip.GZIPOutputStream;
 
 /**
  * Sender for InfluxDB v3 using the {@code /api/v3/write_lp} endpoint.
  * <p>
- * Supports InfluxDB 3 Core, Enterprise, and Cloud. Follows the same pattern as {@link InfluxDbCloudSender}.
+ * Supports InfluxDB 3 Core, Enterprise, and Cloud.
  */
-public class InfluxDbV3Sender extends InfluxDbHttpSender {
-
-    private final @Nullable String authToken;
-    private final int connectTimeout;
-    private final int readTimeout;
-    private final @NotNull URL url;
+public class InfluxDbV3Sender extends AbstractInfluxDbHttpSender {
 
     public InfluxDbV3Sender(
             final @NotNull String protocol,
@@ -52,53 +44,52 @@ public class InfluxDbV3Sender extends InfluxDbHttpSender {
             final int readTimeout,
             final @NotNull String measurementPrefix,
             final @NotNull String database) throws Exception {
+        this(protocol,
+                host,
+                port,
+                authToken,
+                timePrecision,
+                connectTimeout,
+                readTimeout,
+                measurementPrefix,
+                database,
+                null);
+    }
+
+    public InfluxDbV3Sender(
+            final @NotNull String protocol,
+            final @NotNull String host,
+            final int port,
+            final @Nullable String authToken,
+            final @NotNull TimeUnit timePrecision,
+            final int connectTimeout,
+            final int readTimeout,
+            final @NotNull String measurementPrefix,
+            final @NotNull String database,
+            final @Nullable SSLSocketFactory sslSocketFactory) throws Exception {
         super(protocol,
                 host,
                 port,
                 database,
-                Objects.requireNonNullElse(authToken, ""),
+                authToken,
                 timePrecision,
                 connectTimeout,
                 readTimeout,
-                measurementPrefix);
-        this.authToken = authToken;
-        this.connectTimeout = connectTimeout;
-        this.readTimeout = readTimeout;
+                measurementPrefix,
+                writeUrl(protocol, host, port, timePrecision, database),
+                authToken != null && !authToken.isEmpty() ? "Bearer " + authToken : null,
+                sslSocketFactory);
+    }
+
+    private static @NotNull URL writeUrl(
+            final @NotNull String protocol,
+            final @NotNull String host,
+            final int port,
+            final @NotNull TimeUnit timePrecision,
+            final @NotNull String database) throws MalformedURLException {
         final var endpoint = new URL(protocol, host, port, "/api/v3/write_lp").toString();
         final var queryPrecision = String.format("precision=%s", TimeUtils.toTimePrecision(timePrecision));
         final var dbParameter = String.format("db=%s", URLEncoder.encode(database, StandardCharsets.UTF_8));
-        this.url = new URL(String.format("%s?%s&%s", endpoint, queryPrecision, dbParameter));
-    }
-
-    @Override
-    protected int writeData(final byte @NotNull [] line) throws Exception {
-        final var con = (HttpURLConnection) url.openConnection();
-        try {
-            con.setRequestMethod("POST");
-            if (authToken != null && !authToken.isEmpty()) {
-                con.setRequestProperty("Authorization", "Bearer " + authToken);
-            }
-            con.setDoOutput(true);
-            con.setConnectTimeout(connectTimeout);
-            con.setReadTimeout(readTimeout);
-            con.setRequestProperty("Content-Encoding", "gzip");
-            try (final var out = con.getOutputStream(); final var gzipOutputStream = new GZIPOutputStream(out)) {
-                gzipOutputStream.write(line);
-                gzipOutputStream.flush();
-                out.flush();
-            }
-            // check for non 2xx response code
-            final var responseCode = con.getResponseCode();
-            if (responseCode / 100 != 2) {
-                throw new IOException(
-                        String.format("Server returned HTTP response code %d for URL '%s' with content: %s",
-                                responseCode,
-                                url,
-                                con.getResponseMessage()));
-            }
-            return responseCode;
-        } finally {
-            con.disconnect();
-        }
+        return new URL(String.format("%s?%s&%s", endpoint, queryPrecision, dbParameter));
     }
 }
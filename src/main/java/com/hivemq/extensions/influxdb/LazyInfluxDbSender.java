@@ -0,0 +1,274 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb;
+
+import com.izettle.metrics.influxdb.InfluxDbSender;
+import com.izettle.metrics.influxdb.data.InfluxDbPoint;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sender that creates the actual sender in the background, so the start of the broker does not wait for the name
+ * resolution or the network of InfluxDB.
+ * <p>
+ * Until the actual sender is created the reports are buffered, up to {@value #MAX_BUFFERED_POINTS} points within half
+ * of the {@link MemoryBudget}, the oldest points are discarded first. A report is reserved in the budget when it is
+ * flushed after the write, until then the sender that passed it holds its reservation, e.g. the
+ * {@link BudgetedInfluxDbSender}. If the creation fails with an {@link IOException} it is retried with an exponential
+ * backoff, except for a {@link MalformedURLException} of a misconfigured host or protocol. If no sender can be created
+ * for the configuration, the reports are discarded.
+ */
+class LazyInfluxDbSender implements InfluxDbSender, Closeable {
+
+    static final int MAX_BUFFERED_POINTS = 100_000;
+    private static final long MAX_RETRY_DELAY_MILLIS = 60_000;
+
+    private static final @NotNull Logger LOG = LoggerFactory.getLogger(LazyInfluxDbSender.class);
+
+    /**
+     * Creates the actual sender.
+     */
+    @FunctionalInterface
+    interface Factory {
+
+        /**
+         * @return             the sender or {@code null} if the configuration does not allow to create a sender.
+         * @throws IOException if the sender could not be created yet, the creation is retried. A
+         *                     {@link MalformedURLException} is a configuration error and is not retried.
+         * @throws Exception   if the configuration does not allow to create a sender.
+         */
+        @Nullable InfluxDbSender create() throws Exception;
+    }
+
+    private final @NotNull Factory factory;
+    private final @NotNull MemoryBudget budget;
+    private final @NotNull ScheduledExecutorService executor;
+    private final @NotNull CountDownLatch initialized = new CountDownLatch(1);
+
+    private final @NotNull List<InfluxDbPoint> points = new ArrayList<>();
+    private final @NotNull ArrayDeque<InfluxDbPoint> buffer = new ArrayDeque<>();
+    private volatile @NotNull Map<String, String> tags = new HashMap<>();
+    private volatile @Nullable InfluxDbSender sender;
+    private volatile boolean buffering = true;
+    private long bufferedBytes;
+    private boolean bufferOverflow;
+    private boolean bufferReport;
+
+    LazyInfluxDbSender(final @NotNull Factory factory) {
+        this(factory, MemoryBudget.UNLIMITED);
+    }
+
+    LazyInfluxDbSender(final @NotNull Factory factory, final @NotNull MemoryBudget budget) {
+        this.factory = factory;
+        this.budget = budget;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final var thread = new Thread(runnable, "influxdb-sender-init");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts to create the actual sender in the background.
+     */
+    void start() {
+        executor.execute(() -> initialize(1000));
+    }
+
+    /**
+     * Waits until the actual sender is created or cannot be created for the configuration.
+     *
+     * @return <b>true</b> if the initialization is completed, <b>false</b> if the timeout elapsed before.
+     */
+    boolean awaitInitialization(final long timeout, final @NotNull TimeUnit unit) throws InterruptedException {
+        return initialized.await(timeout, unit);
+    }
+
+    boolean isReady() {
+        return sender != null;
+    }
+
+    /**
+     * Fails the writes instead of buffering them while the actual sender is not created, e.g. for the final report.
+     */
+    void stopBuffering() {
+        buffering = false;
+    }
+
+    @Override
+    public void flush() {
+        if (bufferReport) {
+            // the senders before release the reservation of the report before they flush this sender
+            bufferReport = false;
+            bufferPoints();
+        }
+        points.clear();
+    }
+
+    @Override
+    public boolean hasSeriesData() {
+        return !points.isEmpty();
+    }
+
+    @Override
+    public void appendPoints(final @Nullable InfluxDbPoint point) {
+        if (point != null) {
+            points.add(point);
+        }
+    }
+
+    @Override
+    public int writeData() throws Exception {
+        final var current = sender;
+        if (current == null) {
+            if (!buffering) {
+                throw new IOException("InfluxDB sender is not initialized");
+            }
+            // the report is buffered when it is flushed
+            bufferReport = initialized.getCount() != 0;
+            return 0;
+        }
+        current.flush();
+        try {
+            buffer.forEach(current::appendPoints);
+            points.forEach(current::appendPoints);
+            return current.writeData();
+        } finally {
+            clearBuffer();
+        }
+    }
+
+    @Override
+    public synchronized void setTags(final @Nullable Map<String, String> tags) {
+        this.tags = tags != null ? new HashMap<>(tags) : new HashMap<>();
+        final var current = sender;
+        if (current != null) {
+            current.setTags(this.tags);
+        }
+    }
+
+    @Override
+    public @NotNull Map<String, String> getTags() {
+        return tags;
+    }
+
+    @Override
+    public void close() throws IOException {
+        executor.shutdownNow();
+        if (!buffer.isEmpty()) {
+            LOG.warn("Discarding {} buffered InfluxDB points, the InfluxDB sender was not initialized", buffer.size());
+            clearBuffer();
+        }
+        final var current = sender;
+        if (current instanceof Closeable) {
+            ((Closeable) current).close();
+        }
+    }
+
+    private void bufferPoints() {
+        for (final var point : points) {
+            final var size = MemoryBudget.estimate(point);
+            // the buffer takes at most half of the budget, so the next reports still fit into it
+            while (buffer.size() >= MAX_BUFFERED_POINTS ||
+                    bufferedBytes + size > budget.getLimit() / 2 ||
+                    !budget.tryReserve(size)) {
+                if (!bufferOverflow) {
+                    bufferOverflow = true;
+                    LOG.warn("More than {} InfluxDB points or the memory budget of {} bytes buffered, discarding the " +
+                            "oldest points", MAX_BUFFERED_POINTS, budget.getLimit());
+                }
+                if (buffer.isEmpty()) {
+                    return;
+                }
+                final var discarded = MemoryBudget.estimate(buffer.removeFirst());
+                bufferedBytes -= discarded;
+                budget.release(discarded);
+            }
+            buffer.addLast(point);
+            bufferedBytes += size;
+        }
+    }
+
+    private void clearBuffer() {
+        buffer.clear();
+        budget.release(bufferedBytes);
+        bufferedBytes = 0;
+    }
+
+    private void initialize(final long retryDelayMillis) {
+        final InfluxDbSender created;
+        try {
+            created = factory.create();
+        } catch (final MalformedURLException e) {
+            // the URL of the configuration stays malformed, retrying cannot succeed
+            disable(e);
+            return;
+        } catch (final IOException e) {
+            LOG.warn("Not able to create InfluxDB sender, retrying in {} ms: {}", retryDelayMillis, e.getMessage());
+            LOG.debug("Original Exception: ", e);
+            try {
+                executor.schedule(() -> initialize(Math.min(retryDelayMillis * 2, MAX_RETRY_DELAY_MILLIS)),
+                        retryDelayMillis,
+                        TimeUnit.MILLISECONDS);
+            } catch (final RejectedExecutionException rejected) {
+                LOG.debug("InfluxDB sender is closed");
+            }
+            return;
+        } catch (final Exception e) {
+            disable(e);
+            return;
+        }
+        if (created == null) {
+            LOG.error("Could not create an InfluxDB sender, please check your configuration");
+        }
+        complete(created);
+    }
+
+    private void disable(final @NotNull Exception e) {
+        LOG.error("Not able to start InfluxDB sender, please check your configuration: {}", e.getMessage());
+        LOG.debug("Original Exception: ", e);
+        complete(null);
+    }
+
+    private void complete(final @Nullable InfluxDbSender created) {
+        if (created != null) {
+            synchronized (this) {
+                created.setTags(tags);
+                sender = created;
+            }
+            LOG.debug("InfluxDB sender is initialized");
+        }
+        initialized.countDown();
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb;
+
+import com.izettle.metrics.influxdb.data.InfluxDbPoint;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encodes {@link InfluxDbPoint}s to InfluxDB line protocol.
+ * <p>
+ * Tags are sorted by key, the tags of a point override global tags with the same key. Numbers are written as float
+ * fields like the line protocol of the metrics-influxdb library, so existing series keep their field types. Fields
+ * with a non-finite value are skipped, a point without any remaining field is not written at all.
+ */
+class LineProtocolEncoder {
+
+    private final @NotNull String measurementPrefix;
+    private final @NotNull TimeUnit timePrecision;
+
+    LineProtocolEncoder(final @NotNull String measurementPrefix, final @NotNull TimeUnit timePrecision) {
+        this.measurementPrefix = measurementPrefix;
+        this.timePrecision = timePrecision;
+    }
+
+    /**
+     * Appends the line of a point including the trailing line break.
+     *
+     * @param  point      the point to encode, its time is in milliseconds.
+     * @param  globalTags the tags that are added to every point.
+     * @param  line       the builder the line is appended to.
+     * @return            <b>true</b> if a line was appended, <b>false</b> if the point has no field to write.
+     */
+    boolean encode(
+            final @NotNull InfluxDbPoint point,
+            final @NotNull Map<String, String> globalTags,
+            final @NotNull StringBuilder line) {
+        final var start = line.length();
+        escape(line, measurementPrefix + point.getMeasurement(), false);
+        final var pointTags = point.getTags();
+        final var tags = new TreeMap<>(globalTags);
+        if (pointTags != null) {
+            tags.putAll(pointTags);
+        }
+        for (final var tag : tags.entrySet()) {
+            if (tag.getKey() == null || tag.getKey().isEmpty() || tag.getValue() == null || tag.getValue().isEmpty()) {
+                continue;
+            }
+            line.append(',');
+            escape(line, tag.getKey(), true);
+            line.append('=');
+            escape(line, tag.getValue(), true);
+        }
+        var separator = ' ';
+        for (final var field : point.getFields().entrySet()) {
+            final var value = field.getValue();
+            if (value == null || !isFinite(value)) {
+                continue;
+            }
+            line.append(separator);
+            separator = ',';
+            escape(line, field.getKey(), true);
+            line.append('=');
+            if (value instanceof Number || value instanceof Boolean) {
+                line.append(value);
+            } else {
+                line.append('"');
+                escapeString(line, value.toString());
+                line.append('"');
+            }
+        }
+        if (separator == ' ') {
+            line.setLength(start);
+            return false;
+        }
+        line.append(' ').append(timePrecision.convert(point.getTime(), TimeUnit.MILLISECONDS)).append('\n');
+        return true;
+    }
+
+    private static boolean isFinite(final @NotNull Object value) {
+        if (value instanceof Double) {
+            return Double.isFinite((Double) value);
+        }
+        if (value instanceof Float) {
+            return Float.isFinite((Float) value);
+        }
+        return true;
+    }
+
+    /**
+     * Escapes commas and spaces, and for tags and field keys also equal signs. Line breaks are replaced by spaces.
+     */
+    private static void escape(final @NotNull StringBuilder line, final @NotNull String value, final boolean key) {
+        for (var i = 0; i < value.length(); i++) {
+            final var c = value.charAt(i) == '\n' ? ' ' : value.charAt(i);
+            if (c == ',' || c == ' ' || (key && c == '=')) {
+                line.append('\\');
+            }
+            line.append(c);
+        }
+    }
+
+    private static void escapeString(final @NotNull StringBuilder line, final @NotNull String value) {
+        for (var i = 0; i < value.length(); i++) {
+            final var c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                line.append('\\');
+            }
+            line.append(c);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb;
+
+import com.izettle.metrics.influxdb.data.InfluxDbPoint;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Budget for the heap memory of the points that the extension holds, in the current report and in buffers.
+ * <p>
+ * The size of a point is an estimate of its objects on the heap. Every holder of points reserves their size before it
+ * keeps them and releases it when it drops them, a holder that can not reserve the size must not keep the point.
+ */
+class MemoryBudget {
+
+    /**
+     * What happens with the points of a report that do not fit into the budget.
+     */
+    enum Policy {
+        /**
+         * The points are discarded.
+         */
+        DROP,
+        /**
+         * The points are written to the spool directory, from where they can be replayed.
+         */
+        SPOOL,
+        /**
+         * The points are reduced to a single field, or discarded if that does not fit either.
+         */
+        DEGRADE;
+
+        static @Nullable Policy parse(final @NotNull String policy) {
+            try {
+                return valueOf(policy.trim().toUpperCase(Locale.ROOT));
+            } catch (final IllegalArgumentException e) {
+                return null;
+            }
+        }
+    }
+
+    static final @NotNull MemoryBudget UNLIMITED = new MemoryBudget(Long.MAX_VALUE);
+
+    private static final int POINT_SIZE = 96;
+    private static final int ENTRY_SIZE = 48;
+    private static final int STRING_SIZE = 40;
+    private static final int VALUE_SIZE = 24;
+
+    private final long limit;
+    private final @NotNull AtomicLong used = new AtomicLong();
+
+    /**
+     * @param limit the budget in bytes.
+     */
+    MemoryBudget(final long limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * Estimates the heap size of a point, including its maps and strings.
+     *
+     * @param  point the point.
+     * @return       the estimated size in bytes.
+     */
+    static long estimate(final @NotNull InfluxDbPoint point) {
+        var size = estimateSeries(point.getMeasurement(), point.getTags());
+        for (final var field : point.getFields().entrySet()) {
+            size += estimateField(field.getKey(), field.getValue());
+        }
+        return size;
+    }
+
+    /**
+     * Estimates the heap size of a point without its fields.
+     *
+     * @param  measurement the measurement of the point.
+     * @param  tags        the tags of the point.
+     * @return             the estimated size in bytes.
+     */
+    static long estimateSeries(final @NotNull String measurement, final @Nullable Map<String, String> tags) {
+        var size = POINT_SIZE + sizeOf(measurement);
+        if (tags != null) {
+            for (final var tag : tags.entrySet()) {
+                size += ENTRY_SIZE + sizeOf(tag.getKey()) + sizeOf(tag.getValue());
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Estimates the heap size of a field of a point.
+     *
+     * @param  name  the name of the field.
+     * @param  value the value of the field.
+     * @return       the estimated size in bytes.
+     */
+    static long estimateField(final @NotNull String name, final @Nullable Object value) {
+        final var valueSize = value instanceof String ? sizeOf((String) value) : VALUE_SIZE;
+        return ENTRY_SIZE + sizeOf(name) + valueSize;
+    }
+
+    private static long sizeOf(final @Nullable String value) {
+        return value != null ? STRING_SIZE + value.length() : 0;
+    }
+
+    /**
+     * @return <b>true</b> if the bytes are reserved, <b>false</b> if they exceed the remaining budget.
+     */
+    boolean tryReserve(final long bytes) {
+        while (true) {
+            final var current = used.get();
+            if (bytes > limit - current) {
+                return false;
+            }
+            if (used.compareAndSet(current, current + bytes)) {
+                return true;
+            }
+        }
+    }
+
+    void release(final long bytes) {
+        used.addAndGet(-bytes);
+    }
+
+    long getUsed() {
+        return used.get();
+    }
+
+    long getLimit() {
+        return limit;
+    }
+}
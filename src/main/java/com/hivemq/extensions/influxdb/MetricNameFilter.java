@@ -0,0 +1,70 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb;
+
+import org.apache.commons.lang3.StringUtils;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Comparator;
+
+/**
+ * Filter for dot separated metric names that is matched part by part against the start of the name, {@code *} matches
+ * any part. For example {@code com.hivemq.messages.*} matches {@code com.hivemq.messages.incoming.publish.count}.
+ */
+final class MetricNameFilter {
+
+    /**
+     * Orders the filters from the most to the least specific: filters with more parts first, then filters with fewer
+     * wildcards.
+     */
+    static final @NotNull Comparator<MetricNameFilter> MOST_SPECIFIC_FIRST =
+            Comparator.comparingInt((MetricNameFilter filter) -> filter.parts.length)
+                    .thenComparingInt(filter -> -filter.wildcards)
+                    .reversed();
+
+    private static final @NotNull String WILDCARD = "*";
+
+    private final @NotNull String @NotNull [] parts;
+    private final int wildcards;
+
+    MetricNameFilter(final @NotNull String filter) {
+        this.parts = split(filter);
+        var wildcards = 0;
+        for (final var part : parts) {
+            if (WILDCARD.equals(part)) {
+                wildcards++;
+            }
+        }
+        this.wildcards = wildcards;
+    }
+
+    static @NotNull String @NotNull [] split(final @NotNull String name) {
+        return StringUtils.split(name, ".");
+    }
+
+    boolean matches(final @NotNull String @NotNull [] name) {
+        if (name.length < parts.length) {
+            return false;
+        }
+        for (var i = 0; i < parts.length; i++) {
+            if (!WILDCARD.equals(parts[i]) && !parts[i].equals(name[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb;
+
+import org.apache.commons.lang3.StringUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Graphite style templates that split dotted metric names into a measurement, tags and a field name.
+ * <p>
+ * A template has the form {@code [filter] template [tag=value,...]}. The parts of the template are matched with the
+ * dot separated parts of the metric name: {@value #MEASUREMENT} and {@value #FIELD} parts are joined with dots to the
+ * measurement and the field name, empty parts are skipped and all other parts are tag keys. A trailing {@code *} on
+ * the last part takes all remaining parts of the name. For example the template
+ * {@code com.hivemq.messages.* ..measurement.direction.type.field} turns
+ * {@code com.hivemq.messages.incoming.publish.count} into the measurement {@code messages} with the tags
+ * {@code direction=incoming} and {@code type=publish} and the field name {@code count}.
+ * <p>
+ * The filter is a {@link MetricNameFilter}. The template with the most specific filter is applied, a template without
+ * filter applies to all other names. The templates are parsed once and the result is cached per metric name.
+ */
+final class MetricNameTemplates {
+
+    static final @NotNull String MEASUREMENT = "measurement";
+    static final @NotNull String FIELD = "field";
+    private static final @NotNull String GREEDY = "*";
+
+    private static final @NotNull Logger LOG = LoggerFactory.getLogger(MetricNameTemplates.class);
+
+    private final @NotNull List<Template> templates;
+    private final @NotNull Map<String, Name> names = new ConcurrentHashMap<>();
+
+    private MetricNameTemplates(final @NotNull List<Template> templates) {
+        this.templates = templates;
+    }
+
+    /**
+     * Parses the templates, invalid templates are logged and skipped.
+     *
+     * @param  templates the templates as configured.
+     * @return           the parsed templates.
+     */
+    static @NotNull MetricNameTemplates parse(final @NotNull List<String> templates) {
+        final var parsed = new ArrayList<Template>();
+        for (final var template : templates) {
+            final var parsedTemplate = Template.parse(template);
+            if (parsedTemplate != null) {
+                parsed.add(parsedTemplate);
+            } else {
+                LOG.warn("Invalid InfluxDB metric name template '{}'", template);
+            }
+        }
+        // stable, so templates with equally specific filters are applied in the configured order
+        parsed.sort(Comparator.comparing(template -> template.filter, MetricNameFilter.MOST_SPECIFIC_FIRST));
+        return new MetricNameTemplates(List.copyOf(parsed));
+    }
+
+    boolean isEmpty() {
+        return templates.isEmpty();
+    }
+
+    /**
+     * @return the measurement, tags and field name of the metric name, or <b>null</b> if no template applies.
+     */
+    @Nullable Name apply(final @NotNull String metricName) {
+        final var name = names.computeIfAbsent(metricName, this::split);
+        return name != Name.UNMATCHED ? name : null;
+    }
+
+    private @NotNull Name split(final @NotNull String metricName) {
+        final var parts = MetricNameFilter.split(metricName);
+        for (final var template : templates) {
+            if (template.filter.matches(parts)) {
+                return template.apply(parts);
+            }
+        }
+        return Name.UNMATCHED;
+    }
+
+    /**
+     * The result of a template for a metric name.
+     */
+    static final class Name {
+
+        private static final @NotNull Name UNMATCHED = new Name("", Map.of(), null);
+
+        final @NotNull String measurement;
+        final @NotNull Map<String, String> tags;
+        final @Nullable String field;
+
+        Name(final @NotNull String measurement, final @NotNull Map<String, String> tags, final @Nullable String field) {
+            this.measurement = measurement;
+            this.tags = tags;
+            this.field = field;
+        }
+    }
+
+    private static final class Template {
+
+        private final @NotNull MetricNameFilter filter;
+        private final @NotNull String @NotNull [] parts;
+        private final boolean greedy;
+        private final @NotNull Map<String, String> tags;
+
+        private Template(
+                final @NotNull MetricNameFilter filter,
+                final @NotNull String @NotNull [] parts,
+                final @NotNull Map<String, String> tags) {
+            this.filter = filter;
+            final var last = parts[parts.length - 1];
+            this.greedy = last.endsWith(GREEDY);
+            if (greedy) {
+                parts[parts.length - 1] = last.substring(0, last.length() - GREEDY.length());
+            }
+            this.parts = parts;
+            this.tags = tags;
+        }
+
+        static @Nullable Template parse(final @NotNull String template) {
+            final var tokens = StringUtils.split(template.trim(), " \t");
+            if (tokens.length == 0 || tokens.length > 3) {
+                return null;
+            }
+            var index = 0;
+            final String filter;
+            if (tokens.length == 3 || tokens.length == 2 && !tokens[1].contains("=")) {
+                filter = tokens[index++];
+            } else {
+                filter = "";
+            }
+            final var parts = StringUtils.splitPreserveAllTokens(tokens[index++], ".");
+            final var tags = new HashMap<String, String>();
+            if (index < tokens.length) {
+                for (final var tag : StringUtils.split(tokens[index], ",")) {
+                    final var tagPair = StringUtils.split(tag, "=");
+                    if (tagPair.length != 2) {
+                        return null;
+                    }
+                    tags.put(tagPair[0], tagPair[1]);
+                }
+            }
+            var measurement = false;
+            for (var i = 0; i < parts.length; i++) {
+                final var part = parts[i];
+                if (part.endsWith(GREEDY) && i < parts.length - 1) {
+                    // only the last part can take the remaining parts of the name
+                    return null;
+                }
+                measurement |= part.equals(MEASUREMENT) || part.equals(MEASUREMENT + GREEDY);
+            }
+            if (!measurement) {
+                return null;
+            }
+            return new Template(new MetricNameFilter(filter), parts, Map.copyOf(tags));
+        }
+
+        @NotNull Name apply(final @NotNull String @NotNull [] name) {
+            final var measurement = new StringBuilder();
+            final var field = new StringBuilder();
+            final var nameTags = new HashMap<>(tags);
+            for (var i = 0; i < parts.length && i < name.length; i++) {
+                final var last = greedy && i == parts.length - 1;
+                final var value = last ? String.join(".", List.of(name).subList(i, name.length)) : name[i];
+                final var part = parts[i];
+                if (part.isEmpty()) {
+                    continue;
+                }
+                if (part.equals(MEASUREMENT)) {
+                    join(measurement, value);
+                } else if (part.equals(FIELD)) {
+                    join(field, value);
+                } else {
+                    nameTags.merge(part, value, (first, second) -> first + "." + second);
+                }
+            }
+            if (measurement.length() == 0) {
+                // the name is shorter than the template, an empty measurement is not valid line protocol
+                return Name.UNMATCHED;
+            }
+            return new Name(measurement.toString(), Map.copyOf(nameTags), field.length() > 0 ? field.toString() : null);
+        }
+
+        private static void join(final @NotNull StringBuilder builder, final @NotNull String value) {
+            if (builder.length() > 0) {
+                builder.append('.');
+            }
+            builder.append(value);
+        }
+    }
+}
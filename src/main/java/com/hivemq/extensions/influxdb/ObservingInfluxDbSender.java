@@ -0,0 +1,75 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb;
+
+import com.izettle.metrics.influxdb.InfluxDbSender;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Sender that measures the latency of every write and passes it with the result of the write to its listeners.
+ * <p>
+ * It decorates the actual sender below the decorators that delay a write, e.g. {@link DelayedInfluxDbSender}, so the
+ * listeners only see the latency of InfluxDB.
+ */
+class ObservingInfluxDbSender extends ForwardingInfluxDbSender {
+
+    /**
+     * Listener for the writes to InfluxDB.
+     */
+    @FunctionalInterface
+    interface Listener {
+
+        /**
+         * @param latencyNanos the latency of the write in nanoseconds.
+         * @param exception    the exception the write failed with, or {@code null} if it succeeded.
+         */
+        void onWrite(long latencyNanos, @Nullable Exception exception);
+    }
+
+    private final @NotNull List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    ObservingInfluxDbSender(final @NotNull InfluxDbSender delegate) {
+        super(delegate);
+    }
+
+    void addListener(final @NotNull Listener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public int writeData() throws Exception {
+        final var start = System.nanoTime();
+        try {
+            final var result = delegate.writeData();
+            notifyListeners(System.nanoTime() - start, null);
+            return result;
+        } catch (final Exception e) {
+            notifyListeners(System.nanoTime() - start, e);
+            throw e;
+        }
+    }
+
+    private void notifyListeners(final long latencyNanos, final @Nullable Exception exception) {
+        for (final var listener : listeners) {
+            listener.onWrite(latencyNanos, exception);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb;
+
+import com.izettle.metrics.influxdb.InfluxDbSender;
+import com.izettle.metrics.influxdb.data.InfluxDbPoint;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Sender that writes the points of a report by priority class and sheds the lowest priority classes while InfluxDB is
+ * degraded.
+ * <p>
+ * The priority class of a measurement is resolved once from the filters of the critical and the bulk measurements,
+ * all other measurements are normal. The points of a report are written in the order critical, normal, bulk, so the
+ * critical points are at the start of every request. Every failed write or write above the latency threshold sheds
+ * one more priority class from the next reports, first the bulk points and then the normal points, every healthy write
+ * restores one class again. Critical points are never shed.
+ * <p>
+ * The writes are observed by an {@link ObservingInfluxDbSender} directly above the actual sender, so a delay of the
+ * writes, e.g. the reporting jitter, does not count as latency of InfluxDB.
+ */
+class PrioritizingInfluxDbSender extends ForwardingInfluxDbSender {
+
+    static final int CRITICAL = 0;
+    static final int NORMAL = 1;
+    static final int BULK = 2;
+
+    private static final @NotNull List<String> CLASS_NAMES = List.of("critical", "normal", "bulk");
+
+    private static final @NotNull Logger LOG = LoggerFactory.getLogger(PrioritizingInfluxDbSender.class);
+
+    private final @NotNull List<MetricNameFilter> critical;
+    private final @NotNull List<MetricNameFilter> bulk;
+    private final long latencyThresholdNanos;
+    private final @NotNull Map<String, Integer> priorities = new HashMap<>();
+    private final @NotNull List<List<InfluxDbPoint>> points =
+            List.of(new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+
+    /**
+     * The lowest priority class that is still written.
+     */
+    private int lowestWritten = BULK;
+    private long shedPoints;
+
+    /**
+     * @param delegate               the sender the points are written to.
+     * @param critical               the filters of the critical measurements.
+     * @param bulk                   the filters of the bulk measurements.
+     * @param latencyThresholdMillis the latency in milliseconds above which a write counts as degraded.
+     */
+    PrioritizingInfluxDbSender(
+            final @NotNull InfluxDbSender delegate,
+            final @NotNull List<String> critical,
+            final @NotNull List<String> bulk,
+            final long latencyThresholdMillis) {
+        super(delegate);
+        this.critical = critical.stream().map(MetricNameFilter::new).collect(Collectors.toList());
+        this.bulk = bulk.stream().map(MetricNameFilter::new).collect(Collectors.toList());
+        this.latencyThresholdNanos = TimeUnit.MILLISECONDS.toNanos(latencyThresholdMillis);
+    }
+
+    @Override
+    public synchronized void flush() {
+        points.forEach(List::clear);
+        super.flush();
+    }
+
+    @Override
+    public synchronized boolean hasSeriesData() {
+        for (final var priorityPoints : points) {
+            if (!priorityPoints.isEmpty()) {
+                return true;
+            }
+        }
+        return super.hasSeriesData();
+    }
+
+    @Override
+    public synchronized void appendPoints(final @Nullable InfluxDbPoint point) {
+        if (point == null) {
+            return;
+        }
+        final int priority = priorities.computeIfAbsent(point.getMeasurement(), this::resolvePriority);
+        if (priority > lowestWritten) {
+            shedPoints++;
+            return;
+        }
+        points.get(priority).add(point);
+    }
+
+    @Override
+    public synchronized int writeData() throws Exception {
+        for (final var priorityPoints : points) {
+            for (final var point : priorityPoints) {
+                delegate.appendPoints(point);
+            }
+            priorityPoints.clear();
+        }
+        if (shedPoints > 0) {
+            LOG.debug("Shed {} points of the report to InfluxDB", shedPoints);
+            shedPoints = 0;
+        }
+        return delegate.writeData();
+    }
+
+    /**
+     * Sheds or restores a priority class after a write, see {@link ObservingInfluxDbSender}.
+     */
+    synchronized void onWrite(final long latencyNanos, final @Nullable Exception exception) {
+        final var degraded = exception != null || latencyNanos > latencyThresholdNanos;
+        if (degraded && lowestWritten > CRITICAL) {
+            lowestWritten--;
+            LOG.warn("InfluxDB is degraded, shedding the {} metrics", CLASS_NAMES.get(lowestWritten + 1));
+        } else if (!degraded && lowestWritten < BULK) {
+            lowestWritten++;
+            LOG.info("InfluxDB recovered, writing the {} metrics again", CLASS_NAMES.get(lowestWritten));
+        }
+    }
+
+    /**
+     * @return the lowest priority class that is written.
+     */
+    synchronized int getLowestWritten() {
+        return lowestWritten;
+    }
+
+    private int resolvePriority(final @NotNull String measurement) {
+        final var parts = MetricNameFilter.split(measurement);
+        if (matches(critical, parts)) {
+            return CRITICAL;
+        }
+        return matches(bulk, parts) ? BULK : NORMAL;
+    }
+
+    private static boolean matches(
+            final @NotNull List<MetricNameFilter> filters,
+            final @NotNull String @NotNull [] parts) {
+        for (final var filter : filters) {
+            if (filter.matches(parts)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
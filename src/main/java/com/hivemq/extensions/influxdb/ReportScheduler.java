@@ -0,0 +1,114 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb;
+
+import com.codahale.metrics.ScheduledReporter;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the reports of a {@link ScheduledReporter} at the current {@link ReportingInterval}.
+ * <p>
+ * Like {@link ScheduledReporter#start(long, TimeUnit)} the reports are scheduled at a fixed rate, but the rate is
+ * re-evaluated after every report. If aligned, the reports run at the wall clock boundaries of the interval instead,
+ * e.g. at every full 10 seconds, so the timestamps of all broker nodes fall into the same buckets.
+ */
+class ReportScheduler {
+
+    private static final @NotNull Logger LOG = LoggerFactory.getLogger(ReportScheduler.class);
+
+    private final @NotNull ScheduledReporter reporter;
+    private final @NotNull ReportingInterval interval;
+    private final boolean aligned;
+    private final @NotNull ScheduledExecutorService executor;
+
+    /**
+     * The time of the next report, in epoch milliseconds if aligned, else in {@link System#nanoTime()} nanoseconds.
+     */
+    private long nextReport;
+
+    ReportScheduler(
+            final @NotNull ScheduledReporter reporter,
+            final @NotNull ReportingInterval interval,
+            final boolean aligned) {
+        this.reporter = reporter;
+        this.interval = interval;
+        this.aligned = aligned;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final var thread = new Thread(runnable, "influxdb-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    void start() {
+        nextReport = aligned ? 0 : System.nanoTime();
+        executor.schedule(this::report, nextDelayNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    void stop() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (final InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void report() {
+        try {
+            reporter.report();
+        } catch (final RuntimeException e) {
+            LOG.warn("Could not report metrics to InfluxDB", e);
+        }
+        try {
+            executor.schedule(this::report, nextDelayNanos(), TimeUnit.NANOSECONDS);
+        } catch (final RejectedExecutionException e) {
+            LOG.debug("InfluxDB reporting is stopped");
+        }
+    }
+
+    private long nextDelayNanos() {
+        final var intervalMillis = interval.getMillis();
+        if (aligned) {
+            final var now = System.currentTimeMillis();
+            final var previousReport = nextReport;
+            nextReport = (Math.floorDiv(now, intervalMillis) + 1) * intervalMillis;
+            if (nextReport <= previousReport) {
+                // the report was started slightly before the wall clock boundary, don't repeat it
+                nextReport = previousReport + intervalMillis;
+            }
+            return TimeUnit.MILLISECONDS.toNanos(nextReport - now);
+        }
+        final var now = System.nanoTime();
+        nextReport += TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        if (nextReport - now < 0) {
+            // the report took longer than the interval, don't try to catch up
+            nextReport = now;
+        }
+        return nextReport - now;
+    }
+}
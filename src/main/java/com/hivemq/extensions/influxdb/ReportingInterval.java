@@ -0,0 +1,83 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.SocketTimeoutException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reporting interval that adapts to the health of InfluxDB.
+ * <p>
+ * A write that takes longer than the latency threshold, times out or is rejected with 429 or 5xx doubles the interval
+ * up to the maximum interval. Every healthy write shrinks it again by the configured interval until it is back at the
+ * configured interval. So the broker nodes back off multiplicatively from an overloaded InfluxDB and recover
+ * additively (AIMD). Other errors, e.g. a rejected auth token, don't change the interval.
+ */
+class ReportingInterval {
+
+    private static final @NotNull Logger LOG = LoggerFactory.getLogger(ReportingInterval.class);
+
+    private final long minIntervalMillis;
+    private final long maxIntervalMillis;
+    private final long latencyThresholdNanos;
+
+    private long intervalMillis;
+
+    ReportingInterval(final long minIntervalMillis, final long maxIntervalMillis, final long latencyThresholdMillis) {
+        this.minIntervalMillis = minIntervalMillis;
+        this.maxIntervalMillis = Math.max(minIntervalMillis, maxIntervalMillis);
+        this.latencyThresholdNanos = TimeUnit.MILLISECONDS.toNanos(latencyThresholdMillis);
+        this.intervalMillis = minIntervalMillis;
+    }
+
+    synchronized long getMillis() {
+        return intervalMillis;
+    }
+
+    /**
+     * Adapts the interval to the latency and the result of a write, see {@link ObservingInfluxDbSender}.
+     */
+    synchronized void onWrite(final long latencyNanos, final @Nullable Exception exception) {
+        if (exception != null && !isOverload(exception)) {
+            return;
+        }
+        final var previous = intervalMillis;
+        if (exception != null || latencyNanos > latencyThresholdNanos) {
+            intervalMillis = Math.min(maxIntervalMillis, intervalMillis * 2);
+            if (intervalMillis != previous) {
+                LOG.warn("InfluxDB is overloaded, increasing the reporting interval to {} ms", intervalMillis);
+            }
+        } else {
+            intervalMillis = Math.max(minIntervalMillis, intervalMillis - minIntervalMillis);
+            if (intervalMillis != previous) {
+                LOG.info("InfluxDB recovered, decreasing the reporting interval to {} ms", intervalMillis);
+            }
+        }
+    }
+
+    private static boolean isOverload(final @NotNull Exception exception) {
+        if (exception instanceof InfluxDbHttpException) {
+            return ((InfluxDbHttpException) exception).isOverload();
+        }
+        return exception instanceof SocketTimeoutException;
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb;
+
+import com.izettle.metrics.influxdb.InfluxDbSender;
+import com.izettle.metrics.influxdb.data.InfluxDbPoint;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sender for the final report when the extension stops.
+ * <p>
+ * After {@link #startShutdown()} the writes bypass the decorators of the sender, e.g. the delay of the writes, and the
+ * points of the final report are kept. If the final write fails or does not complete in time, the points are spooled
+ * to a line protocol file that can be replayed with {@link InfluxDbReplay}.
+ */
+class SpoolingInfluxDbSender extends ForwardingInfluxDbSender {
+
+    private static final @NotNull Logger LOG = LoggerFactory.getLogger(SpoolingInfluxDbSender.class);
+
+    private final @NotNull InfluxDbSender target;
+    private final @NotNull Path spoolDirectory;
+    private final @NotNull String measurementPrefix;
+
+    private final @NotNull List<InfluxDbPoint> points = new ArrayList<>();
+    private volatile boolean shutdown;
+    private boolean spooled;
+
+    /**
+     * @param delegate          the decorated sender for the regular reports.
+     * @param target            the undecorated sender for the final report.
+     * @param spoolDirectory    the directory for the spooled points.
+     * @param measurementPrefix the measurement prefix of the spooled points.
+     */
+    SpoolingInfluxDbSender(
+            final @NotNull InfluxDbSender delegate,
+            final @NotNull InfluxDbSender target,
+            final @NotNull Path spoolDirectory,
+            final @NotNull String measurementPrefix) {
+        super(delegate);
+        this.target = target;
+        this.spoolDirectory = spoolDirectory;
+        this.measurementPrefix = measurementPrefix;
+    }
+
+    /**
+     * Switches to the final report.
+     */
+    void startShutdown() {
+        shutdown = true;
+    }
+
+    @Override
+    public void flush() {
+        if (shutdown) {
+            synchronized (this) {
+                points.clear();
+            }
+        }
+        super.flush();
+    }
+
+    @Override
+    public void appendPoints(final @Nullable InfluxDbPoint point) {
+        if (shutdown && point != null) {
+            synchronized (this) {
+                points.add(point);
+            }
+        }
+        super.appendPoints(point);
+    }
+
+    @Override
+    public int writeData() throws Exception {
+        if (!shutdown) {
+            return super.writeData();
+        }
+        try {
+            // the decorators might keep the points instead of passing them on, e.g. to delay the write
+            synchronized (this) {
+                target.flush();
+                points.forEach(target::appendPoints);
+            }
+            final var result = target.writeData();
+            synchronized (this) {
+                // the final report is written, nothing must be spooled anymore
+                points.clear();
+            }
+            return result;
+        } catch (final Exception e) {
+            LOG.warn("Could not write final report to InfluxDB: {}", e.getMessage());
+            LOG.debug("Original Exception: ", e);
+            spool();
+            return 0;
+        }
+    }
+
+    /**
+     * Writes the points of the final report to a line protocol file, unless they were already written or spooled.
+     * Points that are written and spooled at the same time are not duplicated in InfluxDB, as a write of the same
+     * point overwrites it.
+     */
+    synchronized void spool() {
+        if (spooled || points.isEmpty()) {
+            return;
+        }
+        spooled = true;
+        try (final var fileSender = new InfluxDbFileSender(spoolDirectory,
+                Long.MAX_VALUE,
+                1,
+                TimeUnit.DAYS,
+                false,
+                TimeUnit.MILLISECONDS,
+                "",
+                "")) {
+            final var encoder = new LineProtocolEncoder(measurementPrefix, TimeUnit.MILLISECONDS);
+            final var tags = Objects.requireNonNullElse(getTags(), Map.<String, String>of());
+            final var lines = new StringBuilder();
+            for (final var point : points) {
+                encoder.encode(point, tags, lines);
+            }
+            fileSender.writeData(lines.toString().getBytes(StandardCharsets.UTF_8));
+            LOG.info("Spooled {} points of the final report to {}", points.size(), spoolDirectory);
+        } catch (final Exception e) {
+            LOG.error("Could not spool final report to {}: {}", spoolDirectory, e.getMessage());
+            LOG.debug("Original Exception: ", e);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb;
+
+import com.izettle.metrics.influxdb.InfluxDbSender;
+import com.izettle.metrics.influxdb.data.InfluxDbPoint;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Sender that splits the metric names of the points into a measurement, tags and a field name with
+ * {@link MetricNameTemplates}.
+ * <p>
+ * The field name of the template is used for points with a single field, e.g. counters and gauges, and is the prefix
+ * of the field names of points with several fields, e.g. {@code count_m1_rate} of a meter. Points of metric names
+ * without a matching template are forwarded unchanged.
+ */
+class TemplatingInfluxDbSender extends ForwardingInfluxDbSender {
+
+    private final @NotNull MetricNameTemplates templates;
+
+    TemplatingInfluxDbSender(final @NotNull InfluxDbSender delegate, final @NotNull MetricNameTemplates templates) {
+        super(delegate);
+        this.templates = templates;
+    }
+
+    @Override
+    public void appendPoints(final @Nullable InfluxDbPoint point) {
+        final var name = point != null ? templates.apply(point.getMeasurement()) : null;
+        if (name == null) {
+            delegate.appendPoints(point);
+            return;
+        }
+        final Map<String, String> tags;
+        if (point.getTags() == null || point.getTags().isEmpty()) {
+            tags = name.tags;
+        } else {
+            tags = new HashMap<>(name.tags);
+            tags.putAll(point.getTags());
+        }
+        delegate.appendPoints(new InfluxDbPoint(name.measurement,
+                tags,
+                point.getTime(),
+                fields(name.field, point.getFields())));
+    }
+
+    private static @NotNull Map<String, Object> fields(
+            final @Nullable String field,
+            final @NotNull Map<String, Object> fields) {
+        if (field == null) {
+            return fields;
+        }
+        if (fields.size() == 1) {
+            return Map.of(field, fields.values().iterator().next());
+        }
+        final var prefixed = new HashMap<String, Object>(fields.size() * 2);
+        for (final var entry : fields.entrySet()) {
+            prefixed.put(field + "_" + entry.getKey(), entry.getValue());
+        }
+        return prefixed;
+    }
+}
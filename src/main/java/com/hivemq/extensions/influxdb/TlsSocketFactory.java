@@ -0,0 +1,184 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManagerFactory;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Socket factory for the HTTPS connections to InfluxDB that only enables the configured protocol versions and cipher
+ * suites.
+ * <p>
+ * The TLS sessions are cached by the SSL context of the factory, so a new connection resumes the session of a previous
+ * one with an abbreviated handshake. The JDK only reuses a persistent HTTPS connection for the same socket factory, so
+ * one instance is shared by all HTTPS senders.
+ */
+class TlsSocketFactory extends SSLSocketFactory {
+
+    private static final @NotNull Logger LOG = LoggerFactory.getLogger(TlsSocketFactory.class);
+
+    private final @NotNull SSLSocketFactory delegate;
+    private final String @NotNull [] protocols;
+    private final String @NotNull [] cipherSuites;
+
+    TlsSocketFactory(
+            final @NotNull SSLContext context,
+            final @NotNull List<String> protocols,
+            final @Nullable List<String> cipherSuites) throws GeneralSecurityException {
+        this.delegate = context.getSocketFactory();
+        final var supported = context.getSupportedSSLParameters();
+        this.protocols = enabled("protocol", protocols, supported.getProtocols());
+        this.cipherSuites = cipherSuites != null ?
+                enabled("cipher suite", cipherSuites, supported.getCipherSuites()) :
+                context.getDefaultSSLParameters().getCipherSuites();
+    }
+
+    /**
+     * Creates the socket factory with a new SSL context.
+     *
+     * @param  protocols                the enabled protocol versions in order of preference.
+     * @param  cipherSuites             the enabled cipher suites or {@code null} for the defaults of the Java runtime.
+     * @param  trustStore               the trust store for the server certificates or {@code null} for the trust
+     *                                  store of the Java runtime.
+     * @param  trustStorePassword       the password of the trust store.
+     * @param  trustStoreType           the type of the trust store, e.g. PKCS12 or JKS.
+     * @return                          the socket factory.
+     * @throws GeneralSecurityException if the SSL context or the trust store could not be initialized.
+     * @throws IOException              if the trust store could not be read.
+     */
+    static @NotNull TlsSocketFactory create(
+            final @NotNull List<String> protocols,
+            final @Nullable List<String> cipherSuites,
+            final @Nullable Path trustStore,
+            final @Nullable String trustStorePassword,
+            final @NotNull String trustStoreType) throws GeneralSecurityException, IOException {
+        final var context = SSLContext.getInstance("TLS");
+        if (trustStore != null) {
+            final var keyStore = KeyStore.getInstance(trustStoreType);
+            try (final var in = Files.newInputStream(trustStore)) {
+                keyStore.load(in, trustStorePassword != null ? trustStorePassword.toCharArray() : null);
+            }
+            final var trustManagerFactory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+            trustManagerFactory.init(keyStore);
+            context.init(null, trustManagerFactory.getTrustManagers(), null);
+        } else {
+            context.init(null, null, null);
+        }
+        return new TlsSocketFactory(context, protocols, cipherSuites);
+    }
+
+    @Override
+    public String @NotNull [] getDefaultCipherSuites() {
+        return cipherSuites.clone();
+    }
+
+    @Override
+    public String @NotNull [] getSupportedCipherSuites() {
+        return delegate.getSupportedCipherSuites();
+    }
+
+    @Override
+    public @NotNull Socket createSocket() throws IOException {
+        return configure(delegate.createSocket());
+    }
+
+    @Override
+    public @NotNull Socket createSocket(
+            final @NotNull Socket socket,
+            final @NotNull String host,
+            final int port,
+            final boolean autoClose) throws IOException {
+        return configure(delegate.createSocket(socket, host, port, autoClose));
+    }
+
+    @Override
+    public @NotNull Socket createSocket(final @NotNull String host, final int port) throws IOException {
+        return configure(delegate.createSocket(host, port));
+    }
+
+    @Override
+    public @NotNull Socket createSocket(
+            final @NotNull String host,
+            final int port,
+            final @NotNull InetAddress localAddress,
+            final int localPort) throws IOException {
+        return configure(delegate.createSocket(host, port, localAddress, localPort));
+    }
+
+    @Override
+    public @NotNull Socket createSocket(final @NotNull InetAddress address, final int port) throws IOException {
+        return configure(delegate.createSocket(address, port));
+    }
+
+    @Override
+    public @NotNull Socket createSocket(
+            final @NotNull InetAddress address,
+            final int port,
+            final @NotNull InetAddress localAddress,
+            final int localPort) throws IOException {
+        return configure(delegate.createSocket(address, port, localAddress, localPort));
+    }
+
+    private @NotNull Socket configure(final @NotNull Socket socket) {
+        if (socket instanceof SSLSocket) {
+            final var sslSocket = (SSLSocket) socket;
+            sslSocket.setEnabledProtocols(protocols);
+            sslSocket.setEnabledCipherSuites(cipherSuites);
+        }
+        return socket;
+    }
+
+    /**
+     * @return the configured values that are supported by the Java runtime, in the configured order.
+     * @throws GeneralSecurityException if none of the configured values is supported.
+     */
+    private static String @NotNull [] enabled(
+            final @NotNull String name,
+            final @NotNull List<String> configured,
+            final String @NotNull [] supported) throws GeneralSecurityException {
+        final var supportedSet = Set.of(supported);
+        final var enabled = configured.stream().filter(value -> {
+            if (!supportedSet.contains(value)) {
+                LOG.warn("TLS {} '{}' is not supported by this Java runtime and is ignored", name, value);
+                return false;
+            }
+            return true;
+        }).toArray(String[]::new);
+        if (enabled.length == 0) {
+            throw new GeneralSecurityException("None of the configured TLS " + name + "s " + configured +
+                    " is supported, supported are " + Arrays.toString(supported));
+        }
+        return enabled;
+    }
+}
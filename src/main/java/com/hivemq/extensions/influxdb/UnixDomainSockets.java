@@ -0,0 +1,163 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Access to Unix domain socket channels.
+ * <p>
+ * The extension is compiled for Java 11, but Unix domain sockets are only available as of Java 16. The required API is
+ * looked up reflectively, so the extension still runs on older runtimes and can fall back to TCP or UDP.
+ */
+final class UnixDomainSockets {
+
+    private static final @Nullable ProtocolFamily UNIX = lookupProtocolFamily();
+    private static final @Nullable Method ADDRESS_OF = lookupMethod("java.net.UnixDomainSocketAddress", "of");
+    private static final @Nullable Method SOCKET_CHANNEL_OPEN = lookupSocketChannelOpen();
+
+    private static volatile @Nullable Boolean datagramSupported;
+
+    private UnixDomainSockets() {
+    }
+
+    /**
+     * @return <b>true</b> if the runtime supports stream-oriented Unix domain sockets, else <b>false</b>.
+     */
+    static boolean isStreamSupported() {
+        return UNIX != null && ADDRESS_OF != null && SOCKET_CHANNEL_OPEN != null;
+    }
+
+    /**
+     * @return <b>true</b> if the runtime supports datagram-oriented Unix domain sockets, else <b>false</b>.
+     */
+    static boolean isDatagramSupported() {
+        var supported = datagramSupported;
+        if (supported == null) {
+            supported = false;
+            if (UNIX != null && ADDRESS_OF != null) {
+                try {
+                    DatagramChannel.open(UNIX).close();
+                    supported = true;
+                } catch (final UnsupportedOperationException | IOException e) {
+                    // the JDK only supports stream-oriented Unix domain sockets
+                }
+            }
+            datagramSupported = supported;
+        }
+        return supported;
+    }
+
+    /**
+     * Opens a blocking stream channel that is connected to the Unix domain socket at the given path.
+     *
+     * @param  socketPath  path of the socket file.
+     * @return             the connected channel.
+     * @throws IOException if the channel could not be opened or connected.
+     */
+    static @NotNull SocketChannel openStream(final @NotNull String socketPath) throws IOException {
+        if (!isStreamSupported()) {
+            throw new IOException("Unix domain sockets are not supported by this Java runtime");
+        }
+        final var channel = (SocketChannel) invoke(SOCKET_CHANNEL_OPEN, null, UNIX);
+        try {
+            channel.connect(address(socketPath));
+        } catch (final IOException e) {
+            channel.close();
+            throw e;
+        }
+        return channel;
+    }
+
+    /**
+     * Opens a datagram channel that is connected to the Unix domain socket at the given path.
+     *
+     * @param  socketPath  path of the socket file.
+     * @return             the connected channel.
+     * @throws IOException if the channel could not be opened or connected.
+     */
+    static @NotNull DatagramChannel openDatagram(final @NotNull String socketPath) throws IOException {
+        if (!isDatagramSupported()) {
+            throw new IOException("Datagram Unix domain sockets are not supported by this Java runtime");
+        }
+        final var channel = DatagramChannel.open(UNIX);
+        try {
+            channel.connect(address(socketPath));
+        } catch (final IOException e) {
+            channel.close();
+            throw e;
+        }
+        return channel;
+    }
+
+    private static @NotNull SocketAddress address(final @NotNull String socketPath) throws IOException {
+        return (SocketAddress) invoke(ADDRESS_OF, null, socketPath);
+    }
+
+    private static @NotNull Object invoke(
+            final @Nullable Method method,
+            final @Nullable Object target,
+            final @Nullable Object argument) throws IOException {
+        if (method == null) {
+            throw new IOException("Unix domain sockets are not supported by this Java runtime");
+        }
+        try {
+            return method.invoke(target, argument);
+        } catch (final InvocationTargetException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        } catch (final IllegalAccessException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static @Nullable ProtocolFamily lookupProtocolFamily() {
+        try {
+            return StandardProtocolFamily.valueOf("UNIX");
+        } catch (final IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static @Nullable Method lookupMethod(final @NotNull String className, final @NotNull String name) {
+        try {
+            return Class.forName(className).getMethod(name, String.class);
+        } catch (final ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static @Nullable Method lookupSocketChannelOpen() {
+        try {
+            return SocketChannel.class.getMethod("open", ProtocolFamily.class);
+        } catch (final NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb.collector;
+
+import com.hivemq.extension.sdk.api.interceptor.publish.PublishInboundInterceptor;
+import com.hivemq.extension.sdk.api.interceptor.publish.parameter.PublishInboundInput;
+import com.hivemq.extension.sdk.api.interceptor.publish.parameter.PublishInboundOutput;
+import com.hivemq.extension.sdk.api.interceptor.subscribe.SubscribeInboundInterceptor;
+import com.hivemq.extension.sdk.api.interceptor.subscribe.parameter.SubscribeInboundInput;
+import com.hivemq.extension.sdk.api.interceptor.subscribe.parameter.SubscribeInboundOutput;
+import com.izettle.metrics.influxdb.data.InfluxDbPoint;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Finds the clients that send the most PUBLISH messages, payload bytes and subscriptions.
+ * <p>
+ * Every dimension is counted in {@link HeavyHitters} with a fixed number of counters, so the memory stays the same
+ * with any number of connected clients. The counts decay exponentially with the configured half-life. Every report
+ * writes one point per top client and dimension with the tag {@code client}, the decayed count as {@code value} and the
+ * recent rate per second as {@code rate}.
+ */
+public class ClientMetrics implements PublishInboundInterceptor, SubscribeInboundInterceptor, PointCollector {
+
+    static final @NotNull String PUBLISH_MEASUREMENT = "com.hivemq.clients.top.incoming.publish";
+    static final @NotNull String PUBLISH_BYTES_MEASUREMENT = "com.hivemq.clients.top.incoming.publish.bytes";
+    static final @NotNull String SUBSCRIPTIONS_MEASUREMENT = "com.hivemq.clients.top.incoming.subscriptions";
+
+    /**
+     * The sketch of every dimension has {@code WIDTH * DEPTH} counters, which is 64 KiB.
+     */
+    private static final int WIDTH = 2048;
+    private static final int DEPTH = 4;
+
+    private final @NotNull HeavyHitters publishes;
+    private final @NotNull HeavyHitters publishBytes;
+    private final @NotNull HeavyHitters subscriptions;
+    private final long halfLifeNanos;
+
+    private long lastDecay;
+
+    /**
+     * @param topN         the number of clients that are reported per dimension.
+     * @param halfLife     the time after which the counts decayed to half.
+     * @param halfLifeUnit the unit of the half-life.
+     */
+    public ClientMetrics(final int topN, final long halfLife, final @NotNull TimeUnit halfLifeUnit) {
+        this.publishes = new HeavyHitters(topN, WIDTH, DEPTH);
+        this.publishBytes = new HeavyHitters(topN, WIDTH, DEPTH);
+        this.subscriptions = new HeavyHitters(topN, WIDTH, DEPTH);
+        this.halfLifeNanos = halfLifeUnit.toNanos(halfLife);
+        this.lastDecay = System.nanoTime();
+    }
+
+    @Override
+    public void onInboundPublish(
+            final @NotNull PublishInboundInput publishInboundInput,
+            final @NotNull PublishInboundOutput publishInboundOutput) {
+        final var payload = publishInboundInput.getPublishPacket().getPayload();
+        addPublish(publishInboundInput.getClientInformation().getClientId(),
+                payload.isPresent() ? payload.get().remaining() : 0);
+    }
+
+    @Override
+    public void onInboundSubscribe(
+            final @NotNull SubscribeInboundInput subscribeInboundInput,
+            final @NotNull SubscribeInboundOutput subscribeInboundOutput) {
+        addSubscriptions(subscribeInboundInput.getClientInformation().getClientId(),
+                subscribeInboundInput.getSubscribePacket().getSubscriptions().size());
+    }
+
+    void addPublish(final @NotNull String clientId, final long bytes) {
+        publishes.add(clientId, 1);
+        if (bytes > 0) {
+            publishBytes.add(clientId, bytes);
+        }
+    }
+
+    void addSubscriptions(final @NotNull String clientId, final int count) {
+        subscriptions.add(clientId, count);
+    }
+
+    @Override
+    public void collect(final long timestamp, final @NotNull Consumer<InfluxDbPoint> points) {
+        final var now = System.nanoTime();
+        final var factor = Math.pow(0.5, (now - lastDecay) / (double) halfLifeNanos);
+        lastDecay = now;
+        report(PUBLISH_MEASUREMENT, publishes, factor, timestamp, points);
+        report(PUBLISH_BYTES_MEASUREMENT, publishBytes, factor, timestamp, points);
+        report(SUBSCRIPTIONS_MEASUREMENT, subscriptions, factor, timestamp, points);
+    }
+
+    private void report(
+            final @NotNull String measurement,
+            final @NotNull HeavyHitters heavyHitters,
+            final double factor,
+            final long timestamp,
+            final @NotNull Consumer<InfluxDbPoint> points) {
+        heavyHitters.decay(factor);
+        // an exponentially decayed count of a steady rate converges to rate * half-life / ln(2)
+        final var rateFactor = Math.log(2) / (halfLifeNanos / 1e9);
+        for (final var entry : heavyHitters.top()) {
+            points.accept(new InfluxDbPoint(measurement,
+                    Map.of("client", entry.key),
+                    timestamp,
+                    Map.of("value", entry.estimate, "rate", entry.estimate * rateFactor)));
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb.collector;
+
+import com.izettle.metrics.influxdb.data.InfluxDbPoint;
+import jdk.jfr.consumer.RecordedEvent;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Aggregates JDK Flight Recorder events of the broker per reporting interval: garbage collection pauses, safepoints,
+ * monitor contention, thread parking, slow socket reads and writes and the allocated bytes.
+ * <p>
+ * The events are streamed from the Flight Recorder in the background. Monitor contention, parking and socket events
+ * are only recorded above the configured threshold, allocations are sampled at a throttled rate and no stack traces
+ * are recorded, which keeps the overhead of the recording low. The durations are recorded in microseconds in
+ * {@link LatencyRecorder}s, every report writes one point per event type with the percentiles of the past interval.
+ * <p>
+ * Event streaming requires Java 14 or newer, see {@link #isSupported()}.
+ */
+public class FlightRecorderMetrics implements PointCollector, Closeable {
+
+    static final @NotNull String EVENTS_MEASUREMENT = "com.hivemq.jfr.events";
+    static final @NotNull String ALLOCATION_MEASUREMENT = "com.hivemq.jfr.allocation";
+
+    private static final @NotNull String ALLOCATION_THROTTLE = "100/s";
+
+    private static final @NotNull Logger LOG = LoggerFactory.getLogger(FlightRecorderMetrics.class);
+
+    private final @NotNull Map<String, LatencyRecorder> recorders = new LinkedHashMap<>();
+    private final @NotNull AtomicLong allocatedBytes = new AtomicLong();
+    private final @NotNull RecordingStreams stream;
+
+    private long intervalStart = System.nanoTime();
+
+    /**
+     * @return <b>true</b> if the runtime supports streaming Flight Recorder events, else <b>false</b>.
+     */
+    public static boolean isSupported() {
+        return RecordingStreams.isSupported();
+    }
+
+    /**
+     * Starts streaming the events.
+     *
+     * @param  threshold the minimum duration of the recorded monitor contention, thread park and socket events.
+     * @param  unit      the time unit of the threshold.
+     * @throws Exception if the runtime does not support event streaming or the Flight Recorder is disabled.
+     */
+    public FlightRecorderMetrics(final long threshold, final @NotNull TimeUnit unit) throws Exception {
+        final var minimumDuration = Duration.ofNanos(unit.toNanos(threshold));
+        stream = RecordingStreams.create();
+        try {
+            // pauses are rare and every one of them matters
+            enable("gc_pause", "jdk.GarbageCollection", Duration.ZERO, event -> event.getDuration("sumOfPauses"));
+            enable("safepoint", "jdk.SafepointBegin", Duration.ZERO, RecordedEvent::getDuration);
+            enable("monitor_enter", "jdk.JavaMonitorEnter", minimumDuration, RecordedEvent::getDuration);
+            enable("thread_park", "jdk.ThreadPark", minimumDuration, RecordedEvent::getDuration);
+            enable("socket_read", "jdk.SocketRead", minimumDuration, RecordedEvent::getDuration);
+            enable("socket_write", "jdk.SocketWrite", minimumDuration, RecordedEvent::getDuration);
+            // the weight of a sample is the number of bytes allocated since the previous sample of the thread
+            stream.enable("jdk.ObjectAllocationSample",
+                    null,
+                    ALLOCATION_THROTTLE,
+                    event -> allocatedBytes.addAndGet(event.getLong("weight")));
+            stream.startAsync();
+        } catch (final Exception e) {
+            close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void collect(final long timestamp, final @NotNull Consumer<InfluxDbPoint> points) {
+        recorders.forEach((event, recorder) -> {
+            final var histogram = recorder.interval();
+            if (histogram.count() > 0) {
+                points.accept(new InfluxDbPoint(EVENTS_MEASUREMENT,
+                        Map.of("event", event),
+                        timestamp,
+                        histogram.fields()));
+            }
+        });
+        final var now = System.nanoTime();
+        final var seconds = Math.max(now - intervalStart, 1) / 1e9;
+        intervalStart = now;
+        final var bytes = allocatedBytes.getAndSet(0);
+        // allocation samples are only available as of Java 16
+        if (bytes > 0) {
+            points.accept(new InfluxDbPoint(ALLOCATION_MEASUREMENT,
+                    Map.of(),
+                    timestamp,
+                    Map.of("bytes", bytes, "rate", bytes / seconds)));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            stream.close();
+        } catch (final Exception e) {
+            throw new IOException("Not able to close the Flight Recorder stream", e);
+        }
+    }
+
+    private void enable(
+            final @NotNull String event,
+            final @NotNull String name,
+            final @NotNull Duration threshold,
+            final @NotNull Function<RecordedEvent, Duration> duration) throws Exception {
+        final var recorder = new LatencyRecorder();
+        recorders.put(event, recorder);
+        stream.enable(name, threshold, null, recordedEvent -> {
+            try {
+                recorder.record(TimeUnit.NANOSECONDS.toMicros(duration.apply(recordedEvent).toNanos()));
+            } catch (final RuntimeException e) {
+                // e.g. a field that is missing in the event of an older runtime
+                LOG.debug("Not able to record Flight Recorder event {}: {}", name, e.getMessage());
+            }
+        });
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb.collector;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Finds the keys with the highest counts among any number of keys with a Count-Min sketch and a top N set.
+ * <p>
+ * The sketch has a fixed number of counters, so the memory does not grow with the number of keys. It estimates the
+ * count of a key as the minimum of its counters, which overestimates the count only by the collisions with other keys.
+ * A key whose estimate exceeds the smallest estimate of the top N keys replaces that key. The counts can be decayed, so
+ * the top N follow the recent activity instead of the all time counts.
+ * <p>
+ * Counting only increments atomic counters and checks the top N set without locking. Only a key that enters the top N
+ * takes a lock.
+ */
+final class HeavyHitters {
+
+    /**
+     * Fractional bits of the counters, so repeated decay does not truncate the counts of keys with few messages.
+     */
+    private static final int SCALE = 16;
+
+    private final int topN;
+    private final int depth;
+    private final int mask;
+    private final @NotNull AtomicLongArray counters;
+    private final @NotNull Set<String> top = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Smallest scaled estimate of the top N keys once the top N are complete, a key needs a higher estimate to enter.
+     */
+    private volatile long threshold;
+
+    /**
+     * @param topN  the number of keys with the highest counts that are tracked.
+     * @param width the number of counters per row of the sketch, rounded up to a power of two.
+     * @param depth the number of rows of the sketch.
+     */
+    HeavyHitters(final int topN, final int width, final int depth) {
+        this.topN = topN;
+        this.depth = depth;
+        final var roundedWidth = Integer.highestOneBit(Math.max(width - 1, 1)) << 1;
+        this.mask = roundedWidth - 1;
+        this.counters = new AtomicLongArray(roundedWidth * depth);
+    }
+
+    void add(final @NotNull String key, final long count) {
+        final var hash = hash(key);
+        var estimate = Long.MAX_VALUE;
+        for (var row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters.addAndGet(index(hash, row), count << SCALE));
+        }
+        if (estimate > threshold && !top.contains(key)) {
+            offer(key, estimate);
+        }
+    }
+
+    /**
+     * Multiplies all counts with the factor, keys whose count decayed to zero leave the top N.
+     */
+    void decay(final double factor) {
+        for (var i = 0; i < counters.length(); i++) {
+            final var counter = counters.get(i);
+            if (counter != 0) {
+                // a concurrent increment might be lost, which is negligible for the estimates
+                counters.set(i, (long) (counter * factor));
+            }
+        }
+        synchronized (this) {
+            // keys without recent activity make room for others
+            top.removeIf(key -> estimate(key) == 0);
+            threshold = top.size() >= topN ? minimum().scaledEstimate : 0;
+        }
+    }
+
+    /**
+     * @return the top N keys with their current estimates, in descending order of the estimate.
+     */
+    @NotNull List<Entry> top() {
+        final var entries = new ArrayList<Entry>(top.size());
+        for (final var key : top) {
+            entries.add(new Entry(key, estimate(key), 0));
+        }
+        entries.sort(Comparator.comparingLong((Entry entry) -> entry.estimate).reversed());
+        return entries;
+    }
+
+    long estimate(final @NotNull String key) {
+        // rounded, a key leaves the top N once its count decayed below one half
+        return (scaledEstimate(key) + (1L << (SCALE - 1))) >> SCALE;
+    }
+
+    private long scaledEstimate(final @NotNull String key) {
+        final var hash = hash(key);
+        var estimate = Long.MAX_VALUE;
+        for (var row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters.get(index(hash, row)));
+        }
+        return estimate;
+    }
+
+    private synchronized void offer(final @NotNull String key, final long estimate) {
+        if (top.contains(key)) {
+            return;
+        }
+        if (top.size() < topN) {
+            top.add(key);
+            if (top.size() == topN) {
+                threshold = minimum().scaledEstimate;
+            }
+            return;
+        }
+        final var minimum = minimum();
+        if (estimate > minimum.scaledEstimate) {
+            top.remove(minimum.key);
+            top.add(key);
+            threshold = minimum().scaledEstimate;
+        } else {
+            // the estimates of the top N decreased since the threshold was set
+            threshold = minimum.scaledEstimate;
+        }
+    }
+
+    private @NotNull Entry minimum() {
+        Entry minimum = null;
+        for (final var key : top) {
+            final var estimate = scaledEstimate(key);
+            if (minimum == null || estimate < minimum.scaledEstimate) {
+                minimum = new Entry(key, 0, estimate);
+            }
+        }
+        return minimum != null ? minimum : new Entry("", 0, 0);
+    }
+
+    private int index(final long hash, final int row) {
+        // derive the hash of every row from two halves of one hash (Kirsch-Mitzenmacher)
+        final var h1 = (int) hash;
+        final var h2 = (int) (hash >>> 32) | 1;
+        return row * (mask + 1) + ((h1 + row * h2) & mask);
+    }
+
+    private static long hash(final @NotNull String key) {
+        final var hash = key.hashCode() * 0x9E3779B97F4A7C15L;
+        return hash ^ (hash >>> 29);
+    }
+
+    static final class Entry {
+
+        final @NotNull String key;
+        final long estimate;
+        private final long scaledEstimate;
+
+        Entry(final @NotNull String key, final long estimate, final long scaledEstimate) {
+            this.key = key;
+            this.estimate = estimate;
+            this.scaledEstimate = scaledEstimate;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb.collector;
+
+import com.izettle.metrics.influxdb.data.InfluxDbPoint;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.lang.management.ThreadMXBean;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Reports the health of the JVM of the broker from its MXBeans: the garbage collectors, the heap and non-heap memory
+ * and its pools, the direct and mapped buffer pools, the threads and the class loading.
+ * <p>
+ * The MXBeans are looked up once and only read when a report is written, so there is no overhead between the reports.
+ * The thread states and deadlocked threads need a snapshot of all threads, they are only sampled once per configured
+ * interval and the cached values are reported in between.
+ */
+public class JvmMetrics implements PointCollector {
+
+    static final @NotNull String GC_MEASUREMENT = "com.hivemq.jvm.gc";
+    static final @NotNull String MEMORY_MEASUREMENT = "com.hivemq.jvm.memory";
+    static final @NotNull String MEMORY_POOL_MEASUREMENT = "com.hivemq.jvm.memory.pool";
+    static final @NotNull String BUFFER_POOL_MEASUREMENT = "com.hivemq.jvm.buffer.pool";
+    static final @NotNull String THREADS_MEASUREMENT = "com.hivemq.jvm.threads";
+    static final @NotNull String CLASSES_MEASUREMENT = "com.hivemq.jvm.classes";
+
+    private final @NotNull List<GarbageCollectorMXBean> garbageCollectors =
+            ManagementFactory.getGarbageCollectorMXBeans();
+    private final @NotNull MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private final @NotNull List<MemoryPoolMXBean> memoryPools = ManagementFactory.getMemoryPoolMXBeans();
+    private final @NotNull List<BufferPoolMXBean> bufferPools =
+            ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class);
+    private final @NotNull ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final @NotNull ClassLoadingMXBean classLoading = ManagementFactory.getClassLoadingMXBean();
+
+    private final long threadSampleIntervalNanos;
+    private @Nullable Map<String, Object> threadSample;
+    private long threadSampleTime;
+
+    /**
+     * @param threadSampleInterval the interval in which the thread states and deadlocked threads are sampled.
+     * @param unit                 the time unit of the interval.
+     */
+    public JvmMetrics(final long threadSampleInterval, final @NotNull TimeUnit unit) {
+        this.threadSampleIntervalNanos = unit.toNanos(threadSampleInterval);
+    }
+
+    @Override
+    public void collect(final long timestamp, final @NotNull Consumer<InfluxDbPoint> points) {
+        for (final var garbageCollector : garbageCollectors) {
+            points.accept(new InfluxDbPoint(GC_MEASUREMENT,
+                    Map.of("collector", garbageCollector.getName()),
+                    timestamp,
+                    Map.of("count",
+                            garbageCollector.getCollectionCount(),
+                            "time",
+                            garbageCollector.getCollectionTime())));
+        }
+
+        final var memoryFields = new HashMap<String, Object>();
+        putUsage(memoryFields, "heap_", memory.getHeapMemoryUsage());
+        putUsage(memoryFields, "non_heap_", memory.getNonHeapMemoryUsage());
+        memoryFields.put("objects_pending_finalization", memory.getObjectPendingFinalizationCount());
+        points.accept(new InfluxDbPoint(MEMORY_MEASUREMENT, Map.of(), timestamp, memoryFields));
+
+        for (final var memoryPool : memoryPools) {
+            final var usage = memoryPool.getUsage();
+            if (usage == null) {
+                // the pool is no longer valid
+                continue;
+            }
+            final var fields = new HashMap<String, Object>();
+            putUsage(fields, "", usage);
+            final var collectionUsage = memoryPool.getCollectionUsage();
+            if (collectionUsage != null) {
+                fields.put("used_after_gc", collectionUsage.getUsed());
+            }
+            points.accept(new InfluxDbPoint(MEMORY_POOL_MEASUREMENT,
+                    Map.of("pool",
+                            memoryPool.getName(),
+                            "type",
+                            memoryPool.getType() == MemoryType.HEAP ? "heap" : "non_heap"),
+                    timestamp,
+                    fields));
+        }
+
+        for (final var bufferPool : bufferPools) {
+            points.accept(new InfluxDbPoint(BUFFER_POOL_MEASUREMENT,
+                    Map.of("pool", bufferPool.getName()),
+                    timestamp,
+                    Map.of("count",
+                            bufferPool.getCount(),
+                            "used",
+                            bufferPool.getMemoryUsed(),
+                            "capacity",
+                            bufferPool.getTotalCapacity())));
+        }
+
+        final var threadFields = new HashMap<>(sampleThreads());
+        threadFields.put("count", threads.getThreadCount());
+        threadFields.put("daemon", threads.getDaemonThreadCount());
+        threadFields.put("peak", threads.getPeakThreadCount());
+        threadFields.put("started", threads.getTotalStartedThreadCount());
+        points.accept(new InfluxDbPoint(THREADS_MEASUREMENT, Map.of(), timestamp, threadFields));
+
+        points.accept(new InfluxDbPoint(CLASSES_MEASUREMENT,
+                Map.of(),
+                timestamp,
+                Map.of("loaded",
+                        classLoading.getLoadedClassCount(),
+                        "total_loaded",
+                        classLoading.getTotalLoadedClassCount(),
+                        "unloaded",
+                        classLoading.getUnloadedClassCount())));
+    }
+
+    /**
+     * @return the number of threads per state and the number of deadlocked threads, sampled at most once per interval.
+     */
+    private @NotNull Map<String, Object> sampleThreads() {
+        final var now = System.nanoTime();
+        if (threadSample != null && now - threadSampleTime < threadSampleIntervalNanos) {
+            return threadSample;
+        }
+        final var states = new EnumMap<Thread.State, Integer>(Thread.State.class);
+        for (final var state : Thread.State.values()) {
+            states.put(state, 0);
+        }
+        // without stack traces and locks the snapshot is cheap enough, but still scales with the number of threads
+        for (final var threadInfo : threads.getThreadInfo(threads.getAllThreadIds(), 0)) {
+            if (threadInfo != null) {
+                states.merge(threadInfo.getThreadState(), 1, Integer::sum);
+            }
+        }
+        final var sample = new HashMap<String, Object>();
+        states.forEach((state, count) -> sample.put(state.name().toLowerCase(Locale.ROOT), count));
+        final var deadlocked = threads.findDeadlockedThreads();
+        sample.put("deadlocked", deadlocked != null ? deadlocked.length : 0);
+        threadSample = sample;
+        threadSampleTime = now;
+        return sample;
+    }
+
+    private static void putUsage(
+            final @NotNull Map<String, Object> fields,
+            final @NotNull String prefix,
+            final @NotNull MemoryUsage usage) {
+        fields.put(prefix + "used", usage.getUsed());
+        fields.put(prefix + "committed", usage.getCommitted());
+        // the maximum is undefined for some pools
+        if (usage.getMax() >= 0) {
+            fields.put(prefix + "max", usage.getMax());
+        }
+    }
+}
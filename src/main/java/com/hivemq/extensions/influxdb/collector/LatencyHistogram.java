@@ -0,0 +1,139 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb.collector;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of latencies in the style of HdrHistogram, with a relative precision of about 3 percent.
+ * <p>
+ * Values below 64 have their own bucket. Larger values share a bucket with the values that have the same highest 5
+ * bits after the leading bit, so every power of two is divided into 32 buckets. With values in microseconds the
+ * buckets cover latencies of up to 19 hours in 8 KiB.
+ * <p>
+ * Recording only increments atomic counters and never allocates.
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * Highest value that is counted in its own bucket, higher values are counted as this value.
+     */
+    static final long MAX_VALUE = (1L << 36) - 1;
+
+    private static final int BUCKETS = bucket(MAX_VALUE) + 1;
+
+    private final @NotNull AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final @NotNull LongAdder count = new LongAdder();
+    private final @NotNull LongAdder sum = new LongAdder();
+    private final @NotNull AtomicLong max = new AtomicLong();
+
+    void record(final long value) {
+        final var clamped = Math.min(Math.max(value, 0), MAX_VALUE);
+        counts.incrementAndGet(bucket(clamped));
+        count.increment();
+        sum.add(clamped);
+        if (clamped > max.get()) {
+            max.accumulateAndGet(clamped, Math::max);
+        }
+    }
+
+    /**
+     * Clears the histogram, must not be called while values are recorded.
+     */
+    void reset() {
+        for (var i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.set(0);
+    }
+
+    long count() {
+        return count.sum();
+    }
+
+    long max() {
+        return max.get();
+    }
+
+    double mean() {
+        final var count = count();
+        return count > 0 ? (double) sum.sum() / count : 0;
+    }
+
+    /**
+     * @param  percentile the percentile between 0 and 100.
+     * @return            the highest value of the bucket that contains the percentile, at most the maximum value, or 0
+     *                    if no value was recorded.
+     */
+    long valueAtPercentile(final double percentile) {
+        final var count = count();
+        final var target = Math.max((long) Math.ceil(percentile / 100 * count), 1);
+        var seen = 0L;
+        for (var i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(highestValue(i), max());
+            }
+        }
+        return max();
+    }
+
+    /**
+     * @return the fields {@code count}, {@code mean}, {@code p50}, {@code p90}, {@code p99}, {@code p999} and
+     *         {@code max} of a point that describes the histogram.
+     */
+    @NotNull Map<String, Object> fields() {
+        return Map.of("count",
+                count(),
+                "mean",
+                mean(),
+                "p50",
+                valueAtPercentile(50),
+                "p90",
+                valueAtPercentile(90),
+                "p99",
+                valueAtPercentile(99),
+                "p999",
+                valueAtPercentile(99.9),
+                "max",
+                max());
+    }
+
+    static int bucket(final long value) {
+        final var shift = Math.max(63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS, 0);
+        return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+    }
+
+    static long highestValue(final int bucket) {
+        if (bucket < 2 * SUB_BUCKETS) {
+            return bucket;
+        }
+        final var shift = (bucket >> SUB_BUCKET_BITS) - 1;
+        final var subBucket = bucket - (shift << SUB_BUCKET_BITS);
+        return ((subBucket + 1L) << shift) - 1;
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb.collector;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records latencies into the active of two {@link LatencyHistogram}s and swaps them for every reporting interval.
+ * <p>
+ * Writers and the reader are coordinated like the Recorder of HdrHistogram: every writer enters and leaves a phase with
+ * an atomic increment, the reader swaps the histograms, starts a new phase and waits until all writers left the
+ * previous phase. So recording neither locks nor allocates, and the swapped out histogram is complete and stable.
+ */
+final class LatencyRecorder {
+
+    private final @NotNull AtomicLong startEpoch = new AtomicLong();
+    private final @NotNull AtomicLong evenEndEpoch = new AtomicLong();
+    private final @NotNull AtomicLong oddEndEpoch = new AtomicLong(Long.MIN_VALUE);
+
+    private volatile @NotNull LatencyHistogram active = new LatencyHistogram();
+    private @NotNull LatencyHistogram inactive = new LatencyHistogram();
+
+    void record(final long value) {
+        final var epoch = startEpoch.getAndIncrement();
+        active.record(value);
+        if (epoch < 0) {
+            oddEndEpoch.getAndIncrement();
+        } else {
+            evenEndEpoch.getAndIncrement();
+        }
+    }
+
+    /**
+     * Starts a new interval.
+     *
+     * @return the histogram of the previous interval, valid until the next call.
+     */
+    synchronized @NotNull LatencyHistogram interval() {
+        inactive.reset();
+        final var previous = active;
+        active = inactive;
+        inactive = previous;
+        // the phases alternate between even (counting up from 0) and odd (counting up from Long.MIN_VALUE)
+        final var nextPhaseEven = startEpoch.get() < 0;
+        final var initialEpoch = nextPhaseEven ? 0 : Long.MIN_VALUE;
+        (nextPhaseEven ? evenEndEpoch : oddEndEpoch).set(initialEpoch);
+        final var previousStartEpoch = startEpoch.getAndSet(initialEpoch);
+        final var previousEndEpoch = nextPhaseEven ? oddEndEpoch : evenEndEpoch;
+        while (previousEndEpoch.get() != previousStartEpoch) {
+            Thread.yield();
+        }
+        return previous;
+    }
+}
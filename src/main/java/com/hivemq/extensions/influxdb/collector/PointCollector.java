@@ -0,0 +1,36 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb.collector;
+
+import com.izettle.metrics.influxdb.data.InfluxDbPoint;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.function.Consumer;
+
+/**
+ * Source of points that are written with every report in addition to the metrics of the HiveMQ metric registry.
+ */
+public interface PointCollector {
+
+    /**
+     * Collects the points of the current report. Called from the reporter thread only.
+     *
+     * @param timestamp the time of the report in milliseconds since the epoch.
+     * @param points    receives the collected points.
+     */
+    void collect(long timestamp, @NotNull Consumer<InfluxDbPoint> points);
+}
@@ -0,0 +1,356 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb.collector;
+
+import com.izettle.metrics.influxdb.data.InfluxDbPoint;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Reports the host metrics of a Linux broker node from the {@code /proc} file system: the CPU usage including the steal
+ * time, the traffic of the network interfaces, the I/O of the disks and the open file descriptors of the broker.
+ * <p>
+ * The files are read into a reused buffer and parsed in place, only the names of the interfaces and disks are
+ * converted to strings. The counters of the kernel are totals since boot, every report writes the differences to the
+ * previous report, so the first report after the start only records the initial values.
+ */
+public class ProcMetrics implements PointCollector {
+
+    static final @NotNull String CPU_MEASUREMENT = "com.hivemq.host.cpu";
+    static final @NotNull String NETWORK_MEASUREMENT = "com.hivemq.host.network";
+    static final @NotNull String DISK_MEASUREMENT = "com.hivemq.host.disk";
+    static final @NotNull String FILE_DESCRIPTORS_MEASUREMENT = "com.hivemq.host.file.descriptors";
+
+    private static final @NotNull String @NotNull [] CPU_FIELDS =
+            {"user", "nice", "system", "idle", "iowait", "irq", "softirq", "steal"};
+    private static final int NETWORK_COUNTERS = 16;
+    private static final int DISK_COUNTERS = 11;
+    private static final int SECTOR_SIZE = 512;
+
+    private static final @NotNull Logger LOG = LoggerFactory.getLogger(ProcMetrics.class);
+
+    private final @NotNull Path proc;
+
+    private byte @NotNull [] buffer = new byte[16 * 1024];
+    private @NotNull ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+    private int length;
+    private int position;
+
+    private final long @NotNull [] cpu = new long[CPU_FIELDS.length];
+    private final long @NotNull [] previousCpu = new long[CPU_FIELDS.length];
+    private final long @NotNull [] counters = new long[Math.max(NETWORK_COUNTERS, DISK_COUNTERS)];
+    private final @NotNull Map<String, long[]> previousNetwork = new HashMap<>();
+    private final @NotNull Map<String, long[]> previousDisks = new HashMap<>();
+    private boolean sampled;
+    private long previousTime;
+
+    /**
+     * @return <b>true</b> if the host provides the {@code /proc} file system of Linux, else <b>false</b>.
+     */
+    public static boolean isSupported() {
+        return Files.isReadable(Path.of("/proc/stat"));
+    }
+
+    public ProcMetrics() {
+        this(Path.of("/proc"));
+    }
+
+    ProcMetrics(final @NotNull Path proc) {
+        this.proc = proc;
+    }
+
+    @Override
+    public void collect(final long timestamp, final @NotNull Consumer<InfluxDbPoint> points) {
+        final var now = System.nanoTime();
+        final var initial = !sampled;
+        final var seconds = Math.max(now - previousTime, 1) / 1e9;
+        sampled = true;
+        previousTime = now;
+        try {
+            collectCpu(timestamp, initial, points);
+            collectNetwork(timestamp, initial, seconds, points);
+            collectDisks(timestamp, initial, seconds, points);
+            collectFileDescriptors(timestamp, points);
+        } catch (final IOException e) {
+            LOG.debug("Not able to read host metrics from {}: {}", proc, e.getMessage());
+        }
+    }
+
+    /**
+     * Reports the share of the CPU time per state in percent, from the first line of {@code /proc/stat}.
+     */
+    private void collectCpu(final long timestamp, final boolean initial, final @NotNull Consumer<InfluxDbPoint> points)
+            throws IOException {
+        read(proc.resolve("stat"));
+        if (!"cpu".equals(nextToken())) {
+            return;
+        }
+        var total = 0L;
+        for (var i = 0; i < cpu.length; i++) {
+            cpu[i] = Math.max(nextLong(), 0);
+            total += cpu[i] - previousCpu[i];
+        }
+        if (!initial && total > 0) {
+            final var fields = new HashMap<String, Object>();
+            for (var i = 0; i < cpu.length; i++) {
+                fields.put(CPU_FIELDS[i], 100.0 * Math.max(cpu[i] - previousCpu[i], 0) / total);
+            }
+            points.accept(new InfluxDbPoint(CPU_MEASUREMENT, Map.of(), timestamp, fields));
+        }
+        System.arraycopy(cpu, 0, previousCpu, 0, cpu.length);
+    }
+
+    /**
+     * Reports the traffic per network interface from {@code /proc/net/dev}, except for the loopback interface.
+     */
+    private void collectNetwork(
+            final long timestamp,
+            final boolean initial,
+            final double seconds,
+            final @NotNull Consumer<InfluxDbPoint> points) throws IOException {
+        read(proc.resolve("net").resolve("dev"));
+        // two header lines
+        skipLine();
+        skipLine();
+        while (position < length) {
+            final var name = nextToken();
+            if (name == null) {
+                break;
+            }
+            readCounters(NETWORK_COUNTERS);
+            skipLine();
+            if ("lo".equals(name)) {
+                continue;
+            }
+            final var previous = updateCounters(previousNetwork, name, NETWORK_COUNTERS);
+            if (initial || previous == null) {
+                continue;
+            }
+            final var rxBytes = delta(previous, 0);
+            final var txBytes = delta(previous, 8);
+            final var fields = new HashMap<String, Object>();
+            fields.put("rx_bytes", rxBytes);
+            fields.put("rx_bytes_rate", rxBytes / seconds);
+            fields.put("rx_packets", delta(previous, 1));
+            fields.put("rx_errors", delta(previous, 2));
+            fields.put("rx_dropped", delta(previous, 3));
+            fields.put("tx_bytes", txBytes);
+            fields.put("tx_bytes_rate", txBytes / seconds);
+            fields.put("tx_packets", delta(previous, 9));
+            fields.put("tx_errors", delta(previous, 10));
+            fields.put("tx_dropped", delta(previous, 11));
+            points.accept(new InfluxDbPoint(NETWORK_MEASUREMENT, Map.of("interface", name), timestamp, fields));
+        }
+    }
+
+    /**
+     * Reports the I/O per disk from {@code /proc/diskstats}, except for loop and RAM devices and disks without any I/O.
+     */
+    private void collectDisks(
+            final long timestamp,
+            final boolean initial,
+            final double seconds,
+            final @NotNull Consumer<InfluxDbPoint> points) throws IOException {
+        read(proc.resolve("diskstats"));
+        while (position < length) {
+            // major and minor device number
+            nextLong();
+            nextLong();
+            final var name = nextToken();
+            if (name == null) {
+                break;
+            }
+            readCounters(DISK_COUNTERS);
+            skipLine();
+            if (name.startsWith("loop") || name.startsWith("ram") || counters[0] == 0 && counters[4] == 0) {
+                continue;
+            }
+            final var previous = updateCounters(previousDisks, name, DISK_COUNTERS);
+            if (initial || previous == null) {
+                continue;
+            }
+            final var ioTime = delta(previous, 9);
+            final var fields = new HashMap<String, Object>();
+            fields.put("reads", delta(previous, 0));
+            fields.put("read_bytes", delta(previous, 2) * SECTOR_SIZE);
+            fields.put("read_time", delta(previous, 3));
+            fields.put("writes", delta(previous, 4));
+            fields.put("write_bytes", delta(previous, 6) * SECTOR_SIZE);
+            fields.put("write_time", delta(previous, 7));
+            fields.put("in_progress", counters[8]);
+            fields.put("io_time", ioTime);
+            fields.put("utilization", Math.min(ioTime / (seconds * 10), 100.0));
+            points.accept(new InfluxDbPoint(DISK_MEASUREMENT, Map.of("device", name), timestamp, fields));
+        }
+    }
+
+    /**
+     * Reports the open file descriptors of the broker process and their limit.
+     */
+    private void collectFileDescriptors(final long timestamp, final @NotNull Consumer<InfluxDbPoint> points)
+            throws IOException {
+        var open = 0L;
+        try (final var fileDescriptors = Files.newDirectoryStream(proc.resolve("self").resolve("fd"))) {
+            for (final var ignored : fileDescriptors) {
+                open++;
+            }
+        }
+        final var fields = new HashMap<String, Object>();
+        fields.put("open", open);
+        read(proc.resolve("self").resolve("limits"));
+        while (position < length) {
+            if (startsWith("Max open files")) {
+                position += "Max open files".length();
+                // the soft limit, or -1 if it is unlimited
+                final var limit = nextLong();
+                if (limit > 0) {
+                    fields.put("limit", limit);
+                    fields.put("usage", 100.0 * open / limit);
+                }
+                break;
+            }
+            skipLine();
+        }
+        points.accept(new InfluxDbPoint(FILE_DESCRIPTORS_MEASUREMENT, Map.of(), timestamp, fields));
+    }
+
+    private void readCounters(final int count) {
+        for (var i = 0; i < count; i++) {
+            counters[i] = Math.max(nextLong(), 0);
+        }
+    }
+
+    /**
+     * Stores the current counters of the device and moves its previous counters behind the current ones.
+     *
+     * @return the previous counters, or <b>null</b> if the device is new.
+     */
+    private long @Nullable [] updateCounters(
+            final @NotNull Map<String, long[]> devices,
+            final @NotNull String name,
+            final int count) {
+        var stored = devices.get(name);
+        if (stored == null) {
+            stored = new long[2 * count];
+            devices.put(name, stored);
+            System.arraycopy(counters, 0, stored, count, count);
+            return null;
+        }
+        System.arraycopy(stored, count, stored, 0, count);
+        System.arraycopy(counters, 0, stored, count, count);
+        return stored;
+    }
+
+    /**
+     * @return the difference of the current to the previous counter, or 0 if the counter was reset or wrapped around.
+     */
+    private long delta(final long @NotNull [] previous, final int index) {
+        return Math.max(counters[index] - previous[index], 0);
+    }
+
+    private void read(final @NotNull Path file) throws IOException {
+        length = 0;
+        position = 0;
+        // the files of /proc have no size, so they are read until the end
+        try (final var channel = FileChannel.open(file)) {
+            while (true) {
+                if (length == buffer.length) {
+                    final var grown = new byte[2 * buffer.length];
+                    System.arraycopy(buffer, 0, grown, 0, length);
+                    buffer = grown;
+                    byteBuffer = ByteBuffer.wrap(buffer);
+                }
+                byteBuffer.limit(buffer.length).position(length);
+                final var read = channel.read(byteBuffer);
+                if (read < 0) {
+                    return;
+                }
+                length += read;
+            }
+        }
+    }
+
+    private void skipLine() {
+        while (position < length && buffer[position] != '\n') {
+            position++;
+        }
+        position++;
+    }
+
+    private void skipSpaces() {
+        while (position < length && (buffer[position] == ' ' || buffer[position] == '\t')) {
+            position++;
+        }
+    }
+
+    /**
+     * @return the next token of the current line up to a white space or colon, or <b>null</b> at the end of the line.
+     */
+    private @Nullable String nextToken() {
+        skipSpaces();
+        final var start = position;
+        while (position < length && buffer[position] > ' ' && buffer[position] != ':') {
+            position++;
+        }
+        if (position == start) {
+            return null;
+        }
+        final var token = new String(buffer, start, position - start, StandardCharsets.US_ASCII);
+        if (position < length && buffer[position] == ':') {
+            position++;
+        }
+        return token;
+    }
+
+    /**
+     * @return the next number of the current line, or -1 if the next token is no number.
+     */
+    private long nextLong() {
+        skipSpaces();
+        var value = 0L;
+        final var start = position;
+        while (position < length && buffer[position] >= '0' && buffer[position] <= '9') {
+            value = value * 10 + buffer[position] - '0';
+            position++;
+        }
+        return position > start ? value : -1;
+    }
+
+    private boolean startsWith(final @NotNull String prefix) {
+        if (position + prefix.length() > length) {
+            return false;
+        }
+        for (var i = 0; i < prefix.length(); i++) {
+            if (buffer[position + i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb.collector;
+
+import com.hivemq.extension.sdk.api.interceptor.publish.PublishOutboundInterceptor;
+import com.hivemq.extension.sdk.api.interceptor.publish.parameter.PublishOutboundInput;
+import com.hivemq.extension.sdk.api.interceptor.publish.parameter.PublishOutboundOutput;
+import com.izettle.metrics.influxdb.data.InfluxDbPoint;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Measures the latency of PUBLISH messages in the broker, from receiving a message to delivering it to a subscriber.
+ * <p>
+ * The outbound interceptor records the time since HiveMQ received the message (the timestamp of the PUBLISH packet)
+ * in microseconds per QoS of the delivery and per configured topic prefix. The messages are neither modified nor
+ * stamped, so nothing is added to persisted, retained or clustered messages. The timestamp has a resolution of
+ * milliseconds, for messages that were received by another cluster node the latency includes the clock difference of
+ * the nodes.
+ * <p>
+ * Retained messages that are delivered on a subscription are not measured, neither are messages that were received
+ * before the current interval, like the queued messages of a client that was offline. Both would report the time the
+ * message was kept instead of the latency of the broker.
+ * <p>
+ * The latencies are recorded without locking or allocating into {@link LatencyRecorder}s, every report writes one point
+ * per QoS and topic prefix with the percentiles of the past interval.
+ */
+public class PublishLatencyMetrics implements PublishOutboundInterceptor, PointCollector {
+
+    static final @NotNull String MEASUREMENT = "com.hivemq.messages.publish.latency";
+
+    private static final int QOS_LEVELS = 3;
+
+    private final @NotNull List<String> topicPrefixes;
+    private final @NotNull LatencyRecorder @NotNull [] recorders = newRecorders();
+    private final @NotNull LatencyRecorder @NotNull [] @NotNull [] topicPrefixRecorders;
+
+    /**
+     * The start of the current interval in milliseconds since the epoch.
+     */
+    private volatile long intervalStart = System.currentTimeMillis();
+
+    /**
+     * @param topicPrefixes the topic prefixes the latencies are additionally recorded for, a message counts for the
+     *                      first matching prefix.
+     */
+    public PublishLatencyMetrics(final @NotNull List<String> topicPrefixes) {
+        this.topicPrefixes = List.copyOf(topicPrefixes);
+        this.topicPrefixRecorders = new LatencyRecorder[topicPrefixes.size()][];
+        for (var i = 0; i < topicPrefixRecorders.length; i++) {
+            topicPrefixRecorders[i] = newRecorders();
+        }
+    }
+
+    @Override
+    public void onOutboundPublish(
+            final @NotNull PublishOutboundInput publishOutboundInput,
+            final @NotNull PublishOutboundOutput publishOutboundOutput) {
+        final var publishPacket = publishOutboundInput.getPublishPacket();
+        delivered(publishPacket.getTopic(),
+                publishPacket.getQos().getQosNumber(),
+                publishPacket.getRetain(),
+                publishPacket.getTimestamp(),
+                System.currentTimeMillis());
+    }
+
+    /**
+     * Records the latency of a delivered message.
+     *
+     * @param topic     the topic of the message.
+     * @param qos       the QoS of the delivery.
+     * @param retain    if the message is delivered as retained message.
+     * @param received  the time HiveMQ received the message in milliseconds since the epoch.
+     * @param delivered the time of the delivery in milliseconds since the epoch.
+     */
+    void delivered(
+            final @NotNull String topic,
+            final int qos,
+            final boolean retain,
+            final long received,
+            final long delivered) {
+        // retained messages are delivered when a client subscribes, which can be long after they were received
+        if (retain || received < intervalStart || received > delivered) {
+            return;
+        }
+        record(topic, qos, TimeUnit.MILLISECONDS.toNanos(delivered - received));
+    }
+
+    void record(final @NotNull String topic, final int qos, final long nanos) {
+        final var micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+        recorders[qos].record(micros);
+        for (var i = 0; i < topicPrefixRecorders.length; i++) {
+            if (topic.startsWith(topicPrefixes.get(i))) {
+                topicPrefixRecorders[i][qos].record(micros);
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void collect(final long timestamp, final @NotNull Consumer<InfluxDbPoint> points) {
+        intervalStart = timestamp;
+        for (var qos = 0; qos < QOS_LEVELS; qos++) {
+            collect(timestamp, recorders[qos], Map.of("qos", Integer.toString(qos)), points);
+            for (var i = 0; i < topicPrefixRecorders.length; i++) {
+                collect(timestamp,
+                        topicPrefixRecorders[i][qos],
+                        Map.of("qos", Integer.toString(qos), "topic_prefix", topicPrefixes.get(i)),
+                        points);
+            }
+        }
+    }
+
+    private static void collect(
+            final long timestamp,
+            final @NotNull LatencyRecorder recorder,
+            final @NotNull Map<String, String> tags,
+            final @NotNull Consumer<InfluxDbPoint> points) {
+        final var histogram = recorder.interval();
+        if (histogram.count() > 0) {
+            points.accept(new InfluxDbPoint(MEASUREMENT, tags, timestamp, histogram.fields()));
+        }
+    }
+
+    private static @NotNull LatencyRecorder @NotNull [] newRecorders() {
+        final var recorders = new LatencyRecorder[QOS_LEVELS];
+        for (var qos = 0; qos < QOS_LEVELS; qos++) {
+            recorders[qos] = new LatencyRecorder();
+        }
+        return recorders;
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb.collector;
+
+import jdk.jfr.consumer.RecordedEvent;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.function.Consumer;
+
+/**
+ * Access to a JDK Flight Recorder {@code RecordingStream}.
+ * <p>
+ * The extension is compiled for Java 11, but event streaming is only available as of Java 14. The required API is
+ * looked up reflectively, so the extension still runs on older runtimes and without the {@code jdk.jfr} module. The
+ * events themselves are delivered to the consumers without reflection.
+ */
+final class RecordingStreams {
+
+    private static final @Nullable Constructor<?> NEW_STREAM = lookupConstructor();
+    private static final @Nullable Method ENABLE = lookupStreamMethod("enable", String.class);
+    private static final @Nullable Method ON_EVENT = lookupStreamMethod("onEvent", String.class, Consumer.class);
+    private static final @Nullable Method SET_REUSE = lookupStreamMethod("setReuse", boolean.class);
+    private static final @Nullable Method SET_ORDERED = lookupStreamMethod("setOrdered", boolean.class);
+    private static final @Nullable Method START_ASYNC = lookupStreamMethod("startAsync");
+    private static final @Nullable Method WITH_THRESHOLD = lookupSettingsMethod("withThreshold", Duration.class);
+    private static final @Nullable Method WITH = lookupSettingsMethod("with", String.class, String.class);
+    private static final @Nullable Method WITHOUT_STACK_TRACE = lookupSettingsMethod("withoutStackTrace");
+
+    private final @NotNull Object stream;
+
+    private RecordingStreams(final @NotNull Object stream) {
+        this.stream = stream;
+    }
+
+    /**
+     * @return <b>true</b> if the runtime supports streaming Flight Recorder events, else <b>false</b>.
+     */
+    static boolean isSupported() {
+        return NEW_STREAM != null &&
+                ENABLE != null &&
+                ON_EVENT != null &&
+                SET_REUSE != null &&
+                SET_ORDERED != null &&
+                START_ASYNC != null &&
+                WITH_THRESHOLD != null &&
+                WITH != null &&
+                WITHOUT_STACK_TRACE != null;
+    }
+
+    /**
+     * Creates a recording stream that delivers the events unordered in reused objects, as the events are only
+     * aggregated.
+     *
+     * @return           the created stream.
+     * @throws Exception if the runtime does not support event streaming or the Flight Recorder is disabled.
+     */
+    static @NotNull RecordingStreams create() throws Exception {
+        if (NEW_STREAM == null) {
+            throw new UnsupportedOperationException("Flight Recorder event streaming is not supported by this runtime");
+        }
+        final Object stream;
+        try {
+            stream = NEW_STREAM.newInstance();
+        } catch (final InvocationTargetException e) {
+            throw unwrap(e);
+        }
+        final var recordingStream = new RecordingStreams(stream);
+        try {
+            invoke(SET_REUSE, stream, true);
+            invoke(SET_ORDERED, stream, false);
+        } catch (final Exception e) {
+            recordingStream.close();
+            throw e;
+        }
+        return recordingStream;
+    }
+
+    /**
+     * Enables the event without stack traces and registers the consumer.
+     *
+     * @param name      the name of the event, e.g. {@code jdk.JavaMonitorEnter}.
+     * @param threshold the minimum duration of the recorded events, or <b>null</b> for events without duration.
+     * @param throttle  the maximum rate of the recorded events, e.g. {@code 100/s}, or <b>null</b> if the event is not
+     *                  throttled.
+     * @param consumer  receives the events.
+     */
+    void enable(
+            final @NotNull String name,
+            final @Nullable Duration threshold,
+            final @Nullable String throttle,
+            final @NotNull Consumer<RecordedEvent> consumer) throws Exception {
+        final var settings = invoke(ENABLE, stream, name);
+        invoke(WITHOUT_STACK_TRACE, settings);
+        if (threshold != null) {
+            invoke(WITH_THRESHOLD, settings, threshold);
+        }
+        if (throttle != null) {
+            invoke(WITH, settings, "throttle", throttle);
+        }
+        invoke(ON_EVENT, stream, name, consumer);
+    }
+
+    void startAsync() throws Exception {
+        invoke(START_ASYNC, stream);
+    }
+
+    void close() throws Exception {
+        ((AutoCloseable) stream).close();
+    }
+
+    private static @Nullable Object invoke(
+            final @Nullable Method method,
+            final @Nullable Object target,
+            final @NotNull Object @NotNull ... arguments) throws Exception {
+        if (method == null || target == null) {
+            throw new UnsupportedOperationException("Flight Recorder event streaming is not supported by this runtime");
+        }
+        try {
+            return method.invoke(target, arguments);
+        } catch (final InvocationTargetException e) {
+            throw unwrap(e);
+        }
+    }
+
+    private static @NotNull Exception unwrap(final @NotNull InvocationTargetException e) {
+        return e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+    }
+
+    private static @Nullable Constructor<?> lookupConstructor() {
+        try {
+            return Class.forName("jdk.jfr.consumer.RecordingStream").getConstructor();
+        } catch (final ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    private static @Nullable Method lookupStreamMethod(
+            final @NotNull String name,
+            final @NotNull Class<?> @NotNull ... parameterTypes) {
+        return lookupMethod("jdk.jfr.consumer.RecordingStream", name, parameterTypes);
+    }
+
+    private static @Nullable Method lookupSettingsMethod(
+            final @NotNull String name,
+            final @NotNull Class<?> @NotNull ... parameterTypes) {
+        return lookupMethod("jdk.jfr.EventSettings", name, parameterTypes);
+    }
+
+    private static @Nullable Method lookupMethod(
+            final @NotNull String className,
+            final @NotNull String name,
+            final @NotNull Class<?> @NotNull ... parameterTypes) {
+        try {
+            return Class.forName(className).getMethod(name, parameterTypes);
+        } catch (final ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb.collector;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Space-Saving sketch that counts the messages and bytes of the most frequent keys in bounded memory.
+ * <p>
+ * At most {@code capacity} keys are tracked. A key that is not tracked yet replaces the tracked key with the lowest
+ * message count and takes over its counts as error. So every key with more than {@code total / capacity} messages is
+ * tracked, and its message count is overestimated by at most its error.
+ * <p>
+ * Counting a tracked key only increments striped counters without locking, only replacing a key is synchronized. The
+ * key with the lowest message count is taken from a priority queue of the counters by the message count they had when
+ * they were queued. Counters that were incremented since are queued again with their current count until the head of
+ * the queue is up to date, so a replacement takes amortized logarithmic time in the capacity instead of summing up all
+ * counters.
+ */
+final class SpaceSavingSketch {
+
+    private final int capacity;
+    private final @NotNull ConcurrentHashMap<String, Counter> counters;
+    private final @NotNull PriorityQueue<Counter> byMessages =
+            new PriorityQueue<>(Comparator.comparingLong((Counter counter) -> counter.queuedMessages));
+
+    SpaceSavingSketch(final int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.counters = new ConcurrentHashMap<>(capacity * 2);
+    }
+
+    void add(final @NotNull String key, final long bytes) {
+        var counter = counters.get(key);
+        if (counter == null) {
+            counter = admit(key);
+        }
+        counter.messages.increment();
+        counter.bytes.add(bytes);
+    }
+
+    /**
+     * @return the tracked keys with the highest message counts, in descending order of the message count.
+     */
+    @NotNull List<Entry> top(final int limit) {
+        final var entries = new ArrayList<Entry>(counters.size());
+        counters.forEach((key, counter) -> entries.add(new Entry(key,
+                counter.messages.sum(),
+                counter.bytes.sum(),
+                counter.error)));
+        entries.sort(Comparator.comparingLong((Entry entry) -> entry.messages).reversed());
+        return entries.size() > limit ? entries.subList(0, limit) : entries;
+    }
+
+    private synchronized @NotNull Counter admit(final @NotNull String key) {
+        final var existing = counters.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        final Counter counter;
+        if (counters.size() < capacity) {
+            counter = new Counter(key, 0, 0);
+        } else {
+            final var min = pollMin();
+            counters.remove(min.key);
+            counter = new Counter(key, min.queuedMessages, min.bytes.sum());
+        }
+        counters.put(key, counter);
+        byMessages.add(counter);
+        return counter;
+    }
+
+    /**
+     * @return the counter with the lowest message count, removed from the queue.
+     */
+    private @NotNull Counter pollMin() {
+        while (true) {
+            final var head = byMessages.remove();
+            final var messages = head.messages.sum();
+            if (messages == head.queuedMessages) {
+                // all other counters were queued with at least this count and never decrease
+                return head;
+            }
+            head.queuedMessages = messages;
+            byMessages.add(head);
+        }
+    }
+
+    private static final class Counter {
+
+        private final @NotNull String key;
+        private final @NotNull LongAdder messages = new LongAdder();
+        private final @NotNull LongAdder bytes = new LongAdder();
+        private final long error;
+
+        /**
+         * The message count when the counter was queued, guarded by the sketch.
+         */
+        private long queuedMessages;
+
+        Counter(final @NotNull String key, final long messages, final long bytes) {
+            this.key = key;
+            this.messages.add(messages);
+            this.bytes.add(bytes);
+            this.error = messages;
+            this.queuedMessages = messages;
+        }
+    }
+
+    static final class Entry {
+
+        final @NotNull String key;
+        final long messages;
+        final long bytes;
+        final long error;
+
+        Entry(final @NotNull String key, final long messages, final long bytes, final long error) {
+            this.key = key;
+            this.messages = messages;
+            this.bytes = bytes;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb.collector;
+
+import com.hivemq.extension.sdk.api.interceptor.publish.PublishInboundInterceptor;
+import com.hivemq.extension.sdk.api.interceptor.publish.parameter.PublishInboundInput;
+import com.hivemq.extension.sdk.api.interceptor.publish.parameter.PublishInboundOutput;
+import com.izettle.metrics.influxdb.data.InfluxDbPoint;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Counts the incoming PUBLISH messages and their payload bytes per topic and reports the most frequent topics.
+ * <p>
+ * The topics are counted in a {@link SpaceSavingSketch} per reporting interval, so the memory stays bounded with any
+ * number of topics. Topics can be truncated to their first levels, e.g. {@code devices/1234} for
+ * {@code devices/1234/telemetry}, to count whole topic trees. Every report writes one point per topic with the counts
+ * and rates of the past interval.
+ */
+public class TopicMetrics implements PublishInboundInterceptor, PointCollector {
+
+    static final @NotNull String MEASUREMENT = "com.hivemq.topics.incoming.publish";
+
+    /**
+     * Number of tracked topics per reported topic, more tracked topics make the reported counts more accurate.
+     */
+    private static final int CAPACITY_FACTOR = 4;
+
+    private final int topicLevels;
+    private final int topK;
+
+    private volatile @NotNull Window window;
+
+    /**
+     * @param topicLevels the number of topic levels that are counted, or 0 to count the full topics.
+     * @param topK        the number of topics that are reported.
+     */
+    public TopicMetrics(final int topicLevels, final int topK) {
+        this.topicLevels = topicLevels;
+        this.topK = topK;
+        this.window = new Window(topK * CAPACITY_FACTOR, System.nanoTime());
+    }
+
+    @Override
+    public void onInboundPublish(
+            final @NotNull PublishInboundInput publishInboundInput,
+            final @NotNull PublishInboundOutput publishInboundOutput) {
+        final var publishPacket = publishInboundInput.getPublishPacket();
+        final var payload = publishPacket.getPayload();
+        add(publishPacket.getTopic(), payload.isPresent() ? payload.get().remaining() : 0);
+    }
+
+    void add(final @NotNull String topic, final long bytes) {
+        window.sketch.add(topicKey(topic, topicLevels), bytes);
+    }
+
+    @Override
+    public void collect(final long timestamp, final @NotNull Consumer<InfluxDbPoint> points) {
+        final var now = System.nanoTime();
+        final var previous = window;
+        window = new Window(topK * CAPACITY_FACTOR, now);
+        final var seconds = Math.max(now - previous.start, 1) / 1e9;
+        for (final var entry : previous.sketch.top(topK)) {
+            points.accept(new InfluxDbPoint(MEASUREMENT,
+                    Map.of("topic", entry.key),
+                    timestamp,
+                    Map.of("count",
+                            entry.messages,
+                            "count_error",
+                            entry.error,
+                            "rate",
+                            entry.messages / seconds,
+                            "bytes",
+                            entry.bytes,
+                            "bytes_rate",
+                            entry.bytes / seconds)));
+        }
+    }
+
+    /**
+     * @return the first <b>levels</b> levels of the topic, or the topic itself if it has not more levels or
+     *         <b>levels</b> is 0.
+     */
+    static @NotNull String topicKey(final @NotNull String topic, final int levels) {
+        if (levels <= 0) {
+            return topic;
+        }
+        var index = -1;
+        for (var level = 0; level < levels; level++) {
+            index = topic.indexOf('/', index + 1);
+            if (index < 0) {
+                return topic;
+            }
+        }
+        return topic.substring(0, index);
+    }
+
+    private static final class Window {
+
+        private final @NotNull SpaceSavingSketch sketch;
+        private final long start;
+
+        Window(final int capacity, final long start) {
+            this.sketch = new SpaceSavingSketch(capacity);
+            this.start = start;
+        }
+    }
+}
@@ -23,10 +23,17 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 /**
  * Reads a property file containing InfluxDB properties and provides some utility methods for working with
@@ -49,6 +56,52 @@ public class InfluxDbConfiguration extends PropertiesReader {
     private static final @NotNull String PROPERTY_BUCKET = "bucket";
     private static final @NotNull String PROPERTY_ORGANIZATION = "organization";
     private static final @NotNull String PROPERTY_VERSION = "version";
+    private static final @NotNull String PROPERTY_UDP_PAYLOAD_SIZE = "udpPayloadSize";
+    private static final @NotNull String PROPERTY_SOCKET_PATH = "socketPath";
+    private static final @NotNull String PROPERTY_FILE_DIRECTORY = "fileDirectory";
+    private static final @NotNull String PROPERTY_FILE_MAX_SIZE = "fileMaxSize";
+    private static final @NotNull String PROPERTY_FILE_ROTATION_INTERVAL = "fileRotationInterval";
+    private static final @NotNull String PROPERTY_FILE_COMPRESSION = "fileCompression";
+    private static final @NotNull String PROPERTY_MAX_REPORTING_INTERVAL = "maxReportingInterval";
+    private static final @NotNull String PROPERTY_REPORTING_LATENCY_THRESHOLD = "reportingLatencyThreshold";
+    private static final @NotNull String PROPERTY_REPORTING_ALIGNMENT = "reportingAlignment";
+    private static final @NotNull String PROPERTY_REPORTING_JITTER = "reportingJitter";
+    private static final @NotNull String PROPERTY_SHUTDOWN_TIMEOUT = "shutdownTimeout";
+    private static final @NotNull String PROPERTY_SPOOL_DIRECTORY = "spoolDirectory";
+    private static final @NotNull String PROPERTY_DNS_TTL = "dnsTtl";
+    private static final @NotNull String PROPERTY_TLS_PROTOCOLS = "tlsProtocols";
+    private static final @NotNull String PROPERTY_TLS_CIPHER_SUITES = "tlsCipherSuites";
+    private static final @NotNull String PROPERTY_TLS_TRUST_STORE = "tlsTrustStore";
+    private static final @NotNull String PROPERTY_TLS_TRUST_STORE_PASSWORD = "tlsTrustStorePassword";
+    private static final @NotNull String PROPERTY_TLS_TRUST_STORE_TYPE = "tlsTrustStoreType";
+    private static final @NotNull String PROPERTY_TOPIC_METRICS = "topicMetrics";
+    private static final @NotNull String PROPERTY_TOPIC_METRICS_LEVELS = "topicMetricsLevels";
+    private static final @NotNull String PROPERTY_TOPIC_METRICS_TOP_K = "topicMetricsTopK";
+    private static final @NotNull String PROPERTY_CLIENT_METRICS = "clientMetrics";
+    private static final @NotNull String PROPERTY_CLIENT_METRICS_TOP_N = "clientMetricsTopN";
+    private static final @NotNull String PROPERTY_CLIENT_METRICS_HALF_LIFE = "clientMetricsHalfLife";
+    private static final @NotNull String PROPERTY_LATENCY_METRICS = "latencyMetrics";
+    private static final @NotNull String PROPERTY_LATENCY_METRICS_TOPIC_PREFIXES = "latencyMetricsTopicPrefixes";
+    private static final @NotNull String PROPERTY_JVM_METRICS = "jvmMetrics";
+    private static final @NotNull String PROPERTY_JVM_METRICS_THREAD_INTERVAL = "jvmMetricsThreadInterval";
+    private static final @NotNull String PROPERTY_JFR_METRICS = "jfrMetrics";
+    private static final @NotNull String PROPERTY_JFR_METRICS_THRESHOLD = "jfrMetricsThreshold";
+    private static final @NotNull String PROPERTY_HOST_METRICS = "hostMetrics";
+    private static final @NotNull String PROPERTY_DOWNSAMPLING = "downsampling";
+    private static final @NotNull String PROPERTY_DOWNSAMPLING_AGGREGATES = "downsamplingAggregates";
+    private static final @NotNull String PROPERTY_TEMPLATES = "templates";
+    private static final @NotNull String PROPERTY_METRIC_FIELDS = "metricFields";
+    private static final @NotNull String PROPERTY_COUNTER_DELTAS = "counterDeltas";
+    private static final @NotNull String PROPERTY_GAUGE_DEADBAND = "gaugeDeadband";
+    private static final @NotNull String PROPERTY_GAUGE_DEADBAND_ABSOLUTE = "gaugeDeadbandAbsolute";
+    private static final @NotNull String PROPERTY_GAUGE_DEADBAND_RELATIVE = "gaugeDeadbandRelative";
+    private static final @NotNull String PROPERTY_GAUGE_KEYFRAME_INTERVAL = "gaugeKeyframeInterval";
+    private static final @NotNull String PROPERTY_PRIORITY_CRITICAL = "priorityCritical";
+    private static final @NotNull String PROPERTY_PRIORITY_BULK = "priorityBulk";
+    private static final @NotNull String PROPERTY_MEMORY_BUDGET = "memoryBudget";
+    private static final @NotNull String PROPERTY_MEMORY_BUDGET_POLICY = "memoryBudgetPolicy";
+    private static final @NotNull String PROPERTY_GAUGE_TIME_BUDGET = "gaugeTimeBudget";
+    private static final @NotNull String PROPERTY_GAUGE_CACHE_TTL = "gaugeCacheTtl";
 
     private static final @NotNull String DEFAULT_MODE = "http";
     private static final @NotNull String DEFAULT_DATABASE = "hivemq";
@@ -56,6 +109,31 @@ public class InfluxDbConfiguration extends PropertiesReader {
     private static final int DEFAULT_CONNECT_TIMEOUT = 5000;
     private static final @NotNull String DEFAULT_PREFIX = "";
     private static final @NotNull Map<String, String> DEFAULT_TAGS = Map.of();
+    private static final int DEFAULT_UDP_PAYLOAD_SIZE = 1400;
+    private static final @NotNull String DEFAULT_FILE_DIRECTORY = "metrics";
+    private static final int DEFAULT_FILE_MAX_SIZE = 64 * 1024 * 1024;
+    private static final int DEFAULT_FILE_ROTATION_INTERVAL = 3600;
+    private static final @NotNull String DEFAULT_FILE_COMPRESSION = "none";
+    private static final int DEFAULT_MAX_REPORTING_INTERVAL = 60;
+    private static final int DEFAULT_REPORTING_LATENCY_THRESHOLD = 1000;
+    private static final int DEFAULT_SHUTDOWN_TIMEOUT = 5000;
+    private static final @NotNull String DEFAULT_SPOOL_DIRECTORY = "spool";
+    private static final int DEFAULT_DNS_TTL = 30;
+    private static final @NotNull String DEFAULT_TLS_PROTOCOLS = "TLSv1.3,TLSv1.2";
+    private static final @NotNull String DEFAULT_TLS_TRUST_STORE_TYPE = "PKCS12";
+    private static final int DEFAULT_TOPIC_METRICS_TOP_K = 100;
+    private static final int DEFAULT_CLIENT_METRICS_TOP_N = 20;
+    private static final int DEFAULT_CLIENT_METRICS_HALF_LIFE = 60;
+    private static final int DEFAULT_JVM_METRICS_THREAD_INTERVAL = 60;
+    private static final int DEFAULT_JFR_METRICS_THRESHOLD = 10;
+    private static final @NotNull String DEFAULT_DOWNSAMPLING_AGGREGATES = "mean,min,max,last,sum";
+    private static final int DEFAULT_GAUGE_KEYFRAME_INTERVAL = 60;
+    private static final int DEFAULT_MEMORY_BUDGET = 64 * 1024 * 1024;
+    private static final @NotNull String DEFAULT_MEMORY_BUDGET_POLICY = "drop";
+    private static final int DEFAULT_GAUGE_TIME_BUDGET = 100;
+    private static final int DEFAULT_GAUGE_CACHE_TTL = 60;
+
+    private static final int MAX_UDP_PAYLOAD_SIZE = 65507;
 
     private static final @NotNull Logger LOG = LoggerFactory.getLogger(InfluxDbConfiguration.class);
 
@@ -64,27 +142,36 @@ public class InfluxDbConfiguration extends PropertiesReader {
     }
 
     /**
-     * Check if mandatory properties exist and are valid. Mandatory properties are port and host.
+     * Check if mandatory properties exist and are valid. Mandatory properties are port and host, or the socket path for
+     * the Unix domain socket modes. Mode 'file' has no mandatory properties.
      *
      * @return <b>true</b> if all mandatory properties exist, else <b>false</b>.
      */
     public boolean validateConfiguration() {
         var errorCount = 0;
-        errorCount += checkMandatoryProperty(PROPERTY_HOST);
-        errorCount += checkMandatoryProperty(PROPERTY_PORT);
+        final var unixSocketMode = isUnixSocketMode();
+        final var fileMode = isFileMode();
+        if (unixSocketMode) {
+            // host and port are only used as fallback if the runtime does not support Unix domain sockets
+            errorCount += checkMandatoryProperty(PROPERTY_SOCKET_PATH);
+        } else if (!fileMode) {
+            errorCount += checkMandatoryProperty(PROPERTY_HOST);
+            errorCount += checkMandatoryProperty(PROPERTY_PORT);
+        }
         if (errorCount != 0) {
             return false;
         }
         // check if host wasn't configured
-        final var host = getProperty(PROPERTY_HOST);
-        if ("<INFLUXDB IP>".equals(host) || "--INFLUX-DB-IP--".equals(host)) {
+        if (!unixSocketMode && !fileMode && !isHostConfigured()) {
             errorCount++;
         }
         // check for valid port value
-        final var port = validateIntProperty(PROPERTY_PORT, -1);
-        if (port < 0 || port > 65535) {
-            LOG.error("Value for mandatory InfluxDB property '{}' is not in valid port range", PROPERTY_PORT);
-            errorCount++;
+        if (getProperty(PROPERTY_PORT) != null) {
+            final var port = validateIntProperty(PROPERTY_PORT, -1);
+            if (port < 0 || port > 65535) {
+                LOG.error("Value for mandatory InfluxDB property '{}' is not in valid port range", PROPERTY_PORT);
+                errorCount++;
+            }
         }
         // check for valid version value
         if (getProperty(PROPERTY_VERSION) != null) {
@@ -105,6 +192,51 @@ public class InfluxDbConfiguration extends PropertiesReader {
             }
             errorCount += cloudError;
         }
+        // check for valid datagram payload size
+        final var mode = getProperty(PROPERTY_MODE);
+        if (("udp".equals(mode) || "unixgram".equals(mode)) && getProperty(PROPERTY_UDP_PAYLOAD_SIZE) != null) {
+            final var udpPayloadSize = validateIntProperty(PROPERTY_UDP_PAYLOAD_SIZE, DEFAULT_UDP_PAYLOAD_SIZE);
+            if (udpPayloadSize > MAX_UDP_PAYLOAD_SIZE) {
+                LOG.error("Value for InfluxDB property '{}' must not exceed {}",
+                        PROPERTY_UDP_PAYLOAD_SIZE,
+                        MAX_UDP_PAYLOAD_SIZE);
+                errorCount++;
+            }
+        }
+        // check for valid file compression
+        if (fileMode) {
+            final var compression = getFileCompression();
+            if (!"none".equals(compression) && !"gzip".equals(compression)) {
+                LOG.error("Unsupported value '{}' for InfluxDB property '{}' (supported values: none, gzip)",
+                        compression,
+                        PROPERTY_FILE_COMPRESSION);
+                errorCount++;
+            }
+        }
+        // check for a valid memory budget policy
+        final var memoryBudgetPolicy = getMemoryBudgetPolicy();
+        if (!List.of("drop", "spool", "degrade").contains(memoryBudgetPolicy)) {
+            LOG.error("Unsupported value '{}' for InfluxDB property '{}' (supported values: drop, spool, degrade)",
+                    memoryBudgetPolicy,
+                    PROPERTY_MEMORY_BUDGET_POLICY);
+            errorCount++;
+        }
+        // check that the adaptive reporting interval can only grow
+        if (isAdaptiveReportingInterval()) {
+            if (getMaxReportingInterval() < getReportingIntervalOrDefault()) {
+                LOG.error("Value for InfluxDB property '{}' must not be lower than '{}'",
+                        PROPERTY_MAX_REPORTING_INTERVAL,
+                        PROPERTY_REPORTING_INTERVAL);
+                errorCount++;
+            }
+        }
+        // check that the writes are delayed by less than the reporting interval
+        if (getReportingJitter() >= TimeUnit.SECONDS.toMillis(getReportingIntervalOrDefault())) {
+            LOG.error("Value for InfluxDB property '{}' must be lower than '{}'",
+                    PROPERTY_REPORTING_JITTER,
+                    PROPERTY_REPORTING_INTERVAL);
+            errorCount++;
+        }
         return errorCount == 0;
     }
 
@@ -132,6 +264,70 @@ public class InfluxDbConfiguration extends PropertiesReader {
         return Objects.requireNonNullElse(getProperty(PROPERTY_HOST), "");
     }
 
+    /**
+     * Check if a host is configured that is not the placeholder of the default configuration.
+     *
+     * @return <b>true</b> if a host is configured, else <b>false</b>.
+     */
+    public boolean isHostConfigured() {
+        final var host = getProperty(PROPERTY_HOST);
+        return host != null && !"<INFLUXDB IP>".equals(host) && !"--INFLUX-DB-IP--".equals(host);
+    }
+
+    /**
+     * Check if one of the Unix domain socket modes 'unix' (stream) or 'unixgram' (datagram) is configured.
+     *
+     * @return <b>true</b> if a Unix domain socket mode is configured, else <b>false</b>.
+     */
+    public boolean isUnixSocketMode() {
+        final var mode = getProperty(PROPERTY_MODE);
+        return "unix".equals(mode) || "unixgram".equals(mode);
+    }
+
+    public @Nullable String getSocketPath() {
+        return getProperty(PROPERTY_SOCKET_PATH);
+    }
+
+    /**
+     * Check if mode 'file' is configured, which writes line protocol to local files instead of InfluxDB.
+     *
+     * @return <b>true</b> if mode 'file' is configured, else <b>false</b>.
+     */
+    public boolean isFileMode() {
+        return "file".equals(getProperty(PROPERTY_MODE));
+    }
+
+    /**
+     * Get the directory for the line protocol files of mode 'file'. Relative paths are resolved against the extension
+     * home folder.
+     *
+     * @return the configured directory
+     */
+    public @NotNull String getFileDirectory() {
+        return validateStringProperty(PROPERTY_FILE_DIRECTORY, DEFAULT_FILE_DIRECTORY);
+    }
+
+    /**
+     * @return the size in bytes after which a file of mode 'file' is rotated
+     */
+    public int getFileMaxSize() {
+        return validateIntProperty(PROPERTY_FILE_MAX_SIZE, DEFAULT_FILE_MAX_SIZE);
+    }
+
+    /**
+     * @return the interval in seconds after which a file of mode 'file' is rotated
+     */
+    public int getFileRotationInterval() {
+        return validateIntProperty(PROPERTY_FILE_ROTATION_INTERVAL, DEFAULT_FILE_ROTATION_INTERVAL);
+    }
+
+    /**
+     * @return the compression of the files of mode 'file', either 'none' or 'gzip'
+     */
+    public @NotNull String getFileCompression() {
+        return validateStringProperty(PROPERTY_FILE_COMPRESSION, DEFAULT_FILE_COMPRESSION);
+    }
+
     public @NotNull String getDatabase() {
         return validateStringProperty(PROPERTY_DATABASE, DEFAULT_DATABASE);
     }
@@ -144,6 +340,393 @@ public class InfluxDbConfiguration extends PropertiesReader {
         return validateIntProperty(PROPERTY_REPORTING_INTERVAL, DEFAULT_REPORTING_INTERVAL);
     }
 
+    /**
+     * Get the reporting interval without warning about a missing value, the warning is logged when it is used.
+     */
+    private int getReportingIntervalOrDefault() {
+        return getProperty(PROPERTY_REPORTING_INTERVAL) != null ? getReportingInterval() : DEFAULT_REPORTING_INTERVAL;
+    }
+
+    /**
+     * Check if the reports should run at the wall clock boundaries of the reporting interval, e.g. at every full 10
+     * seconds, instead of relative to the start of the extension.
+     *
+     * @return <b>true</b> if the reports are aligned to the wall clock, else <b>false</b>.
+     */
+    public boolean isReportingAlignment() {
+        return Boolean.parseBoolean(getProperty(PROPERTY_REPORTING_ALIGNMENT));
+    }
+
+    /**
+     * Get the maximum delay of the writes after the metrics are sampled. The actual delay is derived from the identity
+     * of the broker node, so the writes of all nodes are spread across the reporting interval.
+     *
+     * @return the maximum delay in milliseconds, 0 if the writes are not delayed
+     */
+    public int getReportingJitter() {
+        return getProperty(PROPERTY_REPORTING_JITTER) != null ? validateIntProperty(PROPERTY_REPORTING_JITTER, 0) : 0;
+    }
+
+    /**
+     * Check if a maximum reporting interval is configured, which lets the reporting interval grow while InfluxDB is
+     * overloaded.
+     *
+     * @return <b>true</b> if the reporting interval is adaptive, else <b>false</b>.
+     */
+    public boolean isAdaptiveReportingInterval() {
+        return getProperty(PROPERTY_MAX_REPORTING_INTERVAL) != null;
+    }
+
+    /**
+     * @return the interval in seconds up to which the reporting interval grows while InfluxDB is overloaded
+     */
+    public int getMaxReportingInterval() {
+        return validateIntProperty(PROPERTY_MAX_REPORTING_INTERVAL, DEFAULT_MAX_REPORTING_INTERVAL);
+    }
+
+    /**
+     * @return the write latency in milliseconds above which InfluxDB is considered overloaded
+     */
+    public int getReportingLatencyThreshold() {
+        return getProperty(PROPERTY_REPORTING_LATENCY_THRESHOLD) != null ?
+                validateIntProperty(PROPERTY_REPORTING_LATENCY_THRESHOLD, DEFAULT_REPORTING_LATENCY_THRESHOLD) :
+                DEFAULT_REPORTING_LATENCY_THRESHOLD;
+    }
+
+    /**
+     * @return the time in milliseconds the final report may take when the extension stops
+     */
+    public int getShutdownTimeout() {
+        return getProperty(PROPERTY_SHUTDOWN_TIMEOUT) != null ?
+                validateIntProperty(PROPERTY_SHUTDOWN_TIMEOUT, DEFAULT_SHUTDOWN_TIMEOUT) :
+                DEFAULT_SHUTDOWN_TIMEOUT;
+    }
+
+    /**
+     * Get the directory for the final report if it could not be written when the extension stops. Relative paths are
+     * resolved against the extension home folder.
+     *
+     * @return the configured directory
+     */
+    public @NotNull String getSpoolDirectory() {
+        return Objects.requireNonNullElse(getProperty(PROPERTY_SPOOL_DIRECTORY), DEFAULT_SPOOL_DIRECTORY);
+    }
+
+    /**
+     * @return the time in seconds after which the cached addresses of the InfluxDB host are resolved again
+     */
+    public int getDnsTtl() {
+        return getProperty(PROPERTY_DNS_TTL) != null ?
+                validateIntProperty(PROPERTY_DNS_TTL, DEFAULT_DNS_TTL) :
+                DEFAULT_DNS_TTL;
+    }
+
+    /**
+     * @return the TLS protocol versions that are enabled for HTTPS, in order of preference
+     */
+    public @NotNull List<String> getTlsProtocols() {
+        return splitList(Objects.requireNonNullElse(getProperty(PROPERTY_TLS_PROTOCOLS), DEFAULT_TLS_PROTOCOLS));
+    }
+
+    /**
+     * @return the TLS cipher suites that are enabled for HTTPS, or <b>null</b> for the defaults of the Java runtime
+     */
+    public @Nullable List<String> getTlsCipherSuites() {
+        final var cipherSuites = getProperty(PROPERTY_TLS_CIPHER_SUITES);
+        return cipherSuites != null ? splitList(cipherSuites) : null;
+    }
+
+    /**
+     * Get the trust store for the certificates of the InfluxDB server. Relative paths are resolved against the
+     * extension home folder.
+     *
+     * @return the configured trust store, or <b>null</b> for the trust store of the Java runtime
+     */
+    public @Nullable String getTlsTrustStore() {
+        return getProperty(PROPERTY_TLS_TRUST_STORE);
+    }
+
+    public @Nullable String getTlsTrustStorePassword() {
+        return getProperty(PROPERTY_TLS_TRUST_STORE_PASSWORD);
+    }
+
+    public @NotNull String getTlsTrustStoreType() {
+        return Objects.requireNonNullElse(getProperty(PROPERTY_TLS_TRUST_STORE_TYPE), DEFAULT_TLS_TRUST_STORE_TYPE);
+    }
+
+    /**
+     * @return <b>true</b> if the incoming PUBLISH messages are counted per topic, else <b>false</b>.
+     */
+    public boolean isTopicMetrics() {
+        return Boolean.parseBoolean(getProperty(PROPERTY_TOPIC_METRICS));
+    }
+
+    /**
+     * @return the number of topic levels the topics are truncated to for the topic metrics, or 0 for the full topics
+     */
+    public int getTopicMetricsLevels() {
+        return getProperty(PROPERTY_TOPIC_METRICS_LEVELS) != null ?
+                validateIntProperty(PROPERTY_TOPIC_METRICS_LEVELS, 0) :
+                0;
+    }
+
+    /**
+     * @return the number of most frequent topics that are reported by the topic metrics
+     */
+    public int getTopicMetricsTopK() {
+        return getProperty(PROPERTY_TOPIC_METRICS_TOP_K) != null ?
+                validateIntProperty(PROPERTY_TOPIC_METRICS_TOP_K, DEFAULT_TOPIC_METRICS_TOP_K) :
+                DEFAULT_TOPIC_METRICS_TOP_K;
+    }
+
+    /**
+     * @return <b>true</b> if the most active clients are reported, else <b>false</b>.
+     */
+    public boolean isClientMetrics() {
+        return Boolean.parseBoolean(getProperty(PROPERTY_CLIENT_METRICS));
+    }
+
+    /**
+     * @return the number of most active clients that are reported by the client metrics
+     */
+    public int getClientMetricsTopN() {
+        return getProperty(PROPERTY_CLIENT_METRICS_TOP_N) != null ?
+                validateIntProperty(PROPERTY_CLIENT_METRICS_TOP_N, DEFAULT_CLIENT_METRICS_TOP_N) :
+                DEFAULT_CLIENT_METRICS_TOP_N;
+    }
+
+    /**
+     * @return the time in seconds after which the activity of a client counts only half for the client metrics
+     */
+    public int getClientMetricsHalfLife() {
+        return getProperty(PROPERTY_CLIENT_METRICS_HALF_LIFE) != null ?
+                validateIntProperty(PROPERTY_CLIENT_METRICS_HALF_LIFE, DEFAULT_CLIENT_METRICS_HALF_LIFE) :
+                DEFAULT_CLIENT_METRICS_HALF_LIFE;
+    }
+
+    /**
+     * @return <b>true</b> if the latency of PUBLISH messages from receiving to delivering is measured, else
+     *         <b>false</b>.
+     */
+    public boolean isLatencyMetrics() {
+        return Boolean.parseBoolean(getProperty(PROPERTY_LATENCY_METRICS));
+    }
+
+    /**
+     * @return the topic prefixes the latencies are additionally reported for
+     */
+    public @NotNull List<String> getLatencyMetricsTopicPrefixes() {
+        return splitList(Objects.requireNonNullElse(getProperty(PROPERTY_LATENCY_METRICS_TOPIC_PREFIXES), ""));
+    }
+
+    /**
+     * @return <b>true</b> if the metrics of the JVM of the broker are reported, else <b>false</b>.
+     */
+    public boolean isJvmMetrics() {
+        return Boolean.parseBoolean(getProperty(PROPERTY_JVM_METRICS));
+    }
+
+    /**
+     * @return the interval in seconds in which the thread states and deadlocked threads are sampled for the JVM metrics
+     */
+    public int getJvmMetricsThreadInterval() {
+        return getProperty(PROPERTY_JVM_METRICS_THREAD_INTERVAL) != null ?
+                validateIntProperty(PROPERTY_JVM_METRICS_THREAD_INTERVAL, DEFAULT_JVM_METRICS_THREAD_INTERVAL) :
+                DEFAULT_JVM_METRICS_THREAD_INTERVAL;
+    }
+
+    /**
+     * @return <b>true</b> if the Flight Recorder events of the broker are reported, else <b>false</b>.
+     */
+    public boolean isJfrMetrics() {
+        return Boolean.parseBoolean(getProperty(PROPERTY_JFR_METRICS));
+    }
+
+    /**
+     * @return the minimum duration in milliseconds of the recorded monitor contention, thread park and socket events
+     */
+    public int getJfrMetricsThreshold() {
+        return getProperty(PROPERTY_JFR_METRICS_THRESHOLD) != null ?
+                validateIntProperty(PROPERTY_JFR_METRICS_THRESHOLD, DEFAULT_JFR_METRICS_THRESHOLD) :
+                DEFAULT_JFR_METRICS_THRESHOLD;
+    }
+
+    /**
+     * @return <b>true</b> if the metrics of the Linux host are reported, else <b>false</b>.
+     */
+    public boolean isHostMetrics() {
+        return Boolean.parseBoolean(getProperty(PROPERTY_HOST_METRICS));
+    }
+
+    /**
+     * Get the resolutions the reports are downsampled to, configured as a comma separated list of
+     * {@code <interval>:<target>} entries, e.g. {@code 60:hivemq_1m,3600:hivemq_1h}.
+     *
+     * @return the database or bucket for the aggregates by the interval of the resolution in seconds
+     */
+    public @NotNull Map<Integer, String> getDownsampling() {
+        final var downsampling = new LinkedHashMap<Integer, String>();
+        final var value = getProperty(PROPERTY_DOWNSAMPLING);
+        if (value == null) {
+            return downsampling;
+        }
+        for (final var resolution : splitList(value)) {
+            final var separator = resolution.indexOf(':');
+            final var target = separator > 0 ? resolution.substring(separator + 1).trim() : "";
+            int interval;
+            try {
+                interval = separator > 0 ? Integer.parseInt(resolution.substring(0, separator).trim()) : 0;
+            } catch (final NumberFormatException e) {
+                interval = 0;
+            }
+            if (interval <= 0 || target.isEmpty()) {
+                LOG.warn("Invalid downsampling resolution '{}' for InfluxDB, expected <interval>:<target>", resolution);
+                continue;
+            }
+            downsampling.put(interval, target);
+        }
+        return downsampling;
+    }
+
+    /**
+     * @return the aggregates that are written for the numeric fields of the downsampled reports
+     */
+    public @NotNull Set<String> getDownsamplingAggregates() {
+        final var aggregates = getProperty(PROPERTY_DOWNSAMPLING_AGGREGATES);
+        return new LinkedHashSet<>(splitList(aggregates != null ? aggregates : DEFAULT_DOWNSAMPLING_AGGREGATES));
+    }
+
+    /**
+     * Get the Graphite style templates for the metric names, configured as a semicolon separated list of
+     * {@code [filter] template [tag=value,...]} entries, e.g.
+     * {@code com.hivemq.messages.* ..measurement.direction.type.field}.
+     *
+     * @return the templates in the configured order
+     */
+    public @NotNull List<String> getTemplates() {
+        final var templates = getProperty(PROPERTY_TEMPLATES);
+        if (templates == null) {
+            return List.of();
+        }
+        return Arrays.stream(StringUtils.split(templates, ";"))
+                .map(String::trim)
+                .filter(template -> !template.isEmpty())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Get the fields that are written for the histograms, meters and timers, configured as a semicolon separated list
+     * of {@code <filter>:<field>,...} entries, e.g. {@code com.hivemq.messages.*:count,p99}.
+     *
+     * @return the fields by the filter of the metric names, in the configured order
+     */
+    public @NotNull Map<String, List<String>> getMetricFields() {
+        final var metricFields = new LinkedHashMap<String, List<String>>();
+        final var value = getProperty(PROPERTY_METRIC_FIELDS);
+        if (value == null) {
+            return metricFields;
+        }
+        for (final var projection : StringUtils.split(value, ";")) {
+            final var separator = projection.indexOf(':');
+            final var filter = separator >= 0 ? projection.substring(0, separator).trim() : "";
+            final var fields = separator >= 0 ? splitList(projection.substring(separator + 1)) : List.<String>of();
+            if (filter.isEmpty() || fields.isEmpty()) {
+                LOG.warn("Invalid metric fields '{}' for InfluxDB, expected <filter>:<field>,...", projection.trim());
+                continue;
+            }
+            metricFields.put(filter, fields);
+        }
+        return metricFields;
+    }
+
+    /**
+     * @return the filters of the counters that are written with their delta and rate since the previous report
+     */
+    public @NotNull List<String> getCounterDeltas() {
+        return splitList(Objects.requireNonNullElse(getProperty(PROPERTY_COUNTER_DELTAS), ""));
+    }
+
+    /**
+     * @return the filters of the gauges whose values are only written when they change beyond the deadband
+     */
+    public @NotNull List<String> getGaugeDeadband() {
+        return splitList(Objects.requireNonNullElse(getProperty(PROPERTY_GAUGE_DEADBAND), ""));
+    }
+
+    /**
+     * @return the absolute change of a gauge value up to which the value is not written
+     */
+    public double getGaugeDeadbandAbsolute() {
+        return validateDoubleProperty(PROPERTY_GAUGE_DEADBAND_ABSOLUTE);
+    }
+
+    /**
+     * @return the change of a gauge value relative to the last written value up to which the value is not written
+     */
+    public double getGaugeDeadbandRelative() {
+        return validateDoubleProperty(PROPERTY_GAUGE_DEADBAND_RELATIVE);
+    }
+
+    /**
+     * @return the number of reports after which the value of a gauge with a deadband is written even if it did not
+     *         change
+     */
+    public int getGaugeKeyframeInterval() {
+        return getProperty(PROPERTY_GAUGE_KEYFRAME_INTERVAL) != null ?
+                validateIntProperty(PROPERTY_GAUGE_KEYFRAME_INTERVAL, DEFAULT_GAUGE_KEYFRAME_INTERVAL) :
+                DEFAULT_GAUGE_KEYFRAME_INTERVAL;
+    }
+
+    /**
+     * @return the filters of the measurements that are written first and never shed while InfluxDB is degraded
+     */
+    public @NotNull List<String> getPriorityCritical() {
+        return splitList(Objects.requireNonNullElse(getProperty(PROPERTY_PRIORITY_CRITICAL), ""));
+    }
+
+    /**
+     * @return the filters of the measurements that are written last and shed first while InfluxDB is degraded
+     */
+    public @NotNull List<String> getPriorityBulk() {
+        return splitList(Objects.requireNonNullElse(getProperty(PROPERTY_PRIORITY_BULK), ""));
+    }
+
+    /**
+     * @return the budget in bytes for the heap memory of the points in the current report and in buffers
+     */
+    public int getMemoryBudget() {
+        return getProperty(PROPERTY_MEMORY_BUDGET) != null ?
+                validateIntProperty(PROPERTY_MEMORY_BUDGET, DEFAULT_MEMORY_BUDGET) :
+                DEFAULT_MEMORY_BUDGET;
+    }
+
+    /**
+     * @return what happens with the points that exceed the memory budget, either 'drop', 'spool' or 'degrade'
+     */
+    public @NotNull String getMemoryBudgetPolicy() {
+        return Objects.requireNonNullElse(getProperty(PROPERTY_MEMORY_BUDGET_POLICY), DEFAULT_MEMORY_BUDGET_POLICY);
+    }
+
+    /**
+     * @return the time budget in milliseconds of a gauge in a report, or <b>null</b> if the gauges are evaluated
+     *         without a budget
+     */
+    public @Nullable Integer getGaugeTimeBudget() {
+        return getProperty(PROPERTY_GAUGE_TIME_BUDGET) != null ?
+                validateIntProperty(PROPERTY_GAUGE_TIME_BUDGET, DEFAULT_GAUGE_TIME_BUDGET) :
+                null;
+    }
+
+    /**
+     * @return the time in seconds after which the cached value of a gauge that exceeds its time budget is evaluated
+     *         again
+     */
+    public int getGaugeCacheTtl() {
+        return getProperty(PROPERTY_GAUGE_CACHE_TTL) != null ?
+                validateIntProperty(PROPERTY_GAUGE_CACHE_TTL, DEFAULT_GAUGE_CACHE_TTL) :
+                DEFAULT_GAUGE_CACHE_TTL;
+    }
+
     public int getConnectTimeout() {
         return validateIntProperty(PROPERTY_CONNECT_TIMEOUT, DEFAULT_CONNECT_TIMEOUT);
     }
@@ -193,6 +776,17 @@ public class InfluxDbConfiguration extends PropertiesReader {
         return getProperty(PROPERTY_ORGANIZATION);
     }
 
+    /**
+     * Get the maximum payload size of a datagram in the modes 'udp' and 'unixgram'.
+     * <p>
+     * The default stays below an Ethernet MTU of 1500 bytes, larger values should only be used with jumbo frames.
+     *
+     * @return the maximum number of line protocol bytes per datagram
+     */
+    public int getUdpPayloadSize() {
+        return validateIntProperty(PROPERTY_UDP_PAYLOAD_SIZE, DEFAULT_UDP_PAYLOAD_SIZE);
+    }
+
     /**
      * Get the configured InfluxDB version.
      *
@@ -214,6 +808,13 @@ public class InfluxDbConfiguration extends PropertiesReader {
         }
     }
 
+    private static @NotNull List<String> splitList(final @NotNull String value) {
+        return Arrays.stream(StringUtils.split(value, ","))
+                .map(String::trim)
+                .filter(element -> !element.isEmpty())
+                .collect(Collectors.toList());
+    }
+
     /**
      * Fetch property with given <b>key</b>. If the fetched {@link String} is <b>null</b> the <b>defaultValue</b> will
      * be returned.
@@ -235,6 +836,31 @@ public class InfluxDbConfiguration extends PropertiesReader {
         return value;
     }
 
+    /**
+     * Fetch an optional non-negative decimal property with given <b>key</b>, zero if it is not set or invalid.
+     *
+     * @param  key Key of the property.
+     * @return     the actual value of the property if it is valid, else zero.
+     */
+    private double validateDoubleProperty(final @NotNull String key) {
+        final var value = getProperty(key);
+        if (value == null) {
+            return 0;
+        }
+        final double valueAsDouble;
+        try {
+            valueAsDouble = Double.parseDouble(value);
+        } catch (final NumberFormatException e) {
+            LOG.warn("Value {} for InfluxDB property '{}' is not a number, using default 0", value, key);
+            return 0;
+        }
+        if (!Double.isFinite(valueAsDouble) || valueAsDouble < 0) {
+            LOG.warn("Value for InfluxDB property '{}' can't be negative, using default 0", key);
+            return 0;
+        }
+        return valueAsDouble;
+    }
+
     /**
      * Fetch property with given <b>key</b>. If the fetched {@link String} value is not <b>null</b> convert the value to
      * an int and check validation constraints if given flags are <b>false</b> before returning the value.
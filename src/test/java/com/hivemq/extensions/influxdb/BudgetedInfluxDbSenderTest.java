@@ -0,0 +1,137 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb;
+
+import com.izettle.metrics.influxdb.data.InfluxDbPoint;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BudgetedInfluxDbSenderTest {
+
+    private static final @NotNull InfluxDbPoint TIMER = new InfluxDbPoint("timer",
+            Map.of("node", "a"),
+            1000,
+            Map.of("count", 5L, "p99", 2.5, "mean", 1.0));
+
+    @TempDir
+    private @NotNull Path tempDir;
+
+    private final @NotNull RecordingInfluxDbSender delegate = new RecordingInfluxDbSender();
+
+    @Test
+    void test_points_over_budget_are_dropped() throws Exception {
+        final var budget = new MemoryBudget(MemoryBudget.estimate(TIMER));
+        try (final var sender = createSender(budget, MemoryBudget.Policy.DROP)) {
+            sender.appendPoints(TIMER);
+            sender.appendPoints(TIMER);
+            assertThat(delegate.points).hasSize(1);
+            assertThat(budget.getUsed()).isEqualTo(budget.getLimit());
+
+            // the memory of a report is released for the next report
+            sender.flush();
+            assertThat(budget.getUsed()).isZero();
+            sender.appendPoints(TIMER);
+            assertThat(delegate.points).hasSize(1);
+        }
+    }
+
+    @Test
+    void test_points_over_budget_are_spooled() throws Exception {
+        final var budget = new MemoryBudget(MemoryBudget.estimate(TIMER));
+        try (final var sender = createSender(budget, MemoryBudget.Policy.SPOOL)) {
+            sender.appendPoints(TIMER);
+            sender.appendPoints(TIMER);
+            assertThat(delegate.points).hasSize(1);
+        }
+
+        try (final var files = Files.list(tempDir)) {
+            final var spooled = files.collect(Collectors.toList());
+            assertThat(spooled).hasSize(1);
+            assertThat(Files.readString(spooled.get(0))).startsWith("timer,node=a ").contains("p99=2.5");
+        }
+    }
+
+    @Test
+    void test_points_over_budget_are_degraded() throws Exception {
+        final var degraded = BudgetedInfluxDbSender.degrade(TIMER);
+        assertThat(degraded.getFields()).containsOnly(Map.entry("count", 5L));
+        final var budget = new MemoryBudget(MemoryBudget.estimate(TIMER) + MemoryBudget.estimate(degraded));
+        try (final var sender = createSender(budget, MemoryBudget.Policy.DEGRADE)) {
+            sender.appendPoints(TIMER);
+            sender.appendPoints(TIMER);
+            sender.appendPoints(TIMER);
+            assertThat(delegate.points).hasSize(2);
+            assertThat(delegate.points.get(1).getFields()).containsOnly(Map.entry("count", 5L));
+        }
+    }
+
+    @Test
+    void test_report_larger_than_the_budget_does_not_exceed_the_budget() throws Exception {
+        final var budget = new MemoryBudget(4 * MemoryBudget.estimate(TIMER));
+        final var created = new CountDownLatch(1);
+        final var target = new LazyInfluxDbSender(() -> {
+            created.await();
+            return delegate;
+        }, budget);
+        final var aggregates = new RecordingInfluxDbSender();
+        final var downsampling = new DownsamplingInfluxDbSender(target,
+                List.of(new DownsamplingInfluxDbSender.Resolution(60_000,
+                        aggregates,
+                        Set.of(DownsamplingInfluxDbSender.MEAN, DownsamplingInfluxDbSender.MAX),
+                        budget)));
+        target.start();
+        try (final var sender = new BudgetedInfluxDbSender(downsampling,
+                budget,
+                MemoryBudget.Policy.DROP,
+                tempDir,
+                "")) {
+            for (var report = 0; report < 5; report++) {
+                sender.flush();
+                for (var i = 0; i < 10; i++) {
+                    sender.appendPoints(new InfluxDbPoint("timer" + i,
+                            TIMER.getTags(),
+                            report * 60_000L,
+                            TIMER.getFields()));
+                    assertThat(budget.getUsed()).isLessThanOrEqualTo(budget.getLimit());
+                }
+                sender.writeData();
+                assertThat(budget.getUsed()).isLessThanOrEqualTo(budget.getLimit());
+            }
+            // the buffered reports leave half of the budget to the report and the aggregates
+            assertThat(budget.getUsed()).isLessThanOrEqualTo(budget.getLimit() / 2 + MemoryBudget.estimate(TIMER));
+        } finally {
+            created.countDown();
+        }
+    }
+
+    private @NotNull BudgetedInfluxDbSender createSender(
+            final @NotNull MemoryBudget budget,
+            final @NotNull MemoryBudget.Policy policy) {
+        return new BudgetedInfluxDbSender(delegate, budget, policy, tempDir, "");
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb;
+
+import com.izettle.metrics.influxdb.data.InfluxDbPoint;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CollectingInfluxDbSenderTest {
+
+    private final @NotNull RecordingInfluxDbSender delegate = new RecordingInfluxDbSender();
+
+    @Test
+    void test_write_data_adds_collected_points() throws Exception {
+        final var sender = new CollectingInfluxDbSender(delegate,
+                List.of((timestamp, points) -> points.accept(point("collected", timestamp))));
+        sender.appendPoints(point("reported", 1000));
+
+        assertThat(sender.hasSeriesData()).isTrue();
+        sender.writeData();
+
+        assertThat(delegate.writes).hasSize(1);
+        assertThat(delegate.writes.get(0)).extracting(InfluxDbPoint::getMeasurement)
+                .containsExactly("reported", "collected");
+    }
+
+    @Test
+    void test_failing_collector_does_not_prevent_write() throws Exception {
+        final var sender = new CollectingInfluxDbSender(delegate, List.of((timestamp, points) -> {
+            throw new IllegalStateException("broken collector");
+        }, (timestamp, points) -> points.accept(point("collected", timestamp))));
+
+        sender.writeData();
+
+        assertThat(delegate.writes).hasSize(1);
+        assertThat(delegate.writes.get(0)).extracting(InfluxDbPoint::getMeasurement).containsExactly("collected");
+    }
+
+    private static @NotNull InfluxDbPoint point(final @NotNull String measurement, final long timestamp) {
+        return new InfluxDbPoint(measurement, Map.of(), timestamp, Map.of("value", 1));
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb;
+
+import com.izettle.metrics.influxdb.data.InfluxDbPoint;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DelayedInfluxDbSenderTest {
+
+    private final @NotNull RecordingInfluxDbSender delegate = new RecordingInfluxDbSender();
+
+    @Test
+    void test_node_delay_is_deterministic() {
+        final var delay = DelayedInfluxDbSender.nodeDelay("{host=hivemq1}", 1000);
+
+        assertThat(DelayedInfluxDbSender.nodeDelay("{host=hivemq1}", 1000)).isEqualTo(delay);
+    }
+
+    @Test
+    void test_node_delay_is_spread_across_range() {
+        final var delays = new HashSet<Long>();
+        for (var node = 0; node < 100; node++) {
+            final var delay = DelayedInfluxDbSender.nodeDelay("{host=hivemq" + node + "}", 1000);
+            assertThat(delay).isBetween(0L, 1000L);
+            delays.add(delay / 100);
+        }
+        // the delays of 100 nodes cover all tenths of the range
+        assertThat(delays).hasSize(10);
+    }
+
+    @Test
+    void test_write_does_not_block_the_reporter() throws Exception {
+        try (final var sender = new DelayedInfluxDbSender(delegate, 200)) {
+            final var start = System.nanoTime();
+            report(sender, "a");
+            assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(100);
+            // the next report does not affect the delayed report
+            sender.flush();
+            sender.appendPoints(point("b"));
+            assertThat(delegate.writes).isEmpty();
+
+            Thread.sleep(400);
+            assertThat(delegate.writes).hasSize(1);
+            assertThat(delegate.writes.get(0)).extracting(InfluxDbPoint::getMeasurement).containsExactly("a");
+        }
+    }
+
+    @Test
+    void test_delayed_report_is_reserved_until_it_is_written() throws Exception {
+        final var budget = new MemoryBudget(Long.MAX_VALUE);
+        try (final var sender = new DelayedInfluxDbSender(delegate, 200, budget)) {
+            report(sender, "a");
+            sender.flush();
+            assertThat(budget.getUsed()).isEqualTo(MemoryBudget.estimate(point("a")));
+
+            Thread.sleep(400);
+            assertThat(delegate.writes).hasSize(1);
+            assertThat(budget.getUsed()).isZero();
+        }
+    }
+
+    @Test
+    void test_stop_discards_the_delayed_reports() throws Exception {
+        try (final var sender = new DelayedInfluxDbSender(delegate, 200)) {
+            report(sender, "a");
+            sender.stop();
+
+            Thread.sleep(400);
+            assertThat(delegate.writes).isEmpty();
+            assertThrows(IOException.class, () -> report(sender, "b"));
+        }
+    }
+
+    private static void report(final @NotNull DelayedInfluxDbSender sender, final @NotNull String measurement)
+            throws Exception {
+        sender.flush();
+        sender.appendPoints(point(measurement));
+        sender.writeData();
+    }
+
+    private static @NotNull InfluxDbPoint point(final @NotNull String measurement) {
+        return new InfluxDbPoint(measurement, 1000, Map.of("value", 1));
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb;
+
+import com.izettle.metrics.influxdb.data.InfluxDbPoint;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DownsamplingInfluxDbSenderTest {
+
+    private final @NotNull RecordingInfluxDbSender delegate = new RecordingInfluxDbSender();
+    private final @NotNull RecordingInfluxDbSender target = new RecordingInfluxDbSender();
+    private final @NotNull DownsamplingInfluxDbSender sender = new DownsamplingInfluxDbSender(delegate,
+            List.of(new DownsamplingInfluxDbSender.Resolution(60_000,
+                    target,
+                    Set.of(DownsamplingInfluxDbSender.MEAN,
+                            DownsamplingInfluxDbSender.MIN,
+                            DownsamplingInfluxDbSender.MAX,
+                            DownsamplingInfluxDbSender.LAST,
+                            DownsamplingInfluxDbSender.SUM))));
+
+    @Test
+    void test_aggregates_are_written_when_the_window_is_completed() throws Exception {
+        report(60_000, 4);
+        report(90_000, 2);
+        assertThat(delegate.writes).hasSize(2);
+        assertThat(target.writes).isEmpty();
+
+        report(120_000, 10);
+
+        assertThat(delegate.writes).hasSize(3);
+        assertThat(target.writes).hasSize(1);
+        final var aggregated = target.writes.get(0);
+        assertThat(aggregated).hasSize(1);
+        assertThat(aggregated.get(0).getMeasurement()).isEqualTo("heap");
+        assertThat(aggregated.get(0).getTags()).containsEntry("area", "old");
+        assertThat(aggregated.get(0).getTime()).isEqualTo(60_000);
+        assertThat(aggregated.get(0).getFields()).containsEntry("value_mean", 3.0)
+                .containsEntry("value_min", 2.0)
+                .containsEntry("value_max", 4.0)
+                .containsEntry("value_last", 2L)
+                .containsEntry("value_sum", 6.0)
+                .containsEntry("unit", "bytes");
+    }
+
+    @Test
+    void test_failed_aggregates_are_retried() throws Exception {
+        report(60_000, 4);
+        target.fail = true;
+        report(120_000, 2);
+        assertThat(target.writes).isEmpty();
+
+        target.fail = false;
+        report(130_000, 2);
+
+        assertThat(target.writes).hasSize(1);
+        assertThat(target.writes.get(0).get(0).getFields()).containsEntry("value_max", 4.0);
+    }
+
+    @Test
+    void test_tags_are_set_for_targets() {
+        sender.setTags(Map.of("host", "hivemq1"));
+
+        assertThat(delegate.tags).containsEntry("host", "hivemq1");
+        assertThat(target.tags).containsEntry("host", "hivemq1");
+    }
+
+    private void report(final long timestamp, final long value) throws Exception {
+        delegate.flush();
+        sender.appendPoints(new InfluxDbPoint("heap",
+                Map.of("area", "old"),
+                timestamp,
+                Map.of("value", value, "unit", "bytes")));
+        sender.writeData();
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EndpointResolverTest {
+
+    private final @NotNull InetAddress address1 = address(1);
+    private final @NotNull InetAddress address2 = address(2);
+    private final @NotNull InetAddress address3 = address(3);
+
+    private InetAddress @NotNull [] resolved = {address1, address2};
+
+    @Test
+    void test_current_is_cached() throws Exception {
+        final var lookups = new AtomicInteger();
+        final var resolver = new EndpointResolver("influxdb", 30_000, host -> {
+            lookups.incrementAndGet();
+            return resolved;
+        });
+
+        assertThat(resolver.current()).isEqualTo(address1);
+        assertThat(resolver.current()).isEqualTo(address1);
+        assertThat(lookups.get()).isEqualTo(1);
+    }
+
+    @Test
+    void test_failed_switches_to_next_address() throws Exception {
+        final var resolver = new EndpointResolver("influxdb", 30_000, host -> resolved);
+        resolver.current();
+
+        resolver.failed(address1);
+        assertThat(resolver.current()).isEqualTo(address2);
+
+        // a late failure of the previous address does not switch again
+        resolver.failed(address1);
+        assertThat(resolver.current()).isEqualTo(address2);
+
+        resolver.failed(address2);
+        assertThat(resolver.current()).isEqualTo(address1);
+    }
+
+    @Test
+    void test_refresh_keeps_current_address() throws Exception {
+        final var resolver = new EndpointResolver("influxdb", 30_000, host -> resolved);
+        resolver.current();
+        resolver.failed(address1);
+
+        resolved = new InetAddress[]{address2, address1};
+        assertThat(resolver.refresh()).isEqualTo(address2);
+
+        resolved = new InetAddress[]{address3, address2};
+        assertThat(resolver.refresh()).isEqualTo(address2);
+
+        resolved = new InetAddress[]{address3};
+        assertThat(resolver.refresh()).isEqualTo(address3);
+        assertThat(resolver.current()).isEqualTo(address3);
+    }
+
+    @Test
+    void test_refresh_failure_keeps_addresses() throws Exception {
+        final var fail = new boolean[]{true};
+        final var resolver = new EndpointResolver("influxdb", 30_000, host -> {
+            if (fail[0]) {
+                throw new UnknownHostException(host);
+            }
+            return resolved;
+        });
+        assertThatThrownBy(resolver::current).isInstanceOf(UnknownHostException.class);
+
+        fail[0] = false;
+        assertThat(resolver.current()).isEqualTo(address1);
+
+        fail[0] = true;
+        assertThatThrownBy(resolver::refresh).isInstanceOf(UnknownHostException.class);
+        assertThat(resolver.current()).isEqualTo(address1);
+    }
+
+    private static @NotNull InetAddress address(final int lastByte) {
+        try {
+            return InetAddress.getByAddress("influxdb", new byte[]{10, 0, 0, (byte) lastByte});
+        } catch (final UnknownHostException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GaugeDeadbandTest {
+
+    @Test
+    void test_only_changed_values_are_written_without_deadband() {
+        final var deadband = new GaugeDeadband(List.of("com.hivemq"), 0, 0, 60);
+
+        assertThat(deadband.suppress("com.hivemq.cluster.nodes", 3)).isFalse();
+        assertThat(deadband.suppress("com.hivemq.cluster.nodes", 3)).isTrue();
+        assertThat(deadband.suppress("com.hivemq.cluster.nodes", 4)).isFalse();
+        assertThat(deadband.suppress("com.hivemq.cluster.nodes", Double.NaN)).isFalse();
+        assertThat(deadband.suppress("com.hivemq.cluster.nodes", Double.NaN)).isTrue();
+        assertThat(deadband.suppress("org.example.nodes", 3)).isFalse();
+        assertThat(deadband.suppress("org.example.nodes", 3)).isFalse();
+    }
+
+    @Test
+    void test_changes_within_the_deadbands_are_suppressed() {
+        final var deadband = new GaugeDeadband(List.of("com.hivemq"), 1, 0.1, 60);
+
+        assertThat(deadband.suppress("com.hivemq.heap", 100)).isFalse();
+        // within the relative deadband of 10
+        assertThat(deadband.suppress("com.hivemq.heap", 109)).isTrue();
+        assertThat(deadband.suppress("com.hivemq.heap", 111)).isFalse();
+        assertThat(deadband.suppress("com.hivemq.ratio", 0.5)).isFalse();
+        // within the absolute deadband of 1
+        assertThat(deadband.suppress("com.hivemq.ratio", 1.5)).isTrue();
+        assertThat(deadband.suppress("com.hivemq.ratio", 1.6)).isFalse();
+    }
+
+    @Test
+    void test_keyframes_are_written_every_interval() {
+        final var deadband = new GaugeDeadband(List.of("com.hivemq"), 0, 0, 3);
+
+        assertThat(deadband.suppress("com.hivemq.limit", 10)).isFalse();
+        assertThat(deadband.suppress("com.hivemq.limit", 10)).isTrue();
+        assertThat(deadband.suppress("com.hivemq.limit", 10)).isTrue();
+        assertThat(deadband.suppress("com.hivemq.limit", 10)).isFalse();
+        assertThat(deadband.suppress("com.hivemq.limit", 10)).isTrue();
+    }
+
+    @Test
+    void test_removed_gauges_are_written_again_when_they_return() {
+        final var deadband = new GaugeDeadband(List.of("com.hivemq"), 0, 0, 60);
+
+        assertThat(deadband.suppress("com.hivemq.client.a.queue", 3)).isFalse();
+        assertThat(deadband.suppress("com.hivemq.client.b.queue", 3)).isFalse();
+        deadband.prune(Set.of("com.hivemq.client.b.queue"));
+
+        // the new gauge reuses the slot of the removed gauge without its last value
+        assertThat(deadband.suppress("com.hivemq.client.c.queue", 3)).isFalse();
+        assertThat(deadband.suppress("com.hivemq.client.a.queue", 3)).isFalse();
+        assertThat(deadband.suppress("com.hivemq.client.b.queue", 3)).isTrue();
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb;
+
+import com.codahale.metrics.Gauge;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GaugeEvaluatorTest {
+
+    private final @NotNull GaugeEvaluator evaluator = new GaugeEvaluator(100, 60_000, TimeUnit.MILLISECONDS);
+
+    @AfterEach
+    void tearDown() {
+        evaluator.close();
+    }
+
+    @Test
+    void test_fast_gauges_are_evaluated_with_the_report() {
+        final var calls = new AtomicInteger();
+        final Gauge<Integer> gauge = calls::incrementAndGet;
+
+        assertThat(evaluate("fast", gauge, 1000).value).isEqualTo(1);
+        final var evaluation = evaluate("fast", gauge, 2000);
+        assertThat(evaluation.value).isEqualTo(2);
+        assertThat(evaluation.evaluated).isEqualTo(2000);
+        assertThat(evaluation.cached).isFalse();
+    }
+
+    @Test
+    void test_slow_gauges_are_cached() throws Exception {
+        final var calls = new AtomicInteger();
+        final Gauge<Integer> gauge = () -> {
+            try {
+                Thread.sleep(500);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return calls.incrementAndGet();
+        };
+
+        // the first evaluation exceeds the budget, so the report does not wait for it
+        final var start = System.nanoTime();
+        final var first = evaluate("slow", gauge, 1000);
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(500);
+        assertThat(first.value).isNull();
+        assertThat(first.cached).isTrue();
+
+        Thread.sleep(600);
+        final var second = evaluate("slow", gauge, 2000);
+        assertThat(second.value).isEqualTo(1);
+        assertThat(second.evaluated).isEqualTo(1000);
+        assertThat(second.cached).isTrue();
+        final var third = evaluate("slow", gauge, 3000);
+        assertThat(third.value).isEqualTo(1);
+        assertThat(calls).hasValue(1);
+
+        // the cached value is evaluated again after the time to live
+        evaluate("slow", gauge, 61_000);
+        Thread.sleep(600);
+        assertThat(evaluate("slow", gauge, 62_000).value).isEqualTo(2);
+        assertThat(calls).hasValue(2);
+    }
+
+    @Test
+    void test_gauge_blocking_on_its_first_evaluation_does_not_block_the_report() throws Exception {
+        final var release = new CountDownLatch(1);
+        final var calls = new AtomicInteger();
+        final Gauge<Integer> blocking = () -> {
+            if (calls.incrementAndGet() == 1) {
+                try {
+                    release.await();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return calls.get();
+        };
+        final Gauge<Integer> fast = () -> 42;
+
+        final var gauges = gauges("blocking", blocking, "fast", fast);
+
+        final var start = System.nanoTime();
+        final var evaluations = evaluator.evaluate(gauges, 1000);
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(1000);
+        assertThat(evaluations.get("blocking").value).isNull();
+        assertThat(evaluations.get("fast").value).isEqualTo(42);
+        assertThat(evaluations.get("fast").cached).isFalse();
+
+        // the blocked evaluation is not repeated while it is pending
+        assertThat(evaluator.evaluate(gauges, 2000).get("blocking").value).isNull();
+        assertThat(calls).hasValue(1);
+
+        release.countDown();
+        Thread.sleep(300);
+        final var released = evaluator.evaluate(gauges, 3000).get("blocking");
+        assertThat(released.value).isEqualTo(1);
+        assertThat(released.cached).isTrue();
+        assertThat(released.evaluated).isEqualTo(1000);
+    }
+
+    @Test
+    void test_failing_gauges_have_no_value() {
+        final Gauge<Integer> gauge = () -> {
+            throw new IllegalStateException("not available");
+        };
+
+        assertThat(evaluate("failing", gauge, 1000).value).isNull();
+    }
+
+    @Test
+    void test_report_waits_once_for_all_gauges() {
+        final Gauge<Integer> slow = () -> {
+            try {
+                Thread.sleep(2000);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return 1;
+        };
+        final var gauges = gauges("slow-1", slow, "slow-2", slow, "slow-3", slow);
+
+        final var start = System.nanoTime();
+        final var evaluations = evaluator.evaluate(gauges, 1000);
+
+        // the budget applies to the whole report, not to every gauge
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(1000);
+        assertThat(evaluations).hasSize(3);
+        evaluations.values().forEach(evaluation -> assertThat(evaluation.value).isNull());
+    }
+
+    @Test
+    @SuppressWarnings("rawtypes")
+    void test_blocking_gauges_do_not_stall_other_gauges() throws Exception {
+        final var release = new CountDownLatch(1);
+        final Gauge<Integer> blocking = () -> {
+            // ignores the interrupt of the cancellation
+            while (release.getCount() > 0) {
+                try {
+                    release.await();
+                } catch (final InterruptedException ignored) {
+                }
+            }
+            return 1;
+        };
+        final Gauge<Integer> fast = () -> 42;
+        final var gauges = new TreeMap<String, Gauge>();
+        for (var i = 0; i < 6; i++) {
+            gauges.put("blocking-" + i, blocking);
+        }
+        gauges.put("fast", fast);
+
+        try (final var stuckEvaluator = new GaugeEvaluator(200, 10_000, TimeUnit.MILLISECONDS)) {
+            // all threads block, the fast gauge is queued behind the blocking gauges
+            final var first = stuckEvaluator.evaluate(gauges, 1000);
+            assertThat(first.get("fast").value).isNull();
+            assertThat(stuckEvaluator.evaluate(gauges, 2000).get("fast").value).isNull();
+
+            // the stuck evaluations are cancelled and replaced after the time to live
+            final var replaced = stuckEvaluator.evaluate(gauges, 11_000);
+            assertThat(replaced.get("fast").value).isEqualTo(42);
+            assertThat(replaced.get("blocking-0").value).isNull();
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void test_evaluations_of_removed_gauges_are_removed() {
+        final Gauge<Integer> gauge = () -> 1;
+
+        assertThat(evaluator.evaluate(gauges("first", gauge, "second", gauge), 1000)).containsOnlyKeys("first",
+                "second");
+        assertThat(evaluator.evaluate(gauges("second", gauge), 2000)).containsOnlyKeys("second");
+    }
+
+    private @NotNull GaugeEvaluator.Evaluation evaluate(
+            final @NotNull String name,
+            final @NotNull Gauge<?> gauge,
+            final long now) {
+        return evaluator.evaluate(gauges(name, gauge), now).get(name);
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static @NotNull Map<String, Gauge> gauges(final @NotNull Object... namesAndGauges) {
+        final var gauges = new TreeMap<String, Gauge>();
+        for (var i = 0; i < namesAndGauges.length; i += 2) {
+            gauges.put((String) namesAndGauges[i], (Gauge) namesAndGauges[i + 1]);
+        }
+        return gauges;
+    }
+}
@@ -16,9 +16,11 @@
 
 package com.hivemq.extensions.influxdb;
 
+import com.codahale.metrics.MetricRegistry;
 import com.hivemq.extension.sdk.api.parameter.ExtensionInformation;
 import com.hivemq.extension.sdk.api.parameter.ExtensionStartInput;
 import com.hivemq.extension.sdk.api.parameter.ExtensionStartOutput;
+import com.hivemq.extensions.influxdb.configuration.InfluxDbConfiguration;
 import org.jetbrains.annotations.NotNull;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -28,7 +30,13 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
@@ -76,4 +84,69 @@ class InfluxDbExtensionMainTest {
         main.extensionStart(extensionStartInput, extensionStartOutput);
         verify(extensionStartOutput).preventExtensionStartup(anyString());
     }
+
+    @Test
+    void extensionStart_whenModeNotSupported_thenPreventStartup() throws IOException {
+        Files.write(tempDir.resolve("influxdb.properties"),
+                List.of("host=localhost", "port=8086", "mode=websocket", "version=1"));
+
+        main.extensionStart(extensionStartInput, extensionStartOutput);
+        verify(extensionStartOutput).preventExtensionStartup(anyString());
+    }
+
+    @Test
+    void setupTlsSocketFactory_whenHttps_thenFactory() throws Exception {
+        final var file = tempDir.resolve("config.properties");
+        Files.write(file, List.of("host=localhost", "port=8086", "mode=http", "protocol=https"));
+        final var configuration = new InfluxDbConfiguration(file.toFile());
+        assertThat(configuration.readPropertiesFromFile()).isTrue();
+
+        assertThat(InfluxDbExtensionMain.setupTlsSocketFactory(configuration, tempDir)).isNotNull();
+    }
+
+    @Test
+    void setupTlsSocketFactory_whenHttp_thenNull() throws Exception {
+        final var file = tempDir.resolve("config.properties");
+        Files.write(file, List.of("host=localhost", "port=8086", "mode=http", "protocol=http"));
+        final var configuration = new InfluxDbConfiguration(file.toFile());
+        assertThat(configuration.readPropertiesFromFile()).isTrue();
+
+        assertThat(InfluxDbExtensionMain.setupTlsSocketFactory(configuration, tempDir)).isNull();
+    }
+
+    @Test
+    void stopReporter_whenFinalReportBlocks_thenReturnWithinTimeoutAndReportOnce() throws Exception {
+        final var registry = new MetricRegistry();
+        registry.counter("com.hivemq.messages").inc();
+        final var attempts = new AtomicInteger();
+        final var release = new CountDownLatch(1);
+        final var target = new RecordingInfluxDbSender() {
+            @Override
+            public int writeData() throws Exception {
+                attempts.incrementAndGet();
+                release.await();
+                return 0;
+            }
+        };
+        final var sender = new SpoolingInfluxDbSender(new RecordingInfluxDbSender(), target, tempDir, "");
+        final var reporter = new InfluxDbMetricsReporter(registry,
+                sender,
+                Map.of(),
+                Map.of(),
+                List.of(),
+                new GaugeDeadband(List.of(), 0, 0, 1),
+                null);
+        try {
+            final var start = System.nanoTime();
+            assertThat(InfluxDbExtensionMain.stopReporter(reporter, sender, 200)).isFalse();
+            assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(1000);
+            assertThat(attempts).hasValue(1);
+            // the final report is spooled instead
+            try (final var files = Files.list(tempDir)) {
+                assertThat(files.collect(Collectors.toList())).hasSize(1);
+            }
+        } finally {
+            release.countDown();
+        }
+    }
 }
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InfluxDbFileSenderTest {
+
+    @TempDir
+    private @NotNull Path tempDir;
+
+    @Test
+    void test_write_data() throws Exception {
+        try (final var sender = createSender(1024, false)) {
+            sender.writeData("a value=1\n".getBytes(StandardCharsets.UTF_8));
+            sender.writeData("b value=2\n".getBytes(StandardCharsets.UTF_8));
+            // the active segment is not completed yet
+            assertThat(listFiles()).hasSize(1);
+            assertThat(listFiles().get(0).toString()).endsWith(".lp.part");
+        }
+
+        final var files = listFiles();
+        assertThat(files).hasSize(1);
+        assertThat(files.get(0).getFileName().toString()).startsWith("hivemq-metrics-");
+        assertThat(files.get(0).toString()).endsWith(".lp");
+        assertThat(Files.readString(files.get(0))).isEqualTo("a value=1\nb value=2\n");
+    }
+
+    @Test
+    void test_write_data_rotates_by_size() throws Exception {
+        try (final var sender = createSender(15, false)) {
+            sender.writeData("a value=1\n".getBytes(StandardCharsets.UTF_8));
+            sender.writeData("b value=2\n".getBytes(StandardCharsets.UTF_8));
+            sender.writeData("c value=3\n".getBytes(StandardCharsets.UTF_8));
+        }
+
+        final var files = listFiles();
+        assertThat(files).hasSize(2);
+        assertThat(Files.readString(files.get(0))).isEqualTo("a value=1\nb value=2\n");
+        assertThat(Files.readString(files.get(1))).isEqualTo("c value=3\n");
+    }
+
+    @Test
+    void test_write_data_gzip() throws Exception {
+        try (final var sender = createSender(1024, true)) {
+            sender.writeData("a value=1\n".getBytes(StandardCharsets.UTF_8));
+            sender.writeData("b value=2\n".getBytes(StandardCharsets.UTF_8));
+        }
+
+        final var files = listFiles();
+        assertThat(files).hasSize(1);
+        assertThat(files.get(0).toString()).endsWith(".lp.gz");
+        try (final var in = new GZIPInputStream(Files.newInputStream(files.get(0)))) {
+            assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo("a value=1\nb value=2\n");
+        }
+    }
+
+    @Test
+    void test_abandoned_segment_is_completed() throws Exception {
+        Files.writeString(tempDir.resolve("hivemq-metrics-20240101T000000000Z.lp.part"), "a value=1\n");
+
+        createSender(1024, false).close();
+
+        assertThat(listFiles()).containsExactly(tempDir.resolve("hivemq-metrics-20240101T000000000Z.lp"));
+    }
+
+    private @NotNull InfluxDbFileSender createSender(final long maxSegmentSize, final boolean gzip) throws Exception {
+        return new InfluxDbFileSender(tempDir,
+                maxSegmentSize,
+                1,
+                TimeUnit.HOURS,
+                gzip,
+                TimeUnit.MILLISECONDS,
+                "hivemq",
+                "");
+    }
+
+    private @NotNull List<Path> listFiles() throws Exception {
+        try (final var files = Files.list(tempDir)) {
+            return files.sorted().collect(Collectors.toList());
+        }
+    }
+}
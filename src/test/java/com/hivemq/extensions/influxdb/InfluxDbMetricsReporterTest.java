@@ -0,0 +1,184 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+import com.izettle.metrics.influxdb.data.InfluxDbPoint;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InfluxDbMetricsReporterTest {
+
+    private static final @NotNull GaugeDeadband NO_DEADBAND = new GaugeDeadband(List.of(), 0, 0, 1);
+
+    private final @NotNull MetricRegistry registry = new MetricRegistry();
+    private final @NotNull RecordingInfluxDbSender sender = new RecordingInfluxDbSender();
+
+    @Test
+    void test_all_fields_are_reported_by_default() {
+        registry.register("gauge", (Gauge<Integer>) () -> 3);
+        registry.counter("counter").inc(2);
+        registry.histogram("histogram").update(7);
+        registry.meter("meter").mark();
+        registry.timer("timer").update(5, TimeUnit.MILLISECONDS);
+
+        new InfluxDbMetricsReporter(registry,
+                sender,
+                Map.of("node", "a"),
+                Map.of(),
+                List.of(),
+                NO_DEADBAND,
+                null).report();
+
+        assertThat(sender.tags).containsOnly(Map.entry("node", "a"));
+        assertThat(sender.writes).hasSize(1);
+        assertThat(point("gauge").getFields()).containsOnly(Map.entry("value", 3));
+        assertThat(point("counter").getFields()).containsOnly(Map.entry("count", 2L));
+        assertThat(point("histogram").getFields()).hasSize(11).containsEntry("count", 1L).containsEntry("max", 7L);
+        assertThat(point("meter").getFields()).containsOnlyKeys("count", "m1_rate", "m5_rate", "m15_rate", "mean_rate");
+        assertThat(point("timer").getFields()).containsOnlyKeys(InfluxDbMetricsReporter.FIELDS)
+                .containsEntry("count", 1L)
+                .containsEntry("p99", 5.0);
+    }
+
+    @Test
+    void test_fields_are_projected_by_the_most_specific_filter() {
+        final var snapshots = new AtomicInteger();
+        registry.register("com.hivemq.messages.incoming.time", new Timer() {
+            @Override
+            public @NotNull Snapshot getSnapshot() {
+                snapshots.incrementAndGet();
+                return super.getSnapshot();
+            }
+        }).update(5, TimeUnit.MILLISECONDS);
+        registry.timer("com.hivemq.messages.retained.time").update(5, TimeUnit.MILLISECONDS);
+        registry.meter("com.hivemq.messages.retained.rate").mark();
+        registry.meter("com.hivemq.sessions.rate").mark();
+
+        final var reporter = new InfluxDbMetricsReporter(registry,
+                sender,
+                Map.of(),
+                Map.of("com.hivemq", List.of("count", "unknown"), "com.hivemq.messages.retained", List.of("p99")),
+                List.of(),
+                NO_DEADBAND, null);
+        reporter.report();
+        reporter.report();
+
+        assertThat(point("com.hivemq.messages.incoming.time").getFields()).containsOnly(Map.entry("count", 1L));
+        assertThat(snapshots).hasValue(0);
+        assertThat(point("com.hivemq.messages.retained.time").getFields()).containsOnly(Map.entry("p99", 5.0));
+        // a meter has no percentiles, so the projection leaves no field to report
+        assertThat(sender.points).extracting(InfluxDbPoint::getMeasurement)
+                .doesNotContain("com.hivemq.messages.retained.rate");
+        assertThat(point("com.hivemq.sessions.rate").getFields()).containsOnly(Map.entry("count", 1L));
+    }
+
+    @Test
+    void test_counter_deltas_and_rates() throws Exception {
+        final var counter = registry.counter("com.hivemq.messages.count");
+        registry.counter("com.hivemq.sessions.count").inc(3);
+        final var reporter = new InfluxDbMetricsReporter(registry,
+                sender,
+                Map.of(),
+                Map.of(),
+                List.of("com.hivemq.messages"),
+                NO_DEADBAND, null);
+        counter.inc(10);
+        reporter.report();
+        assertThat(point("com.hivemq.messages.count").getFields()).containsOnly(Map.entry("count", 10L));
+
+        counter.inc(5);
+        Thread.sleep(10);
+        reporter.report();
+        final var fields = point("com.hivemq.messages.count").getFields();
+        assertThat(fields).containsEntry("count", 15L).containsEntry(InfluxDbMetricsReporter.DELTA, 5L);
+        assertThat((double) fields.get(InfluxDbMetricsReporter.RATE)).isPositive();
+        assertThat(point("com.hivemq.sessions.count").getFields()).containsOnly(Map.entry("count", 3L));
+
+        // the counter was reset and counted 4 since then
+        counter.dec(15);
+        counter.inc(4);
+        Thread.sleep(10);
+        reporter.report();
+        assertThat(point("com.hivemq.messages.count").getFields()).containsEntry(InfluxDbMetricsReporter.DELTA, 4L);
+    }
+
+    @Test
+    void test_gauges_within_the_deadband_are_not_written() {
+        final var value = new AtomicInteger(100);
+        registry.register("com.hivemq.limit", (Gauge<Integer>) value::get);
+        registry.register("com.hivemq.text", (Gauge<String>) () -> "text");
+        final var reporter = new InfluxDbMetricsReporter(registry,
+                sender,
+                Map.of(),
+                Map.of(),
+                List.of(),
+                new GaugeDeadband(List.of("com.hivemq"), 5, 0, 60),
+                null);
+
+        reporter.report();
+        assertThat(sender.writes.get(0)).hasSize(2);
+        value.set(104);
+        reporter.report();
+        assertThat(sender.writes.get(1)).extracting(InfluxDbPoint::getMeasurement).containsExactly("com.hivemq.text");
+        value.set(106);
+        reporter.report();
+        assertThat(point("com.hivemq.limit").getFields()).containsOnly(Map.entry("value", 106));
+    }
+
+    @Test
+    void test_state_of_removed_counters_is_not_reused() throws Exception {
+        registry.counter("com.hivemq.messages.count").inc(10);
+        final var reporter = new InfluxDbMetricsReporter(registry,
+                sender,
+                Map.of(),
+                Map.of(),
+                List.of("com.hivemq.messages"),
+                NO_DEADBAND,
+                null);
+        reporter.report();
+
+        // the new counters start without a previous count, whether they reuse the name or the slot
+        registry.remove("com.hivemq.messages.count");
+        reporter.report();
+        registry.counter("com.hivemq.messages.count").inc(3);
+        registry.counter("com.hivemq.messages.other").inc(5);
+        sender.points.clear();
+        Thread.sleep(10);
+        reporter.report();
+
+        assertThat(point("com.hivemq.messages.count").getFields()).containsOnly(Map.entry("count", 3L));
+        assertThat(point("com.hivemq.messages.other").getFields()).containsOnly(Map.entry("count", 5L));
+    }
+
+    private @NotNull InfluxDbPoint point(final @NotNull String measurement) {
+        return sender.points.stream()
+                .filter(point -> point.getMeasurement().equals(measurement))
+                .findFirst()
+                .orElseThrow();
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InfluxDbReplayTest {
+
+    @TempDir
+    private @NotNull Path tempDir;
+
+    private final @NotNull List<String> batches = Collections.synchronizedList(new ArrayList<>());
+
+    @Test
+    void test_replay_rechunks_files() throws Exception {
+        final var first = tempDir.resolve("hivemq-metrics-20240101T000000000Z.lp");
+        Files.writeString(first, "a value=1\n\nb value=2\nc value=3");
+        final var second = tempDir.resolve("hivemq-metrics-20240101T010000000Z.lp.gz");
+        try (final var out = new GZIPOutputStream(Files.newOutputStream(second))) {
+            out.write("d value=4\ne value=5\n".getBytes(StandardCharsets.UTF_8));
+        }
+
+        final var replay = createReplay(data -> batches.add(new String(data, StandardCharsets.UTF_8)), 0);
+
+        assertThat(replay.replay(List.of(first, second))).isTrue();
+        assertThat(String.join("", batches)).hasSize(50);
+        assertThat(batches).hasSize(3);
+        assertThat(batches).contains("a value=1\nb value=2\n", "c value=3\nd value=4\n", "e value=5\n");
+    }
+
+    @Test
+    void test_replay_truncated_gzip_file() throws Exception {
+        // a segment that was completed after a crash has no gzip trailer and might end within a line
+        final var data = new ByteArrayOutputStream();
+        final var gzip = new GZIPOutputStream(data, true);
+        gzip.write("a value=1\nb value=2\nc val".getBytes(StandardCharsets.UTF_8));
+        gzip.flush();
+        final var first = tempDir.resolve("hivemq-metrics-20240101T000000000Z.lp.gz");
+        Files.write(first, data.toByteArray());
+        final var second = tempDir.resolve("hivemq-metrics-20240101T010000000Z.lp");
+        Files.writeString(second, "d value=4\n");
+
+        final var replay = createReplay(batch -> batches.add(new String(batch, StandardCharsets.UTF_8)), 0);
+
+        assertThat(replay.replay(List.of(first, second))).isTrue();
+        assertThat(batches).containsExactly("a value=1\nb value=2\n", "d value=4\n");
+    }
+
+    @Test
+    void test_replay_retries_failed_batches() throws Exception {
+        final var file = tempDir.resolve("metrics.lp");
+        Files.writeString(file, "a value=1\n");
+        final var attempts = new AtomicInteger();
+
+        final var replay = createReplay(data -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new Exception("Service Unavailable");
+            }
+            batches.add(new String(data, StandardCharsets.UTF_8));
+        }, 2);
+
+        assertThat(replay.replay(List.of(file))).isTrue();
+        assertThat(attempts.get()).isEqualTo(3);
+        assertThat(batches).containsExactly("a value=1\n");
+    }
+
+    @Test
+    void test_replay_reports_failed_batches() throws Exception {
+        final var file = tempDir.resolve("metrics.lp");
+        Files.writeString(file, "a value=1\n");
+
+        final var replay = createReplay(data -> {
+            throw new Exception("Bad Request");
+        }, 1);
+
+        assertThat(replay.replay(List.of(file))).isFalse();
+    }
+
+    @Test
+    void test_list_files() throws Exception {
+        Files.writeString(tempDir.resolve("hivemq-metrics-20240101T010000000Z.lp.gz"), "");
+        Files.writeString(tempDir.resolve("hivemq-metrics-20240101T000000000Z.lp"), "");
+        Files.writeString(tempDir.resolve("hivemq-metrics-20240101T020000000Z.lp.part"), "");
+        Files.writeString(tempDir.resolve("notes.txt"), "");
+
+        assertThat(InfluxDbReplay.listFiles(List.of(tempDir.toString()))).containsExactly(tempDir.resolve(
+                "hivemq-metrics-20240101T000000000Z.lp"), tempDir.resolve("hivemq-metrics-20240101T010000000Z.lp.gz"));
+    }
+
+    private static @NotNull InfluxDbReplay createReplay(
+            final @NotNull InfluxDbReplay.BatchWriter writer,
+            final int retries) {
+        return new InfluxDbReplay(writer, 2, 2, 1024, 0, retries, 1, new PrintStream(new ByteArrayOutputStream()));
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InfluxDbUdpBatchSenderTest {
+
+    private @NotNull DatagramSocket receiver;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        receiver = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+        receiver.setSoTimeout(5000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        receiver.close();
+    }
+
+    @Test
+    void test_write_data_single_datagram() throws Exception {
+        try (final var sender = createSender(1400)) {
+            sender.writeData("a value=1\nb value=2\n".getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertThat(receive()).isEqualTo("a value=1\nb value=2\n");
+    }
+
+    @Test
+    void test_write_data_packs_whole_lines() throws Exception {
+        // every line is 10 bytes, so two lines fit into a payload of 25 bytes
+        final var lines = "a value=1\nb value=2\nc value=3\nd value=4\ne value=5\n";
+        try (final var sender = createSender(25)) {
+            sender.writeData(lines.getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertThat(receive()).isEqualTo("a value=1\nb value=2\n");
+        assertThat(receive()).isEqualTo("c value=3\nd value=4\n");
+        assertThat(receive()).isEqualTo("e value=5\n");
+    }
+
+    @Test
+    void test_write_data_drops_oversized_line() throws Exception {
+        try (final var sender = createSender(12)) {
+            sender.writeData("a value=1\nlong value=12345\nb value=2\n".getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertThat(receive()).isEqualTo("a value=1\n");
+        assertThat(receive()).isEqualTo("b value=2\n");
+    }
+
+    @Test
+    void test_write_data_unterminated_last_line() throws Exception {
+        try (final var sender = createSender(1400)) {
+            sender.writeData("a value=1\nb value=2".getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertThat(receive()).isEqualTo("a value=1\nb value=2");
+    }
+
+    @Test
+    void test_invalid_payload_size() {
+        assertThatThrownBy(() -> createSender(0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> createSender(65508)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private @NotNull InfluxDbUdpBatchSender createSender(final int payloadSize) {
+        return new InfluxDbUdpBatchSender(receiver.getLocalAddress().getHostAddress(),
+                receiver.getLocalPort(),
+                30_000,
+                payloadSize,
+                TimeUnit.MILLISECONDS,
+                "hivemq",
+                "");
+    }
+
+    private @NotNull String receive() throws Exception {
+        final var packet = new DatagramPacket(new byte[1500], 1500);
+        receiver.receive(packet);
+        return new String(packet.getData(), packet.getOffset(), packet.getLength(), StandardCharsets.UTF_8);
+    }
+}
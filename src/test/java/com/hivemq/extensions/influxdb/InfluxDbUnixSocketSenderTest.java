@@ -0,0 +1,99 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InfluxDbUnixSocketSenderTest {
+
+    @TempDir
+    private @NotNull Path tempDir;
+
+    private @NotNull Path socketPath;
+    private @NotNull ServerSocketChannel server;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        socketPath = tempDir.resolve("telegraf.sock");
+        server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        server.bind(UnixDomainSocketAddress.of(socketPath));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        server.close();
+    }
+
+    @Test
+    void test_stream_supported() {
+        assertThat(UnixDomainSockets.isStreamSupported()).isTrue();
+    }
+
+    @Test
+    void test_write_data() throws Exception {
+        try (final var sender = createSender()) {
+            sender.writeData("a value=1\n".getBytes(StandardCharsets.UTF_8));
+            sender.writeData("b value=2\n".getBytes(StandardCharsets.UTF_8));
+            try (final var client = server.accept()) {
+                assertThat(read(client, 20)).isEqualTo("a value=1\nb value=2\n");
+            }
+        }
+    }
+
+    @Test
+    void test_write_data_reconnects_after_close() throws Exception {
+        try (final var sender = createSender()) {
+            sender.writeData("a value=1\n".getBytes(StandardCharsets.UTF_8));
+            try (final var client = server.accept()) {
+                assertThat(read(client, 10)).isEqualTo("a value=1\n");
+            }
+            sender.close();
+
+            sender.writeData("b value=2\n".getBytes(StandardCharsets.UTF_8));
+            try (final var client = server.accept()) {
+                assertThat(read(client, 10)).isEqualTo("b value=2\n");
+            }
+        }
+    }
+
+    private @NotNull InfluxDbUnixSocketSender createSender() {
+        return new InfluxDbUnixSocketSender(socketPath.toString(), TimeUnit.MILLISECONDS, "hivemq", "");
+    }
+
+    private static @NotNull String read(final @NotNull SocketChannel client, final int length) throws Exception {
+        final var buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining() && client.read(buffer) >= 0) {
+            // read until the expected number of bytes arrived
+        }
+        return new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb;
+
+import com.github.tomakehurst.wiremock.junit5.WireMockRuntimeInfo;
+import com.github.tomakehurst.wiremock.junit5.WireMockTest;
+import com.izettle.metrics.influxdb.data.InfluxDbPoint;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.absent;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.verify;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@WireMockTest
+class InfluxDbV1SenderTest {
+
+    @Test
+    void test_write_data(final @NotNull WireMockRuntimeInfo wireMockRuntimeInfo) throws Exception {
+        final var sender = new InfluxDbV1Sender("http",
+                "localhost",
+                wireMockRuntimeInfo.getHttpPort(),
+                "testdb",
+                "user:pass",
+                TimeUnit.MILLISECONDS,
+                3000,
+                3000,
+                "");
+
+        stubFor(post(urlPathEqualTo("/write")).willReturn(aResponse().withStatus(204)));
+
+        sender.writeData("measurement,tag=value field=1".getBytes());
+
+        verify(postRequestedFor(urlEqualTo("/write?db=testdb&precision=ms"))
+                .withHeader("Authorization", equalTo("Basic dXNlcjpwYXNz"))
+                .withHeader("Content-Encoding", equalTo("gzip"))
+                .withRequestBody(equalTo("measurement,tag=value field=1")));
+    }
+
+    @Test
+    void test_write_data_points(final @NotNull WireMockRuntimeInfo wireMockRuntimeInfo) throws Exception {
+        final var sender = new InfluxDbV1Sender("http",
+                "localhost",
+                wireMockRuntimeInfo.getHttpPort(),
+                "testdb",
+                null,
+                TimeUnit.SECONDS,
+                3000,
+                3000,
+                "hivemq.");
+        sender.setTags(Map.of("host", "node1"));
+        sender.appendPoints(new InfluxDbPoint("a", Map.of(), 1000, Map.of("value", 1)));
+        sender.appendPoints(new InfluxDbPoint("b", Map.of(), 2000, Map.of("value", 2)));
+
+        stubFor(post(urlPathEqualTo("/write")).willReturn(aResponse().withStatus(204)));
+
+        sender.writeData();
+
+        verify(postRequestedFor(urlEqualTo("/write?db=testdb&precision=s"))
+                .withHeader("Transfer-Encoding", equalTo("chunked"))
+                .withRequestBody(equalTo("hivemq.a,host=node1 value=1 1\nhivemq.b,host=node1 value=2 2\n")));
+    }
+
+    @Test
+    void test_write_data_without_auth(final @NotNull WireMockRuntimeInfo wireMockRuntimeInfo) throws Exception {
+        final var sender = new InfluxDbV1Sender("http",
+                "localhost",
+                wireMockRuntimeInfo.getHttpPort(),
+                "testdb",
+                null,
+                TimeUnit.SECONDS,
+                3000,
+                3000,
+                "");
+
+        stubFor(post(urlPathEqualTo("/write")).willReturn(aResponse().withStatus(204)));
+
+        sender.writeData("line=line".getBytes());
+
+        verify(postRequestedFor(urlEqualTo("/write?db=testdb&precision=s")).withHeader("Authorization", absent()));
+    }
+
+    @Test
+    void test_write_data_connects_to_resolved_address(final @NotNull WireMockRuntimeInfo wireMockRuntimeInfo)
+            throws Exception {
+        final var address = new AtomicReference<>(InetAddress.getByAddress("influx.test", new byte[]{127, 0, 0, 1}));
+        final var resolver = new EndpointResolver("influx.test", 60_000, host -> new InetAddress[]{address.get()});
+        try (final var sender = new InfluxDbV1Sender("http",
+                "influx.test",
+                wireMockRuntimeInfo.getHttpPort(),
+                "testdb",
+                null,
+                TimeUnit.SECONDS,
+                3000,
+                3000,
+                "")) {
+            sender.setEndpointResolver(resolver);
+
+            stubFor(post(urlPathEqualTo("/write")).willReturn(aResponse().withStatus(204)));
+
+            sender.writeData("a value=1".getBytes());
+            address.set(InetAddress.getByAddress("influx.test", new byte[]{127, 0, 0, 2}));
+            resolver.refresh();
+            sender.writeData("b value=2".getBytes());
+        }
+
+        // the host name itself does not resolve, the requests are sent to the addresses of the resolver
+        verify(2,
+                postRequestedFor(urlPathEqualTo("/write")).withHeader("Host",
+                        equalTo("influx.test:" + wireMockRuntimeInfo.getHttpPort())));
+    }
+
+    @Test
+    void test_write_data_fails_over_to_next_address(final @NotNull WireMockRuntimeInfo wireMockRuntimeInfo)
+            throws Exception {
+        // the first address is not reachable (TEST-NET-1)
+        final var addresses = new InetAddress[]{
+                InetAddress.getByAddress("influx.test", new byte[]{(byte) 192, 0, 2, 1}),
+                InetAddress.getByAddress("influx.test", new byte[]{127, 0, 0, 1})};
+        try (final var sender = new InfluxDbV1Sender("http",
+                "influx.test",
+                wireMockRuntimeInfo.getHttpPort(),
+                "testdb",
+                null,
+                TimeUnit.SECONDS,
+                500,
+                3000,
+                "")) {
+            sender.setEndpointResolver(new EndpointResolver("influx.test", 60_000, host -> addresses));
+
+            stubFor(post(urlPathEqualTo("/write")).willReturn(aResponse().withStatus(204)));
+
+            assertThrows(IOException.class, () -> sender.writeData("a value=1".getBytes()));
+            sender.writeData("b value=2".getBytes());
+        }
+
+        verify(1, postRequestedFor(urlPathEqualTo("/write")));
+        verify(postRequestedFor(urlPathEqualTo("/write")).withRequestBody(equalTo("b value=2")));
+    }
+
+    @Test
+    void test_write_data_server_error_fails_over_to_next_address(
+            final @NotNull WireMockRuntimeInfo wireMockRuntimeInfo) throws Exception {
+        final var addresses = new InetAddress[]{
+                InetAddress.getByAddress("influx.test", new byte[]{127, 0, 0, 1}),
+                InetAddress.getByAddress("influx.test", new byte[]{127, 0, 0, 2})};
+        final var resolver = new EndpointResolver("influx.test", 60_000, host -> addresses);
+        try (final var sender = new InfluxDbV1Sender("http",
+                "influx.test",
+                wireMockRuntimeInfo.getHttpPort(),
+                "testdb",
+                null,
+                TimeUnit.SECONDS,
+                3000,
+                3000,
+                "")) {
+            sender.setEndpointResolver(resolver);
+
+            stubFor(post(urlPathEqualTo("/write")).willReturn(aResponse().withStatus(503)));
+
+            assertThrows(IOException.class, () -> sender.writeData("a value=1".getBytes()));
+        }
+
+        assertThat(resolver.current()).isEqualTo(addresses[1]);
+    }
+
+    @Test
+    void test_write_data_server_error(final @NotNull WireMockRuntimeInfo wireMockRuntimeInfo) throws Exception {
+        final var sender = new InfluxDbV1Sender("http",
+                "localhost",
+                wireMockRuntimeInfo.getHttpPort(),
+                "testdb",
+                null,
+                TimeUnit.SECONDS,
+                3000,
+                3000,
+                "");
+
+        stubFor(post(urlPathEqualTo("/write")).willReturn(aResponse().withStatus(500)
+                .withBody("Internal Server Error")));
+
+        assertThrows(IOException.class, () -> sender.writeData("line=line".getBytes()));
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb;
+
+import com.izettle.metrics.influxdb.data.InfluxDbPoint;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.UnknownHostException;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LazyInfluxDbSenderTest {
+
+    private final @NotNull RecordingInfluxDbSender target = new RecordingInfluxDbSender();
+
+    @Test
+    void test_reports_are_buffered_until_initialized() throws Exception {
+        final var created = new CountDownLatch(1);
+        try (final var sender = new LazyInfluxDbSender(() -> {
+            created.await();
+            return target;
+        })) {
+            sender.setTags(Map.of("host", "node1"));
+            sender.start();
+            report(sender, "a");
+            report(sender, "b");
+            assertThat(sender.isReady()).isFalse();
+
+            created.countDown();
+            assertThat(sender.awaitInitialization(5, TimeUnit.SECONDS)).isTrue();
+            report(sender, "c");
+
+            assertThat(target.tags).containsEntry("host", "node1");
+            assertThat(target.writes).hasSize(1);
+            assertThat(target.writes.get(0)).extracting(InfluxDbPoint::getMeasurement).containsExactly("a", "b", "c");
+        }
+    }
+
+    @Test
+    void test_buffered_reports_are_limited_by_the_memory_budget() throws Exception {
+        final var created = new CountDownLatch(1);
+        final var point = new InfluxDbPoint("a", Map.of(), 1000, Map.of("value", 1));
+        final var budget = new MemoryBudget(4 * MemoryBudget.estimate(point));
+        try (final var sender = new LazyInfluxDbSender(() -> {
+            created.await();
+            return target;
+        }, budget)) {
+            sender.start();
+            report(sender, "a");
+            report(sender, "b");
+            report(sender, "c");
+            assertThat(budget.getUsed()).isEqualTo(budget.getLimit() / 2);
+
+            created.countDown();
+            assertThat(sender.awaitInitialization(5, TimeUnit.SECONDS)).isTrue();
+            report(sender, "d");
+
+            assertThat(target.writes.get(0)).extracting(InfluxDbPoint::getMeasurement).containsExactly("b", "c", "d");
+            assertThat(budget.getUsed()).isZero();
+        }
+    }
+
+    @Test
+    void test_initialization_is_retried() throws Exception {
+        final var attempts = new AtomicInteger();
+        try (final var sender = new LazyInfluxDbSender(() -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new UnknownHostException("influxdb");
+            }
+            return target;
+        })) {
+            sender.start();
+            assertThat(sender.awaitInitialization(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(sender.isReady()).isTrue();
+            assertThat(attempts.get()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void test_malformed_url_is_not_retried() throws Exception {
+        final var attempts = new AtomicInteger();
+        try (final var sender = new LazyInfluxDbSender(() -> {
+            attempts.incrementAndGet();
+            throw new MalformedURLException("unknown protocol: htp");
+        })) {
+            sender.start();
+            assertThat(sender.awaitInitialization(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(sender.isReady()).isFalse();
+            assertThat(attempts.get()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void test_reports_are_discarded_without_sender() throws Exception {
+        try (final var sender = new LazyInfluxDbSender(() -> null)) {
+            sender.start();
+            assertThat(sender.awaitInitialization(5, TimeUnit.SECONDS)).isTrue();
+            report(sender, "a");
+            assertThat(sender.isReady()).isFalse();
+
+            sender.stopBuffering();
+            assertThrows(IOException.class, () -> report(sender, "b"));
+        }
+    }
+
+    private static void report(final @NotNull LazyInfluxDbSender sender, final @NotNull String measurement)
+            throws Exception {
+        sender.flush();
+        sender.appendPoints(new InfluxDbPoint(measurement, Map.of(), 1000, Map.of("value", 1)));
+        sender.writeData();
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb;
+
+import com.izettle.metrics.influxdb.data.InfluxDbPoint;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LineProtocolEncoderTest {
+
+    @Test
+    void test_encode() {
+        final var encoder = new LineProtocolEncoder("hivemq.", TimeUnit.SECONDS);
+        final var fields = new LinkedHashMap<String, Object>();
+        fields.put("count", 5L);
+        fields.put("mean_rate", 1.5);
+
+        final var point = new InfluxDbPoint("messages", Map.of("node", "a"), 3000, fields);
+
+        assertThat(encode(encoder, point, Map.of())).isEqualTo("hivemq.messages,node=a count=5,mean_rate=1.5 3\n");
+    }
+
+    @Test
+    void test_encode_merges_and_sorts_tags() {
+        final var encoder = new LineProtocolEncoder("", TimeUnit.MILLISECONDS);
+        final var point = new InfluxDbPoint("m", Map.of("host", "point"), 1, Map.of("value", 1));
+
+        final var globalTags = Map.of("site", "muc", "host", "global");
+
+        assertThat(encode(encoder, point, globalTags)).isEqualTo("m,host=point,site=muc value=1 1\n");
+    }
+
+    @Test
+    void test_encode_escapes() {
+        final var encoder = new LineProtocolEncoder("", TimeUnit.MILLISECONDS);
+        final var point = new InfluxDbPoint("a b,c", Map.of("t=1", "x y"), 1, Map.of("f", "say \"hi\""));
+
+        assertThat(encode(encoder, point, Map.of())).isEqualTo("a\\ b\\,c,t\\=1=x\\ y f=\"say \\\"hi\\\"\" 1\n");
+    }
+
+    @Test
+    void test_encode_skips_non_finite_fields() {
+        final var encoder = new LineProtocolEncoder("", TimeUnit.MILLISECONDS);
+        final var fields = new LinkedHashMap<String, Object>();
+        fields.put("nan", Double.NaN);
+        fields.put("value", 2.0);
+
+        final var infinite = new InfluxDbPoint("m", Map.of(), 1, Map.of("inf", Double.POSITIVE_INFINITY));
+
+        assertThat(encode(encoder, new InfluxDbPoint("m", Map.of(), 1, fields), Map.of())).isEqualTo("m value=2.0 1\n");
+        assertThat(encode(encoder, infinite, Map.of())).isEmpty();
+    }
+
+    private static @NotNull String encode(
+            final @NotNull LineProtocolEncoder encoder,
+            final @NotNull InfluxDbPoint point,
+            final @NotNull Map<String, String> globalTags) {
+        final var line = new StringBuilder();
+        encoder.encode(point, globalTags, line);
+        return line.toString();
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ObservingInfluxDbSenderTest {
+
+    private final @NotNull RecordingInfluxDbSender delegate = new RecordingInfluxDbSender();
+    private final @NotNull ObservingInfluxDbSender sender = new ObservingInfluxDbSender(delegate);
+    private final @NotNull List<Long> latencies = new ArrayList<>();
+    private final @NotNull List<Exception> exceptions = new ArrayList<>();
+
+    @Test
+    void test_writes_are_observed() throws Exception {
+        sender.addListener((latencyNanos, exception) -> {
+            latencies.add(latencyNanos);
+            exceptions.add(exception);
+        });
+
+        sender.writeData();
+        delegate.fail = true;
+        assertThatThrownBy(sender::writeData).hasMessage("Connection refused");
+
+        assertThat(delegate.writes).hasSize(1);
+        assertThat(latencies).hasSize(2);
+        assertThat(latencies.get(0)).isLessThan(TimeUnit.SECONDS.toNanos(1));
+        assertThat(exceptions.get(0)).isNull();
+        assertThat(exceptions.get(1)).hasMessage("Connection refused");
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb;
+
+import com.izettle.metrics.influxdb.InfluxDbSender;
+import com.izettle.metrics.influxdb.data.InfluxDbPoint;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PrioritizingInfluxDbSenderTest {
+
+    private final @NotNull RecordingInfluxDbSender delegate = new RecordingInfluxDbSender();
+    private final @NotNull ObservingInfluxDbSender observingSender = new ObservingInfluxDbSender(delegate);
+    private final @NotNull PrioritizingInfluxDbSender sender = createSender(observingSender, 1000);
+
+    @BeforeEach
+    void setUp() {
+        observingSender.addListener(sender::onWrite);
+    }
+
+    @Test
+    void test_critical_points_are_written_first() throws Exception {
+        report(sender);
+
+        assertThat(delegate.writes.get(0)).extracting(InfluxDbPoint::getMeasurement)
+                .containsExactly("com.hivemq.messages.dropped.count",
+                        "com.hivemq.networking.connections.current",
+                        "com.hivemq.messages.incoming.count",
+                        "com.hivemq.extension.services.count");
+    }
+
+    @Test
+    void test_lowest_priorities_are_shed_while_degraded() throws Exception {
+        delegate.fail = true;
+        assertThatThrownBy(() -> report(sender)).hasMessage("Connection refused");
+        assertThat(sender.getLowestWritten()).isEqualTo(PrioritizingInfluxDbSender.NORMAL);
+        assertThatThrownBy(() -> report(sender)).hasMessage("Connection refused");
+        assertThat(sender.getLowestWritten()).isEqualTo(PrioritizingInfluxDbSender.CRITICAL);
+        assertThatThrownBy(() -> report(sender)).hasMessage("Connection refused");
+        assertThat(sender.getLowestWritten()).isEqualTo(PrioritizingInfluxDbSender.CRITICAL);
+
+        delegate.fail = false;
+        report(sender);
+        assertThat(delegate.writes.get(0)).extracting(InfluxDbPoint::getMeasurement)
+                .containsExactly("com.hivemq.messages.dropped.count", "com.hivemq.networking.connections.current");
+        assertThat(sender.getLowestWritten()).isEqualTo(PrioritizingInfluxDbSender.NORMAL);
+
+        report(sender);
+        assertThat(delegate.writes.get(1)).hasSize(3);
+        assertThat(sender.getLowestWritten()).isEqualTo(PrioritizingInfluxDbSender.BULK);
+    }
+
+    @Test
+    void test_delay_of_the_writes_is_not_degraded() throws Exception {
+        // the reporting jitter delays the writes above the observed writes to InfluxDB
+        final var observingDelegate = new ObservingInfluxDbSender(delegate);
+        try (final var delayed = new DelayedInfluxDbSender(observingDelegate, 100)) {
+            final var delayedSender = createSender(delayed, 50);
+            observingDelegate.addListener(delayedSender::onWrite);
+
+            report(delayedSender);
+            Thread.sleep(300);
+            report(delayedSender);
+            Thread.sleep(300);
+
+            assertThat(delayedSender.getLowestWritten()).isEqualTo(PrioritizingInfluxDbSender.BULK);
+            assertThat(delegate.writes).hasSize(2);
+            assertThat(delegate.writes.get(1)).hasSize(4);
+        }
+    }
+
+    private static @NotNull PrioritizingInfluxDbSender createSender(
+            final @NotNull InfluxDbSender delegate,
+            final long latencyThresholdMillis) {
+        return new PrioritizingInfluxDbSender(delegate,
+                List.of("com.hivemq.networking.connections", "com.hivemq.messages.dropped"),
+                List.of("com.hivemq.extension"),
+                latencyThresholdMillis);
+    }
+
+    private static void report(final @NotNull PrioritizingInfluxDbSender sender) throws Exception {
+        sender.flush();
+        sender.appendPoints(point("com.hivemq.extension.services.count"));
+        sender.appendPoints(point("com.hivemq.messages.incoming.count"));
+        sender.appendPoints(point("com.hivemq.messages.dropped.count"));
+        sender.appendPoints(point("com.hivemq.networking.connections.current"));
+        sender.writeData();
+    }
+
+    private static @NotNull InfluxDbPoint point(final @NotNull String measurement) {
+        return new InfluxDbPoint(measurement, 1000, Map.of("count", 1L));
+    }
+}
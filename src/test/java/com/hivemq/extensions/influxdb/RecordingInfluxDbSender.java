@@ -0,0 +1,73 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb;
+
+import com.izettle.metrics.influxdb.InfluxDbSender;
+import com.izettle.metrics.influxdb.data.InfluxDbPoint;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sender for tests that records the written points.
+ */
+class RecordingInfluxDbSender implements InfluxDbSender {
+
+    final @NotNull List<InfluxDbPoint> points = new ArrayList<>();
+    final @NotNull List<List<InfluxDbPoint>> writes = new ArrayList<>();
+    @NotNull Map<String, String> tags = new HashMap<>();
+    boolean fail;
+
+    @Override
+    public void flush() {
+        points.clear();
+    }
+
+    @Override
+    public boolean hasSeriesData() {
+        return !points.isEmpty();
+    }
+
+    @Override
+    public void appendPoints(final @Nullable InfluxDbPoint point) {
+        points.add(point);
+    }
+
+    @Override
+    public int writeData() throws Exception {
+        if (fail) {
+            throw new IOException("Connection refused");
+        }
+        writes.add(new ArrayList<>(points));
+        return 0;
+    }
+
+    @Override
+    public void setTags(final @NotNull Map<String, String> tags) {
+        this.tags = tags;
+    }
+
+    @Override
+    public @NotNull Map<String, String> getTags() {
+        return tags;
+    }
+}
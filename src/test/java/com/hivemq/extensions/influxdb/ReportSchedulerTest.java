@@ -0,0 +1,98 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricFilter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.ScheduledReporter;
+import com.codahale.metrics.Timer;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.SortedMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReportSchedulerTest {
+
+    @Test
+    void test_aligned_reports_run_at_wall_clock_boundaries() throws Exception {
+        final var reporter = new RecordingReporter(3);
+        final var scheduler = new ReportScheduler(reporter, new ReportingInterval(200, 200, Long.MAX_VALUE), true);
+
+        scheduler.start();
+        try {
+            assertThat(reporter.reported.await(5, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            scheduler.stop();
+        }
+
+        for (final var report : reporter.reports) {
+            assertThat(report % 200).isLessThan(50L);
+        }
+    }
+
+    @Test
+    void test_reports_run_at_fixed_rate() throws Exception {
+        final var reporter = new RecordingReporter(3);
+        final var scheduler = new ReportScheduler(reporter, new ReportingInterval(100, 100, Long.MAX_VALUE), false);
+
+        final var start = System.currentTimeMillis();
+        scheduler.start();
+        try {
+            assertThat(reporter.reported.await(5, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            scheduler.stop();
+        }
+
+        assertThat(reporter.reports.get(2) - start).isGreaterThanOrEqualTo(300L);
+    }
+
+    private static class RecordingReporter extends ScheduledReporter {
+
+        private final @NotNull List<Long> reports = new CopyOnWriteArrayList<>();
+        private final @NotNull CountDownLatch reported;
+
+        RecordingReporter(final int reports) {
+            super(new MetricRegistry(), "test", MetricFilter.ALL, TimeUnit.SECONDS, TimeUnit.MILLISECONDS);
+            this.reported = new CountDownLatch(reports);
+        }
+
+        @Override
+        public void report() {
+            reports.add(System.currentTimeMillis());
+            reported.countDown();
+        }
+
+        @Override
+        public void report(
+                final @NotNull SortedMap<String, Gauge> gauges,
+                final @NotNull SortedMap<String, Counter> counters,
+                final @NotNull SortedMap<String, Histogram> histograms,
+                final @NotNull SortedMap<String, Meter> meters,
+                final @NotNull SortedMap<String, Timer> timers) {
+        }
+    }
+}
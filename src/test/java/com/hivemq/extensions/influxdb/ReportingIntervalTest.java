@@ -0,0 +1,73 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReportingIntervalTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOW = TimeUnit.SECONDS.toNanos(2);
+
+    private final @NotNull ReportingInterval interval = new ReportingInterval(1000, 5000, 1000);
+
+    @Test
+    void test_overload_increases_multiplicatively_up_to_max() {
+        interval.onWrite(SLOW, null);
+        assertThat(interval.getMillis()).isEqualTo(2000);
+        interval.onWrite(FAST, new InfluxDbHttpException(429, "Too Many Requests"));
+        assertThat(interval.getMillis()).isEqualTo(4000);
+        interval.onWrite(FAST, new SocketTimeoutException());
+        assertThat(interval.getMillis()).isEqualTo(5000);
+    }
+
+    @Test
+    void test_healthy_decreases_additively_down_to_min() {
+        interval.onWrite(FAST, new InfluxDbHttpException(503, "Service Unavailable"));
+        interval.onWrite(FAST, new InfluxDbHttpException(500, "Internal Server Error"));
+        assertThat(interval.getMillis()).isEqualTo(4000);
+
+        interval.onWrite(FAST, null);
+        assertThat(interval.getMillis()).isEqualTo(3000);
+        interval.onWrite(FAST, null);
+        interval.onWrite(FAST, null);
+        interval.onWrite(FAST, null);
+        assertThat(interval.getMillis()).isEqualTo(1000);
+    }
+
+    @Test
+    void test_other_errors_keep_interval() {
+        interval.onWrite(SLOW, null);
+        interval.onWrite(FAST, new InfluxDbHttpException(401, "Unauthorized"));
+        interval.onWrite(FAST, new IOException("Connection refused"));
+        assertThat(interval.getMillis()).isEqualTo(2000);
+    }
+
+    @Test
+    void test_fixed_interval() {
+        final var fixed = new ReportingInterval(1000, 1000, Long.MAX_VALUE);
+        fixed.onWrite(SLOW, new InfluxDbHttpException(503, "Service Unavailable"));
+        assertThat(fixed.getMillis()).isEqualTo(1000);
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb;
+
+import com.izettle.metrics.influxdb.data.InfluxDbPoint;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SpoolingInfluxDbSenderTest {
+
+    @TempDir
+    private @NotNull Path tempDir;
+
+    private final @NotNull RecordingInfluxDbSender target = new RecordingInfluxDbSender();
+    private final @NotNull RecordingInfluxDbSender delegate = new RecordingInfluxDbSender();
+
+    @Test
+    void test_write_data_uses_delegate() throws Exception {
+        final var sender = createSender();
+        sender.appendPoints(point());
+        sender.writeData();
+
+        assertThat(delegate.writes).hasSize(1);
+        assertThat(target.writes).isEmpty();
+    }
+
+    @Test
+    void test_final_report_uses_target() throws Exception {
+        final var sender = createSender();
+        sender.startShutdown();
+        sender.appendPoints(point());
+        sender.writeData();
+        sender.spool();
+
+        // the points of the final report are written even if the decorators kept them
+        assertThat(target.writes).hasSize(1);
+        assertThat(target.writes.get(0)).extracting(InfluxDbPoint::getMeasurement).containsExactly("messages");
+        assertThat(delegate.writes).isEmpty();
+        assertThat(listFiles()).isEmpty();
+    }
+
+    @Test
+    void test_final_report_is_spooled_on_failure() throws Exception {
+        target.fail = true;
+        final var sender = createSender();
+        sender.setTags(Map.of("host", "node1"));
+        sender.startShutdown();
+        sender.flush();
+        sender.appendPoints(point());
+        sender.writeData();
+
+        final var files = listFiles();
+        assertThat(files).hasSize(1);
+        assertThat(Files.readString(files.get(0))).isEqualTo("hivemq.messages,host=node1 count=5 1000\n");
+    }
+
+    private @NotNull SpoolingInfluxDbSender createSender() {
+        return new SpoolingInfluxDbSender(delegate, target, tempDir, "hivemq.");
+    }
+
+    private static @NotNull InfluxDbPoint point() {
+        return new InfluxDbPoint("messages", Map.of(), 1000, Map.of("count", 5L));
+    }
+
+    private @NotNull List<Path> listFiles() throws Exception {
+        try (final var files = Files.list(tempDir)) {
+            return files.sorted().collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb;
+
+import com.izettle.metrics.influxdb.data.InfluxDbPoint;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TemplatingInfluxDbSenderTest {
+
+    private final @NotNull RecordingInfluxDbSender delegate = new RecordingInfluxDbSender();
+    private final @NotNull TemplatingInfluxDbSender sender = new TemplatingInfluxDbSender(delegate,
+            MetricNameTemplates.parse(List.of("com.hivemq.messages.* ..measurement.direction.type.field",
+                    "com.hivemq.messages.retained.* ..measurement.measurement.field* kind=retained",
+                    "com.hivemq.* .measurement*",
+                    "invalid.* ..direction",
+                    "short.* ...measurement")));
+
+    @Test
+    void test_name_is_split_into_measurement_tags_and_field() {
+        sender.appendPoints(new InfluxDbPoint("com.hivemq.messages.incoming.publish.count",
+                Map.of("node", "a"),
+                1000,
+                Map.of("count", 5L)));
+
+        final var point = delegate.points.get(0);
+        assertThat(point.getMeasurement()).isEqualTo("messages");
+        assertThat(point.getTags()).containsOnly(Map.entry("direction", "incoming"),
+                Map.entry("type", "publish"),
+                Map.entry("node", "a"));
+        assertThat(point.getTime()).isEqualTo(1000);
+        assertThat(point.getFields()).containsOnly(Map.entry("count", 5L));
+    }
+
+    @Test
+    void test_most_specific_filter_is_applied() {
+        sender.appendPoints(new InfluxDbPoint("com.hivemq.messages.retained.pending.current",
+                1000,
+                Map.of("count", 1L, "m1_rate", 0.5)));
+        sender.appendPoints(new InfluxDbPoint("com.hivemq.sessions.overall.current", 1000, Map.of("value", 3)));
+
+        final var retained = delegate.points.get(0);
+        assertThat(retained.getMeasurement()).isEqualTo("messages.retained");
+        assertThat(retained.getTags()).containsOnly(Map.entry("kind", "retained"));
+        assertThat(retained.getFields()).containsOnly(Map.entry("pending.current_count", 1L),
+                Map.entry("pending.current_m1_rate", 0.5));
+        final var sessions = delegate.points.get(1);
+        assertThat(sessions.getMeasurement()).isEqualTo("hivemq.sessions.overall.current");
+        assertThat(sessions.getTags()).isEmpty();
+        assertThat(sessions.getFields()).containsOnly(Map.entry("value", 3));
+    }
+
+    @Test
+    void test_unmatched_names_are_forwarded_unchanged() {
+        final var point = new InfluxDbPoint("org.example.metric", 1000, Map.of("value", 1));
+        sender.appendPoints(point);
+        sender.appendPoints(new InfluxDbPoint("invalid.metric", 1000, Map.of("value", 1)));
+
+        assertThat(delegate.points.get(0)).isSameAs(point);
+        assertThat(delegate.points.get(1).getMeasurement()).isEqualTo("invalid.metric");
+    }
+
+    @Test
+    void test_names_shorter_than_the_measurement_of_the_template_are_forwarded_unchanged() {
+        final var point = new InfluxDbPoint("short.metric", 1000, Map.of("value", 1));
+        sender.appendPoints(point);
+
+        assertThat(delegate.points.get(0)).isSameAs(point);
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.net.ssl.SSLSocket;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TlsSocketFactoryTest {
+
+    @TempDir
+    private @NotNull Path tempDir;
+
+    @Test
+    void test_sockets_enable_configured_protocols_and_cipher_suites() throws Exception {
+        final var factory = TlsSocketFactory.create(List.of("TLSv1.3", "SSLv2"),
+                List.of("TLS_AES_128_GCM_SHA256", "UNKNOWN_CIPHER_SUITE"),
+                null,
+                null,
+                "PKCS12");
+
+        try (final var socket = (SSLSocket) factory.createSocket()) {
+            assertThat(socket.getEnabledProtocols()).containsExactly("TLSv1.3");
+            assertThat(socket.getEnabledCipherSuites()).containsExactly("TLS_AES_128_GCM_SHA256");
+        }
+        assertThat(factory.getDefaultCipherSuites()).containsExactly("TLS_AES_128_GCM_SHA256");
+    }
+
+    @Test
+    void test_default_cipher_suites() throws Exception {
+        final var factory = TlsSocketFactory.create(List.of("TLSv1.3", "TLSv1.2"), null, null, null, "PKCS12");
+
+        try (final var socket = (SSLSocket) factory.createSocket()) {
+            assertThat(socket.getEnabledProtocols()).containsExactly("TLSv1.3", "TLSv1.2");
+            assertThat(socket.getEnabledCipherSuites()).isNotEmpty();
+        }
+    }
+
+    @Test
+    void test_unsupported_protocols() {
+        assertThatThrownBy(() -> TlsSocketFactory.create(List.of("SSLv2"), null, null, null, "PKCS12"))
+                .isInstanceOf(GeneralSecurityException.class);
+    }
+
+    @Test
+    void test_missing_trust_store() {
+        final var trustStore = tempDir.resolve("truststore.p12");
+        assertThatThrownBy(() -> TlsSocketFactory.create(List.of("TLSv1.3"), null, trustStore, "changeit", "PKCS12"))
+                .isInstanceOf(IOException.class);
+    }
+}
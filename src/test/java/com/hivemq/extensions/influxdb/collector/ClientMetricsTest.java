@@ -0,0 +1,51 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb.collector;
+
+import com.izettle.metrics.influxdb.data.InfluxDbPoint;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClientMetricsTest {
+
+    @Test
+    void test_collect_reports_top_clients_per_dimension() {
+        final var clientMetrics = new ClientMetrics(1, 1, TimeUnit.HOURS);
+        clientMetrics.addPublish("sensor-1", 10);
+        clientMetrics.addPublish("sensor-1", 10);
+        clientMetrics.addPublish("sensor-2", 1000);
+        clientMetrics.addSubscriptions("dashboard", 5);
+
+        final var points = new ArrayList<InfluxDbPoint>();
+        clientMetrics.collect(1000, points::add);
+
+        assertThat(points).extracting(InfluxDbPoint::getMeasurement)
+                .containsExactly(ClientMetrics.PUBLISH_MEASUREMENT,
+                        ClientMetrics.PUBLISH_BYTES_MEASUREMENT,
+                        ClientMetrics.SUBSCRIPTIONS_MEASUREMENT);
+        assertThat(points.get(0).getTags()).containsEntry("client", "sensor-1");
+        assertThat(points.get(0).getFields()).containsEntry("value", 2L);
+        assertThat(points.get(1).getTags()).containsEntry("client", "sensor-2");
+        assertThat(points.get(1).getFields()).containsEntry("value", 1000L);
+        assertThat(points.get(2).getTags()).containsEntry("client", "dashboard");
+        assertThat(points.get(2).getFields()).containsEntry("value", 5L).containsKey("rate");
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb.collector;
+
+import com.izettle.metrics.influxdb.data.InfluxDbPoint;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FlightRecorderMetricsTest {
+
+    @Test
+    void test_collect_gc_pauses() throws Exception {
+        assertThat(FlightRecorderMetrics.isSupported()).isTrue();
+        try (final var flightRecorderMetrics = new FlightRecorderMetrics(10, TimeUnit.MILLISECONDS)) {
+            final var points = new ArrayList<InfluxDbPoint>();
+            // the events are streamed about once per second
+            for (var i = 0; i < 100 && gcPause(points).isEmpty(); i++) {
+                System.gc();
+                Thread.sleep(100);
+                flightRecorderMetrics.collect(System.currentTimeMillis(), points::add);
+            }
+
+            final var gcPause = gcPause(points).orElseThrow();
+            assertThat(gcPause.getMeasurement()).isEqualTo(FlightRecorderMetrics.EVENTS_MEASUREMENT);
+            assertThat(gcPause.getFields()).containsKey("count").containsKey("p99").containsKey("max");
+        }
+    }
+
+    private static @NotNull Optional<InfluxDbPoint> gcPause(final @NotNull List<InfluxDbPoint> points) {
+        return points.stream().filter(point -> "gc_pause".equals(point.getTags().get("event"))).findFirst();
+    }
+}
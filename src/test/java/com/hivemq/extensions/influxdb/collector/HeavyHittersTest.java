@@ -0,0 +1,71 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb.collector;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HeavyHittersTest {
+
+    @Test
+    void test_top_keys_among_many_keys() {
+        final var heavyHitters = new HeavyHitters(3, 256, 4);
+        for (var i = 0; i < 10_000; i++) {
+            heavyHitters.add("client-" + i, 1);
+            if (i % 20 == 0) {
+                heavyHitters.add("heavy-1", 1);
+                heavyHitters.add("heavy-2", 2);
+                heavyHitters.add("heavy-3", 3);
+            }
+        }
+
+        final var top = heavyHitters.top();
+        assertThat(top).extracting((HeavyHitters.Entry entry) -> entry.key)
+                .containsExactly("heavy-3", "heavy-2", "heavy-1");
+        // the estimates are never lower than the actual counts
+        assertThat(top.get(0).estimate).isGreaterThanOrEqualTo(1500);
+        assertThat(top.get(1).estimate).isGreaterThanOrEqualTo(1000);
+        assertThat(top.get(2).estimate).isGreaterThanOrEqualTo(500);
+    }
+
+    @Test
+    void test_decay() {
+        final var heavyHitters = new HeavyHitters(2, 64, 4);
+        heavyHitters.add("a", 100);
+        heavyHitters.add("b", 10);
+
+        heavyHitters.decay(0.5);
+        assertThat(heavyHitters.estimate("a")).isEqualTo(50);
+        assertThat(heavyHitters.estimate("b")).isEqualTo(5);
+
+        // the recent activity of a new key outweighs the decayed counts
+        heavyHitters.add("c", 20);
+        assertThat(heavyHitters.top()).extracting((HeavyHitters.Entry entry) -> entry.key)
+                .containsExactly("a", "c");
+    }
+
+    @Test
+    void test_inactive_keys_leave_top() {
+        final var heavyHitters = new HeavyHitters(2, 64, 4);
+        heavyHitters.add("a", 1);
+
+        heavyHitters.decay(0.1);
+
+        assertThat(heavyHitters.top()).isEmpty();
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb.collector;
+
+import com.izettle.metrics.influxdb.data.InfluxDbPoint;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JvmMetricsTest {
+
+    @Test
+    void test_collect() {
+        final var jvmMetrics = new JvmMetrics(1, TimeUnit.MINUTES);
+
+        final var points = new ArrayList<InfluxDbPoint>();
+        jvmMetrics.collect(1000, points::add);
+
+        assertThat(points).extracting(InfluxDbPoint::getMeasurement)
+                .contains(JvmMetrics.GC_MEASUREMENT,
+                        JvmMetrics.MEMORY_MEASUREMENT,
+                        JvmMetrics.MEMORY_POOL_MEASUREMENT,
+                        JvmMetrics.BUFFER_POOL_MEASUREMENT,
+                        JvmMetrics.THREADS_MEASUREMENT,
+                        JvmMetrics.CLASSES_MEASUREMENT);
+        final var bufferPools = points.stream()
+                .filter(point -> point.getMeasurement().equals(JvmMetrics.BUFFER_POOL_MEASUREMENT))
+                .map(point -> point.getTags().get("pool"))
+                .collect(Collectors.toList());
+        assertThat(bufferPools).contains("direct", "mapped");
+        final var threads = points.stream()
+                .filter(point -> point.getMeasurement().equals(JvmMetrics.THREADS_MEASUREMENT))
+                .findFirst()
+                .orElseThrow();
+        assertThat(threads.getFields()).containsKey("count").containsKey("runnable").containsEntry("deadlocked", 0);
+    }
+}
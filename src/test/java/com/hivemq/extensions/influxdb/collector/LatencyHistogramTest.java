@@ -0,0 +1,68 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb.collector;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LatencyHistogramTest {
+
+    @Test
+    void test_buckets() {
+        assertThat(LatencyHistogram.bucket(0)).isEqualTo(0);
+        assertThat(LatencyHistogram.bucket(63)).isEqualTo(63);
+        assertThat(LatencyHistogram.bucket(64)).isEqualTo(64);
+        assertThat(LatencyHistogram.bucket(65)).isEqualTo(64);
+        assertThat(LatencyHistogram.highestValue(64)).isEqualTo(65);
+        for (var value = 1L; value < LatencyHistogram.MAX_VALUE; value = value * 3 + 1) {
+            final var highestValue = LatencyHistogram.highestValue(LatencyHistogram.bucket(value));
+            assertThat(highestValue).isGreaterThanOrEqualTo(value);
+            // relative precision of 1/32
+            assertThat(highestValue - value).isLessThanOrEqualTo(value / 32);
+        }
+    }
+
+    @Test
+    void test_percentiles() {
+        final var histogram = new LatencyHistogram();
+        for (var value = 1; value <= 1000; value++) {
+            histogram.record(value);
+        }
+
+        assertThat(histogram.count()).isEqualTo(1000);
+        assertThat(histogram.mean()).isEqualTo(500.5);
+        assertThat(histogram.max()).isEqualTo(1000);
+        assertThat(histogram.valueAtPercentile(50)).isBetween(500L, 515L);
+        assertThat(histogram.valueAtPercentile(99)).isBetween(990L, 1000L);
+        assertThat(histogram.valueAtPercentile(100)).isEqualTo(1000);
+    }
+
+    @Test
+    void test_reset() {
+        final var histogram = new LatencyHistogram();
+        histogram.record(-1);
+        histogram.record(Long.MAX_VALUE);
+        assertThat(histogram.max()).isEqualTo(LatencyHistogram.MAX_VALUE);
+
+        histogram.reset();
+
+        assertThat(histogram.count()).isEqualTo(0);
+        assertThat(histogram.max()).isEqualTo(0);
+        assertThat(histogram.valueAtPercentile(50)).isEqualTo(0);
+    }
+}
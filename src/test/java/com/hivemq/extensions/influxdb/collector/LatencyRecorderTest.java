@@ -0,0 +1,79 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb.collector;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LatencyRecorderTest {
+
+    @Test
+    void test_interval() {
+        final var recorder = new LatencyRecorder();
+        recorder.record(10);
+        recorder.record(20);
+
+        final var first = recorder.interval();
+        assertThat(first.count()).isEqualTo(2);
+        assertThat(first.max()).isEqualTo(20);
+
+        recorder.record(30);
+        final var second = recorder.interval();
+        assertThat(second.count()).isEqualTo(1);
+        assertThat(second.max()).isEqualTo(30);
+
+        assertThat(recorder.interval().count()).isEqualTo(0);
+    }
+
+    @Test
+    void test_no_value_is_lost_while_recording_concurrently() throws Exception {
+        final var recorder = new LatencyRecorder();
+        final var stop = new AtomicBoolean();
+        final var writers = new ArrayList<Thread>();
+        final var recorded = new long[4];
+        for (var i = 0; i < recorded.length; i++) {
+            final var writer = i;
+            writers.add(new Thread(() -> {
+                while (!stop.get()) {
+                    recorder.record(writer);
+                    recorded[writer]++;
+                }
+            }));
+        }
+        writers.forEach(Thread::start);
+
+        var counted = 0L;
+        for (var i = 0; i < 100; i++) {
+            counted += recorder.interval().count();
+        }
+        stop.set(true);
+        for (final var writer : writers) {
+            writer.join();
+        }
+        counted += recorder.interval().count();
+
+        var total = 0L;
+        for (final var count : recorded) {
+            total += count;
+        }
+        assertThat(counted).isEqualTo(total);
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb.collector;
+
+import com.izettle.metrics.influxdb.data.InfluxDbPoint;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProcMetricsTest {
+
+    @TempDir
+    private @NotNull Path proc;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Files.createDirectories(proc.resolve("net"));
+        Files.createDirectories(proc.resolve("self").resolve("fd"));
+        Files.createFile(proc.resolve("self").resolve("fd").resolve("0"));
+        Files.createFile(proc.resolve("self").resolve("fd").resolve("1"));
+        Files.writeString(proc.resolve("self").resolve("limits"),
+                "Limit                     Soft Limit           Hard Limit           Units     \n" +
+                        "Max open files            8                    4096                 files     \n");
+    }
+
+    @Test
+    void test_collect_reports_deltas() throws Exception {
+        writeProc(1000, 100, 0);
+        final var procMetrics = new ProcMetrics(proc);
+        final var points = new ArrayList<InfluxDbPoint>();
+
+        procMetrics.collect(1000, points::add);
+        // the first report only records the initial counters
+        assertThat(points).extracting(InfluxDbPoint::getMeasurement)
+                .containsExactly(ProcMetrics.FILE_DESCRIPTORS_MEASUREMENT);
+        assertThat(points.get(0).getFields()).containsEntry("open", 2L)
+                .containsEntry("limit", 8L)
+                .containsEntry("usage", 25.0);
+
+        writeProc(1300, 150, 2048);
+        points.clear();
+        procMetrics.collect(2000, points::add);
+
+        assertThat(points).extracting(InfluxDbPoint::getMeasurement)
+                .containsExactly(ProcMetrics.CPU_MEASUREMENT,
+                        ProcMetrics.NETWORK_MEASUREMENT,
+                        ProcMetrics.DISK_MEASUREMENT,
+                        ProcMetrics.FILE_DESCRIPTORS_MEASUREMENT);
+        // 300 of 400 ticks user time, 50 of 400 steal time
+        assertThat(points.get(0).getFields()).containsEntry("user", 75.0)
+                .containsEntry("steal", 12.5)
+                .containsEntry("idle", 12.5);
+        assertThat(points.get(1).getTags()).containsEntry("interface", "eth0");
+        assertThat(points.get(1).getFields()).containsEntry("rx_bytes", 2048L)
+                .containsEntry("tx_bytes", 4096L)
+                .containsEntry("rx_dropped", 1L);
+        assertThat(points.get(2).getTags()).containsEntry("device", "sda");
+        assertThat(points.get(2).getFields()).containsEntry("writes", 4L).containsEntry("write_bytes", 2048L * 512);
+    }
+
+    private void writeProc(final long userTicks, final long stealTicks, final long bytes) throws Exception {
+        Files.writeString(proc.resolve("stat"),
+                "cpu  " + userTicks + " 0 0 " + (1000 + stealTicks) + " 0 0 0 " + stealTicks + " 0 0\n" +
+                        "cpu0 " + userTicks + " 0 0 1000 0 0 0 " + stealTicks + " 0 0\n" +
+                        "ctxt 1158177\n");
+        Files.writeString(proc.resolve("net").resolve("dev"),
+                "Inter-|   Receive                                                |  Transmit\n" +
+                        " face |bytes    packets errs drop fifo frame compressed multicast|bytes    packets errs " +
+                        "drop fifo colls carrier compressed\n" +
+                        "    lo: 70831473    9859    0    0    0     0          0         0 70831473    9859    0 " +
+                        "   0    0     0       0          0\n" +
+                        "  eth0:" + (1000 + bytes) + " 10 0 " + (bytes / 2048) + " 0 0 0 0 " + (1000 + 2 * bytes) +
+                        " 20 0 0 0 0 0 0\n");
+        Files.write(proc.resolve("diskstats"),
+                List.of("   7       0 loop0 0 0 0 0 0 0 0 0 0 0 0 0 0 0 0 0 0",
+                        "   8       0 sda 100 0 800 10 " + (20 + bytes / 512) + " 0 " + (1600 + bytes) +
+                                " 30 0 " + (40 + bytes / 100) + " 50 0 0 0 0 0 0"));
+    }
+}
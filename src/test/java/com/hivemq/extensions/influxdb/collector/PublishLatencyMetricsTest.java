@@ -0,0 +1,138 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb.collector;
+
+import com.hivemq.extension.sdk.api.interceptor.publish.parameter.PublishOutboundInput;
+import com.hivemq.extension.sdk.api.interceptor.publish.parameter.PublishOutboundOutput;
+import com.hivemq.extension.sdk.api.packets.general.Qos;
+import com.hivemq.extension.sdk.api.packets.publish.PublishPacket;
+import com.izettle.metrics.influxdb.data.InfluxDbPoint;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class PublishLatencyMetricsTest {
+
+    @Test
+    void test_collect_reports_percentiles_per_qos_and_topic_prefix() {
+        final var latencyMetrics = new PublishLatencyMetrics(List.of("devices/", "alerts/"));
+        latencyMetrics.record("devices/1/telemetry", 1, TimeUnit.MILLISECONDS.toNanos(2));
+        latencyMetrics.record("devices/2/telemetry", 1, TimeUnit.MILLISECONDS.toNanos(4));
+        latencyMetrics.record("other", 0, TimeUnit.MICROSECONDS.toNanos(50));
+
+        final var points = new ArrayList<InfluxDbPoint>();
+        latencyMetrics.collect(1000, points::add);
+
+        assertThat(points).hasSize(3);
+        assertThat(points).extracting(InfluxDbPoint::getMeasurement).containsOnly(PublishLatencyMetrics.MEASUREMENT);
+        assertThat(points.get(0).getTags()).containsEntry("qos", "0").doesNotContainKey("topic_prefix");
+        assertThat(points.get(0).getFields()).containsEntry("count", 1L).containsEntry("max", 50L);
+        assertThat(points.get(1).getTags()).containsEntry("qos", "1").doesNotContainKey("topic_prefix");
+        assertThat(points.get(1).getFields()).containsEntry("count", 2L).containsEntry("max", 4000L);
+        assertThat(points.get(2).getTags()).containsEntry("qos", "1").containsEntry("topic_prefix", "devices/");
+        assertThat(points.get(2).getFields()).containsEntry("count", 2L).containsEntry("mean", 3000.0);
+
+        // the histograms are reset for every interval
+        points.clear();
+        latencyMetrics.collect(2000, points::add);
+        assertThat(points).isEmpty();
+    }
+
+    @Test
+    void test_delivery_records_the_time_since_the_message_was_received() {
+        final var latencyMetrics = new PublishLatencyMetrics(List.of());
+        final var received = System.currentTimeMillis();
+        latencyMetrics.delivered("devices/1/telemetry", 2, false, received, received + 3);
+
+        final var points = new ArrayList<InfluxDbPoint>();
+        latencyMetrics.collect(received + 10, points::add);
+
+        assertThat(points).hasSize(1);
+        assertThat(points.get(0).getTags()).containsEntry("qos", "2");
+        assertThat(points.get(0).getFields()).containsEntry("count", 1L).containsEntry("max", 3000L);
+    }
+
+    @Test
+    void test_outbound_publish_does_not_modify_the_message() {
+        final var latencyMetrics = new PublishLatencyMetrics(List.of());
+        final var publishPacket = mock(PublishPacket.class);
+        when(publishPacket.getTopic()).thenReturn("devices/1/telemetry");
+        when(publishPacket.getQos()).thenReturn(Qos.AT_LEAST_ONCE);
+        when(publishPacket.getTimestamp()).thenReturn(System.currentTimeMillis());
+        final var publishOutboundInput = mock(PublishOutboundInput.class);
+        when(publishOutboundInput.getPublishPacket()).thenReturn(publishPacket);
+        final var publishOutboundOutput = mock(PublishOutboundOutput.class);
+
+        latencyMetrics.onOutboundPublish(publishOutboundInput, publishOutboundOutput);
+
+        // the user properties of the client stay as they are and nothing is added to the message
+        verifyNoInteractions(publishOutboundOutput);
+        final var points = new ArrayList<InfluxDbPoint>();
+        latencyMetrics.collect(System.currentTimeMillis(), points::add);
+        assertThat(points).hasSize(1);
+        assertThat(points.get(0).getTags()).containsEntry("qos", "1");
+    }
+
+    @Test
+    void test_retained_deliveries_are_not_recorded() {
+        final var latencyMetrics = new PublishLatencyMetrics(List.of());
+        final var received = System.currentTimeMillis();
+        latencyMetrics.delivered("devices/1/status", 1, true, received, received + 3);
+
+        final var points = new ArrayList<InfluxDbPoint>();
+        latencyMetrics.collect(received + 10, points::add);
+
+        assertThat(points).isEmpty();
+    }
+
+    @Test
+    void test_messages_received_before_the_interval_are_not_recorded() {
+        final var latencyMetrics = new PublishLatencyMetrics(List.of());
+        final var intervalStart = System.currentTimeMillis();
+        latencyMetrics.collect(intervalStart, point -> {});
+
+        // queued for an offline client in a previous interval
+        latencyMetrics.delivered("devices/1/telemetry", 1, false, intervalStart - 60_000, intervalStart + 5);
+        latencyMetrics.delivered("devices/1/telemetry", 1, false, intervalStart + 1, intervalStart + 5);
+
+        final var points = new ArrayList<InfluxDbPoint>();
+        latencyMetrics.collect(intervalStart + 10, points::add);
+
+        assertThat(points).hasSize(1);
+        assertThat(points.get(0).getFields()).containsEntry("count", 1L).containsEntry("max", 4000L);
+    }
+
+    @Test
+    void test_messages_received_after_the_delivery_are_not_recorded() {
+        final var latencyMetrics = new PublishLatencyMetrics(List.of());
+        final var delivered = System.currentTimeMillis();
+        // received by a cluster node with a clock ahead of this node
+        latencyMetrics.delivered("devices/1/telemetry", 0, false, delivered + 50, delivered);
+
+        final var points = new ArrayList<InfluxDbPoint>();
+        latencyMetrics.collect(delivered + 100, points::add);
+
+        assertThat(points).isEmpty();
+    }
+}
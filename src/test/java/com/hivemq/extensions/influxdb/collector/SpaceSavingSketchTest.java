@@ -0,0 +1,94 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb.collector;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SpaceSavingSketchTest {
+
+    @Test
+    void test_counts_are_exact_within_capacity() {
+        final var sketch = new SpaceSavingSketch(3);
+        sketch.add("a", 10);
+        sketch.add("b", 20);
+        sketch.add("a", 30);
+
+        final var top = sketch.top(10);
+        assertThat(top).extracting((SpaceSavingSketch.Entry entry) -> entry.key).containsExactly("a", "b");
+        assertThat(top.get(0).messages).isEqualTo(2);
+        assertThat(top.get(0).bytes).isEqualTo(40);
+        assertThat(top.get(0).error).isEqualTo(0);
+        assertThat(top.get(1).messages).isEqualTo(1);
+    }
+
+    @Test
+    void test_heavy_hitters_are_tracked_beyond_capacity() {
+        final var sketch = new SpaceSavingSketch(4);
+        for (var i = 0; i < 1000; i++) {
+            sketch.add("heavy1", 1);
+            sketch.add("heavy2", 1);
+            sketch.add("rare" + i, 1);
+        }
+
+        final var top = sketch.top(2);
+        assertThat(top).extracting((SpaceSavingSketch.Entry entry) -> entry.key)
+                .containsExactlyInAnyOrder("heavy1", "heavy2");
+        for (final var entry : top) {
+            // the count is never underestimated and overestimated by at most the error
+            assertThat(entry.messages).isGreaterThanOrEqualTo(1000);
+            assertThat(entry.messages - entry.error).isLessThanOrEqualTo(1000);
+        }
+    }
+
+    @Test
+    void test_replaced_key_takes_over_counts_as_error() {
+        final var sketch = new SpaceSavingSketch(2);
+        sketch.add("a", 1);
+        sketch.add("a", 1);
+        sketch.add("b", 5);
+        sketch.add("c", 7);
+
+        final var top = sketch.top(2);
+        assertThat(top).extracting((SpaceSavingSketch.Entry entry) -> entry.key).containsExactly("a", "c");
+        assertThat(top.get(1).messages).isEqualTo(2);
+        assertThat(top.get(1).bytes).isEqualTo(12);
+        assertThat(top.get(1).error).isEqualTo(1);
+    }
+
+    @Test
+    void test_key_with_lowest_current_count_is_replaced() {
+        final var sketch = new SpaceSavingSketch(3);
+        sketch.add("a", 1);
+        sketch.add("b", 1);
+        sketch.add("c", 1);
+        // the counts change after the keys were admitted
+        for (var i = 0; i < 5; i++) {
+            sketch.add("a", 1);
+            sketch.add("c", 1);
+        }
+        sketch.add("a", 1);
+        sketch.add("d", 1);
+        sketch.add("e", 1);
+
+        final var top = sketch.top(3);
+        assertThat(top).extracting((SpaceSavingSketch.Entry entry) -> entry.key).containsExactly("a", "c", "e");
+        assertThat(top.get(2).messages).isEqualTo(3);
+        assertThat(top.get(2).error).isEqualTo(2);
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2018-present HiveMQ GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.influxdb.collector;
+
+import com.izettle.metrics.influxdb.data.InfluxDbPoint;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TopicMetricsTest {
+
+    @Test
+    void test_topic_key() {
+        assertThat(TopicMetrics.topicKey("devices/1234/telemetry", 0)).isEqualTo("devices/1234/telemetry");
+        assertThat(TopicMetrics.topicKey("devices/1234/telemetry", 1)).isEqualTo("devices");
+        assertThat(TopicMetrics.topicKey("devices/1234/telemetry", 2)).isEqualTo("devices/1234");
+        assertThat(TopicMetrics.topicKey("devices/1234/telemetry", 3)).isEqualTo("devices/1234/telemetry");
+        assertThat(TopicMetrics.topicKey("/devices", 1)).isEqualTo("");
+    }
+
+    @Test
+    void test_collect_reports_top_topics_of_interval() {
+        final var topicMetrics = new TopicMetrics(2, 2);
+        topicMetrics.add("devices/1/telemetry", 100);
+        topicMetrics.add("devices/1/status", 10);
+        topicMetrics.add("devices/2/telemetry", 100);
+        topicMetrics.add("devices/2/telemetry", 100);
+        topicMetrics.add("devices/3/telemetry", 100);
+
+        final var points = new ArrayList<InfluxDbPoint>();
+        topicMetrics.collect(1000, points::add);
+
+        assertThat(points).hasSize(2);
+        assertThat(points).extracting(InfluxDbPoint::getMeasurement).containsOnly(TopicMetrics.MEASUREMENT);
+        assertThat(points.get(0).getTime()).isEqualTo(1000);
+        assertThat(points.get(0).getTags()).containsEntry("topic", "devices/2");
+        assertThat(points.get(0).getFields()).containsEntry("count", 2L).containsEntry("bytes", 200L);
+        assertThat(points.get(1).getTags()).containsEntry("topic", "devices/1");
+        assertThat(points.get(1).getFields()).containsEntry("count", 2L).containsEntry("bytes", 110L);
+
+        // every report covers the interval since the previous report
+        points.clear();
+        topicMetrics.collect(2000, points::add);
+        assertThat(points).isEmpty();
+    }
+}
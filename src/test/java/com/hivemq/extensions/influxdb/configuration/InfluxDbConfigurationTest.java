@@ -381,4 +381,496 @@ class InfluxDbConfigurationTest {
         assertThat(influxDbConfiguration.readPropertiesFromFile()).isTrue();
         assertThat(influxDbConfiguration.getVersion()).isEqualTo(2);
     }
+
+    @Test
+    void getUdpPayloadSize_default() throws Exception {
+        Files.write(file, List.of("host=localhost", "port=8089", "mode=udp"));
+        assertThat(influxDbConfiguration.readPropertiesFromFile()).isTrue();
+        assertThat(influxDbConfiguration.validateConfiguration()).isTrue();
+        assertThat(influxDbConfiguration.getUdpPayloadSize()).isEqualTo(1400);
+    }
+
+    @Test
+    void getUdpPayloadSize_jumbo() throws Exception {
+        Files.write(file, List.of("host=localhost", "port=8089", "mode=udp", "udpPayloadSize=8900"));
+        assertThat(influxDbConfiguration.readPropertiesFromFile()).isTrue();
+        assertThat(influxDbConfiguration.validateConfiguration()).isTrue();
+        assertThat(influxDbConfiguration.getUdpPayloadSize()).isEqualTo(8900);
+    }
+
+    @Test
+    void validateConfiguration_udpPayloadSize_out_of_range() throws Exception {
+        Files.write(file, List.of("host=localhost", "port=8089", "mode=udp", "udpPayloadSize=65508"));
+        assertThat(influxDbConfiguration.readPropertiesFromFile()).isTrue();
+        assertThat(influxDbConfiguration.validateConfiguration()).isFalse();
+    }
+
+    @Test
+    void validateConfiguration_unix() throws Exception {
+        Files.write(file, List.of("mode=unix", "socketPath=/var/run/telegraf.sock"));
+        assertThat(influxDbConfiguration.readPropertiesFromFile()).isTrue();
+        assertThat(influxDbConfiguration.validateConfiguration()).isTrue();
+        assertThat(influxDbConfiguration.isUnixSocketMode()).isTrue();
+        assertThat(influxDbConfiguration.isHostConfigured()).isFalse();
+        assertThat(influxDbConfiguration.getSocketPath()).isEqualTo("/var/run/telegraf.sock");
+    }
+
+    @Test
+    void validateConfiguration_unix_with_placeholder_host() throws Exception {
+        Files.write(file,
+                List.of("mode=unixgram", "socketPath=/var/run/telegraf.sock", "host=<INFLUXDB IP>", "port=8094"));
+        assertThat(influxDbConfiguration.readPropertiesFromFile()).isTrue();
+        assertThat(influxDbConfiguration.validateConfiguration()).isTrue();
+        assertThat(influxDbConfiguration.isUnixSocketMode()).isTrue();
+        assertThat(influxDbConfiguration.isHostConfigured()).isFalse();
+    }
+
+    @Test
+    void validateConfiguration_unix_socketPath_missing() throws Exception {
+        Files.write(file, List.of("mode=unix", "host=localhost", "port=8094"));
+        assertThat(influxDbConfiguration.readPropertiesFromFile()).isTrue();
+        assertThat(influxDbConfiguration.validateConfiguration()).isFalse();
+    }
+
+    @Test
+    void validateConfiguration_file() throws Exception {
+        Files.write(file,
+                List.of("mode=file",
+                        "fileDirectory=/var/spool/hivemq",
+                        "fileMaxSize=1048576",
+                        "fileRotationInterval=600",
+                        "fileCompression=gzip"));
+        assertThat(influxDbConfiguration.readPropertiesFromFile()).isTrue();
+        assertThat(influxDbConfiguration.validateConfiguration()).isTrue();
+        assertThat(influxDbConfiguration.isFileMode()).isTrue();
+        assertThat(influxDbConfiguration.getFileDirectory()).isEqualTo("/var/spool/hivemq");
+        assertThat(influxDbConfiguration.getFileMaxSize()).isEqualTo(1048576);
+        assertThat(influxDbConfiguration.getFileRotationInterval()).isEqualTo(600);
+        assertThat(influxDbConfiguration.getFileCompression()).isEqualTo("gzip");
+    }
+
+    @Test
+    void validateConfiguration_file_defaults() throws Exception {
+        Files.write(file, List.of("mode=file"));
+        assertThat(influxDbConfiguration.readPropertiesFromFile()).isTrue();
+        assertThat(influxDbConfiguration.validateConfiguration()).isTrue();
+        assertThat(influxDbConfiguration.getFileDirectory()).isEqualTo("metrics");
+        assertThat(influxDbConfiguration.getFileMaxSize()).isEqualTo(64 * 1024 * 1024);
+        assertThat(influxDbConfiguration.getFileRotationInterval()).isEqualTo(3600);
+        assertThat(influxDbConfiguration.getFileCompression()).isEqualTo("none");
+    }
+
+    @Test
+    void validateConfiguration_file_compression_invalid() throws Exception {
+        Files.write(file, List.of("mode=file", "fileCompression=zstd"));
+        assertThat(influxDbConfiguration.readPropertiesFromFile()).isTrue();
+        assertThat(influxDbConfiguration.validateConfiguration()).isFalse();
+    }
+
+    @Test
+    void validateConfiguration_maxReportingInterval() throws Exception {
+        Files.write(file,
+                List.of("host=localhost",
+                        "port=8086",
+                        "reportingInterval=5",
+                        "maxReportingInterval=60",
+                        "reportingLatencyThreshold=500"));
+        assertThat(influxDbConfiguration.readPropertiesFromFile()).isTrue();
+        assertThat(influxDbConfiguration.validateConfiguration()).isTrue();
+        assertThat(influxDbConfiguration.isAdaptiveReportingInterval()).isTrue();
+        assertThat(influxDbConfiguration.getMaxReportingInterval()).isEqualTo(60);
+        assertThat(influxDbConfiguration.getReportingLatencyThreshold()).isEqualTo(500);
+    }
+
+    @Test
+    void validateConfiguration_maxReportingInterval_lower_than_reportingInterval() throws Exception {
+        Files.write(file, List.of("host=localhost", "port=8086", "reportingInterval=10", "maxReportingInterval=5"));
+        assertThat(influxDbConfiguration.readPropertiesFromFile()).isTrue();
+        assertThat(influxDbConfiguration.validateConfiguration()).isFalse();
+    }
+
+    @Test
+    void isAdaptiveReportingInterval_default() throws Exception {
+        Files.write(file, List.of("host=localhost", "port=8086"));
+        assertThat(influxDbConfiguration.readPropertiesFromFile()).isTrue();
+        assertThat(influxDbConfiguration.isAdaptiveReportingInterval()).isFalse();
+    }
+
+    @Test
+    void validateConfiguration_reportingAlignment_and_reportingJitter() throws Exception {
+        Files.write(file,
+                List.of("host=localhost",
+                        "port=8086",
+                        "reportingInterval=10",
+                        "reportingAlignment=true",
+                        "reportingJitter=5000"));
+        assertThat(influxDbConfiguration.readPropertiesFromFile()).isTrue();
+        assertThat(influxDbConfiguration.validateConfiguration()).isTrue();
+        assertThat(influxDbConfiguration.isReportingAlignment()).isTrue();
+        assertThat(influxDbConfiguration.getReportingJitter()).isEqualTo(5000);
+    }
+
+    @Test
+    void validateConfiguration_reportingJitter_not_lower_than_reportingInterval() throws Exception {
+        Files.write(file, List.of("host=localhost", "port=8086", "reportingInterval=1", "reportingJitter=1000"));
+        assertThat(influxDbConfiguration.readPropertiesFromFile()).isTrue();
+        assertThat(influxDbConfiguration.validateConfiguration()).isFalse();
+    }
+
+    @Test
+    void getReportingJitter_default() throws Exception {
+        Files.write(file, List.of("host=localhost", "port=8086"));
+        assertThat(influxDbConfiguration.readPropertiesFromFile()).isTrue();
+        assertThat(influxDbConfiguration.isReportingAlignment()).isFalse();
+        assertThat(influxDbConfiguration.getReportingJitter()).isEqualTo(0);
+    }
+
+    @Test
+    void getShutdownTimeout_and_getSpoolDirectory() throws Exception {
+        Files.write(file, List.of("host=localhost", "port=8086", "shutdownTimeout=2000", "spoolDirectory=/var/spool"));
+        assertThat(influxDbConfiguration.readPropertiesFromFile()).isTrue();
+        assertThat(influxDbConfiguration.getShutdownTimeout()).isEqualTo(2000);
+        assertThat(influxDbConfiguration.getSpoolDirectory()).isEqualTo("/var/spool");
+    }
+
+    @Test
+    void getShutdownTimeout_and_getSpoolDirectory_default() throws Exception {
+        Files.write(file, List.of("host=localhost", "port=8086"));
+        assertThat(influxDbConfiguration.readPropertiesFromFile()).isTrue();
+        assertThat(influxDbConfiguration.getShutdownTimeout()).isEqualTo(5000);
+        assertThat(influxDbConfiguration.getSpoolDirectory()).isEqualTo("spool");
+    }
+
+    @Test
+    void getDnsTtl() throws Exception {
+        Files.write(file, List.of("host=localhost", "port=8086", "dnsTtl=300"));
+        assertThat(influxDbConfiguration.readPropertiesFromFile()).isTrue();
+        assertThat(influxDbConfiguration.getDnsTtl()).isEqualTo(300);
+    }
+
+    @Test
+    void getDnsTtl_default() throws Exception {
+        Files.write(file, List.of("host=localhost", "port=8086"));
+        assertThat(influxDbConfiguration.readPropertiesFromFile()).isTrue();
+        assertThat(influxDbConfiguration.getDnsTtl()).isEqualTo(30);
+    }
+
+    @Test
+    void getTls() throws Exception {
+        Files.write(file,
+                List.of("host=localhost",
+                        "port=8086",
+                        "tlsProtocols=TLSv1.3",
+                        "tlsCipherSuites=TLS_AES_128_GCM_SHA256, TLS_AES_256_GCM_SHA384",
+                        "tlsTrustStore=conf/truststore.p12",
+                        "tlsTrustStorePassword=changeit",
+                        "tlsTrustStoreType=JKS"));
+        assertThat(influxDbConfiguration.readPropertiesFromFile()).isTrue();
+        assertThat(influxDbConfiguration.getTlsProtocols()).containsExactly("TLSv1.3");
+        assertThat(influxDbConfiguration.getTlsCipherSuites()).containsExactly("TLS_AES_128_GCM_SHA256",
+                "TLS_AES_256_GCM_SHA384");
+        assertThat(influxDbConfiguration.getTlsTrustStore()).isEqualTo("conf/truststore.p12");
+        assertThat(influxDbConfiguration.getTlsTrustStorePassword()).isEqualTo("changeit");
+        assertThat(influxDbConfiguration.getTlsTrustStoreType()).isEqualTo("JKS");
+    }
+
+    @Test
+    void getTls_default() throws Exception {
+        Files.write(file, List.of("host=localhost", "port=8086"));
+        assertThat(influxDbConfiguration.readPropertiesFromFile()).isTrue();
+        assertThat(influxDbConfiguration.getTlsProtocols()).containsExactly("TLSv1.3", "TLSv1.2");
+        assertThat(influxDbConfiguration.getTlsCipherSuites()).isNull();
+        assertThat(influxDbConfiguration.getTlsTrustStore()).isNull();
+        assertThat(influxDbConfiguration.getTlsTrustStoreType()).isEqualTo("PKCS12");
+    }
+
+    @Test
+    void getTopicMetrics() throws Exception {
+        Files.write(file,
+                List.of("host=localhost",
+                        "port=8086",
+                        "topicMetrics=true",
+                        "topicMetricsLevels=2",
+                        "topicMetricsTopK=20"));
+        assertThat(influxDbConfiguration.readPropertiesFromFile()).isTrue();
+        assertThat(influxDbConfiguration.isTopicMetrics()).isTrue();
+        assertThat(influxDbConfiguration.getTopicMetricsLevels()).isEqualTo(2);
+        assertThat(influxDbConfiguration.getTopicMetricsTopK()).isEqualTo(20);
+    }
+
+    @Test
+    void getTopicMetrics_default() throws Exception {
+        Files.write(file, List.of("host=localhost", "port=8086"));
+        assertThat(influxDbConfiguration.readPropertiesFromFile()).isTrue();
+        assertThat(influxDbConfiguration.isTopicMetrics()).isFalse();
+        assertThat(influxDbConfiguration.getTopicMetricsLevels()).isEqualTo(0);
+        assertThat(influxDbConfiguration.getTopicMetricsTopK()).isEqualTo(100);
+    }
+
+    @Test
+    void getClientMetrics() throws Exception {
+        Files.write(file,
+                List.of("host=localhost",
+                        "port=8086",
+                        "clientMetrics=true",
+                        "clientMetricsTopN=5",
+                        "clientMetricsHalfLife=300"));
+        assertThat(influxDbConfiguration.readPropertiesFromFile()).isTrue();
+        assertThat(influxDbConfiguration.isClientMetrics()).isTrue();
+        assertThat(influxDbConfiguration.getClientMetricsTopN()).isEqualTo(5);
+        assertThat(influxDbConfiguration.getClientMetricsHalfLife()).isEqualTo(300);
+    }
+
+    @Test
+    void getClientMetrics_default() throws Exception {
+        Files.write(file, List.of("host=localhost", "port=8086"));
+        assertThat(influxDbConfiguration.readPropertiesFromFile()).isTrue();
+        assertThat(influxDbConfiguration.isClientMetrics()).isFalse();
+        assertThat(influxDbConfiguration.getClientMetricsTopN()).isEqualTo(20);
+        assertThat(influxDbConfiguration.getClientMetricsHalfLife()).isEqualTo(60);
+    }
+
+    @Test
+    void getLatencyMetrics() throws Exception {
+        Files.write(file,
+                List.of("host=localhost",
+                        "port=8086",
+                        "latencyMetrics=true",
+                        "latencyMetricsTopicPrefixes=devices/, alerts/"));
+        assertThat(influxDbConfiguration.readPropertiesFromFile()).isTrue();
+        assertThat(influxDbConfiguration.isLatencyMetrics()).isTrue();
+        assertThat(influxDbConfiguration.getLatencyMetricsTopicPrefixes()).containsExactly("devices/", "alerts/");
+    }
+
+    @Test
+    void getLatencyMetrics_default() throws Exception {
+        Files.write(file, List.of("host=localhost", "port=8086"));
+        assertThat(influxDbConfiguration.readPropertiesFromFile()).isTrue();
+        assertThat(influxDbConfiguration.isLatencyMetrics()).isFalse();
+        assertThat(influxDbConfiguration.getLatencyMetricsTopicPrefixes()).isEmpty();
+    }
+
+    @Test
+    void getJvmMetrics() throws Exception {
+        Files.write(file, List.of("host=localhost", "port=8086", "jvmMetrics=true", "jvmMetricsThreadInterval=10"));
+        assertThat(influxDbConfiguration.readPropertiesFromFile()).isTrue();
+        assertThat(influxDbConfiguration.isJvmMetrics()).isTrue();
+        assertThat(influxDbConfiguration.getJvmMetricsThreadInterval()).isEqualTo(10);
+    }
+
+    @Test
+    void getJvmMetrics_default() throws Exception {
+        Files.write(file, List.of("host=localhost", "port=8086"));
+        assertThat(influxDbConfiguration.readPropertiesFromFile()).isTrue();
+        assertThat(influxDbConfiguration.isJvmMetrics()).isFalse();
+        assertThat(influxDbConfiguration.getJvmMetricsThreadInterval()).isEqualTo(60);
+    }
+
+    @Test
+    void getJfrMetrics() throws Exception {
+        Files.write(file, List.of("host=localhost", "port=8086", "jfrMetrics=true", "jfrMetricsThreshold=50"));
+        assertThat(influxDbConfiguration.readPropertiesFromFile()).isTrue();
+        assertThat(influxDbConfiguration.isJfrMetrics()).isTrue();
+        assertThat(influxDbConfiguration.getJfrMetricsThreshold()).isEqualTo(50);
+    }
+
+    @Test
+    void getJfrMetrics_default() throws Exception {
+        Files.write(file, List.of("host=localhost", "port=8086"));
+        assertThat(influxDbConfiguration.readPropertiesFromFile()).isTrue();
+        assertThat(influxDbConfiguration.isJfrMetrics()).isFalse();
+        assertThat(influxDbConfiguration.getJfrMetricsThreshold()).isEqualTo(10);
+    }
+
+    @Test
+    void isHostMetrics() throws Exception {
+        Files.write(file, List.of("host=localhost", "port=8086", "hostMetrics=true"));
+        assertThat(influxDbConfiguration.readPropertiesFromFile()).isTrue();
+        assertThat(influxDbConfiguration.isHostMetrics()).isTrue();
+    }
+
+    @Test
+    void isHostMetrics_default() throws Exception {
+        Files.write(file, List.of("host=localhost", "port=8086"));
+        assertThat(influxDbConfiguration.readPropertiesFromFile()).isTrue();
+        assertThat(influxDbConfiguration.isHostMetrics()).isFalse();
+    }
+
+    @Test
+    void getDownsampling() throws Exception {
+        Files.write(file,
+                List.of("host=localhost",
+                        "port=8086",
+                        "downsampling=60:hivemq_1m, 3600:hivemq_1h, invalid, 0:zero, 10:",
+                        "downsamplingAggregates=mean,max"));
+        assertThat(influxDbConfiguration.readPropertiesFromFile()).isTrue();
+        assertThat(influxDbConfiguration.getDownsampling()).containsExactly(Map.entry(60, "hivemq_1m"),
+                Map.entry(3600, "hivemq_1h"));
+        assertThat(influxDbConfiguration.getDownsamplingAggregates()).containsExactly("mean", "max");
+    }
+
+    @Test
+    void getDownsampling_default() throws Exception {
+        Files.write(file, List.of("host=localhost", "port=8086"));
+        assertThat(influxDbConfiguration.readPropertiesFromFile()).isTrue();
+        assertThat(influxDbConfiguration.getDownsampling()).isEmpty();
+        assertThat(influxDbConfiguration.getDownsamplingAggregates()).containsExactly("mean",
+                "min",
+                "max",
+                "last",
+                "sum");
+    }
+
+    @Test
+    void getTemplates() throws Exception {
+        Files.write(file,
+                List.of("host=localhost",
+                        "port=8086",
+                        "templates=com.hivemq.messages.* ..measurement.direction.type.field a=1,b=2; ; .measurement*"));
+        assertThat(influxDbConfiguration.readPropertiesFromFile()).isTrue();
+        assertThat(influxDbConfiguration.getTemplates()).containsExactly(
+                "com.hivemq.messages.* ..measurement.direction.type.field a=1,b=2",
+                ".measurement*");
+    }
+
+    @Test
+    void getTemplates_default() throws Exception {
+        Files.write(file, List.of("host=localhost", "port=8086"));
+        assertThat(influxDbConfiguration.readPropertiesFromFile()).isTrue();
+        assertThat(influxDbConfiguration.getTemplates()).isEmpty();
+    }
+
+    @Test
+    void getMetricFields() throws Exception {
+        Files.write(file,
+                List.of("host=localhost",
+                        "port=8086",
+                        "metricFields=com.hivemq.messages.*:count, p99; com.hivemq:count; invalid; :count; empty:"));
+        assertThat(influxDbConfiguration.readPropertiesFromFile()).isTrue();
+        assertThat(influxDbConfiguration.getMetricFields()).containsExactly(Map.entry("com.hivemq.messages.*",
+                List.of("count", "p99")), Map.entry("com.hivemq", List.of("count")));
+    }
+
+    @Test
+    void getMetricFields_default() throws Exception {
+        Files.write(file, List.of("host=localhost", "port=8086"));
+        assertThat(influxDbConfiguration.readPropertiesFromFile()).isTrue();
+        assertThat(influxDbConfiguration.getMetricFields()).isEmpty();
+    }
+
+    @Test
+    void getCounterDeltas() throws Exception {
+        Files.write(file,
+                List.of("host=localhost", "port=8086", "counterDeltas=com.hivemq.messages, com.hivemq.*.bytes"));
+        assertThat(influxDbConfiguration.readPropertiesFromFile()).isTrue();
+        assertThat(influxDbConfiguration.getCounterDeltas()).containsExactly("com.hivemq.messages",
+                "com.hivemq.*.bytes");
+    }
+
+    @Test
+    void getCounterDeltas_default() throws Exception {
+        Files.write(file, List.of("host=localhost", "port=8086"));
+        assertThat(influxDbConfiguration.readPropertiesFromFile()).isTrue();
+        assertThat(influxDbConfiguration.getCounterDeltas()).isEmpty();
+    }
+
+    @Test
+    void getGaugeDeadband() throws Exception {
+        Files.write(file,
+                List.of("host=localhost",
+                        "port=8086",
+                        "gaugeDeadband=com.hivemq.limits, com.hivemq.cluster",
+                        "gaugeDeadbandAbsolute=0.5",
+                        "gaugeDeadbandRelative=0.01",
+                        "gaugeKeyframeInterval=10"));
+        assertThat(influxDbConfiguration.readPropertiesFromFile()).isTrue();
+        assertThat(influxDbConfiguration.getGaugeDeadband()).containsExactly("com.hivemq.limits", "com.hivemq.cluster");
+        assertThat(influxDbConfiguration.getGaugeDeadbandAbsolute()).isEqualTo(0.5);
+        assertThat(influxDbConfiguration.getGaugeDeadbandRelative()).isEqualTo(0.01);
+        assertThat(influxDbConfiguration.getGaugeKeyframeInterval()).isEqualTo(10);
+    }
+
+    @Test
+    void getGaugeDeadband_invalid() throws Exception {
+        Files.write(file,
+                List.of("host=localhost",
+                        "port=8086",
+                        "gaugeDeadbandAbsolute=-1",
+                        "gaugeDeadbandRelative=ten",
+                        "gaugeKeyframeInterval=0"));
+        assertThat(influxDbConfiguration.readPropertiesFromFile()).isTrue();
+        assertThat(influxDbConfiguration.getGaugeDeadbandAbsolute()).isEqualTo(0.0);
+        assertThat(influxDbConfiguration.getGaugeDeadbandRelative()).isEqualTo(0.0);
+        assertThat(influxDbConfiguration.getGaugeKeyframeInterval()).isEqualTo(60);
+    }
+
+    @Test
+    void getGaugeDeadband_default() throws Exception {
+        Files.write(file, List.of("host=localhost", "port=8086"));
+        assertThat(influxDbConfiguration.readPropertiesFromFile()).isTrue();
+        assertThat(influxDbConfiguration.getGaugeDeadband()).isEmpty();
+        assertThat(influxDbConfiguration.getGaugeDeadbandAbsolute()).isEqualTo(0.0);
+        assertThat(influxDbConfiguration.getGaugeDeadbandRelative()).isEqualTo(0.0);
+        assertThat(influxDbConfiguration.getGaugeKeyframeInterval()).isEqualTo(60);
+    }
+
+    @Test
+    void getPriorityClasses() throws Exception {
+        Files.write(file,
+                List.of("host=localhost",
+                        "port=8086",
+                        "priorityCritical=com.hivemq.networking.connections, com.hivemq.messages.dropped",
+                        "priorityBulk=com.hivemq.extension"));
+        assertThat(influxDbConfiguration.readPropertiesFromFile()).isTrue();
+        assertThat(influxDbConfiguration.getPriorityCritical()).containsExactly("com.hivemq.networking.connections",
+                "com.hivemq.messages.dropped");
+        assertThat(influxDbConfiguration.getPriorityBulk()).containsExactly("com.hivemq.extension");
+    }
+
+    @Test
+    void getPriorityClasses_default() throws Exception {
+        Files.write(file, List.of("host=localhost", "port=8086"));
+        assertThat(influxDbConfiguration.readPropertiesFromFile()).isTrue();
+        assertThat(influxDbConfiguration.getPriorityCritical()).isEmpty();
+        assertThat(influxDbConfiguration.getPriorityBulk()).isEmpty();
+    }
+
+    @Test
+    void getMemoryBudget() throws Exception {
+        Files.write(file, List.of("host=localhost", "port=8086", "memoryBudget=1048576", "memoryBudgetPolicy=spool"));
+        assertThat(influxDbConfiguration.readPropertiesFromFile()).isTrue();
+        assertThat(influxDbConfiguration.getMemoryBudget()).isEqualTo(1048576);
+        assertThat(influxDbConfiguration.getMemoryBudgetPolicy()).isEqualTo("spool");
+    }
+
+    @Test
+    void getMemoryBudget_default() throws Exception {
+        Files.write(file, List.of("host=localhost", "port=8086"));
+        assertThat(influxDbConfiguration.readPropertiesFromFile()).isTrue();
+        assertThat(influxDbConfiguration.getMemoryBudget()).isEqualTo(64 * 1024 * 1024);
+        assertThat(influxDbConfiguration.getMemoryBudgetPolicy()).isEqualTo("drop");
+    }
+
+    @Test
+    void validateConfiguration_memoryBudgetPolicy() throws Exception {
+        Files.write(file, List.of("host=localhost", "port=8086", "memoryBudgetPolicy=swap"));
+        assertThat(influxDbConfiguration.readPropertiesFromFile()).isTrue();
+        assertThat(influxDbConfiguration.validateConfiguration()).isFalse();
+    }
+
+    @Test
+    void getGaugeTimeBudget() throws Exception {
+        Files.write(file, List.of("host=localhost", "port=8086", "gaugeTimeBudget=50", "gaugeCacheTtl=300"));
+        assertThat(influxDbConfiguration.readPropertiesFromFile()).isTrue();
+        assertThat(influxDbConfiguration.getGaugeTimeBudget()).isEqualTo(50);
+        assertThat(influxDbConfiguration.getGaugeCacheTtl()).isEqualTo(300);
+    }
+
+    @Test
+    void getGaugeTimeBudget_default() throws Exception {
+        Files.write(file, List.of("host=localhost", "port=8086"));
+        assertThat(influxDbConfiguration.readPropertiesFromFile()).isTrue();
+        assertThat(influxDbConfiguration.getGaugeTimeBudget()).isNull();
+        assertThat(influxDbConfiguration.getGaugeCacheTtl()).isEqualTo(60);
+    }
 }